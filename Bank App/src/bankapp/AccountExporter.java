@@ -0,0 +1,132 @@
+package bankapp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming export of every account in a Bank, in the formats AccountImporter reads
+ * Accounts are written in id order as the store is walked, through Bank.scanConsistent, so the
+ * file holds every balance as of the moment the export started while traffic carries on. The
+ * only memory that grows with the book is the old balances of accounts changed ahead of the walk.
+ *
+ * CSV: a header line, then account_number,holder,type,balance per line, with the balance in
+ * dollars (e.g. 1234.56). Fields containing a comma, quote or line break are quoted.
+ * Binary: [int magic][int version], then per account [byte 1][int id][long balance in cents]
+ * [short holder length][holder UTF-8][short type length][type UTF-8], then [byte 0][long account count].
+ */
+class AccountExporter {
+    static final String CSV_HEADER = "account_number,holder,type,balance";
+    static final int BINARY_MAGIC = 0x424B4143; // "BKAC"
+    static final int BINARY_VERSION = 1;
+    static final byte BINARY_RECORD = 1;
+    static final byte BINARY_END = 0;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private AccountExporter() {
+    }
+
+    /**
+     * @param bank The bank to export
+     * @param file The file to write
+     * @return The number of accounts written
+     * @throws IOException if the file cannot be written
+     */
+    static long writeCsv(Bank bank, Path file) throws IOException {
+        long[] count = new long[1];
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                BUFFER_BYTES)) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+            StringBuilder line = new StringBuilder(128);
+            try {
+                bank.scanConsistent((account, balance) -> {
+                    line.setLength(0);
+                    line.append(account.getAccountNumber()).append(',');
+                    appendField(line, account.getAccountHolderName()).append(',');
+                    appendField(line, account.getAccountType()).append(',');
+                    Money.appendTo(line, balance).append('\n');
+                    try {
+                        out.append(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * @param bank The bank to export
+     * @param file The file to write
+     * @return The number of accounts written
+     * @throws IOException if the file cannot be written
+     */
+    static long writeBinary(Bank bank, Path file) throws IOException {
+        long[] count = new long[1];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            try {
+                bank.scanConsistent((account, balance) -> {
+                    try {
+                        out.writeByte(BINARY_RECORD);
+                        out.writeInt(account.getId());
+                        out.writeLong(balance);
+                        writeString(out, account.getAccountHolderName());
+                        writeString(out, account.getAccountType());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(BINARY_END);
+            out.writeLong(count[0]);
+        }
+        return count[0];
+    }
+
+    private static StringBuilder appendField(StringBuilder line, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("Field too long to export");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,131 @@
+package bankapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique account ids without a shared counter on the hot path
+ * Each thread leases a block of consecutive ids and then allocates from it with no
+ * synchronization; only leasing the next block touches shared state (a CAS). With a lease
+ * file, blocks are also reserved in that file under an exclusive file lock, so several
+ * processes can allocate from one id space and no leased id is reused after a restart.
+ * Ids left over in a thread's block when the process stops are simply never used.
+ */
+public class AccountIdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final AccountNumberFormat format;
+    private final int blockSize;
+    private final Path leaseFile; // null when leases only need to be unique within this process
+    private final int firstId;
+    private final AtomicLong nextUnleased;
+    private final AtomicLong floor = new AtomicLong(); // ids below this are never handed out again
+    private final ThreadLocal<long[]> blocks = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * In-process allocator starting at ACC1001 in the default format
+     */
+    public AccountIdAllocator() {
+        this(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, DEFAULT_BLOCK_SIZE, null);
+    }
+
+    /**
+     * @param format The account number format, which bounds the id space
+     * @param firstId The first id to hand out
+     * @param blockSize Ids leased by a thread at a time
+     * @param leaseFile File recording the highest leased id, shared by every process using this id space; may be null
+     */
+    public AccountIdAllocator(AccountNumberFormat format, int firstId, int blockSize, Path leaseFile) {
+        if (blockSize < 1 || firstId < format.getMinId() || firstId > format.getMaxId()) {
+            throw new IllegalArgumentException("Invalid account id allocator settings");
+        }
+        this.format = format;
+        this.blockSize = blockSize;
+        this.leaseFile = leaseFile;
+        this.firstId = firstId;
+        this.nextUnleased = new AtomicLong(firstId);
+    }
+
+    public AccountNumberFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return A lower bound on every id this allocator hands out
+     */
+    public int getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * @return A new account id, never returned before by this allocator or any process sharing its lease file
+     * @throws IllegalStateException if the id space of the format is exhausted
+     */
+    public int next() {
+        long[] block = blocks.get(); // [next id, end of block]
+        if (block[0] >= block[1] || block[0] < floor.get()) {
+            lease(block);
+        }
+        return (int) block[0]++;
+    }
+
+    /**
+     * Makes sure an id that is already in use, e.g. one seen while rebuilding a bank or one kept by
+     * a bulk import, is never handed out again. Threads drop whatever is left of blocks below it.
+     * @param id An id that is already in use
+     */
+    public void observe(long id) {
+        nextUnleased.accumulateAndGet(id + 1, Math::max);
+        floor.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * @return An upper bound on every id handed out so far
+     */
+    public long getHighWaterMark() {
+        return nextUnleased.get() - 1;
+    }
+
+    private void lease(long[] block) {
+        long start;
+        if (leaseFile == null) {
+            start = nextUnleased.getAndAdd(blockSize);
+        } else {
+            start = leaseFromFile();
+        }
+        long end = Math.min(start + blockSize, (long) format.getMaxId() + 1);
+        if (start >= end) {
+            throw new IllegalStateException("Account number space exhausted for " + format.describe());
+        }
+        block[0] = start;
+        block[1] = end;
+    }
+
+    // Reserves the next block in the shared lease file; serialized within this process
+    // by the monitor and across processes by the file lock
+    private synchronized long leaseFromFile() {
+        try (FileChannel channel = FileChannel.open(leaseFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.lock(); // released when the channel is closed
+            ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+            long recorded = 0;
+            if (channel.read(buf, 0) == Long.BYTES) {
+                recorded = buf.flip().getLong();
+            }
+            long start = Math.max(recorded, nextUnleased.get());
+            buf.clear();
+            buf.putLong(start + blockSize).flip();
+            channel.write(buf, 0);
+            channel.force(false);
+            nextUnleased.accumulateAndGet(start + blockSize, Math::max);
+            return start;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lease account ids from " + leaseFile, e);
+        }
+    }
+}
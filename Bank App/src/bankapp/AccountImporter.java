@@ -0,0 +1,359 @@
+package bankapp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming bulk loader for account files written by AccountExporter or by another system
+ * Files are read through memory-mapped windows, so only a window and one batch of rows are
+ * held at a time. Each batch is checked with the InputValidator batch methods and inserted
+ * with Bank.importAccount; the journal is synced once per batch rather than once per account.
+ * Bad rows are reported to the reject listener and skipped, and loading carries on.
+ *
+ * CSV rows are account_number,holder,type,balance with the balance in dollars; an empty
+ * account number gets a new one from the bank, and a header line is skipped. Rows that keep
+ * their account number must not be loaded while other threads create accounts.
+ */
+class AccountImporter {
+    static final int BATCH_SIZE = 4096;
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final int MAX_SHARED_TYPES = 64;
+    private static final int MAX_BINARY_RECORD = 1 + 4 + 8 + 2 + Short.MAX_VALUE + 2 + Short.MAX_VALUE;
+
+    /**
+     * Receives rows that were not loaded
+     */
+    interface RejectListener {
+        /**
+         * @param row The 1-based row (CSV line or binary record) that was rejected
+         * @param message Why it was rejected
+         */
+        void rejected(long row, String message);
+    }
+
+    /**
+     * Outcome of one load
+     */
+    static final class Result {
+        private final long imported;
+        private final long rejected;
+
+        Result(long imported, long rejected) {
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+
+    private final Bank bank;
+    private final RejectListener rejects;
+
+    // The current batch, as parallel arrays
+    private final String[] numbers = new String[BATCH_SIZE];
+    private final String[] names = new String[BATCH_SIZE];
+    private final String[] types = new String[BATCH_SIZE];
+    private final long[] balances = new long[BATCH_SIZE];
+    private final long[] rows = new long[BATCH_SIZE];
+    private final ValidationResult[] results = new ValidationResult[BATCH_SIZE];
+    private int batched;
+
+    // One copy of each distinct account type, instead of one per row
+    private final Map<String, String> accountTypes = new HashMap<>();
+    private byte[] line = new byte[256];
+    private final ByteChars chars = new ByteChars();
+    private final int[] fieldStarts = new int[4];
+    private final int[] fieldEnds = new int[4];
+    private long imported;
+    private long rejected;
+
+    /**
+     * @param bank The bank to load into
+     * @param rejects Receives every rejected row; may be null
+     */
+    AccountImporter(Bank bank, RejectListener rejects) {
+        this.bank = bank;
+        this.rejects = rejects;
+    }
+
+    /**
+     * Loads a CSV file
+     * @param file The file to read
+     * @return How many rows were loaded and rejected by this call
+     * @throws IOException if the file cannot be read
+     */
+    Result importCsv(Path file) throws IOException {
+        long importedBefore = imported;
+        long rejectedBefore = rejected;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long row = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                int lineStart = 0;
+                boolean quoted = false;
+                for (int i = 0; i < limit; i++) {
+                    byte b = window.get(i);
+                    if (b == '"') {
+                        quoted = !quoted;
+                    } else if (b == '\n' && !quoted) {
+                        csvRow(window, lineStart, i, ++row);
+                        lineStart = i + 1;
+                    }
+                }
+                if (last) {
+                    if (lineStart < limit) {
+                        csvRow(window, lineStart, limit, ++row);
+                    }
+                    lineStart = limit;
+                } else if (lineStart == 0) {
+                    throw new IOException("Row " + (row + 1) + " is longer than " + WINDOW_BYTES + " bytes");
+                }
+                position += lineStart;
+            }
+        }
+        flush();
+        return new Result(imported - importedBefore, rejected - rejectedBefore);
+    }
+
+    /**
+     * Loads a binary file written by AccountExporter.writeBinary, keeping the account numbers
+     * @param file The file to read
+     * @return How many records were loaded and rejected by this call
+     * @throws IOException if the file cannot be read, is not an account export, or is cut short
+     */
+    Result importBinary(Path file) throws IOException {
+        long importedBefore = imported;
+        long rejectedBefore = rejected;
+        AccountNumberFormat format = bank.getAccountNumberFormat();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_BYTES, size));
+            long windowStart = 0;
+            if (window.remaining() < 8 || window.getInt() != AccountExporter.BINARY_MAGIC
+                    || window.getInt() != AccountExporter.BINARY_VERSION) {
+                throw new IOException("Not an account export: " + file);
+            }
+            long row = 0;
+            try {
+                while (true) {
+                    if (window.remaining() < MAX_BINARY_RECORD && windowStart + window.limit() < size) {
+                        windowStart += window.position();
+                        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_BYTES, size - windowStart));
+                    }
+                    byte marker = window.get();
+                    if (marker == AccountExporter.BINARY_END) {
+                        break;
+                    }
+                    if (marker != AccountExporter.BINARY_RECORD) {
+                        throw new IOException("Corrupt account export at record " + (row + 1) + ": " + file);
+                    }
+                    int id = window.getInt();
+                    long balance = window.getLong();
+                    String holder = readString(window);
+                    String type = readString(window);
+                    if (balance < 0) {
+                        reject(++row, "Balance cannot be negative");
+                    } else {
+                        add(++row, format.format(id), holder, type, balance);
+                    }
+                }
+                long count = window.getLong();
+                if (count != row) {
+                    throw new IOException("Account export holds " + row + " records but says " + count + ": " + file);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Account export is truncated: " + file, e);
+            }
+        }
+        flush();
+        return new Result(imported - importedBefore, rejected - rejectedBefore);
+    }
+
+    private void csvRow(MappedByteBuffer window, int start, int end, long row) {
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        int length = end - start;
+        if (length == 0) {
+            return;
+        }
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        window.get(start, line, 0, length);
+        if (!splitFields(length)) {
+            reject(row, "Expected 4 fields: account_number,holder,type,balance");
+            return;
+        }
+        if (row == 1 && text(0).equals("account_number")) {
+            return;
+        }
+
+        chars.length = length;
+        int balanceStart = fieldStarts[3] >= 0 ? fieldStarts[3] : -fieldStarts[3] - 1;
+        long balance = Money.tryParseCents(chars, balanceStart, fieldEnds[3]);
+        if (balance == Money.INVALID_FORMAT || balance == Money.TOO_PRECISE || balance == Money.TOO_LARGE) {
+            reject(row, "Invalid balance");
+            return;
+        }
+        if (balance < 0) {
+            reject(row, "Balance cannot be negative");
+            return;
+        }
+        String number = fieldEnds[0] > fieldStarts[0] ? text(0).trim() : null;
+        add(row, number == null || number.isEmpty() ? null : number, text(1), text(2), balance);
+    }
+
+    // Finds the four comma-separated fields of the line, honouring quotes
+    private boolean splitFields(int length) {
+        int field = 0;
+        int i = 0;
+        while (true) {
+            if (field == 4) {
+                return false;
+            }
+            if (i < length && line[i] == '"') {
+                int start = ++i;
+                while (i < length && !(line[i] == '"' && (i + 1 == length || line[i + 1] != '"'))) {
+                    i += line[i] == '"' ? 2 : 1;
+                }
+                fieldStarts[field] = -start - 1; // negative start marks a quoted field
+                fieldEnds[field] = i;
+                i++;
+            } else {
+                fieldStarts[field] = i;
+                while (i < length && line[i] != ',') {
+                    i++;
+                }
+                fieldEnds[field] = i;
+            }
+            field++;
+            if (i >= length) {
+                return field == 4;
+            }
+            if (line[i] != ',') {
+                return false;
+            }
+            i++;
+        }
+    }
+
+    private String text(int field) {
+        int start = fieldStarts[field];
+        if (start >= 0) {
+            return new String(line, start, fieldEnds[field] - start, StandardCharsets.UTF_8);
+        }
+        start = -start - 1;
+        String quoted = new String(line, start, fieldEnds[field] - start, StandardCharsets.UTF_8);
+        return quoted.replace("\"\"", "\"");
+    }
+
+    private void add(long row, String number, String holder, String type, long balance) {
+        int i = batched++;
+        rows[i] = row;
+        numbers[i] = number;
+        names[i] = holder;
+        String trimmed = type.trim();
+        String shared = accountTypes.get(trimmed);
+        if (shared == null && accountTypes.size() < MAX_SHARED_TYPES) {
+            accountTypes.put(trimmed, trimmed);
+            shared = trimmed;
+        }
+        types[i] = shared != null ? shared : trimmed;
+        balances[i] = balance;
+        if (batched == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    // Validates and inserts the current batch, then waits once for it to be durable
+    private void flush() {
+        if (batched == 0) {
+            return;
+        }
+        Arrays.fill(names, batched, BATCH_SIZE, null);
+        Arrays.fill(types, batched, BATCH_SIZE, null);
+        InputValidator.validateNewAccounts(names, types, results);
+        AccountNumberFormat format = bank.getAccountNumberFormat();
+        long ticket = 0;
+        for (int i = 0; i < batched; i++) {
+            ValidationResult result = results[i];
+            if (result.isValid() && numbers[i] != null) {
+                result = InputValidator.validateAccountNumber(numbers[i], format);
+            }
+            if (!result.isValid()) {
+                reject(rows[i], result.getMessage());
+                continue;
+            }
+            long recorded = bank.importAccount(numbers[i], names[i].trim(), types[i], balances[i]);
+            if (recorded < 0) {
+                reject(rows[i], "Account number already exists: " + numbers[i]);
+            } else {
+                ticket = recorded;
+                imported++;
+            }
+        }
+        bank.syncJournal(ticket);
+        Arrays.fill(numbers, 0, batched, null);
+        Arrays.fill(names, 0, batched, null);
+        batched = 0;
+    }
+
+    private void reject(long row, String message) {
+        rejected++;
+        if (rejects != null) {
+            rejects.rejected(row, message);
+        }
+    }
+
+    private static String readString(MappedByteBuffer window) {
+        int length = window.getShort();
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The current line as ASCII characters, for Money.tryParseCents without decoding
+    private final class ByteChars implements CharSequence {
+        int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (line[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(line, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
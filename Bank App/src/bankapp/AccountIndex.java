@@ -0,0 +1,190 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes over a bank's accounts: holder name and account type
+ * Both compare case-insensitively. Names are kept in a concurrent skip list ordered by
+ * (lower-cased name, account id), so an exact name or a name prefix is a range of the list.
+ * Each account type has a bitmap with one bit per account id, set with an atomic OR.
+ * Both structures take concurrent inserts without a global lock, and adding an account twice
+ * is harmless. Queries return ids lazily, in name then id order or in id order; results reflect
+ * accounts added while the iteration runs or not, but never skip one that existed when it began.
+ */
+class AccountIndex {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int WORDS_PER_CHUNK_BITS = 10; // 1024 words = 65,536 ids per chunk
+    private static final int IDS_PER_CHUNK_BITS = WORDS_PER_CHUNK_BITS + 6;
+
+    private static final Comparator<NameKey> NAME_ORDER = Comparator.<NameKey, String>comparing(key -> key.name)
+            .thenComparingInt(key -> key.id);
+
+    // Skip-list key: lower-cased holder name and account id
+    private static final class NameKey {
+        final String name;
+        final int id;
+
+        NameKey(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    private final ConcurrentSkipListSet<NameKey> names = new ConcurrentSkipListSet<>(NAME_ORDER);
+    private final Map<String, IdBitmap> types = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an account to both indexes; holder name and type never change afterwards
+     * @param id The account id
+     * @param holderName The account holder name
+     * @param accountType The account type
+     */
+    void add(int id, String holderName, String accountType) {
+        names.add(new NameKey(normalize(holderName), id));
+        types.computeIfAbsent(normalize(accountType), type -> new IdBitmap()).set(id);
+    }
+
+    /**
+     * @param name A holder name, compared case-insensitively
+     * @return Ids of the accounts held under exactly that name, in id order
+     */
+    PrimitiveIterator.OfInt holderIds(String name) {
+        String key = normalize(name);
+        return ids(names.subSet(new NameKey(key, Integer.MIN_VALUE), true, new NameKey(key, Integer.MAX_VALUE), true));
+    }
+
+    /**
+     * @param prefix The start of a holder name, compared case-insensitively
+     * @return Ids of the accounts whose holder name starts with the prefix, in name then id order
+     */
+    PrimitiveIterator.OfInt holderPrefixIds(String prefix) {
+        String key = normalize(prefix);
+        return ids(names.subSet(new NameKey(key, Integer.MIN_VALUE), true,
+                new NameKey(key + Character.MAX_VALUE, Integer.MIN_VALUE), false));
+    }
+
+    /**
+     * @param accountType An account type, compared case-insensitively
+     * @return Ids of the accounts of that type, in id order
+     */
+    PrimitiveIterator.OfInt typeIds(String accountType) {
+        IdBitmap bitmap = types.get(normalize(accountType));
+        return bitmap == null ? new IdBitmap().iterator() : bitmap.iterator();
+    }
+
+    /**
+     * @param accountType An account type, compared case-insensitively
+     * @return The number of accounts of that type
+     */
+    long countByType(String accountType) {
+        IdBitmap bitmap = types.get(normalize(accountType));
+        return bitmap == null ? 0 : bitmap.cardinality();
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static PrimitiveIterator.OfInt ids(NavigableSet<NameKey> range) {
+        Iterator<NameKey> keys = range.iterator();
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return keys.next().id;
+            }
+        };
+    }
+
+    // One bit per account id, in chunks created on first use. Bits are only ever set.
+    private static final class IdBitmap {
+        private volatile long[][] chunks = new long[0][];
+
+        void set(int id) {
+            int chunk = id >>> IDS_PER_CHUNK_BITS;
+            long[][] current = chunks;
+            if (chunk >= current.length || current[chunk] == null) {
+                current = grow(chunk);
+            }
+            int word = (id >>> 6) & ((1 << WORDS_PER_CHUNK_BITS) - 1);
+            LONGS.getAndBitwiseOr(current[chunk], word, 1L << id);
+        }
+
+        private synchronized long[][] grow(int chunk) {
+            long[][] current = chunks;
+            if (chunk >= current.length) {
+                current = Arrays.copyOf(current, chunk + 1);
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new long[1 << WORDS_PER_CHUNK_BITS];
+            }
+            chunks = current;
+            return current;
+        }
+
+        long cardinality() {
+            long count = 0;
+            for (long[] words : chunks) {
+                if (words != null) {
+                    for (int i = 0; i < words.length; i++) {
+                        count += Long.bitCount((long) LONGS.getVolatile(words, i));
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Walks set bits word by word, skipping empty words and chunks
+        PrimitiveIterator.OfInt iterator() {
+            long[][] snapshot = chunks;
+            return new PrimitiveIterator.OfInt() {
+                private int chunk;
+                private int word = -1;
+                private long bits;
+
+                @Override
+                public boolean hasNext() {
+                    while (bits == 0) {
+                        if (++word == 1 << WORDS_PER_CHUNK_BITS) {
+                            word = 0;
+                            chunk++;
+                        }
+                        while (chunk < snapshot.length && snapshot[chunk] == null) {
+                            chunk++;
+                        }
+                        if (chunk >= snapshot.length) {
+                            return false;
+                        }
+                        bits = (long) LONGS.getVolatile(snapshot[chunk], word);
+                    }
+                    return true;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    return (chunk << IDS_PER_CHUNK_BITS) | (word << 6) | bit;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package bankapp;
+
+/**
+ * Shape of generated account numbers: a fixed prefix followed by the decimal account id
+ * without leading zeros, e.g. ACC1001
+ * The id must have between minDigits and maxDigits digits; with at most 9 digits every id fits in an int.
+ */
+public final class AccountNumberFormat {
+
+    /** ACC followed by 4 to 9 digits, i.e. up to ACC999999999 */
+    public static final AccountNumberFormat DEFAULT = new AccountNumberFormat("ACC", 4, 9);
+
+    private final String prefix;
+    private final int minDigits;
+    private final int maxDigits;
+
+    /**
+     * @param prefix Letters that start every account number
+     * @param minDigits Fewest digits an account id may have
+     * @param maxDigits Most digits an account id may have, at most 9
+     */
+    public AccountNumberFormat(String prefix, int minDigits, int maxDigits) {
+        if (prefix == null || prefix.isEmpty() || minDigits < 1 || maxDigits < minDigits || maxDigits > 9) {
+            throw new IllegalArgumentException("Invalid account number format");
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c >= '0' && c <= '9') {
+                throw new IllegalArgumentException("Account number prefix cannot contain digits");
+            }
+        }
+        this.prefix = prefix;
+        this.minDigits = minDigits;
+        this.maxDigits = maxDigits;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /** Smallest id this format can express */
+    public int getMinId() {
+        int min = 1;
+        for (int i = 1; i < minDigits; i++) {
+            min *= 10;
+        }
+        return min;
+    }
+
+    /** Largest id this format can express */
+    public int getMaxId() {
+        int max = 1;
+        for (int i = 0; i < maxDigits; i++) {
+            max *= 10;
+        }
+        return max - 1;
+    }
+
+    /**
+     * @param id An account id within this format's range
+     * @return The account number, e.g. ACC1001
+     */
+    public String format(int id) {
+        return prefix + id;
+    }
+
+    /**
+     * @param accountNumber Text to parse
+     * @return The account id, or -1 if the text is not an account number in this format
+     */
+    public int parse(CharSequence accountNumber) {
+        return accountNumber == null ? -1 : parse(accountNumber, 0, accountNumber.length());
+    }
+
+    /**
+     * Parses an account number out of a larger text without copying it
+     * @param text The text holding the account number
+     * @param start Index of the first character of the account number
+     * @param end Index just past its last character
+     * @return The account id, or -1 if that range is not an account number in this format
+     */
+    public int parse(CharSequence text, int start, int end) {
+        int digits = end - start - prefix.length();
+        if (digits < minDigits || digits > maxDigits) {
+            return -1;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return -1;
+            }
+        }
+        int first = start + prefix.length();
+        if (text.charAt(first) == '0') {
+            return -1;
+        }
+        int id = 0;
+        for (int i = first; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /** Human-readable description used in validation messages */
+    String describe() {
+        return prefix + " followed by " + (minDigits == maxDigits ? minDigits : minDigits + " to " + maxDigits)
+                + " digits (e.g., " + format(getMinId() + 1) + ")";
+    }
+}
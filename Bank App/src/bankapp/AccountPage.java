@@ -0,0 +1,97 @@
+package bankapp;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One page of a listing from Bank.listAccounts, in ascending account id order
+ * The cursor is an opaque token: pass getNextCursor() back to listAccounts for the next page.
+ * Cursors hold no server-side state, so they can be kept, resumed later or dropped freely.
+ * Accounts are held as found; balances and text lines are read only when the caller asks.
+ */
+public final class AccountPage {
+    private static final byte CURSOR_VERSION = 1;
+
+    private final List<BankAccount> accounts;
+    private final String nextCursor;
+
+    AccountPage(List<BankAccount> accounts, String nextCursor) {
+        this.accounts = Collections.unmodifiableList(accounts);
+        this.nextCursor = nextCursor;
+    }
+
+    /** The accounts on this page */
+    public List<BankAccount> getAccounts() {
+        return accounts;
+    }
+
+    /** Cursor for the next page, or null if this is the last one */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * One line per account, e.g. "ACC1001  Jane Doe  Savings  $12.50"
+     * Each line is formatted, with the balance as of that moment, only when the iterator reaches it.
+     * @return The lines of this page
+     */
+    public Iterable<String> lines() {
+        return () -> new Iterator<String>() {
+            private final Iterator<BankAccount> remaining = accounts.iterator();
+            private final StringBuilder line = new StringBuilder(64);
+
+            @Override
+            public boolean hasNext() {
+                return remaining.hasNext();
+            }
+
+            @Override
+            public String next() {
+                line.setLength(0);
+                return appendLine(line, remaining.next()).toString();
+            }
+        };
+    }
+
+    /**
+     * Appends the listing line of one account
+     * @param sb The builder to append to
+     * @param account The account to describe
+     * @return The same builder
+     */
+    public static StringBuilder appendLine(StringBuilder sb, BankAccount account) {
+        sb.append(account.getAccountNumber()).append("  ").append(account.getAccountHolderName())
+                .append("  ").append(account.getAccountType()).append("  $");
+        return Money.appendTo(sb, account.getBalanceCents());
+    }
+
+    // Cursors are a version byte and the next account id, base64url-encoded
+    static String encodeCursor(int nextId) {
+        ByteBuffer bytes = ByteBuffer.allocate(5).put(CURSOR_VERSION).putInt(nextId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    static int decodeCursor(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != 5 || bytes[0] != CURSOR_VERSION) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        int nextId = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        if (nextId < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return nextId;
+    }
+}
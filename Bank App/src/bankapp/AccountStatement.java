@@ -0,0 +1,139 @@
+package bankapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streaming account statements built on a bank's TransactionHistory
+ * Entries are formatted one line at a time straight from the history pages into the output,
+ * so a statement covering millions of entries never holds more than one line in memory.
+ *
+ * A statement lists, oldest first, one line per entry: time, description, signed amount and
+ * the balance after it, framed by the opening and closing balance of the period.
+ */
+class AccountStatement {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private AccountStatement() {
+    }
+
+    /**
+     * Writes the statement of one account for a period
+     * @param bank A bank that keeps a transaction history
+     * @param accountNumber The account
+     * @param fromMillis Start of the period, inclusive
+     * @param toMillis End of the period, exclusive
+     * @param out Where the statement goes
+     * @return The number of entries written, or -1 if there is no such account
+     * @throws IOException if the output cannot be written
+     */
+    static int write(Bank bank, String accountNumber, long fromMillis, long toMillis, Appendable out) throws IOException {
+        TransactionHistory history = history(bank);
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            return -1;
+        }
+        int id = account.getId();
+        header(account, out).append("Period: ").append(TIME.format(Instant.ofEpochMilli(fromMillis)))
+                .append(" to ").append(TIME.format(Instant.ofEpochMilli(toMillis))).append('\n');
+        long opening = history.balanceAt(id, fromMillis);
+        long closing = history.balanceAt(id, toMillis);
+        if (opening < 0) {
+            // Nothing recorded for the account: its balance has not changed since the history began
+            opening = closing = account.getBalanceCents();
+        }
+        out.append("Opening balance: $").append(Money.format(opening)).append('\n');
+        int written = entries(bank, out, visitor -> history.forEachBetween(id, fromMillis, toMillis, visitor));
+        out.append("Closing balance: $").append(Money.format(closing)).append('\n');
+        return written;
+    }
+
+    /**
+     * Writes a mini statement with the most recent entries of one account
+     * @param bank A bank that keeps a transaction history
+     * @param accountNumber The account
+     * @param count How many entries to write at most
+     * @param out Where the statement goes
+     * @return The number of entries written, or -1 if there is no such account
+     * @throws IOException if the output cannot be written
+     */
+    static int writeRecent(Bank bank, String accountNumber, int count, Appendable out) throws IOException {
+        TransactionHistory history = history(bank);
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            return -1;
+        }
+        int id = account.getId();
+        header(account, out).append("Last ").append(String.valueOf(count)).append(" transactions\n");
+        int written = entries(bank, out, visitor -> history.forEachLast(id, count, visitor));
+        if (written == 0) {
+            out.append("No transactions recorded\n");
+        }
+        out.append("Current balance: $").append(Money.format(account.getBalanceCents())).append('\n');
+        return written;
+    }
+
+    private static TransactionHistory history(Bank bank) {
+        TransactionHistory history = bank.getTransactionHistory();
+        if (history == null) {
+            throw new IllegalStateException("The bank does not keep a transaction history");
+        }
+        return history;
+    }
+
+    private static Appendable header(BankAccount account, Appendable out) throws IOException {
+        return out.append("=== Statement for ").append(account.getAccountNumber()).append(" ===\n")
+                .append("Holder: ").append(account.getAccountHolderName()).append('\n')
+                .append("Type: ").append(account.getAccountType()).append('\n');
+    }
+
+    // A history query, run with the visitor that formats its entries
+    private interface Query {
+        int run(TransactionHistory.EntryVisitor visitor);
+    }
+
+    private static int entries(Bank bank, Appendable out, Query query) throws IOException {
+        AccountNumberFormat format = bank.getAccountNumberFormat();
+        StringBuilder line = new StringBuilder(96);
+        try {
+            return query.run((timestampMillis, type, amount, balance, counterpartyId) -> {
+                line.setLength(0);
+                TIME.formatTo(Instant.ofEpochMilli(timestampMillis), line);
+                line.append("  ");
+                switch (type) {
+                    case ACCOUNT_CREATED:
+                        line.append("Opening balance");
+                        break;
+                    case DEPOSIT:
+                        line.append("Deposit");
+                        break;
+                    case WITHDRAWAL:
+                        line.append("Withdrawal");
+                        break;
+                    case INTEREST:
+                        line.append("Interest");
+                        break;
+                    case FEE:
+                        line.append("Maintenance fee");
+                        break;
+                    default:
+                        line.append(amount < 0 ? "Transfer to " : "Transfer from ").append(format.format(counterpartyId));
+                }
+                line.append("  ").append(amount < 0 ? "-$" : "+$");
+                Money.appendTo(line, Math.abs(amount));
+                Money.appendTo(line.append("  balance $"), balance).append('\n');
+                try {
+                    out.append(line);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package bankapp;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Storage behind a Bank
+ * Implementations must be safe for concurrent use by many threads
+ */
+interface AccountStore {
+
+    /**
+     * Adds a new account with a zero balance
+     * @param id The numeric part of the account number, as allocated by Bank
+     * @param accountNumber The full account number, e.g. ACC1001
+     * @param holderName The account holder name
+     * @param accountType The account type
+     * @return The new account
+     */
+    BankAccount create(int id, String accountNumber, String holderName, String accountType);
+
+    /**
+     * Adds an account with a known balance while a bank is being rebuilt from a snapshot
+     * Stores may override this with a cheaper path; no other thread uses the store yet.
+     * @param id The numeric part of the account number
+     * @param accountNumber The full account number
+     * @param holderName The account holder name
+     * @param accountType The account type
+     * @param balance The balance in cents
+     */
+    default void restore(int id, String accountNumber, String holderName, String accountType, long balance) {
+        BankAccount account = create(id, accountNumber, holderName, accountType);
+        synchronized (account.lock()) {
+            account.storeBalance(balance);
+        }
+    }
+
+    /**
+     * Finds an account by its account number
+     * @param accountNumber The account number to look up
+     * @return The account, or null if there is none
+     */
+    BankAccount find(String accountNumber);
+
+    /**
+     * @return The number of accounts in the store
+     */
+    int size();
+
+    /**
+     * Visits every account in the store
+     * @param action The action to run for each account
+     */
+    void forEach(Consumer<BankAccount> action);
+
+    /**
+     * Visits accounts in ascending id order, starting at an id, for as long as the action asks
+     * Safe while other threads create accounts; an account created during the walk is seen
+     * only if the walk has not yet passed its id.
+     * @param fromId The lowest account id to visit
+     * @param action Called for each account; return false to stop
+     */
+    void forEachFrom(int fromId, Predicate<BankAccount> action);
+}
@@ -0,0 +1,141 @@
+package bankapp;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lazy, live table model over a Bank, fed by the bank's EventRing
+ * Cells are read from the accounts only when JTable asks, and JTable only asks for the rows
+ * in view, so a book of millions of accounts costs the same to show as a book of ten.
+ * As a LedgerEventHandler it appends a row for every account created and counts balance
+ * changes on the ring's consumer thread; it never calls Swing there. refresh(), run on the
+ * Event Dispatch Thread at a fixed rate, turns everything since the previous refresh into at
+ * most one insert and one update event, however many transactions happened in between.
+ */
+class AccountTableModel extends AbstractTableModel implements LedgerEventHandler {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Account", "Holder", "Type", "Balance"};
+    private static final int CHUNK_BITS = 16; // 65,536 rows per chunk
+
+    private final Bank bank;
+    private final AccountNumberFormat numberFormat;
+
+    // Written under the model's lock; a row is published by the volatile write of rowCount after it
+    private final BitSet listed = new BitSet();
+    private volatile BankAccount[][] chunks = new BankAccount[0][];
+    private volatile int rowCount;
+
+    private volatile long balanceChanges; // written by the ring's consumer thread only
+
+    // Confined to the EDT
+    private int shownRows;
+    private long shownChanges;
+
+    /**
+     * @param bank The bank whose accounts the table shows; publish its events to this model
+     */
+    AccountTableModel(Bank bank) {
+        this.bank = bank;
+        this.numberFormat = bank.getAccountNumberFormat();
+    }
+
+    /**
+     * Lists the accounts already in the bank, in id order
+     * Safe to call after the model is receiving events: an account is never listed twice.
+     */
+    void addExistingAccounts() {
+        String cursor = null;
+        do {
+            AccountPage page = bank.listAccounts(cursor, Bank.MAX_PAGE_SIZE);
+            for (BankAccount account : page.getAccounts()) {
+                addRow(account);
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+    }
+
+    @Override
+    public void onEvent(LedgerEvent event, long sequence, boolean endOfBatch) {
+        if (event.getStatus() != LedgerEvent.Status.APPLIED) {
+            return;
+        }
+        if (event.getType() == LedgerEvent.Type.ACCOUNT_CREATED) {
+            BankAccount account = bank.findAccount(numberFormat.format(event.getAccountId()));
+            if (account != null) {
+                addRow(account);
+            }
+        } else {
+            balanceChanges++;
+        }
+    }
+
+    private synchronized void addRow(BankAccount account) {
+        int id = account.getId();
+        if (listed.get(id)) {
+            return;
+        }
+        listed.set(id);
+        int row = rowCount;
+        int chunk = row >>> CHUNK_BITS;
+        BankAccount[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk + 1);
+            current[chunk] = new BankAccount[1 << CHUNK_BITS];
+            chunks = current;
+        }
+        current[chunk][row & ((1 << CHUNK_BITS) - 1)] = account;
+        rowCount = row + 1;
+    }
+
+    /**
+     * Tells the table about rows added and balances changed since the last call, on the EDT
+     * @return The number of balance changes since the last call
+     */
+    long refresh() {
+        int rows = rowCount;
+        if (rows > shownRows) {
+            int firstNew = shownRows;
+            shownRows = rows;
+            fireTableRowsInserted(firstNew, rows - 1);
+        }
+        long changes = balanceChanges;
+        long changed = changes - shownChanges;
+        if (changed > 0 && shownRows > 0) {
+            // One event for the whole table: JTable repaints only the part that is in view
+            fireTableRowsUpdated(0, shownRows - 1);
+        }
+        shownChanges = changes;
+        return changed;
+    }
+
+    @Override
+    public int getRowCount() {
+        return shownRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        BankAccount account = chunks[row >>> CHUNK_BITS][row & ((1 << CHUNK_BITS) - 1)];
+        switch (column) {
+            case 0:
+                return account.getAccountNumber();
+            case 1:
+                return account.getAccountHolderName();
+            case 2:
+                return account.getAccountType();
+            default:
+                return "$" + Money.format(account.getBalanceCents());
+        }
+    }
+}
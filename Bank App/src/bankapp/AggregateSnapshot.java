@@ -0,0 +1,84 @@
+package bankapp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Totals of a bank at one point, from Bank.getAggregates
+ * Every operation is either fully counted or not at all, so the per-type figures always add
+ * up to the overall ones. Figures are in cents; types keep the spelling they were first seen with.
+ */
+public final class AggregateSnapshot {
+    private final long accountCount;
+    private final long totalBalance;
+    private final String[] types;
+    private final long[] typeCounts;
+    private final long[] typeBalances;
+
+    AggregateSnapshot(long accountCount, long totalBalance, String[] types, long[] typeCounts, long[] typeBalances) {
+        this.accountCount = accountCount;
+        this.totalBalance = totalBalance;
+        this.types = types;
+        this.typeCounts = typeCounts;
+        this.typeBalances = typeBalances;
+    }
+
+    public long getAccountCount() {
+        return accountCount;
+    }
+
+    /** Sum of all balances, in cents */
+    public long getTotalBalanceCents() {
+        return totalBalance;
+    }
+
+    /** The account types seen so far, in the order they first appeared */
+    public List<String> getTypes() {
+        return Collections.unmodifiableList(Arrays.asList(types));
+    }
+
+    /**
+     * @param accountType An account type, compared case-insensitively
+     * @return The number of accounts of that type
+     */
+    public long getAccountCount(String accountType) {
+        int slot = slotOf(accountType);
+        return slot < 0 ? 0 : typeCounts[slot];
+    }
+
+    /**
+     * @param accountType An account type, compared case-insensitively
+     * @return The sum of the balances of that type, in cents
+     */
+    public long getBalanceCents(String accountType) {
+        int slot = slotOf(accountType);
+        return slot < 0 ? 0 : typeBalances[slot];
+    }
+
+    private int slotOf(String accountType) {
+        String name = accountType.trim().toLowerCase(Locale.ROOT);
+        for (int slot = 0; slot < types.length; slot++) {
+            if (types[slot].toLowerCase(Locale.ROOT).equals(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a short report: the totals, then one line per type
+     * @param sb The builder to append to
+     * @return The same builder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("Accounts: ").append(accountCount).append(", total balance $");
+        Money.appendTo(sb, totalBalance).append('\n');
+        for (int slot = 0; slot < types.length; slot++) {
+            sb.append("  ").append(types[slot]).append(": ").append(typeCounts[slot]).append(" accounts, $");
+            Money.appendTo(sb, typeBalances[slot]).append('\n');
+        }
+        return sb;
+    }
+}
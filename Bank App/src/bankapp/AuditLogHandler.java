@@ -0,0 +1,58 @@
+package bankapp;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends every ledger event to a tab-separated audit log file
+ * Columns: sequence, timestamp millis, type, status, account id, target account id,
+ * amount cents, balance cents, target balance cents. Output is flushed at the end of each batch.
+ */
+public class AuditLogHandler implements LedgerEventHandler, Closeable {
+    private final BufferedWriter writer;
+
+    public AuditLogHandler(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void onEvent(LedgerEvent event, long sequence, boolean endOfBatch) {
+        try {
+            writer.write(Long.toString(sequence));
+            writer.write('\t');
+            writer.write(Long.toString(event.getTimestampMillis()));
+            writer.write('\t');
+            writer.write(event.getType().name());
+            writer.write('\t');
+            writer.write(event.getStatus().name());
+            writer.write('\t');
+            writer.write(Integer.toString(event.getAccountId()));
+            writer.write('\t');
+            writer.write(Integer.toString(event.getTargetAccountId()));
+            writer.write('\t');
+            writer.write(Long.toString(event.getAmount()));
+            writer.write('\t');
+            writer.write(Long.toString(event.getBalance()));
+            writer.write('\t');
+            writer.write(Long.toString(event.getTargetBalance()));
+            writer.newLine();
+            if (endOfBatch) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
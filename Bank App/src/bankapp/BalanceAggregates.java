@@ -0,0 +1,320 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running totals of a bank: account count and balance, overall and per account type
+ * Each writing thread owns a stripe, a small seqlock over a block of counters: it bumps the
+ * stripe's version, updates its counters and bumps the version again, with plain ordered
+ * stores and no atomic read-modify-write, so writers never contend with each other.
+ * A whole operation (both legs of a transfer between two types, say) lands in one stripe inside
+ * one version bump. A snapshot reads every stripe's version, copies all the stripes and then
+ * checks that no version changed, so the copies describe one instant at which no stripe was
+ * mid-update: every operation is counted fully or not at all, money moved between threads never
+ * appears or vanishes, and the types always add up to the total. After OPTIMISTIC_SNAPSHOTS
+ * failed attempts the snapshot holds new updates back until it gets a clean copy; that is the
+ * only time a writer waits for a reader. A stripe left by a thread that has died is adopted by
+ * the next new thread, so thread churn does not grow the snapshot cost.
+ * Account types are compared case-insensitively; past MAX_TYPES distinct types, further types
+ * are counted together under OTHER_TYPES.
+ */
+class BalanceAggregates {
+    static final int MAX_TYPES = 255;
+    static final String OTHER_TYPES = "(other)";
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int VERSION = 0; // odd while the owner is updating the stripe
+    private static final int COUNT = 1;
+    private static final int BALANCE = 2;
+    private static final int INITIAL_TYPES = 8;
+    private static final int TYPE_CACHE_SIZE = 16;
+    private static final int OPTIMISTIC_SNAPSHOTS = 64;
+
+    // Counters of one writing thread: [version][count][balance] then [count][balance] per type slot.
+    // Its owner also keeps a small cache from type string instances to slots, so the usual lookup
+    // is a cached hash and a reference comparison.
+    private static final class Stripe {
+        volatile long[] cells = new long[cellsFor(INITIAL_TYPES)];
+        Thread owner;
+        final String[] cachedTypes = new String[TYPE_CACHE_SIZE];
+        final int[] cachedSlots = new int[TYPE_CACHE_SIZE];
+
+        Stripe(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    private volatile Stripe[] stripes = new Stripe[0]; // guarded by this for writes
+    private final ThreadLocal<Stripe> ownStripe = ThreadLocal.withInitial(this::stripeForCurrentThread);
+
+    // Slot of each type spelling seen; slots of normalized names; names by slot. Slots only grow.
+    private final Map<String, Integer> slotsBySpelling = new ConcurrentHashMap<>();
+    private final Map<String, Integer> slotsByName = new ConcurrentHashMap<>();
+    private final String[] names = new String[MAX_TYPES + 1];
+    private volatile int typeCount; // slots in use, published after their name
+
+    // Set by a snapshot that kept racing writers; updates not yet opened wait until it is cleared
+    private volatile boolean writersPaused;
+    private final Object pauseLock = new Object();
+
+    private static int cellsFor(int types) {
+        return 3 + 2 * types;
+    }
+
+    private static int typeCount(int slot) {
+        return 3 + 2 * slot;
+    }
+
+    private static int typeBalance(int slot) {
+        return 4 + 2 * slot;
+    }
+
+    private int slot(Stripe stripe, String accountType) {
+        int index = accountType.hashCode() & (TYPE_CACHE_SIZE - 1);
+        if (stripe.cachedTypes[index] == accountType) {
+            return stripe.cachedSlots[index];
+        }
+        Integer known = slotsBySpelling.get(accountType);
+        int slot = known != null ? known : register(accountType);
+        stripe.cachedTypes[index] = accountType;
+        stripe.cachedSlots[index] = slot;
+        return slot;
+    }
+
+    private synchronized int register(String accountType) {
+        String name = accountType.trim().toLowerCase(Locale.ROOT);
+        Integer slot = slotsByName.get(name);
+        if (slot == null) {
+            int next = typeCount;
+            if (next <= MAX_TYPES) {
+                names[next] = next < MAX_TYPES ? accountType.trim() : OTHER_TYPES;
+                slot = next;
+                typeCount = next + 1;
+            } else {
+                slot = MAX_TYPES;
+            }
+            slotsByName.put(name, slot);
+        }
+        slotsBySpelling.put(accountType, slot);
+        return slot;
+    }
+
+    // A dead thread's last writes happen-before isAlive() returns false, so its stripe can be taken over
+    private synchronized Stripe stripeForCurrentThread() {
+        Thread current = Thread.currentThread();
+        for (Stripe stripe : stripes) {
+            if (!stripe.owner.isAlive()) {
+                stripe.owner = current;
+                return stripe;
+            }
+        }
+        Stripe stripe = new Stripe(current);
+        Stripe[] grown = Arrays.copyOf(stripes, stripes.length + 1);
+        grown[stripes.length] = stripe;
+        stripes = grown;
+        return stripe;
+    }
+
+    // Opens an update of the calling thread's stripe, with room for the given type slot
+    private long[] begin(Stripe stripe, int slot) {
+        while (writersPaused) {
+            Thread.yield();
+        }
+        long[] cells = stripe.cells;
+        if (typeBalance(slot) >= cells.length) {
+            cells = grow(stripe, slot);
+        }
+        LONGS.setOpaque(cells, VERSION, cells[VERSION] + 1);
+        VarHandle.storeStoreFence();
+        return cells;
+    }
+
+    // Readers still holding the old array see a consistent, slightly older copy
+    private static long[] grow(Stripe stripe, int slot) {
+        long[] cells = stripe.cells;
+        int types = Math.min(MAX_TYPES + 1, Math.max(slot + 1, 2 * ((cells.length - 3) / 2)));
+        cells = Arrays.copyOf(cells, cellsFor(types));
+        stripe.cells = cells;
+        return cells;
+    }
+
+    private static void add(long[] cells, int index, long delta) {
+        LONGS.setOpaque(cells, index, cells[index] + delta);
+    }
+
+    private static void end(long[] cells) {
+        LONGS.setRelease(cells, VERSION, cells[VERSION] + 1);
+    }
+
+    /**
+     * Counts a new account
+     * @param accountType The account's type
+     * @param balance Its opening balance in cents
+     */
+    void accountOpened(String accountType, long balance) {
+        Stripe stripe = ownStripe.get();
+        int slot = slot(stripe, accountType);
+        long[] cells = begin(stripe, slot);
+        add(cells, COUNT, 1);
+        add(cells, BALANCE, balance);
+        add(cells, typeCount(slot), 1);
+        add(cells, typeBalance(slot), balance);
+        end(cells);
+    }
+
+    /**
+     * Adds a deposit (positive) or a withdrawal (negative) to the balance totals
+     * @param accountType The account's type
+     * @param delta The change in cents
+     */
+    void balanceChanged(String accountType, long delta) {
+        Stripe stripe = ownStripe.get();
+        int slot = slot(stripe, accountType);
+        long[] cells = begin(stripe, slot);
+        add(cells, BALANCE, delta);
+        add(cells, typeBalance(slot), delta);
+        end(cells);
+    }
+
+    /**
+     * Adds the balance changes of a batch in one update, so a snapshot counts the batch fully or not at all
+     * @param accounts The accounts, of which the i-th change is to accounts[slots[i]]
+     * @param slots Where to find each changed account
+     * @param before Balances before each change, in cents
+     * @param after Balances after each change, in cents
+     * @param count How many changes to take
+     */
+    void balancesChanged(BankAccount[] accounts, int[] slots, long[] before, long[] after, int count) {
+        Stripe stripe = ownStripe.get();
+        String type = null;
+        int slot = 0;
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            if (accounts[slots[i]].getAccountType() != type) { // accounts of one type tend to share the string
+                type = accounts[slots[i]].getAccountType();
+                slot = slot(stripe, type);
+                top = Math.max(top, slot);
+            }
+        }
+        long[] cells = begin(stripe, top); // grown before the update opens, never during it
+        long total = 0;
+        long run = 0; // net change of the current run of accounts sharing a type string
+        type = null;
+        for (int i = 0; i < count; i++) {
+            if (accounts[slots[i]].getAccountType() != type) {
+                if (type != null) {
+                    add(cells, typeBalance(slot), run);
+                }
+                type = accounts[slots[i]].getAccountType();
+                slot = slot(stripe, type);
+                run = 0;
+            }
+            long delta = after[i] - before[i];
+            run += delta;
+            total += delta;
+        }
+        if (type != null) {
+            add(cells, typeBalance(slot), run);
+        }
+        add(cells, BALANCE, total);
+        end(cells);
+    }
+
+    /**
+     * Moves an amount from one type's balance to another's; the overall total is unchanged
+     * @param fromType The source account's type
+     * @param toType The target account's type
+     * @param amount The amount in cents
+     */
+    void moved(String fromType, String toType, long amount) {
+        if (fromType == toType) {
+            return; // the usual case, as accounts of one type tend to share the type string
+        }
+        Stripe stripe = ownStripe.get();
+        int fromSlot = slot(stripe, fromType);
+        int toSlot = slot(stripe, toType);
+        if (fromSlot == toSlot) {
+            return;
+        }
+        long[] cells = begin(stripe, Math.max(fromSlot, toSlot));
+        add(cells, typeBalance(fromSlot), -amount);
+        add(cells, typeBalance(toSlot), amount);
+        end(cells);
+    }
+
+    /**
+     * Copies the totals without blocking writers; see the class comment for what is guaranteed
+     * @return A snapshot of the totals
+     */
+    AggregateSnapshot snapshot() {
+        long[] sums = new long[cellsFor(MAX_TYPES + 1)];
+        boolean copied = false;
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOTS && !copied; attempt++) {
+            copied = copyAll(sums);
+            if (!copied) {
+                Thread.yield(); // an owner may have been descheduled mid-update
+            }
+        }
+        if (!copied) {
+            synchronized (pauseLock) {
+                writersPaused = true;
+                try {
+                    // Only updates already open can still move a version, and they finish
+                    while (!copyAll(sums)) {
+                        Thread.yield();
+                    }
+                } finally {
+                    writersPaused = false;
+                }
+            }
+        }
+        // Read after the copies: any slot they counted was registered before it was used
+        int slots = typeCount;
+        String[] typeNames = new String[slots];
+        long[] typeCounts = new long[slots];
+        long[] typeBalances = new long[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            typeNames[slot] = names[slot];
+            typeCounts[slot] = sums[typeCount(slot)];
+            typeBalances[slot] = sums[typeBalance(slot)];
+        }
+        return new AggregateSnapshot(sums[COUNT], sums[BALANCE], typeNames, typeCounts, typeBalances);
+    }
+
+    // Seqlock read over all stripes at once: every version is read before any counter and
+    // re-checked after all of them, so each stripe held still over a common interval.
+    // Returns false if any owner was updating, started an update, grew its cells or a stripe was added.
+    private boolean copyAll(long[] sums) {
+        Stripe[] all = stripes;
+        long[][] cells = new long[all.length][];
+        long[] versions = new long[all.length];
+        for (int i = 0; i < all.length; i++) {
+            cells[i] = all[i].cells;
+            versions[i] = (long) LONGS.getAcquire(cells[i], VERSION);
+            if ((versions[i] & 1) != 0) {
+                return false;
+            }
+        }
+        Arrays.fill(sums, 0);
+        for (long[] stripeCells : cells) {
+            for (int i = 1; i < stripeCells.length; i++) {
+                sums[i] += (long) LONGS.getOpaque(stripeCells, i);
+            }
+        }
+        VarHandle.loadLoadFence();
+        if (stripes != all) {
+            return false;
+        }
+        for (int i = 0; i < all.length; i++) {
+            if (all[i].cells != cells[i] || (long) LONGS.getOpaque(cells[i], VERSION) != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Balances of a bank's accounts as they were at one instant, kept while a reader walks the book
+ * From the moment a view is open, Bank calls capture, under the account lock, before every
+ * balance change; the first change to an account keeps the balance it had before. The reader
+ * visits each account under its lock, reads the kept balance if there is one and the current
+ * balance otherwise, and marks the account passed so that later changes are no longer kept.
+ * Writers never wait for the reader: the extra work of a change is a couple of bit tests and,
+ * the first time an account the reader has not reached changes, one array store.
+ *
+ * Memory is bounded by the book, not by traffic: kept balances live in chunks of CHUNK_SIZE ids,
+ * allocated on the first change in their range, so the view holds at most one long per account
+ * id below limitId plus two bits, and nothing is allocated per change. A reader in id order
+ * releases each chunk once it is past it; the rest goes when the view is closed.
+ *
+ * A plain view is read in ascending id order, so passing an account passes every id below it.
+ * Readers that go in any other order, such as the partitions of an interest run, override
+ * isPassed.
+ */
+class BalanceView {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(long[][].class);
+    private static final VarHandle PASSED_BELOW;
+
+    static {
+        try {
+            PASSED_BELOW = MethodHandles.lookup().findVarHandle(BalanceView.class, "passedBelow", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final int limitId;
+    private final long[] changed; // accounts with a kept balance, one bit per account id below limitId
+    private final long[] absent; // accounts created after the view was opened
+    private final long[][] kept; // balances before the first change, by id; chunks are created on demand
+    private int passedBelow; // ids below this have been read; written and read under account locks
+    private int releasedChunks; // chunks below this were dropped by passThrough; reader only
+
+    BalanceView(int limitId) {
+        this.limitId = limitId;
+        this.changed = new long[(limitId + 63) >>> 6];
+        this.absent = new long[(limitId + 63) >>> 6];
+        this.kept = new long[(limitId + CHUNK_MASK) >>> CHUNK_BITS][];
+    }
+
+    // Keep the balance an account had before its first change since the view was opened; caller holds the account lock
+    void capture(int id, long balanceBefore) {
+        if (id < limitId && !isSet(changed, id) && !isPassed(id)) {
+            long[] chunk = (long[]) CHUNKS.getAcquire(kept, id >>> CHUNK_BITS);
+            if (chunk == null) {
+                long[] created = new long[CHUNK_SIZE];
+                chunk = (long[]) CHUNKS.compareAndExchangeRelease(kept, id >>> CHUNK_BITS, null, created);
+                chunk = chunk != null ? chunk : created;
+            }
+            chunk[id & CHUNK_MASK] = balanceBefore; // read back under the same account lock
+            WORDS.getAndBitwiseOr(changed, id >>> 6, 1L << id);
+        }
+    }
+
+    // Called before a new account becomes visible in the store
+    void created(int id) {
+        if (id < limitId) {
+            WORDS.getAndBitwiseOr(absent, id >>> 6, 1L << id);
+        }
+    }
+
+    // Whether the account did not exist yet when the view was opened
+    boolean isAbsent(int id) {
+        return isSet(absent, id);
+    }
+
+    // The account's balance when the view was opened, given its current balance; caller holds the account lock
+    long balanceAt(int id, long current) {
+        if (!isSet(changed, id)) {
+            return current;
+        }
+        return ((long[]) CHUNKS.getAcquire(kept, id >>> CHUNK_BITS))[id & CHUNK_MASK];
+    }
+
+    boolean isPassed(int id) {
+        return id < (int) PASSED_BELOW.getOpaque(this);
+    }
+
+    // Pass the account and every id below it; caller holds the account lock
+    void passThrough(int id) {
+        PASSED_BELOW.setOpaque(this, id + 1); // the account lock orders it for writers; no fence needed
+        for (; releasedChunks < id >>> CHUNK_BITS; releasedChunks++) {
+            CHUNKS.setOpaque(kept, releasedChunks, null); // every id in it is passed, nothing is kept there any more
+        }
+    }
+
+    private static boolean isSet(long[] bits, int id) {
+        return ((long) WORDS.getOpaque(bits, id >>> 6) & (1L << id)) != 0;
+    }
+}
@@ -0,0 +1,877 @@
+package bankapp;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+// Bank class to manage multiple accounts.
+// Safe to share between threads: account numbers come from an AccountIdAllocator,
+// which leases each thread its own block of ids, and accounts live in a
+// thread-safe AccountStore. A bank opened with open()
+// journals every mutation before acknowledging it and rebuilds itself on the
+// next start from its latest snapshot plus the journal written after it.
+class Bank {
+    static final String ACCOUNT_PREFIX = AccountNumberFormat.DEFAULT.getPrefix();
+    static final int FIRST_ACCOUNT_ID = 1001;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final BalanceView[] NO_VIEWS = {};
+    private static final String LEGACY_JOURNAL_FILE = "bank.journal";
+
+    private final AccountStore accounts;
+    private final AccountIdAllocator ids;
+    private final AccountNumberFormat format;
+    private TransactionJournal journal; // null for an in-memory bank
+    private Path directory;
+    private long nextSegment; // guarded by this
+    private ScheduledExecutorService snapshotScheduler; // guarded by this
+    private volatile EventRing events; // null when nobody listens
+    private volatile TransactionHistory history; // null when not kept
+    private volatile AccountIndex index; // null when not maintained
+    private volatile LedgerMetrics metrics; // null when not measured
+    private volatile InterestBatch.CutOff cutOff; // null unless an interest run is in progress
+    private volatile BalanceView[] views = NO_VIEWS; // open consistent reads, including cutOff; copied on change
+    private volatile IdempotencyCache idempotency; // null when keys are not accepted
+    // Accounts each unfinished interest run has posted to, by run; guarded by this once open
+    private final Map<Integer, BitSet> postedAccruals = new HashMap<>();
+    private final BalanceAggregates aggregates = new BalanceAggregates();
+    private final Object viewLock = new Object();
+    // Read-held from journaling a new account until it is in the store with its opening balance;
+    // write-held by snapshot while it rotates, so no account straddles the cut unseen
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+
+    public Bank() {
+        this(new HashAccountStore());
+    }
+
+    public Bank(AccountStore accounts) {
+        this(accounts, new AccountIdAllocator());
+    }
+
+    // The store must understand the allocator's account number format
+    public Bank(AccountStore accounts, AccountIdAllocator ids) {
+        this.accounts = accounts;
+        this.ids = ids;
+        this.format = ids.getFormat();
+    }
+
+    // Open a durable bank in the given directory: load the latest snapshot, if any,
+    // then replay the journal segments written after it
+    public static Bank open(Path directory, DurabilityMode mode) throws IOException {
+        return open(directory, mode, new HashAccountStore());
+    }
+
+    public static Bank open(Path directory, DurabilityMode mode, AccountStore accounts) throws IOException {
+        return open(directory, mode, accounts, new AccountIdAllocator());
+    }
+
+    public static Bank open(Path directory, DurabilityMode mode, AccountStore accounts, AccountIdAllocator ids)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path legacyJournal = directory.resolve(LEGACY_JOURNAL_FILE);
+        if (Files.exists(legacyJournal)) {
+            Files.move(legacyJournal, directory.resolve(segmentFileName(0)));
+        }
+
+        Bank bank = new Bank(accounts, ids);
+        bank.directory = directory;
+        Replayer replayer = bank.new Replayer();
+        long firstSegment = 0;
+        long latestSnapshot = latestFile(directory, SNAPSHOT_PREFIX);
+        if (latestSnapshot >= 0) {
+            firstSegment = BankSnapshot.load(directory.resolve(snapshotFileName(latestSnapshot)), replayer);
+        }
+        long lastSegment = latestFile(directory, SEGMENT_PREFIX);
+        // Only the segment last written to may end in a torn record. A crash in rotate() can leave
+        // an empty segment after it, as the next file is created before the previous one is forced.
+        long lastWritten = lastSegment;
+        while (lastWritten > firstSegment && isEmpty(directory.resolve(segmentFileName(lastWritten)))) {
+            lastWritten--;
+        }
+        for (long segment = firstSegment; segment <= lastSegment; segment++) {
+            TransactionJournal.replay(directory.resolve(segmentFileName(segment)), replayer, segment >= lastWritten);
+        }
+
+        for (Iterator<Integer> runs = bank.postedAccruals.keySet().iterator(); runs.hasNext(); ) {
+            if (InterestBatch.isComplete(directory, runs.next())) {
+                runs.remove(); // nothing left to resume
+            }
+        }
+
+        bank.forEachAccount(account -> bank.aggregates.accountOpened(account.getAccountType(), account.getBalanceCents()));
+        bank.nextSegment = Math.max(firstSegment, lastSegment + 1);
+        bank.journal = new TransactionJournal(directory.resolve(segmentFileName(bank.nextSegment++)), mode);
+        return bank;
+    }
+
+    // Write a snapshot of every account without pausing traffic, then drop the journal
+    // segments it makes redundant. The journal is switched to a new segment first, so
+    // replaying that segment on top of the snapshot fixes up anything the scan read mid-flight.
+    // A record that went to an older segment belongs to a change that was under way at the
+    // switch: an account creation holds off the switch until the account is in the store, and
+    // a balance change holds the account lock the scan reads under, so the scan sees both.
+    // Refused while an interest run is in progress. The accounts that unfinished runs have
+    // posted to are written into the snapshot, as their ACCRUAL records are dropped with the
+    // journal, so a later attempt still posts to each account once.
+    public synchronized long snapshot() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("In-memory bank has nothing to snapshot");
+        }
+        if (cutOff != null) {
+            throw new IllegalStateException("An interest run is in progress");
+        }
+        long segment = nextSegment++;
+        rotation.writeLock().lock();
+        try {
+            journal.rotate(directory.resolve(segmentFileName(segment)));
+        } finally {
+            rotation.writeLock().unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+        long written = BankSnapshot.write(temporary, segment, (int) ids.getHighWaterMark(), accounts,
+                postedAccruals);
+        Files.move(temporary, directory.resolve(snapshotFileName(segment)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long number = fileNumber(file, SEGMENT_PREFIX);
+                if (number < 0) {
+                    number = fileNumber(file, SNAPSHOT_PREFIX);
+                }
+                if (number >= 0 && number < segment) {
+                    Files.delete(file);
+                }
+            }
+        }
+        return written;
+    }
+
+    // Take a snapshot at a fixed period on a background daemon thread
+    public void scheduleSnapshots(long period, TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bank-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+        synchronized (this) {
+            snapshotScheduler = scheduler;
+        }
+    }
+
+    // Publish a structured event for every operation, applied or rejected, through the given ring.
+    // Pass null to stop publishing; do so before closing the ring, which drops later events.
+    public void setEventRing(EventRing events) {
+        this.events = events;
+    }
+
+    // Keep a per-account history of every balance change from now on (see TransactionHistory).
+    // The history lives in memory and is not rebuilt from the journal. Pass null to stop recording.
+    public void setTransactionHistory(TransactionHistory history) {
+        this.history = history;
+    }
+
+    // The history being kept, or null
+    public TransactionHistory getTransactionHistory() {
+        return history;
+    }
+
+    // Maintain secondary indexes on holder name and account type from now on (see AccountIndex).
+    // Accounts already in the bank are indexed first. Pass null to drop the indexes.
+    public void setAccountIndex(AccountIndex index) {
+        this.index = index;
+        if (index != null) {
+            accounts.forEach(account -> index.add(account.getId(), account.getAccountHolderName(), account.getAccountType()));
+        }
+    }
+
+    // Count and time createAccount, findAccount and every account operation from now on
+    // (see LedgerMetrics). Pass null to stop; with no metrics the only cost is a null check.
+    public void setMetrics(LedgerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // The metrics being kept, or null
+    public LedgerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Accept idempotency keys on createAccount, applyBatch and the account operations from now on
+    // (see IdempotencyCache). Pass null to stop; keyed calls then throw IllegalStateException.
+    public void setIdempotencyCache(IdempotencyCache cache) {
+        this.idempotency = cache;
+    }
+
+    // The cache keys go through, or null
+    public IdempotencyCache getIdempotencyCache() {
+        return idempotency;
+    }
+
+    IdempotencyCache idempotency() {
+        IdempotencyCache cache = idempotency;
+        if (cache == null) {
+            throw new IllegalStateException("Idempotency keys are not enabled on this bank");
+        }
+        return cache;
+    }
+
+    LedgerMetrics metrics() {
+        return metrics;
+    }
+
+    // Flush and close the journal, if any
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdownNow();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private static String segmentFileName(long segment) {
+        return String.format("%s%010d.log", SEGMENT_PREFIX, segment);
+    }
+
+    private static String snapshotFileName(long segment) {
+        return String.format("%s%010d.bin", SNAPSHOT_PREFIX, segment);
+    }
+
+    // Number in a segment or snapshot file name, or -1 if the file is not one
+    private static long fileNumber(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || name.length() != prefix.length() + 14) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), prefix.length() + 10));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long latestFile(Path directory, String prefix) throws IOException {
+        long latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                latest = Math.max(latest, fileNumber(file, prefix));
+            }
+        }
+        return latest;
+    }
+
+    private static boolean isEmpty(Path file) throws IOException {
+        return !Files.exists(file) || Files.size(file) == 0;
+    }
+
+    // Create new account
+    public String createAccount(String holderName, String accountType) {
+        LedgerMetrics measured = metrics;
+        if (measured == null) {
+            return addAccount(holderName, accountType);
+        }
+        LedgerMetrics.Recorder recorder = measured.recorder();
+        long started = recorder.start();
+        String accountNumber;
+        try {
+            accountNumber = addAccount(holderName, accountType);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.CREATE_ACCOUNT, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.CREATE_ACCOUNT, LedgerEvent.Status.APPLIED, started);
+        return accountNumber;
+    }
+
+    // Create a new account once per idempotency key: a retry with the same key gets the first
+    // call's account number back. A null key creates an account as usual.
+    public String createAccount(String holderName, String accountType, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createAccount(holderName, accountType);
+        }
+        return idempotency().execute(idempotencyKey, IdempotencyCache.fingerprint(holderName, accountType), 0,
+                () -> createAccount(holderName, accountType));
+    }
+
+    private String addAccount(String holderName, String accountType) {
+        int id = ids.next();
+        String accountNumber = format.format(id);
+        long ticket = 0;
+        if (journal != null) {
+            rotation.readLock().lock(); // until the account is in the store; see snapshot
+        }
+        try {
+            ticket = journal != null ? journal.logCreate(id, holderName, accountType) : 0;
+            viewsCreated(id);
+            accounts.create(id, accountNumber, holderName, accountType).bank = this;
+        } finally {
+            if (journal != null) {
+                rotation.readLock().unlock();
+            }
+        }
+        aggregates.accountOpened(accountType, 0);
+        AccountIndex indexed = index;
+        if (indexed != null) {
+            indexed.add(id, holderName, accountType);
+        }
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(LedgerEvent.Type.ACCOUNT_CREATED, LedgerEvent.Status.APPLIED, id, 0, 0, 0, 0, holderName, accountType);
+        }
+        awaitDurable(ticket);
+        return accountNumber;
+    }
+
+    // Bulk-load one account with its opening balance (see AccountImporter). With a null account number a
+    // new one is allocated; a given number must be in this bank's format and not yet taken, and must not
+    // be imported while other threads create accounts. The record is journaled without waiting: call
+    // syncJournal with the last ticket of a batch. Returns the journal ticket, or -1 if the number is unusable.
+    long importAccount(String accountNumber, String holderName, String accountType, long balance) {
+        int id;
+        if (accountNumber == null) {
+            id = ids.next();
+            accountNumber = format.format(id);
+        } else {
+            id = format.parse(accountNumber);
+            if (id < 0 || accounts.find(accountNumber) != null) {
+                return -1;
+            }
+            ids.observe(id);
+        }
+        long ticket = 0;
+        if (journal != null) {
+            rotation.readLock().lock(); // until the account is in the store; see snapshot
+        }
+        try {
+            ticket = journal != null ? journal.logImport(id, balance, holderName, accountType) : 0;
+            viewsCreated(id);
+            BankAccount account = accounts.create(id, accountNumber, holderName, accountType);
+            synchronized (account.lock()) {
+                account.storeBalance(balance);
+                aggregates.accountOpened(accountType, balance);
+                TransactionHistory kept = history;
+                if (kept != null) {
+                    kept.append(id, LedgerEvent.Type.ACCOUNT_CREATED, balance, balance, 0);
+                }
+            }
+        } finally {
+            if (journal != null) {
+                rotation.readLock().unlock();
+            }
+        }
+        AccountIndex indexed = index;
+        if (indexed != null) {
+            indexed.add(id, holderName, accountType);
+        }
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(LedgerEvent.Type.ACCOUNT_CREATED, LedgerEvent.Status.APPLIED, id, 0, 0, balance, 0, holderName, accountType);
+        }
+        return ticket;
+    }
+
+    // Wait until every import or accrual up to the ticket is on disk, whatever the durability mode
+    void syncJournal(long ticket) {
+        if (journal != null && ticket > 0) {
+            journal.sync(ticket);
+        }
+    }
+
+    // Visit every account without copying the book; balances are read one account at a time
+    void forEachAccount(Consumer<BankAccount> action) {
+        accounts.forEach(account -> {
+            account.bank = this;
+            action.accept(account);
+        });
+    }
+
+    // Visit accounts in ascending id order from fromId until the action returns false
+    void forEachAccountFrom(int fromId, Predicate<BankAccount> action) {
+        accounts.forEachFrom(fromId, account -> {
+            account.bank = this;
+            return action.test(account);
+        });
+    }
+
+    // Find account by account number
+    public BankAccount findAccount(String accountNumber) {
+        LedgerMetrics measured = metrics;
+        if (measured == null) {
+            return locate(accountNumber);
+        }
+        LedgerMetrics.Recorder recorder = measured.recorder();
+        long started = recorder.start();
+        BankAccount account;
+        try {
+            account = locate(accountNumber);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.FIND_ACCOUNT, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.FIND_ACCOUNT,
+                account != null ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.UNKNOWN_ACCOUNT, started);
+        return account;
+    }
+
+    // findAccount without metrics
+    BankAccount locate(String accountNumber) {
+        BankAccount account = accounts.find(accountNumber);
+        if (account != null) {
+            account.bank = this;
+        }
+        return account;
+    }
+
+    // Accounts held under a name, compared case-insensitively, in account id order.
+    // Needs an AccountIndex; accounts are looked up lazily as the result is iterated.
+    public Iterable<BankAccount> findAccountsByHolder(String holderName) {
+        AccountIndex indexed = requireIndex();
+        return () -> lookUp(indexed.holderIds(holderName));
+    }
+
+    // Accounts whose holder name starts with the prefix, compared case-insensitively, in name order
+    public Iterable<BankAccount> findAccountsByHolderPrefix(String prefix) {
+        AccountIndex indexed = requireIndex();
+        return () -> lookUp(indexed.holderPrefixIds(prefix));
+    }
+
+    // Accounts of a type, compared case-insensitively, in account id order
+    public Iterable<BankAccount> findAccountsByType(String accountType) {
+        AccountIndex indexed = requireIndex();
+        return () -> lookUp(indexed.typeIds(accountType));
+    }
+
+    public long countAccountsByType(String accountType) {
+        return requireIndex().countByType(accountType);
+    }
+
+    private AccountIndex requireIndex() {
+        AccountIndex indexed = index;
+        if (indexed == null) {
+            throw new IllegalStateException("The bank does not maintain an account index");
+        }
+        return indexed;
+    }
+
+    private Iterator<BankAccount> lookUp(PrimitiveIterator.OfInt ids) {
+        return new Iterator<BankAccount>() {
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+
+            @Override
+            public BankAccount next() {
+                return locate(format.format(ids.nextInt()));
+            }
+        };
+    }
+
+    // Apply a batch of deposits, withdrawals and transfers in one pass over their accounts
+    // (see TransactionBatch). An atomic batch is applied whole or not at all; otherwise each
+    // item is applied or rejected on its own, in order. The batch can be reused after clear().
+    public TransactionBatch.Result applyBatch(TransactionBatch batch, boolean atomic) {
+        if (batch.bank() != this) {
+            throw new IllegalArgumentException("The batch belongs to another bank");
+        }
+        LedgerMetrics measured = metrics;
+        if (measured == null) {
+            return batch.apply(atomic);
+        }
+        LedgerMetrics.Recorder recorder = measured.recorder();
+        long started = recorder.start();
+        TransactionBatch.Result result;
+        try {
+            result = batch.apply(atomic);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.BATCH, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.BATCH, result.getFirstRejection(), started);
+        return result;
+    }
+
+    // Apply a batch once per idempotency key: a retry with the same key and the same items gets
+    // the first call's result back. A null key applies the batch as usual.
+    public TransactionBatch.Result applyBatch(TransactionBatch batch, boolean atomic, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return applyBatch(batch, atomic);
+        }
+        return idempotency().execute(idempotencyKey, batch.fingerprint(atomic), batch.resultBytes(),
+                () -> applyBatch(batch, atomic));
+    }
+
+    // Numeric part of an account number in the default format ("ACC1001" -> 1001), or -1 if it is not one
+    static int parseAccountId(String accountNumber) {
+        return AccountNumberFormat.DEFAULT.parse(accountNumber);
+    }
+
+    public AccountNumberFormat getAccountNumberFormat() {
+        return format;
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    // Account count and balance, overall and per account type, kept up to date by every
+    // operation; taking a snapshot never scans the book or blocks a writer (see BalanceAggregates)
+    public AggregateSnapshot getAggregates() {
+        return aggregates.snapshot();
+    }
+
+    // One page of accounts in ascending account id order, starting at the cursor (null for the
+    // first page); page sizes above MAX_PAGE_SIZE are capped. The walk takes no locks, so writers
+    // are never blocked, and an account created while paging shows up if its id is past the cursor.
+    public AccountPage listAccounts(String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        int limit = Math.min(pageSize, MAX_PAGE_SIZE);
+        int fromId = cursor == null ? 0 : AccountPage.decodeCursor(cursor);
+        List<BankAccount> page = new ArrayList<>(limit);
+        int[] nextId = {-1};
+        accounts.forEachFrom(fromId, account -> {
+            if (page.size() == limit) {
+                nextId[0] = account.getId();
+                return false;
+            }
+            account.bank = this;
+            page.add(account);
+            return true;
+        });
+        return new AccountPage(page, nextId[0] < 0 ? null : AccountPage.encodeCursor(nextId[0]));
+    }
+
+    // Get all accounts, in account id order, with their balances at one instant
+    public void displayAllAccounts() {
+        if (accounts.size() == 0) {
+            System.out.println("No accounts found!");
+            return;
+        }
+
+        System.out.println("\n=== All Accounts ===");
+        scanConsistent((account, balance) -> {
+            account.printDetails(balance);
+            System.out.println("-------------------");
+        });
+    }
+
+    // Mutation hooks, called by BankAccount while it holds the affected account locks
+    // and before the new balances are stored, so events for one account are published
+    // in the order they were applied. Each returns a ticket for awaitDurable. While a
+    // consistent read or an interest run is in progress they also keep the balances it
+    // needs (see BalanceView).
+    long recordDeposit(BankAccount account, long amount, long newBalance) {
+        for (BalanceView view : views) {
+            view.capture(account.getId(), newBalance - amount);
+        }
+        long ticket = journal != null ? journal.logDeposit(account.getId(), amount, newBalance) : 0;
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(LedgerEvent.Type.DEPOSIT, LedgerEvent.Status.APPLIED, account.getId(), 0, amount, newBalance, 0, null, null);
+        }
+        TransactionHistory kept = history;
+        if (kept != null) {
+            kept.append(account.getId(), LedgerEvent.Type.DEPOSIT, amount, newBalance, 0);
+        }
+        aggregates.balanceChanged(account.getAccountType(), amount);
+        return ticket;
+    }
+
+    long recordWithdraw(BankAccount account, long amount, long newBalance) {
+        for (BalanceView view : views) {
+            view.capture(account.getId(), newBalance + amount);
+        }
+        long ticket = journal != null ? journal.logWithdraw(account.getId(), amount, newBalance) : 0;
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Status.APPLIED, account.getId(), 0, amount, newBalance, 0, null, null);
+        }
+        TransactionHistory kept = history;
+        if (kept != null) {
+            kept.append(account.getId(), LedgerEvent.Type.WITHDRAWAL, -amount, newBalance, 0);
+        }
+        aggregates.balanceChanged(account.getAccountType(), -amount);
+        return ticket;
+    }
+
+    long recordTransfer(BankAccount source, BankAccount target, long amount, long sourceBalance, long targetBalance) {
+        for (BalanceView view : views) {
+            view.capture(source.getId(), sourceBalance + amount);
+            view.capture(target.getId(), targetBalance - amount);
+        }
+        long ticket = journal != null
+                ? journal.logTransfer(source.getId(), target.getId(), amount, sourceBalance, targetBalance)
+                : 0;
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.APPLIED, source.getId(), target.getId(),
+                    amount, sourceBalance, targetBalance, null, null);
+        }
+        TransactionHistory kept = history;
+        if (kept != null) {
+            long now = System.currentTimeMillis();
+            kept.append(source.getId(), now, LedgerEvent.Type.TRANSFER, -amount, sourceBalance, target.getId());
+            kept.append(target.getId(), now, LedgerEvent.Type.TRANSFER, amount, targetBalance, source.getId());
+        }
+        aggregates.moved(source.getAccountType(), target.getAccountType(), amount);
+        return ticket;
+    }
+
+    // Called by TransactionBatch while it holds the locks of every account in the batch, before
+    // the new balances are stored: one journal record with the net result for each changed account.
+    // The i-th change is to accounts[slots[i]], with ids, before and after packed alongside.
+    long recordBatch(BankAccount[] accounts, int[] slots, int[] ids, long[] before, long[] after, int count) {
+        long ticket = journal != null ? journal.logBatch(ids, after, count) : 0;
+        for (BalanceView view : views) {
+            for (int i = 0; i < count; i++) {
+                view.capture(ids[i], before[i]);
+            }
+        }
+        aggregates.balancesChanged(accounts, slots, before, after, count);
+        return ticket;
+    }
+
+    // Called by TransactionBatch, under the same locks, for each applied item in order, so events
+    // and history show every operation although the journal and the balances only see the net result
+    void recordBatchItem(LedgerEvent.Type type, BankAccount account, BankAccount target, long amount,
+            long balance, long targetBalance, long now) {
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(type, LedgerEvent.Status.APPLIED, account.getId(), target != null ? target.getId() : 0,
+                    amount, balance, targetBalance, null, null);
+        }
+        TransactionHistory kept = history;
+        if (kept != null) {
+            if (target == null) {
+                kept.append(account.getId(), now, type, type == LedgerEvent.Type.DEPOSIT ? amount : -amount, balance, 0);
+            } else {
+                kept.append(account.getId(), now, type, -amount, balance, target.getId());
+                kept.append(target.getId(), now, type, amount, targetBalance, account.getId());
+            }
+        }
+    }
+
+    // Called by an interest run while it holds the account lock, before the new balance is stored.
+    // Journaled without waiting: the run calls syncJournal once per partition.
+    long recordAccrual(BankAccount account, int run, long interest, long fee, long newBalance) {
+        InterestBatch.CutOff cut = cutOff;
+        for (BalanceView view : views) {
+            if (view != cut) { // the run has just read its own cut-off balance
+                view.capture(account.getId(), newBalance - interest + fee);
+            }
+        }
+        long ticket = journal != null ? journal.logAccrual(account.getId(), run, interest, fee, newBalance) : 0;
+        EventRing ring = events;
+        TransactionHistory kept = history;
+        long credited = newBalance + fee;
+        if (interest != 0) {
+            if (ring != null) {
+                ring.publish(LedgerEvent.Type.INTEREST, LedgerEvent.Status.APPLIED, account.getId(), 0, interest, credited, 0, null, null);
+            }
+            if (kept != null) {
+                kept.append(account.getId(), LedgerEvent.Type.INTEREST, interest, credited, 0);
+            }
+        }
+        if (fee != 0) {
+            if (ring != null) {
+                ring.publish(LedgerEvent.Type.FEE, LedgerEvent.Status.APPLIED, account.getId(), 0, fee, newBalance, 0, null, null);
+            }
+            if (kept != null) {
+                kept.append(account.getId(), LedgerEvent.Type.FEE, -fee, newBalance, 0);
+            }
+        }
+        aggregates.balanceChanged(account.getAccountType(), interest - fee);
+        return ticket;
+    }
+
+    // Start capturing cut-off balances for an interest run. Returns the accounts an earlier,
+    // unfinished attempt at the same run already posted to, replayed or in this process, or null.
+    synchronized BitSet beginCutOff(InterestBatch.CutOff cut) {
+        if (cutOff != null) {
+            throw new IllegalStateException("An interest run is already in progress");
+        }
+        cutOff = cut;
+        openView(cut);
+        return postedAccruals.remove(cut.getRun());
+    }
+
+    // Stop capturing. An unfinished run leaves the accounts it posted to for the next attempt.
+    synchronized void endCutOff(InterestBatch.CutOff cut, boolean finished) {
+        closeView(cut);
+        cutOff = null;
+        if (!finished) {
+            postedAccruals.put(cut.getRun(), cut.posted());
+        }
+    }
+
+    // Open a consistent read: every account that exists now, with its balance as of now, while
+    // writers carry on. Accounts are visited in id order, each under its lock for as long as it
+    // takes to read the balance; the action runs outside the lock. Returns the sum of the balances.
+    public long scanConsistent(ObjLongConsumer<BankAccount> action) {
+        BalanceView open;
+        while (true) {
+            open = new BalanceView(accountIdLimit());
+            openView(open);
+            if (accountIdLimit() == open.limitId) {
+                break; // every account that existed when the view opened has an id below its limit
+            }
+            closeView(open); // a new block of ids was leased meanwhile, retry with a higher limit
+        }
+
+        BalanceView view = open;
+        long[] total = {0};
+        try {
+            accounts.forEachFrom(0, account -> {
+                int id = account.getId();
+                if (id >= view.limitId) {
+                    return false;
+                }
+                if (view.isAbsent(id)) {
+                    return true;
+                }
+                long balance;
+                synchronized (account.lock()) { // also waits out a change recorded before the view opened
+                    balance = view.balanceAt(id, account.loadBalance());
+                    view.passThrough(id);
+                }
+                account.bank = this;
+                total[0] += balance;
+                action.accept(account, balance);
+                return true;
+            });
+        } finally {
+            closeView(view);
+        }
+        return total[0];
+    }
+
+    private void openView(BalanceView view) {
+        synchronized (viewLock) {
+            BalanceView[] open = Arrays.copyOf(views, views.length + 1);
+            open[open.length - 1] = view;
+            views = open;
+        }
+    }
+
+    private void closeView(BalanceView view) {
+        synchronized (viewLock) {
+            BalanceView[] open = views;
+            for (int i = 0; i < open.length; i++) {
+                if (open[i] == view) {
+                    BalanceView[] rest = Arrays.copyOf(open, open.length - 1);
+                    System.arraycopy(open, i + 1, rest, i, open.length - i - 1);
+                    views = rest;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Accounts created from now on did not exist when the open views were taken
+    private void viewsCreated(int id) {
+        for (BalanceView view : views) {
+            view.created(id);
+        }
+    }
+
+    // Ids of every account that exists now are below this
+    int accountIdLimit() {
+        return (int) Math.min(Integer.MAX_VALUE, ids.getHighWaterMark() + 1);
+    }
+
+    // Directory of a durable bank, or null for an in-memory one
+    Path directory() {
+        return directory;
+    }
+
+    // Called by BankAccount, without locks, for an operation that changed nothing
+    void recordRejected(LedgerEvent.Type type, LedgerEvent.Status status, BankAccount account, BankAccount target, long amount) {
+        EventRing ring = events;
+        if (ring != null) {
+            ring.publish(type, status, account.getId(), target != null ? target.getId() : 0,
+                    amount, account.loadBalance(), target != null ? target.loadBalance() : 0, null, null);
+        }
+    }
+
+    // Wait, outside any account lock, until a recorded mutation is as durable as the mode requires
+    void awaitDurable(long ticket) {
+        if (journal != null) {
+            journal.awaitDurable(ticket);
+        }
+    }
+
+    // Rebuilds state from a snapshot and journal records without journaling them again.
+    // Accounts created while a snapshot was being written appear in both, so creation is idempotent.
+    private class Replayer implements TransactionJournal.ReplayHandler, BankSnapshot.Loader {
+        @Override
+        public void accountCounter(int counter) {
+            ids.observe(counter);
+        }
+
+        @Override
+        public void account(int id, String holderName, String accountType, long balance) {
+            accounts.restore(id, format.format(id), holderName, accountType, balance);
+            ids.observe(id);
+        }
+
+        @Override
+        public void accountCreated(int id, String holderName, String accountType) {
+            String accountNumber = format.format(id);
+            if (accounts.find(accountNumber) == null) {
+                accounts.create(id, accountNumber, holderName, accountType);
+            }
+            ids.observe(id);
+        }
+
+        @Override
+        public void balanceSet(int id, long balance) {
+            BankAccount account = accounts.find(format.format(id));
+            if (account == null) {
+                throw new IllegalStateException("Journal references unknown account " + id);
+            }
+            synchronized (account.lock()) {
+                account.storeBalance(balance);
+            }
+        }
+
+        @Override
+        public void accrualsPosted(int run, BitSet posted) {
+            postedAccruals.computeIfAbsent(run, unused -> new BitSet()).or(posted);
+        }
+
+        @Override
+        public void accrualPosted(int id, int run) {
+            postedAccruals.computeIfAbsent(run, unused -> new BitSet()).set(id);
+        }
+    }
+}
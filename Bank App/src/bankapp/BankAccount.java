@@ -0,0 +1,289 @@
+package bankapp;
+
+// Bank Account class to represent individual accounts.
+// Balance updates are guarded by the account's lock, so unrelated accounts
+// never contend. By default every account is its own lock and keeps its own
+// balance; a store may instead hand out views whose balance and lock live
+// elsewhere (see ColumnarAccountStore). Amounts are whole cents (see Money).
+// Every change is reported to the owning Bank, if any, before it is stored.
+class BankAccount {
+    private final int id;
+    private final String accountNumber;
+    private final String accountHolderName;
+    private volatile long balance;
+    private final String accountType;
+    Bank bank; // owning bank, set by Bank when it hands the account out
+
+    // Constructor
+    public BankAccount(String accountNumber, String accountHolderName, String accountType) {
+        this(Bank.parseAccountId(accountNumber), accountNumber, accountHolderName, accountType);
+    }
+
+    BankAccount(int id, String accountNumber, String accountHolderName, String accountType) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.accountHolderName = accountHolderName;
+        this.accountType = accountType;
+        this.balance = 0;
+    }
+
+    // Getters
+    int getId() {
+        return id;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getAccountHolderName() {
+        return accountHolderName;
+    }
+
+    public long getBalanceCents() {
+        return loadBalance();
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    // Balance storage hooks; storeBalance must only be called while holding lock()
+    long loadBalance() {
+        return balance;
+    }
+
+    void storeBalance(long value) {
+        balance = value;
+    }
+
+    Object lock() {
+        return this;
+    }
+
+    // Global lock order used by transfer and TransactionBatch to avoid deadlock: by lock rank,
+    // then by account number for accounts that share a rank but not a lock
+    boolean locksBefore(BankAccount other) {
+        int rank = lockRank();
+        int otherRank = other.lockRank();
+        return rank != otherRank ? rank < otherRank : accountNumber.compareTo(other.accountNumber) < 0;
+    }
+
+    // Where lock() falls in the lock order; accounts sharing a lock must share a rank
+    int lockRank() {
+        return id;
+    }
+
+    // Deposit money; returns false for a non-positive amount, and throws ArithmeticException,
+    // changing nothing, if the balance would overflow.
+    // Nothing is printed here: results are returned, and reported to the owning Bank.
+    public boolean deposit(long amount) {
+        LedgerMetrics metrics = bank != null ? bank.metrics() : null;
+        if (metrics == null) {
+            return applyDeposit(amount);
+        }
+        LedgerMetrics.Recorder recorder = metrics.recorder();
+        long started = recorder.start();
+        boolean applied;
+        try {
+            applied = applyDeposit(amount);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.DEPOSIT, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.DEPOSIT, applied ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.INVALID_AMOUNT, started);
+        return applied;
+    }
+
+    // Deposit once per idempotency key: a retry with the same key returns the first call's result
+    // without depositing again (see IdempotencyCache). A null key deposits as usual.
+    public boolean deposit(long amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return deposit(amount);
+        }
+        return owner().idempotency().execute(idempotencyKey,
+                IdempotencyCache.fingerprint(LedgerEvent.Type.DEPOSIT, id, 0, amount), 0, () -> deposit(amount));
+    }
+
+    // The operations proper; the public methods only add metrics when the bank keeps them,
+    // so without metrics an operation costs one extra null check
+    private boolean applyDeposit(long amount) {
+        if (amount <= 0) {
+            if (bank != null) {
+                bank.recordRejected(LedgerEvent.Type.DEPOSIT, LedgerEvent.Status.INVALID_AMOUNT, this, null, amount);
+            }
+            return false;
+        }
+
+        long ticket = 0;
+        synchronized (lock()) {
+            long newBalance = Math.addExact(loadBalance(), amount);
+            if (bank != null) {
+                ticket = bank.recordDeposit(this, amount, newBalance);
+            }
+            storeBalance(newBalance);
+        }
+        if (bank != null) {
+            bank.awaitDurable(ticket);
+        }
+        return true;
+    }
+
+    // Withdraw money; returns false for a non-positive amount or insufficient funds
+    public boolean withdraw(long amount) {
+        LedgerMetrics metrics = bank != null ? bank.metrics() : null;
+        if (metrics == null) {
+            return applyWithdraw(amount);
+        }
+        LedgerMetrics.Recorder recorder = metrics.recorder();
+        long started = recorder.start();
+        boolean applied;
+        try {
+            applied = applyWithdraw(amount);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.WITHDRAW, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.WITHDRAW, applied ? LedgerEvent.Status.APPLIED
+                : amount <= 0 ? LedgerEvent.Status.INVALID_AMOUNT : LedgerEvent.Status.INSUFFICIENT_FUNDS, started);
+        return applied;
+    }
+
+    // Withdraw once per idempotency key; see deposit(long, String)
+    public boolean withdraw(long amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return withdraw(amount);
+        }
+        return owner().idempotency().execute(idempotencyKey,
+                IdempotencyCache.fingerprint(LedgerEvent.Type.WITHDRAWAL, id, 0, amount), 0, () -> withdraw(amount));
+    }
+
+    private boolean applyWithdraw(long amount) {
+        if (amount <= 0) {
+            if (bank != null) {
+                bank.recordRejected(LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Status.INVALID_AMOUNT, this, null, amount);
+            }
+            return false;
+        }
+
+        boolean applied = false;
+        long ticket = 0;
+        synchronized (lock()) {
+            long current = loadBalance();
+            if (amount <= current) {
+                long newBalance = current - amount;
+                if (bank != null) {
+                    ticket = bank.recordWithdraw(this, amount, newBalance);
+                }
+                storeBalance(newBalance);
+                applied = true;
+            }
+        }
+
+        if (bank != null) {
+            if (applied) {
+                bank.awaitDurable(ticket);
+            } else {
+                bank.recordRejected(LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Status.INSUFFICIENT_FUNDS, this, null, amount);
+            }
+        }
+        return applied;
+    }
+
+    // Check balance
+    public void checkBalance() {
+        printDetails(loadBalance());
+    }
+
+    // Print the account with a balance read by the caller, e.g. from a consistent read
+    void printDetails(long balanceCents) {
+        System.out.println("Account: " + accountNumber);
+        System.out.println("Holder: " + accountHolderName);
+        System.out.println("Type: " + accountType);
+        System.out.println("Balance: $" + Money.format(balanceCents));
+    }
+
+    // Transfer money to another account; returns false for a non-positive amount,
+    // a transfer to the same account or insufficient funds, and throws ArithmeticException,
+    // changing nothing, if the target balance would overflow.
+    // Both accounts are locked for the whole debit/credit so no other thread can
+    // observe or interleave with a half-applied transfer. Locks are always taken
+    // in the order given by locksBefore, which rules out deadlock between opposing transfers.
+    public boolean transfer(BankAccount targetAccount, long amount) {
+        LedgerMetrics metrics = bank != null ? bank.metrics() : null;
+        if (metrics == null) {
+            return applyTransfer(targetAccount, amount);
+        }
+        LedgerMetrics.Recorder recorder = metrics.recorder();
+        long started = recorder.start();
+        boolean moved;
+        try {
+            moved = applyTransfer(targetAccount, amount);
+        } catch (RuntimeException | Error e) {
+            recorder.failed(LedgerMetrics.Operation.TRANSFER, started);
+            throw e;
+        }
+        recorder.end(LedgerMetrics.Operation.TRANSFER, moved ? LedgerEvent.Status.APPLIED
+                : amount <= 0 ? LedgerEvent.Status.INVALID_AMOUNT
+                : accountNumber.equals(targetAccount.accountNumber) ? LedgerEvent.Status.SAME_ACCOUNT
+                : LedgerEvent.Status.INSUFFICIENT_FUNDS, started);
+        return moved;
+    }
+
+    // Transfer once per idempotency key; see deposit(long, String)
+    public boolean transfer(BankAccount targetAccount, long amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transfer(targetAccount, amount);
+        }
+        long fingerprint = IdempotencyCache.fingerprint(LedgerEvent.Type.TRANSFER, id,
+                targetAccount != null ? targetAccount.id : -1, amount);
+        return owner().idempotency().execute(idempotencyKey, fingerprint, 0, () -> transfer(targetAccount, amount));
+    }
+
+    // Keys are remembered by the bank, so an account that does not belong to one cannot take them
+    private Bank owner() {
+        if (bank == null) {
+            throw new IllegalStateException("Idempotency keys need an account that belongs to a bank");
+        }
+        return bank;
+    }
+
+    private boolean applyTransfer(BankAccount targetAccount, long amount) {
+        if (amount <= 0 || accountNumber.equals(targetAccount.accountNumber)) {
+            if (bank != null) {
+                bank.recordRejected(LedgerEvent.Type.TRANSFER, amount <= 0
+                        ? LedgerEvent.Status.INVALID_AMOUNT : LedgerEvent.Status.SAME_ACCOUNT, this, targetAccount, amount);
+            }
+            return false;
+        }
+
+        BankAccount first = locksBefore(targetAccount) ? this : targetAccount;
+        BankAccount second = first == this ? targetAccount : this;
+        boolean moved = false;
+        long ticket = 0;
+        synchronized (first.lock()) {
+            synchronized (second.lock()) {
+                long current = loadBalance();
+                if (amount <= current) {
+                    long sourceBalance = current - amount;
+                    long targetBalance = Math.addExact(targetAccount.loadBalance(), amount);
+                    if (bank != null) {
+                        ticket = bank.recordTransfer(this, targetAccount, amount, sourceBalance, targetBalance);
+                    }
+                    storeBalance(sourceBalance);
+                    targetAccount.storeBalance(targetBalance);
+                    moved = true;
+                }
+            }
+        }
+
+        if (bank != null) {
+            if (moved) {
+                bank.awaitDurable(ticket);
+            } else {
+                bank.recordRejected(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.INSUFFICIENT_FUNDS, this, targetAccount, amount);
+            }
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,331 @@
+package bankapp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Main Bank Application class
+public class BankApplication {
+    private static Bank bank;
+    private static Scanner scanner = new Scanner(System.in);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // --server serves the bank over TCP instead of running the menu (see BankServer)
+        if (args.length > 0 && "--server".equals(args[0])) {
+            BankServer.main(args);
+            return;
+        }
+
+        // Accounts persist in bank-data/ unless -Dbank.dataDir says otherwise
+        String dataDir = System.getProperty("bank.dataDir", "bank-data");
+        DurabilityMode durability = DurabilityMode.valueOf(System.getProperty("bank.durability", "GROUP"));
+        long snapshotMinutes = Long.getLong("bank.snapshotMinutes", 5);
+        String auditLog = System.getProperty("bank.auditLog");
+        EventRing events = null;
+        try {
+            bank = Bank.open(Paths.get(dataDir), durability);
+            bank.scheduleSnapshots(snapshotMinutes, TimeUnit.MINUTES);
+            bank.setTransactionHistory(new TransactionHistory());
+            bank.setAccountIndex(new AccountIndex());
+            if (auditLog != null) {
+                events = new EventRing(4096, new AuditLogHandler(Paths.get(auditLog)));
+                bank.setEventRing(events);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not open bank data in " + dataDir + ": " + e.getMessage());
+            return;
+        }
+
+        // --import <file> / --export <file> bulk-load or dump accounts (.bin for binary, CSV otherwise) and exit
+        if (args.length == 2 && ("--import".equals(args[0]) || "--export".equals(args[0]))) {
+            bulkTransfer(args[0], Paths.get(args[1]));
+            bank.close();
+            if (events != null) {
+                events.close();
+            }
+            return;
+        }
+
+        // -Dbank.metricsPort=<port> serves operation metrics on http://127.0.0.1:<port>/metrics
+        MetricsEndpoint metrics = MetricsEndpoint.startIfConfigured(bank);
+
+        System.out.println("=== Welcome to Simple Bank Application ===");
+
+        while (true) {
+            displayMenu();
+            int choice = getChoice();
+
+            switch (choice) {
+                case 1:
+                    createAccount();
+                    break;
+                case 2:
+                    deposit();
+                    break;
+                case 3:
+                    withdraw();
+                    break;
+                case 4:
+                    checkBalance();
+                    break;
+                case 5:
+                    transfer();
+                    break;
+                case 6:
+                    displayAccounts();
+                    break;
+                case 7:
+                    statement();
+                    break;
+                case 8:
+                    searchAccounts();
+                    break;
+                case 9:
+                    if (metrics != null) {
+                        metrics.close();
+                    }
+                    bank.close();
+                    if (events != null) {
+                        events.close();
+                    }
+                    System.out.println("Thank you for using Simple Bank Application!");
+                    return;
+                default:
+                    System.out.println("Invalid choice! Please try again.");
+            }
+
+            System.out.println("\nPress Enter to continue...");
+            scanner.nextLine();
+        }
+    }
+
+    private static void bulkTransfer(String command, Path file) throws IOException {
+        boolean binary = file.getFileName().toString().endsWith(".bin");
+        long start = System.nanoTime();
+        if ("--export".equals(command)) {
+            long written = binary ? AccountExporter.writeBinary(bank, file) : AccountExporter.writeCsv(bank, file);
+            System.out.printf("Exported %d accounts to %s in %.1f s%n", written, file, (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        AccountImporter importer = new AccountImporter(bank,
+                (row, message) -> System.out.println("Row " + row + " rejected: " + message));
+        AccountImporter.Result result = binary ? importer.importBinary(file) : importer.importCsv(file);
+        System.out.printf("Imported %d accounts, rejected %d, in %.1f s%n",
+                result.getImported(), result.getRejected(), (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void displayMenu() {
+        System.out.println("\n=== Bank Menu ===");
+        System.out.println("1. Create Account");
+        System.out.println("2. Deposit Money");
+        System.out.println("3. Withdraw Money");
+        System.out.println("4. Check Balance");
+        System.out.println("5. Transfer Money");
+        System.out.println("6. Display All Accounts");
+        System.out.println("7. Account Statement");
+        System.out.println("8. Search Accounts");
+        System.out.println("9. Exit");
+        System.out.print("Enter your choice: ");
+    }
+
+    private static int getChoice() {
+        try {
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // consume newline
+            return choice;
+        } catch (InputMismatchException e) {
+            scanner.nextLine(); // consume invalid input
+            return -1;
+        }
+    }
+
+    private static void createAccount() {
+        System.out.print("Enter account holder name: ");
+        String name = scanner.nextLine();
+
+        System.out.print("Enter account type (Savings/Checking): ");
+        String type = scanner.nextLine();
+
+        if (name.trim().isEmpty()) {
+            System.out.println("Invalid name!");
+            return;
+        }
+
+        String accountNumber = bank.createAccount(name, type);
+        System.out.println("Account created successfully!");
+        System.out.println("Account Number: " + accountNumber);
+    }
+
+    private static void deposit() {
+        System.out.print("Enter account number: ");
+        String accountNumber = scanner.nextLine();
+
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            System.out.println("Account not found!");
+            return;
+        }
+
+        System.out.print("Enter deposit amount: $");
+        try {
+            long amount = Money.parseCents(scanner.nextLine());
+            if (account.deposit(amount)) {
+                System.out.println("Deposited: $" + Money.format(amount));
+                System.out.println("New balance: $" + Money.format(account.getBalanceCents()));
+            } else {
+                System.out.println("Invalid deposit amount!");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid amount! " + e.getMessage());
+        } catch (ArithmeticException e) {
+            System.out.println("Deposit failed: the balance would overflow!");
+        }
+    }
+
+    private static void withdraw() {
+        System.out.print("Enter account number: ");
+        String accountNumber = scanner.nextLine();
+
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            System.out.println("Account not found!");
+            return;
+        }
+
+        System.out.print("Enter withdrawal amount: $");
+        try {
+            long amount = Money.parseCents(scanner.nextLine());
+            if (account.withdraw(amount)) {
+                System.out.println("Withdrawn: $" + Money.format(amount));
+                System.out.println("New balance: $" + Money.format(account.getBalanceCents()));
+            } else if (amount <= 0) {
+                System.out.println("Invalid withdrawal amount!");
+            } else {
+                System.out.println("Insufficient funds!");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid amount! " + e.getMessage());
+        }
+    }
+
+    private static void checkBalance() {
+        System.out.print("Enter account number: ");
+        String accountNumber = scanner.nextLine();
+
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            System.out.println("Account not found!");
+            return;
+        }
+
+        account.checkBalance();
+    }
+
+    private static void statement() {
+        System.out.print("Enter account number: ");
+        String accountNumber = scanner.nextLine();
+
+        try {
+            if (AccountStatement.writeRecent(bank, accountNumber, 10, System.out) < 0) {
+                System.out.println("Account not found!");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write statement: " + e.getMessage());
+        }
+    }
+
+    // Lists accounts a page at a time, in account number order
+    private static void displayAccounts() {
+        if (bank.getAccountCount() == 0) {
+            System.out.println("No accounts found!");
+            return;
+        }
+
+        System.out.println("\n=== All Accounts ===");
+        System.out.print(bank.getAggregates().appendTo(new StringBuilder()));
+        String cursor = null;
+        do {
+            AccountPage page = bank.listAccounts(cursor, 20);
+            for (String line : page.lines()) {
+                System.out.println(line);
+            }
+            cursor = page.getNextCursor();
+            if (cursor != null) {
+                System.out.print("Press Enter for more, or q to stop: ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    return;
+                }
+            }
+        } while (cursor != null);
+    }
+
+    private static void searchAccounts() {
+        System.out.print("Search by (1) holder name prefix or (2) account type: ");
+        String mode = scanner.nextLine().trim();
+        System.out.print("Enter search text: ");
+        String text = scanner.nextLine();
+
+        Iterable<BankAccount> found;
+        if ("1".equals(mode)) {
+            found = bank.findAccountsByHolderPrefix(text);
+        } else if ("2".equals(mode)) {
+            found = bank.findAccountsByType(text);
+        } else {
+            System.out.println("Invalid choice!");
+            return;
+        }
+
+        int shown = 0;
+        for (BankAccount account : found) {
+            if (shown == 20) {
+                System.out.println("... more accounts match; refine the search");
+                break;
+            }
+            System.out.println(account.getAccountNumber() + "  " + account.getAccountHolderName() + "  "
+                    + account.getAccountType() + "  $" + Money.format(account.getBalanceCents()));
+            shown++;
+        }
+        if (shown == 0) {
+            System.out.println("No accounts found!");
+        }
+    }
+
+    private static void transfer() {
+        System.out.print("Enter source account number: ");
+        String sourceAccountNumber = scanner.nextLine();
+
+        BankAccount sourceAccount = bank.findAccount(sourceAccountNumber);
+        if (sourceAccount == null) {
+            System.out.println("Source account not found!");
+            return;
+        }
+
+        System.out.print("Enter target account number: ");
+        String targetAccountNumber = scanner.nextLine();
+
+        BankAccount targetAccount = bank.findAccount(targetAccountNumber);
+        if (targetAccount == null) {
+            System.out.println("Target account not found!");
+            return;
+        }
+
+        System.out.print("Enter transfer amount: $");
+        try {
+            long amount = Money.parseCents(scanner.nextLine());
+            if (sourceAccount.transfer(targetAccount, amount)) {
+                System.out.println("Transfer successful to account: " + targetAccount.getAccountNumber());
+            } else {
+                if (amount > 0 && !sourceAccountNumber.equals(targetAccountNumber)) {
+                    System.out.println("Insufficient funds!");
+                }
+                System.out.println("Transfer failed!");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid amount! " + e.getMessage());
+        } catch (ArithmeticException e) {
+            System.out.println("Transfer failed: the balance would overflow!");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,539 @@
+package bankapp;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class BankApplicationGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private static final int LOG_LINES = 1000;
+    private static final int REFRESH_MILLIS = Integer.getInteger("bank.gui.refreshMillis", 100);
+
+    private final Bank bank;
+    private JTextField accountNumberField, holderNameField, accountTypeField, amountField;
+    private JTextField sourceAccountField, targetAccountField, transferAmountField;
+    private final AccountTableModel tableModel;
+    private final EventRing events;
+    private JTable accountTable;
+    private JLabel statusLabel;
+    private LogRingModel outputLog;
+    private JList<String> outputList;
+
+    // Ledger operations run here, one at a time, so the EDT only reads fields and repaints
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "bank-gui-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BankApplicationGUI() {
+        this(new Bank());
+    }
+
+    /**
+     * Opens a window on a bank that other code, e.g. a BankServer, may be changing at the same time
+     * The window takes over the bank's event ring: the table follows the bank's events,
+     * refreshed at a fixed rate (-Dbank.gui.refreshMillis, 100 by default). Call on the EDT.
+     * @param bank The bank to show and operate on
+     */
+    public BankApplicationGUI(Bank bank) {
+        this.bank = bank;
+        tableModel = new AccountTableModel(bank);
+        events = new EventRing(4096, tableModel);
+        bank.setEventRing(events);
+        worker.execute(tableModel::addExistingAccounts);
+        initializeGUI();
+        // Coalesces however many changes arrived since the last tick into one table update
+        new Timer(REFRESH_MILLIS, e -> refreshTable()).start();
+    }
+
+    private void initializeGUI() {
+        setTitle("Simple Bank Application - GUI Version");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        // Create main panels
+        JPanel inputPanel = createInputPanel();
+        JPanel buttonPanel = createButtonPanel();
+        JPanel tablePane = createAccountTable();
+        JPanel outputPanel = createOutputPanel();
+
+        // Add panels to frame
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(inputPanel, BorderLayout.NORTH);
+        controls.add(buttonPanel, BorderLayout.CENTER);
+        add(controls, BorderLayout.NORTH);
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tablePane, outputPanel);
+        split.setResizeWeight(0.6);
+        add(split, BorderLayout.CENTER);
+
+        // Set frame properties
+        setSize(900, 700);
+        setLocationRelativeTo(null);
+        setResizable(true);
+    }
+
+    private JPanel createInputPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Account Operations"));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createTitledBorder("Account Operations"),
+                new EmptyBorder(10, 10, 10, 10)
+        ));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        // Account creation fields
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Account Holder Name:"), gbc);
+        gbc.gridx = 1;
+        holderNameField = new JTextField(15);
+        panel.add(holderNameField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(new JLabel("Account Type:"), gbc);
+        gbc.gridx = 1;
+        accountTypeField = new JTextField(15);
+        accountTypeField.setText("Savings");
+        panel.add(accountTypeField, gbc);
+
+        // General operation fields
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Account Number:"), gbc);
+        gbc.gridx = 1;
+        accountNumberField = new JTextField(15);
+        panel.add(accountNumberField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(new JLabel("Amount:"), gbc);
+        gbc.gridx = 1;
+        amountField = new JTextField(15);
+        panel.add(amountField, gbc);
+
+        // Transfer specific fields
+        gbc.gridx = 3; gbc.gridy = 0;
+        panel.add(new JLabel("Source Account:"), gbc);
+        gbc.gridx = 4;
+        sourceAccountField = new JTextField(15);
+        panel.add(sourceAccountField, gbc);
+
+        gbc.gridx = 3; gbc.gridy = 1;
+        panel.add(new JLabel("Target Account:"), gbc);
+        gbc.gridx = 4;
+        targetAccountField = new JTextField(15);
+        panel.add(targetAccountField, gbc);
+
+        gbc.gridx = 3; gbc.gridy = 2;
+        panel.add(new JLabel("Transfer Amount:"), gbc);
+        gbc.gridx = 4;
+        transferAmountField = new JTextField(15);
+        panel.add(transferAmountField, gbc);
+
+        return panel;
+    }
+
+    private JPanel createButtonPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        panel.setBorder(BorderFactory.createTitledBorder("Operations"));
+
+        JButton createAccountBtn = new JButton("Create Account");
+        JButton depositBtn = new JButton("Deposit");
+        JButton withdrawBtn = new JButton("Withdraw");
+        JButton checkBalanceBtn = new JButton("Check Balance");
+        JButton transferBtn = new JButton("Transfer");
+        JButton displayAllBtn = new JButton("Display All Accounts");
+        JButton clearBtn = new JButton("Clear Output");
+
+        // Add action listeners
+        createAccountBtn.addActionListener(e -> createAccount());
+        depositBtn.addActionListener(e -> deposit());
+        withdrawBtn.addActionListener(e -> withdraw());
+        checkBalanceBtn.addActionListener(e -> checkBalance());
+        transferBtn.addActionListener(e -> transfer());
+        displayAllBtn.addActionListener(e -> displayAllAccounts());
+        clearBtn.addActionListener(e -> outputLog.clear());
+
+        // Style buttons
+        Color buttonColor = new Color(70, 130, 180);
+        Font buttonFont = new Font("Arial", Font.BOLD, 12);
+
+        JButton[] buttons = {createAccountBtn, depositBtn, withdrawBtn,
+                checkBalanceBtn, transferBtn, displayAllBtn, clearBtn};
+
+        for (JButton btn : buttons) {
+            btn.setBackground(buttonColor);
+            btn.setForeground(Color.WHITE);
+            btn.setFont(buttonFont);
+            btn.setFocusPainted(false);
+            btn.setPreferredSize(new Dimension(140, 35));
+            panel.add(btn);
+        }
+
+        return panel;
+    }
+
+    // JTable paints only the rows in view and asks the model for just those cells
+    private JPanel createAccountTable() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Accounts"));
+
+        accountTable = new JTable(tableModel);
+        accountTable.setFillsViewportHeight(true);
+        accountTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        accountTable.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        panel.add(new JScrollPane(accountTable), BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(new EmptyBorder(2, 5, 2, 5));
+        panel.add(statusLabel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    private JPanel createOutputPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Output"));
+
+        outputLog = new LogRingModel(LOG_LINES);
+        outputList = new JList<>(outputLog);
+        outputList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        outputList.setBackground(new Color(248, 248, 255));
+        outputList.setBorder(new EmptyBorder(10, 10, 10, 10));
+        // Fixed cell sizes keep JList from measuring every line on each change
+        outputList.setPrototypeCellValue("-".repeat(65));
+
+        JScrollPane scrollPane = new JScrollPane(outputList);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        panel.add(scrollPane, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    private void createAccount() {
+        String name = holderNameField.getText().trim();
+        String typeText = accountTypeField.getText().trim();
+
+        if (name.isEmpty()) {
+            appendOutput("❌ Error: Please enter account holder name!");
+            return;
+        }
+
+        String type = typeText.isEmpty() ? "Savings" : typeText; // Default type
+        submit(out -> {
+            String accountNumber = bank.createAccount(name, type);
+            out.line("✅ Account created successfully!");
+            out.line("📋 Account Number: " + accountNumber);
+            out.line("👤 Holder: " + name + " | 🏦 Type: " + type);
+            out.line("💰 Initial Balance: $0.00");
+            out.line("─────────────────────────────────────");
+            out.succeeded();
+        }, () -> {
+            // Clear fields
+            holderNameField.setText("");
+            accountTypeField.setText("Savings");
+        });
+    }
+
+    private void deposit() {
+        String accountNumber = accountNumberField.getText().trim();
+        String amountText = amountField.getText().trim();
+
+        if (accountNumber.isEmpty() || amountText.isEmpty()) {
+            appendOutput("❌ Error: Please enter account number and amount!");
+            return;
+        }
+
+        submit(out -> {
+            try {
+                long amount = Money.parseCents(amountText);
+                BankAccount account = bank.findAccount(accountNumber);
+
+                if (account == null) {
+                    out.line("❌ Error: Account not found!");
+                    return;
+                }
+
+                if (account.deposit(amount)) {
+                    out.line("✅ Deposit successful!");
+                    out.line("💳 Account: " + accountNumber);
+                    out.line("💰 Amount deposited: $" + Money.format(amount));
+                    out.line("📊 New balance: $" + Money.format(account.getBalanceCents()));
+                    out.line("─────────────────────────────────────");
+                    out.succeeded();
+                } else {
+                    out.line("❌ Error: Invalid deposit amount!");
+                }
+
+            } catch (NumberFormatException e) {
+                out.line("❌ Error: " + e.getMessage());
+            } catch (ArithmeticException e) {
+                out.line("❌ Error: The balance would overflow!");
+            }
+        }, () -> amountField.setText("")); // Clear amount field
+    }
+
+    private void withdraw() {
+        String accountNumber = accountNumberField.getText().trim();
+        String amountText = amountField.getText().trim();
+
+        if (accountNumber.isEmpty() || amountText.isEmpty()) {
+            appendOutput("❌ Error: Please enter account number and amount!");
+            return;
+        }
+
+        submit(out -> {
+            try {
+                long amount = Money.parseCents(amountText);
+                BankAccount account = bank.findAccount(accountNumber);
+
+                if (account == null) {
+                    out.line("❌ Error: Account not found!");
+                    return;
+                }
+
+                if (account.withdraw(amount)) {
+                    out.line("✅ Withdrawal successful!");
+                    out.line("💳 Account: " + accountNumber);
+                    out.line("💰 Amount withdrawn: $" + Money.format(amount));
+                    out.line("📊 New balance: $" + Money.format(account.getBalanceCents()));
+                    out.line("─────────────────────────────────────");
+                    out.succeeded();
+                } else {
+                    out.line("❌ Error: Withdrawal failed - insufficient funds or invalid amount!");
+                    out.line("💰 Current balance: $" + Money.format(account.getBalanceCents()));
+                }
+
+            } catch (NumberFormatException e) {
+                out.line("❌ Error: " + e.getMessage());
+            }
+        }, () -> amountField.setText("")); // Clear amount field
+    }
+
+    private void checkBalance() {
+        String accountNumber = accountNumberField.getText().trim();
+
+        if (accountNumber.isEmpty()) {
+            appendOutput("❌ Error: Please enter account number!");
+            return;
+        }
+
+        submit(out -> {
+            BankAccount account = bank.findAccount(accountNumber);
+            if (account == null) {
+                out.line("❌ Error: Account not found!");
+                return;
+            }
+
+            out.line("═══ Account Details ═══");
+            out.line("📋 Account: " + account.getAccountNumber());
+            out.line("👤 Holder: " + account.getAccountHolderName());
+            out.line("🏦 Type: " + account.getAccountType());
+            out.line("💰 Balance: $" + Money.format(account.getBalanceCents()));
+            out.line("─────────────────────────────────────");
+        }, null);
+    }
+
+    private void transfer() {
+        String sourceAccount = sourceAccountField.getText().trim();
+        String targetAccount = targetAccountField.getText().trim();
+        String amountText = transferAmountField.getText().trim();
+
+        if (sourceAccount.isEmpty() || targetAccount.isEmpty() || amountText.isEmpty()) {
+            appendOutput("❌ Error: Please fill all transfer fields!");
+            return;
+        }
+
+        if (sourceAccount.equals(targetAccount)) {
+            appendOutput("❌ Error: Source and target accounts cannot be the same!");
+            return;
+        }
+
+        submit(out -> {
+            try {
+                long amount = Money.parseCents(amountText);
+                BankAccount source = bank.findAccount(sourceAccount);
+                BankAccount target = bank.findAccount(targetAccount);
+
+                if (source == null) {
+                    out.line("❌ Error: Source account not found!");
+                    return;
+                }
+
+                if (target == null) {
+                    out.line("❌ Error: Target account not found!");
+                    return;
+                }
+
+                if (source.transfer(target, amount)) {
+                    out.line("✅ Transfer successful!");
+                    out.line("📤 From " + sourceAccount + ": $" + Money.format(source.getBalanceCents()));
+                    out.line("📥 To " + targetAccount + ": $" + Money.format(target.getBalanceCents()));
+                    out.line("💸 Amount transferred: $" + Money.format(amount));
+                    out.line("─────────────────────────────────────");
+                    out.succeeded();
+                } else {
+                    out.line("❌ Error: Transfer failed - insufficient funds or invalid amount!");
+                    out.line("💰 Source account balance: $" + Money.format(source.getBalanceCents()));
+                }
+
+            } catch (NumberFormatException e) {
+                out.line("❌ Error: " + e.getMessage());
+            } catch (ArithmeticException e) {
+                out.line("❌ Error: The balance would overflow!");
+            }
+        }, () -> {
+            // Clear transfer fields
+            sourceAccountField.setText("");
+            targetAccountField.setText("");
+            transferAmountField.setText("");
+        });
+    }
+
+    // The table already holds every account; this brings it to the top instead of printing them
+    private void displayAllAccounts() {
+        refreshTable();
+        if (tableModel.getRowCount() == 0) {
+            appendOutput("❌ No accounts found!");
+            return;
+        }
+
+        accountTable.scrollRectToVisible(accountTable.getCellRect(0, 0, true));
+        accountTable.requestFocusInWindow();
+        appendOutput("📊 Total accounts: " + tableModel.getRowCount());
+        appendOutput("─────────────────────────────────────");
+    }
+
+    private void refreshTable() {
+        long changed = tableModel.refresh();
+        AggregateSnapshot totals = bank.getAggregates();
+        StringBuilder status = new StringBuilder(128);
+        status.append(String.format("Accounts: %,d | Total: $", totals.getAccountCount()));
+        Money.appendTo(status, totals.getTotalBalanceCents());
+        for (String type : totals.getTypes()) {
+            Money.appendTo(status.append(" | ").append(type).append(": $"), totals.getBalanceCents(type));
+        }
+        status.append(String.format(" | Balance changes: %,d/s", changed * 1000 / REFRESH_MILLIS));
+        statusLabel.setText(status.toString());
+    }
+
+    private void appendOutput(String... lines) {
+        outputLog.add(lines);
+        outputList.ensureIndexIsVisible(outputLog.getSize() - 1);
+    }
+
+    /**
+     * Runs an operation on the worker thread, then shows its outcome on the EDT
+     * The table is not touched here: it follows the bank's events like any other change.
+     * @param operation The ledger work, which reports through the Outcome it is given
+     * @param onSuccess Run on the EDT if the operation succeeded, or null
+     */
+    private void submit(Consumer<Outcome> operation, Runnable onSuccess) {
+        worker.execute(() -> {
+            Outcome outcome = new Outcome();
+            try {
+                operation.accept(outcome);
+            } catch (RuntimeException e) {
+                outcome.line("❌ Error: " + e.getMessage());
+            }
+            SwingUtilities.invokeLater(() -> {
+                appendOutput(outcome.lines.toArray(new String[0]));
+                if (outcome.success && onSuccess != null) {
+                    onSuccess.run();
+                }
+            });
+        });
+    }
+
+    // Opens N generated accounts, e.g. -Dbank.gui.demoAccounts=2000000, to try the window on a large book
+    private void openDemoAccounts(int count) {
+        worker.execute(() -> {
+            String[] types = {"Savings", "Checking", "Current"};
+            for (int i = 0; i < count; i++) {
+                BankAccount account = bank.findAccount(bank.createAccount("Demo Holder", types[i % types.length]));
+                account.deposit(100L * (1 + i % 10_000));
+            }
+            SwingUtilities.invokeLater(() -> appendOutput("📊 Demo accounts opened: " + count));
+        });
+    }
+
+    // What an operation produced, built on the worker and read on the EDT after invokeLater
+    private static final class Outcome {
+        final List<String> lines = new ArrayList<>();
+        boolean success;
+
+        void line(String text) {
+            lines.add(text);
+        }
+
+        void succeeded() {
+            success = true;
+        }
+    }
+
+    // Shows an in-memory bank, or the one in -Dbank.dataDir; with -Dbank.port it is also served
+    // over TCP, so BankClient sessions change the same accounts the window shows; -Dbank.metricsPort
+    // serves operation metrics as in BankApplication
+    public static void main(String[] args) throws IOException {
+        String dataDir = System.getProperty("bank.dataDir");
+        Integer port = Integer.getInteger("bank.port");
+        int demoAccounts = Integer.getInteger("bank.gui.demoAccounts", 0);
+
+        Bank bank;
+        if (dataDir != null) {
+            bank = Bank.open(Paths.get(dataDir), DurabilityMode.valueOf(System.getProperty("bank.durability", "GROUP")));
+            bank.scheduleSnapshots(Long.getLong("bank.snapshotMinutes", 5), TimeUnit.MINUTES);
+        } else {
+            bank = new Bank();
+        }
+        MetricsEndpoint metrics = MetricsEndpoint.startIfConfigured(bank);
+        BankServer server = null;
+        if (port != null) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            server = new BankServer(bank, new InetSocketAddress(port), Math.max(1, cores / 2), 64);
+        }
+        BankServer served = server;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (metrics != null) {
+                    metrics.close();
+                }
+                if (served != null) {
+                    served.close();
+                }
+                bank.close();
+            } catch (IOException e) {
+                System.err.println("Shutdown failed: " + e.getMessage());
+            }
+        }));
+
+        int listening = 0;
+        if (server != null) {
+            server.start();
+            listening = server.getPort();
+            System.out.println("Bank server listening on port " + listening);
+        }
+        int servedPort = listening;
+
+        SwingUtilities.invokeLater(() -> {
+            BankApplicationGUI gui = new BankApplicationGUI(bank);
+            gui.setVisible(true);
+            if (served != null) {
+                gui.appendOutput("🌐 Serving this bank on port " + servedPort);
+            }
+            if (demoAccounts > 0) {
+                gui.openDemoAccounts(demoAccounts);
+            }
+        });
+    }
+}
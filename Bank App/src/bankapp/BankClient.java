@@ -0,0 +1,245 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Client for BankServer over one TCP connection
+ * The *Async methods send a request and return at once, so many requests can be in flight
+ * (pipelining); a reader thread completes their futures as responses arrive. The plain methods
+ * wait for the answer. A client may be shared between threads.
+ * Requests the server rejects as invalid complete with an IllegalArgumentException carrying
+ * the server's validation message.
+ */
+public class BankClient implements Closeable {
+    private final SocketChannel channel;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer out = ByteBuffer.allocate(BankProtocol.MAX_FRAME); // guarded by this
+    private final Thread reader;
+    private int nextRequestId; // guarded by this
+    private volatile IOException failure;
+
+    private static final class Pending {
+        final int requestId;
+        final byte op;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Pending(int requestId, byte op) {
+            this.requestId = requestId;
+            this.op = op;
+        }
+    }
+
+    /**
+     * @param host The server host
+     * @param port The server port
+     * @throws IOException if the server cannot be reached
+     */
+    public BankClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.reader = new Thread(this::readResponses, "bank-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public CompletableFuture<String> createAccountAsync(String holderName, String accountType) {
+        return createAccountAsync(holderName, accountType, null);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> depositAsync(String accountNumber, long amount) {
+        return depositAsync(accountNumber, amount, null);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> withdrawAsync(String accountNumber, long amount) {
+        return withdrawAsync(accountNumber, amount, null);
+    }
+
+    /** Completes with the balance in cents, or null if there is no such account */
+    public CompletableFuture<Long> getBalanceAsync(String accountNumber) {
+        return send(BankProtocol.BALANCE, null, accountNumber, null, 0);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> transferAsync(String sourceAccount, String targetAccount, long amount) {
+        return transferAsync(sourceAccount, targetAccount, amount, null);
+    }
+
+    // Keyed variants: resending a request with the same idempotency key after a timeout or a lost
+    // connection is safe, as the server answers a key it has seen with the first result. Null sends no key.
+
+    public CompletableFuture<String> createAccountAsync(String holderName, String accountType, String idempotencyKey) {
+        return send(BankProtocol.CREATE, idempotencyKey, holderName, accountType, 0);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> depositAsync(String accountNumber, long amount, String idempotencyKey) {
+        return send(BankProtocol.DEPOSIT, idempotencyKey, accountNumber, null, amount);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> withdrawAsync(String accountNumber, long amount, String idempotencyKey) {
+        return send(BankProtocol.WITHDRAW, idempotencyKey, accountNumber, null, amount);
+    }
+
+    public CompletableFuture<LedgerEvent.Status> transferAsync(String sourceAccount, String targetAccount, long amount,
+            String idempotencyKey) {
+        return send(BankProtocol.TRANSFER, idempotencyKey, sourceAccount, targetAccount, amount);
+    }
+
+    public String createAccount(String holderName, String accountType) {
+        return join(createAccountAsync(holderName, accountType));
+    }
+
+    public LedgerEvent.Status deposit(String accountNumber, long amount) {
+        return join(depositAsync(accountNumber, amount));
+    }
+
+    public LedgerEvent.Status withdraw(String accountNumber, long amount) {
+        return join(withdrawAsync(accountNumber, amount));
+    }
+
+    public Long getBalance(String accountNumber) {
+        return join(getBalanceAsync(accountNumber));
+    }
+
+    public LedgerEvent.Status transfer(String sourceAccount, String targetAccount, long amount) {
+        return join(transferAsync(sourceAccount, targetAccount, amount));
+    }
+
+    public String createAccount(String holderName, String accountType, String idempotencyKey) {
+        return join(createAccountAsync(holderName, accountType, idempotencyKey));
+    }
+
+    public LedgerEvent.Status deposit(String accountNumber, long amount, String idempotencyKey) {
+        return join(depositAsync(accountNumber, amount, idempotencyKey));
+    }
+
+    public LedgerEvent.Status withdraw(String accountNumber, long amount, String idempotencyKey) {
+        return join(withdrawAsync(accountNumber, amount, idempotencyKey));
+    }
+
+    public LedgerEvent.Status transfer(String sourceAccount, String targetAccount, long amount, String idempotencyKey) {
+        return join(transferAsync(sourceAccount, targetAccount, amount, idempotencyKey));
+    }
+
+    // Encode and send one request; registering it and writing it under one lock keeps
+    // the pending queue in the order the server will answer
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> send(byte op, String key, String first, String second, long amount) {
+        Pending request;
+        synchronized (this) {
+            request = new Pending(nextRequestId++, op);
+            if (failure != null) {
+                request.future.completeExceptionally(failure);
+                return (CompletableFuture<T>) (CompletableFuture<?>) request.future;
+            }
+            out.clear();
+            out.putInt(0).put(key != null ? (byte) (op | BankProtocol.KEYED) : op).putInt(request.requestId);
+            if (key != null) {
+                BankProtocol.putString(out, key);
+            }
+            BankProtocol.putString(out, first);
+            if (second != null) {
+                BankProtocol.putString(out, second);
+            }
+            if (op != BankProtocol.CREATE && op != BankProtocol.BALANCE) {
+                out.putLong(amount);
+            }
+            out.putInt(0, out.position() - Integer.BYTES);
+            out.flip();
+            pending.add(request);
+            try {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) request.future;
+    }
+
+    private void readResponses() {
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        try {
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException("Server closed the connection");
+                }
+                in.flip();
+                while (in.remaining() >= Integer.BYTES && in.remaining() >= Integer.BYTES + in.getInt(in.position())) {
+                    int end = in.position() + Integer.BYTES + in.getInt();
+                    complete(in);
+                    in.position(end);
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void complete(ByteBuffer in) throws IOException {
+        int requestId = in.getInt();
+        byte status = in.get();
+        Pending request = pending.poll();
+        if (request == null || request.requestId != requestId) {
+            throw new IOException("Response " + requestId + " does not match any pending request");
+        }
+        if (status == BankProtocol.INVALID_REQUEST) {
+            request.future.completeExceptionally(new IllegalArgumentException(BankProtocol.getString(in)));
+        } else if (status == BankProtocol.SERVER_ERROR) {
+            request.future.completeExceptionally(new IllegalStateException(BankProtocol.getString(in)));
+        } else {
+            LedgerEvent.Status outcome = BankProtocol.status(status);
+            if (request.op == BankProtocol.CREATE) {
+                request.future.complete(BankProtocol.getString(in));
+            } else if (request.op == BankProtocol.BALANCE) {
+                request.future.complete(outcome == LedgerEvent.Status.APPLIED ? in.getLong() : null);
+            } else {
+                request.future.complete(outcome);
+            }
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        failure = e;
+        Pending request;
+        while ((request = pending.poll()) != null) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
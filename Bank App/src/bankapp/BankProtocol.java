@@ -0,0 +1,83 @@
+package bankapp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary wire protocol spoken by BankServer and BankClient
+ * Every message is a frame [int length of the rest][...], big-endian. A request is
+ * [byte op][int request id][fields] and its response is [int request id][byte status][fields].
+ * Strings are [unsigned short UTF-8 length][bytes] and amounts are long cents.
+ *
+ * Requests and their fields:
+ * CREATE holder, type -> account number;  DEPOSIT / WITHDRAW account, amount -> nothing;
+ * BALANCE account -> long balance;  TRANSFER source, target, amount -> nothing.
+ *
+ * A CREATE, DEPOSIT, WITHDRAW or TRANSFER may carry an idempotency key: its op byte has the KEYED
+ * bit set and the key string follows the request id. A retry with the same key gets the first
+ * answer again, without repeating the operation (see IdempotencyCache).
+ *
+ * A client may send many requests without waiting (pipelining). Responses on one connection
+ * come back in request order; the request id is echoed so clients can check the pairing.
+ */
+public final class BankProtocol {
+    public static final byte CREATE = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAW = 3;
+    public static final byte BALANCE = 4;
+    public static final byte TRANSFER = 5;
+
+    /** Op byte flag of a request carrying an idempotency key */
+    public static final byte KEYED = 0x40;
+
+    /** Status byte of a request the server could not accept; the fields are a message string */
+    public static final byte INVALID_REQUEST = 100;
+
+    /** Status byte of a request that failed inside the server; the fields are a message string */
+    public static final byte SERVER_ERROR = 101;
+
+    /** Largest frame, including its length prefix, either side accepts */
+    public static final int MAX_FRAME = 4096;
+
+    private static final LedgerEvent.Status[] STATUSES = LedgerEvent.Status.values();
+
+    private BankProtocol() {
+    }
+
+    /**
+     * @param status A ledger outcome
+     * @return Its status byte
+     */
+    public static byte statusCode(LedgerEvent.Status status) {
+        return (byte) status.ordinal();
+    }
+
+    /**
+     * @param code A status byte other than INVALID_REQUEST
+     * @return The ledger outcome it stands for
+     */
+    public static LedgerEvent.Status status(byte code) {
+        if (code < 0 || code >= STATUSES.length) {
+            throw new IllegalArgumentException("Unknown status code " + code);
+        }
+        return STATUSES[code];
+    }
+
+    static void putString(ByteBuffer buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for the protocol");
+        }
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buf) {
+        int length = buf.getShort() & 0xFFFF;
+        if (length > buf.remaining()) {
+            throw new IllegalArgumentException("Truncated string field");
+        }
+        String value = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return value;
+    }
+}
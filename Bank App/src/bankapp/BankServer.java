@@ -0,0 +1,525 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless TCP front end for a Bank, speaking BankProtocol
+ * A few selector threads do all socket I/O and cut the byte stream into frames. Decoded
+ * requests are executed by a worker pool, one connection at a time per worker, so responses
+ * keep request order while different connections run in parallel, and a worker waiting for
+ * a group commit never holds up a selector. Connections that queue too many requests, or
+ * leave too many response bytes unread, stop being read until their worker and the client
+ * catch up. A client that shuts down its side of the connection still gets the responses to
+ * every request it sent before the connection is closed.
+ */
+public class BankServer implements Closeable {
+    public static final int DEFAULT_PORT = 7878;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_QUEUED_REQUESTS = 1024;
+    private static final int MAX_UNSENT_BYTES = 64 * BUFFER_SIZE;
+
+    private final Bank bank;
+    private final ServerSocketChannel acceptor;
+    private final IoLoop[] loops;
+    private final ExecutorService workers;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server; call start() to begin serving
+     * @param bank The bank to serve
+     * @param address The address to listen on; port 0 picks a free port
+     * @param ioThreads Number of selector threads
+     * @param workerThreads Number of threads executing requests
+     * @throws IOException if the address cannot be bound
+     */
+    public BankServer(Bank bank, InetSocketAddress address, int ioThreads, int workerThreads) throws IOException {
+        this.bank = bank;
+        this.acceptor = ServerSocketChannel.open();
+        acceptor.bind(address, 1024);
+        acceptor.configureBlocking(false);
+        this.loops = new IoLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, task -> {
+            Thread thread = new Thread(task, "bank-server-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptor.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public void start() {
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) acceptor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Stops accepting and closes every connection; requests still queued are dropped
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdown();
+        acceptor.close();
+    }
+
+    // Serve the bank in the data directory until the process is stopped
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String dataDir = System.getProperty("bank.dataDir", "bank-data");
+        DurabilityMode durability = DurabilityMode.valueOf(System.getProperty("bank.durability", "GROUP"));
+        int port = Integer.getInteger("bank.port", DEFAULT_PORT);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int ioThreads = Integer.getInteger("bank.ioThreads", Math.max(1, cores / 2));
+        int workerThreads = Integer.getInteger("bank.workerThreads", 64);
+
+        Bank bank = Bank.open(Paths.get(dataDir), durability);
+        bank.scheduleSnapshots(Long.getLong("bank.snapshotMinutes", 5), TimeUnit.MINUTES);
+        long idempotencyMegabytes = Long.getLong("bank.idempotencyMegabytes", 64);
+        if (idempotencyMegabytes > 0) {
+            bank.setIdempotencyCache(new IdempotencyCache(idempotencyMegabytes << 20,
+                    Long.getLong("bank.idempotencyMinutes", 60), TimeUnit.MINUTES));
+        }
+        MetricsEndpoint metrics = MetricsEndpoint.startIfConfigured(bank);
+        BankServer server = new BankServer(bank, new InetSocketAddress(port), ioThreads, workerThreads);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (metrics != null) {
+                    metrics.close();
+                }
+                server.close();
+                bank.close();
+            } catch (IOException e) {
+                System.err.println("Shutdown failed: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Bank server listening on port " + server.getPort() + " (" + durability + ")");
+        stopped.await();
+    }
+
+    // Executes one request and appends its response frame to out
+    private void handle(ByteBuffer request, ByteBuffer out) {
+        int start = out.position();
+        out.putInt(0);
+        byte op = request.get();
+        int requestId = request.getInt();
+        out.putInt(requestId);
+        try {
+            String key = null;
+            if ((op & BankProtocol.KEYED) != 0) {
+                op &= ~BankProtocol.KEYED;
+                key = BankProtocol.getString(request);
+            }
+            switch (op) {
+                case BankProtocol.CREATE:
+                    create(BankProtocol.getString(request), BankProtocol.getString(request), key, out);
+                    break;
+                case BankProtocol.DEPOSIT:
+                case BankProtocol.WITHDRAW:
+                    depositOrWithdraw(op, BankProtocol.getString(request), request.getLong(), key, out);
+                    break;
+                case BankProtocol.BALANCE:
+                    balance(BankProtocol.getString(request), out);
+                    break;
+                case BankProtocol.TRANSFER:
+                    transfer(BankProtocol.getString(request), BankProtocol.getString(request), request.getLong(), key, out);
+                    break;
+                default:
+                    fail(BankProtocol.INVALID_REQUEST, "Unknown operation " + op, out, start);
+            }
+        } catch (IdempotencyCache.KeyReusedException e) {
+            fail(BankProtocol.INVALID_REQUEST, e.getMessage(), out, start);
+        } catch (ArithmeticException e) {
+            fail(BankProtocol.INVALID_REQUEST, "Balance would overflow", out, start);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            fail(BankProtocol.INVALID_REQUEST, "Malformed request", out, start);
+        } catch (RuntimeException e) {
+            fail(BankProtocol.SERVER_ERROR, String.valueOf(e.getMessage()), out, start);
+        }
+        out.putInt(start, out.position() - start - Integer.BYTES);
+    }
+
+    private void create(String holderName, String accountType, String key, ByteBuffer out) {
+        ValidationResult result = InputValidator.validateAccountHolderName(holderName);
+        if (result.isValid()) {
+            result = InputValidator.validateAccountType(accountType);
+        }
+        if (!result.isValid()) {
+            out.put(BankProtocol.INVALID_REQUEST);
+            BankProtocol.putString(out, result.getMessage());
+            return;
+        }
+        String accountNumber = bank.createAccount(holderName.trim(), accountType.trim(), key);
+        out.put(BankProtocol.statusCode(LedgerEvent.Status.APPLIED));
+        BankProtocol.putString(out, accountNumber);
+    }
+
+    private void depositOrWithdraw(byte op, String accountNumber, long amount, String key, ByteBuffer out) {
+        if (!checkAmount(amount, out)) {
+            return;
+        }
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.UNKNOWN_ACCOUNT));
+        } else if (op == BankProtocol.DEPOSIT) {
+            account.deposit(amount, key);
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.APPLIED));
+        } else {
+            out.put(BankProtocol.statusCode(account.withdraw(amount, key)
+                    ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.INSUFFICIENT_FUNDS));
+        }
+    }
+
+    private void balance(String accountNumber, ByteBuffer out) {
+        BankAccount account = bank.findAccount(accountNumber);
+        if (account == null) {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.UNKNOWN_ACCOUNT));
+        } else {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.APPLIED));
+            out.putLong(account.getBalanceCents());
+        }
+    }
+
+    private void transfer(String sourceNumber, String targetNumber, long amount, String key, ByteBuffer out) {
+        if (!checkAmount(amount, out)) {
+            return;
+        }
+        if (sourceNumber.equals(targetNumber)) {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.SAME_ACCOUNT));
+            return;
+        }
+        BankAccount source = bank.findAccount(sourceNumber);
+        BankAccount target = bank.findAccount(targetNumber);
+        if (source == null || target == null) {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.UNKNOWN_ACCOUNT));
+        } else {
+            out.put(BankProtocol.statusCode(source.transfer(target, amount, key)
+                    ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.INSUFFICIENT_FUNDS));
+        }
+    }
+
+    // Writes the rejection and returns false unless the amount is acceptable
+    private static boolean checkAmount(long amount, ByteBuffer out) {
+        if (amount <= 0) {
+            out.put(BankProtocol.statusCode(LedgerEvent.Status.INVALID_AMOUNT));
+            return false;
+        }
+        ValidationResult result = InputValidator.validateAmount(amount);
+        if (!result.isValid()) {
+            out.put(BankProtocol.INVALID_REQUEST);
+            BankProtocol.putString(out, result.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private static void fail(byte status, String message, ByteBuffer out, int frameStart) {
+        out.position(frameStart + 2 * Integer.BYTES);
+        out.put(status);
+        BankProtocol.putString(out, message.length() > 512 ? message.substring(0, 512) : message);
+    }
+
+    /**
+     * One selector thread and the connections assigned to it
+     */
+    private final class IoLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final Queue<Connection> flushes = new ConcurrentLinkedQueue<>();
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "bank-server-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = accepted.poll()) != null) {
+                        register(channel);
+                    }
+                    Connection connection;
+                    while ((connection = flushes.poll()) != null) {
+                        connection.flushRequested.set(false);
+                        connection.flush();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Bank server I/O loop failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // closing anyway
+                }
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = acceptor.accept()) != null) {
+                IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                if (loop == this) {
+                    register(channel);
+                } else {
+                    loop.accepted.add(channel);
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        private void register(SocketChannel channel) throws IOException {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel, this);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+
+        void requestFlush(Connection connection) {
+            if (connection.flushRequested.compareAndSet(false, true)) {
+                flushes.add(connection);
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * A client connection. The selector thread owns the input buffer and the channel; the worker
+     * currently draining the request queue owns the response scratch buffer. The output buffer is
+     * shared between the two and guarded by the connection's monitor.
+     */
+    private final class Connection implements Runnable {
+        final SocketChannel channel;
+        final IoLoop loop;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        final Queue<ByteBuffer> requests = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean flushRequested = new AtomicBoolean();
+        final ByteBuffer scratch = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE); // guarded by this
+        boolean readPaused;
+        volatile boolean inputClosed;
+        volatile boolean closed;
+
+        Connection(SocketChannel channel, IoLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        // Selector thread: read what is available and queue every complete frame. At end of
+        // stream stop reading, but keep the connection until the queued requests are answered
+        void read() {
+            int count;
+            try {
+                count = channel.read(in);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (count < 0) {
+                inputClosed = true;
+                flush();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= Integer.BYTES) {
+                int length = in.getInt(in.position());
+                if (length < 5 || length + Integer.BYTES > BankProtocol.MAX_FRAME) {
+                    close();
+                    return;
+                }
+                if (in.remaining() < length + Integer.BYTES) {
+                    break;
+                }
+                in.position(in.position() + Integer.BYTES);
+                ByteBuffer request = ByteBuffer.allocate(length);
+                in.get(request.array());
+                requests.add(request);
+                queued.incrementAndGet();
+            }
+            in.compact();
+            if (queued.get() >= MAX_QUEUED_REQUESTS || unsent() >= MAX_UNSENT_BYTES) {
+                readPaused = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!requests.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        // Worker: execute queued requests in order, batching their responses into one flush
+        @Override
+        public void run() {
+            do {
+                ByteBuffer request;
+                while (!closed && (request = requests.poll()) != null) {
+                    if (scratch.remaining() < BankProtocol.MAX_FRAME) {
+                        publish();
+                    }
+                    handle(request, scratch);
+                    queued.decrementAndGet();
+                }
+                publish();
+                scheduled.set(false);
+            } while (!closed && !requests.isEmpty() && scheduled.compareAndSet(false, true));
+            if (inputClosed) {
+                loop.requestFlush(this); // the selector may be waiting on this worker to close
+            }
+        }
+
+        // Worker: move finished responses to the output buffer and ask the selector to send them
+        private void publish() {
+            if (scratch.position() == 0) {
+                return;
+            }
+            scratch.flip();
+            synchronized (this) {
+                if (out.remaining() < scratch.remaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + scratch.remaining()));
+                    out.flip();
+                    larger.put(out);
+                    out = larger;
+                }
+                out.put(scratch);
+            }
+            scratch.clear();
+            loop.requestFlush(this);
+        }
+
+        private synchronized int unsent() {
+            return out.position();
+        }
+
+        // Selector thread: write pending responses; stop reading while the client leaves too much
+        // unread, and resume once both the request backlog and the unsent responses have drained.
+        // After end of stream, close once every queued request has been answered and sent
+        void flush() {
+            if (closed) {
+                return;
+            }
+            // Checked before writing: the worker clears scheduled only after its last publish and
+            // asks for another flush once it sees inputClosed, so an idle answer here is final
+            boolean answered = inputClosed && !scheduled.get() && queued.get() == 0;
+            int unsent;
+            try {
+                synchronized (this) {
+                    out.flip();
+                    channel.write(out);
+                    out.compact();
+                    unsent = out.position();
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            int ops = unsent > 0 ? SelectionKey.OP_WRITE : 0;
+            if (answered && unsent == 0) {
+                close();
+                return;
+            }
+            if (inputClosed) {
+                key.interestOps(ops);
+                return;
+            }
+            if (unsent >= MAX_UNSENT_BYTES) {
+                readPaused = true;
+            } else if (readPaused && queued.get() < MAX_QUEUED_REQUESTS / 2 && unsent < MAX_UNSENT_BYTES / 2) {
+                readPaused = false;
+            }
+            if (!readPaused) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+}
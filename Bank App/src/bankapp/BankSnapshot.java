@@ -0,0 +1,208 @@
+package bankapp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary point-in-time image of a Bank
+ * Layout: [int magic][int version][long first journal segment to replay][int highest account id handed out],
+ * then one record per account, then [int end marker][long account count], then [int run count] and one
+ * record per unfinished interest run, then [int CRC32C of everything before it].
+ * An account record is [int id][long balance][short holder length][holder UTF-8][byte type code],
+ * where a type code equal to the number of types seen so far is followed by [byte length][type UTF-8].
+ * A run record is [int run][int word count][long words of the bitset of accounts the run posted to].
+ * Version 1 snapshots, which end after the account count, are still read.
+ */
+class BankSnapshot {
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 2;
+    private static final int FIRST_VERSION = 1;
+    private static final int END_OF_ACCOUNTS = -1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int TRAILER_BYTES = 4 + 8 + 4;
+
+    /**
+     * Receives the contents of a snapshot while it is loaded
+     */
+    interface Loader {
+        void accountCounter(int counter);
+
+        void account(int id, String holderName, String accountType, long balance);
+
+        void accrualsPosted(int run, BitSet accounts);
+    }
+
+    /**
+     * Writes a snapshot of every account in the store
+     * The store may be written concurrently; each balance is read once under its account lock,
+     * so a change journaled before firstSegment is stored by the time it is read, and the journal
+     * from firstSegment onwards brings any account that changed meanwhile up to date.
+     * @param file The file to write; it is forced to disk before this returns
+     * @param firstSegment The first journal segment that must be replayed on top of this snapshot
+     * @param accountCounter The highest account id the bank may have handed out
+     * @param accounts The accounts to write
+     * @param postedAccruals The accounts each unfinished interest run has posted to, by run
+     * @return The number of accounts written
+     * @throws IOException if the file cannot be written
+     */
+    static long write(Path file, long firstSegment, int accountCounter, AccountStore accounts,
+            Map<Integer, BitSet> postedAccruals) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(raw, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(firstSegment);
+            out.writeInt(accountCounter);
+
+            Map<String, Integer> typeCodes = new HashMap<>();
+            long[] count = new long[1];
+            IOException[] failure = new IOException[1];
+            accounts.forEach(account -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    long balance;
+                    synchronized (account.lock()) {
+                        balance = account.loadBalance();
+                    }
+                    byte[] holder = account.getAccountHolderName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(account.getId());
+                    out.writeLong(balance);
+                    out.writeShort(holder.length);
+                    out.write(holder);
+                    Integer code = typeCodes.get(account.getAccountType());
+                    if (code != null) {
+                        out.writeByte(code);
+                    } else {
+                        byte[] type = account.getAccountType().getBytes(StandardCharsets.UTF_8);
+                        if (typeCodes.size() >= 255 || type.length > 255) {
+                            throw new IOException("Too many or too long account types for a snapshot");
+                        }
+                        out.writeByte(typeCodes.size());
+                        out.writeByte(type.length);
+                        out.write(type);
+                        typeCodes.put(account.getAccountType(), typeCodes.size());
+                    }
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            out.writeInt(END_OF_ACCOUNTS);
+            out.writeLong(count[0]);
+            out.writeInt(postedAccruals.size());
+            for (Map.Entry<Integer, BitSet> run : postedAccruals.entrySet()) {
+                long[] words = run.getValue().toLongArray();
+                out.writeInt(run.getKey());
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+            out.flush();
+            DataOutputStream trailer = new DataOutputStream(raw);
+            trailer.writeInt((int) crc.getValue());
+            trailer.flush();
+            channel.force(true);
+            return count[0];
+        }
+    }
+
+    /**
+     * Loads a snapshot through a memory-mapped read, verifying its checksum first
+     * @param file The snapshot file
+     * @param loader Receives the account counter, every account and the unfinished interest runs
+     * @return The first journal segment that must be replayed on top of the snapshot
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    static long load(Path file, Loader loader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Snapshot truncated: " + file);
+            }
+            int body = (int) size - 4;
+            CRC32C crc = new CRC32C();
+            crc.update(map.slice(0, body));
+            if ((int) crc.getValue() != map.getInt(body)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+
+            try {
+                int version = map.getInt() == MAGIC ? map.getInt() : -1;
+                if (version != FIRST_VERSION && version != VERSION) {
+                    throw new IOException("Not a bank snapshot: " + file);
+                }
+                long firstSegment = map.getLong();
+                loader.accountCounter(map.getInt());
+
+                List<String> types = new ArrayList<>();
+                long count = 0;
+                int id;
+                while ((id = map.getInt()) != END_OF_ACCOUNTS) {
+                    long balance = map.getLong();
+                    String holder = readString(map, map.getShort());
+                    int code = map.get() & 0xFF;
+                    if (code == types.size()) {
+                        types.add(readString(map, map.get() & 0xFF));
+                    }
+                    loader.account(id, holder, types.get(code), balance);
+                    count++;
+                }
+                if (map.getLong() != count) {
+                    throw new IOException("Snapshot account count mismatch: " + file);
+                }
+                if (version != FIRST_VERSION) {
+                    for (int runs = map.getInt(); runs > 0; runs--) {
+                        int run = map.getInt();
+                        long[] words = new long[map.getInt()];
+                        map.asLongBuffer().get(words);
+                        map.position(map.position() + words.length * Long.BYTES);
+                        loader.accrualsPosted(run, BitSet.valueOf(words));
+                    }
+                }
+                if (map.position() != body) {
+                    throw new IOException("Snapshot malformed: " + file);
+                }
+                return firstSegment;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("Snapshot malformed: " + file, e);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buf, int length) {
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,248 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Struct-of-arrays account store for very large books
+ * Accounts are kept in primitive columns (balance in cents, a one-byte type code and a
+ * holder-name reference) addressed by the numeric part of the account number, so a
+ * lookup is a parse plus an array index and no per-account object lives on the heap.
+ * The store must use the same AccountNumberFormat as the bank it backs.
+ * BankAccount instances returned by this store are short-lived views over the columns.
+ */
+class ColumnarAccountStore implements AccountStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int LOCK_STRIPES = 1024;
+    private static final int MAX_TYPES = 255;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // Column chunks, allocated when a slot in them is first written; null chunks hold no
+    // accounts. The holder is replaced whenever the store grows or gains a chunk.
+    private static final class Columns {
+        final long[][] balances;
+        final byte[][] typeCodes;
+        final String[][] holderNames;
+
+        Columns(long[][] balances, byte[][] typeCodes, String[][] holderNames) {
+            this.balances = balances;
+            this.typeCodes = typeCodes;
+            this.holderNames = holderNames;
+        }
+    }
+
+    private final AccountNumberFormat format;
+    private final int baseId;
+    private volatile Columns columns = new Columns(new long[0][], new byte[0][], new String[0][]);
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Account types are dictionary-encoded; code 0 marks an empty slot
+    private final Map<String, Byte> typeCodesByName = new ConcurrentHashMap<>();
+    private volatile String[] typeNames = new String[1];
+
+    public ColumnarAccountStore() {
+        this(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID);
+    }
+
+    public ColumnarAccountStore(int baseId) {
+        this(AccountNumberFormat.DEFAULT, baseId);
+    }
+
+    public ColumnarAccountStore(AccountNumberFormat format, int baseId) {
+        this.format = format;
+        this.baseId = baseId;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public BankAccount create(int id, String accountNumber, String holderName, String accountType) {
+        int slot = id - baseId;
+        if (slot < 0) {
+            throw new IllegalArgumentException("Account id below store base: " + id);
+        }
+        byte code = typeCode(accountType);
+        Columns cols = ensureChunk(slot);
+        int chunk = slot >>> CHUNK_BITS;
+        int offset = slot & CHUNK_MASK;
+        if ((byte) BYTES.getAcquire(cols.typeCodes[chunk], offset) != 0) {
+            throw new IllegalStateException("Account already exists: " + accountNumber);
+        }
+        cols.holderNames[chunk][offset] = holderName;
+        LONGS.setVolatile(cols.balances[chunk], offset, 0L);
+        // Publishing the type code makes the slot visible to readers
+        BYTES.setRelease(cols.typeCodes[chunk], offset, code);
+        size.incrementAndGet();
+        return new ColumnAccount(this, slot, accountNumber, holderName, accountType);
+    }
+
+    @Override
+    public void restore(int id, String accountNumber, String holderName, String accountType, long balance) {
+        int slot = id - baseId;
+        Columns cols = ensureChunk(slot);
+        int chunk = slot >>> CHUNK_BITS;
+        int offset = slot & CHUNK_MASK;
+        if (cols.typeCodes[chunk][offset] == 0) {
+            size.incrementAndGet();
+        }
+        cols.holderNames[chunk][offset] = holderName;
+        cols.balances[chunk][offset] = balance;
+        cols.typeCodes[chunk][offset] = typeCode(accountType);
+    }
+
+    @Override
+    public BankAccount find(String accountNumber) {
+        int id = format.parse(accountNumber);
+        if (id < 0) {
+            return null;
+        }
+        return view(id - baseId, accountNumber);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void forEach(Consumer<BankAccount> action) {
+        forEachFrom(baseId, account -> {
+            action.accept(account);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachFrom(int fromId, Predicate<BankAccount> action) {
+        long slot = Math.max(0L, (long) fromId - baseId);
+        while (true) {
+            Columns cols = columns;
+            if (slot >= (long) cols.typeCodes.length * CHUNK_SIZE) {
+                return;
+            }
+            if (cols.typeCodes[(int) (slot >>> CHUNK_BITS)] == null) {
+                slot = (slot | CHUNK_MASK) + 1; // skip the whole unallocated chunk
+                continue;
+            }
+            BankAccount account = view((int) slot, null);
+            if (account != null && !action.test(account)) {
+                return;
+            }
+            slot++;
+        }
+    }
+
+    private BankAccount view(int slot, String accountNumber) {
+        Columns cols = columns;
+        int chunk = slot >>> CHUNK_BITS;
+        if (slot < 0 || chunk >= cols.typeCodes.length || cols.typeCodes[chunk] == null) {
+            return null;
+        }
+        int offset = slot & CHUNK_MASK;
+        byte code = (byte) BYTES.getAcquire(cols.typeCodes[chunk], offset);
+        if (code == 0) {
+            return null;
+        }
+        if (accountNumber == null) {
+            accountNumber = format.format(baseId + slot);
+        }
+        return new ColumnAccount(this, slot, accountNumber, cols.holderNames[chunk][offset], typeNames[code & 0xFF]);
+    }
+
+    // Makes sure the chunk holding slot exists. Only the outer arrays grow with the highest
+    // slot, so one very high id costs a few pointers per chunk, not whole chunks.
+    private Columns ensureChunk(int slot) {
+        Columns cols = columns;
+        int chunk = slot >>> CHUNK_BITS;
+        if (chunk < cols.typeCodes.length && cols.typeCodes[chunk] != null) {
+            return cols;
+        }
+        synchronized (this) {
+            cols = columns;
+            long[][] balances = cols.balances;
+            byte[][] typeCodes = cols.typeCodes;
+            String[][] holderNames = cols.holderNames;
+            if (chunk >= typeCodes.length) {
+                int newChunks = Math.max(chunk + 1, typeCodes.length * 2);
+                balances = Arrays.copyOf(balances, newChunks);
+                typeCodes = Arrays.copyOf(typeCodes, newChunks);
+                holderNames = Arrays.copyOf(holderNames, newChunks);
+            } else if (typeCodes[chunk] != null) {
+                return cols;
+            }
+            balances[chunk] = new long[CHUNK_SIZE];
+            holderNames[chunk] = new String[CHUNK_SIZE];
+            typeCodes[chunk] = new byte[CHUNK_SIZE];
+            cols = new Columns(balances, typeCodes, holderNames);
+            columns = cols;
+            return cols;
+        }
+    }
+
+    private byte typeCode(String accountType) {
+        Byte code = typeCodesByName.get(accountType);
+        if (code != null) {
+            return code;
+        }
+        synchronized (typeCodesByName) {
+            code = typeCodesByName.get(accountType);
+            if (code != null) {
+                return code;
+            }
+            String[] names = typeNames;
+            if (names.length > MAX_TYPES) {
+                throw new IllegalStateException("Too many distinct account types (max " + MAX_TYPES + ")");
+            }
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            grown[names.length] = accountType;
+            typeNames = grown;
+            code = (byte) names.length;
+            typeCodesByName.put(accountType, code);
+            return code;
+        }
+    }
+
+    // View over one row of the columns
+    private static final class ColumnAccount extends BankAccount {
+        private final ColumnarAccountStore store;
+        private final int slot;
+
+        ColumnAccount(ColumnarAccountStore store, int slot, String accountNumber, String holderName, String accountType) {
+            super(store.baseId + slot, accountNumber, holderName, accountType);
+            this.store = store;
+            this.slot = slot;
+        }
+
+        @Override
+        long loadBalance() {
+            return (long) LONGS.getVolatile(store.columns.balances[slot >>> CHUNK_BITS], slot & CHUNK_MASK);
+        }
+
+        @Override
+        void storeBalance(long value) {
+            LONGS.setVolatile(store.columns.balances[slot >>> CHUNK_BITS], slot & CHUNK_MASK, value);
+        }
+
+        @Override
+        Object lock() {
+            return store.locks[slot & (LOCK_STRIPES - 1)];
+        }
+
+        @Override
+        int lockRank() {
+            return slot & (LOCK_STRIPES - 1);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package bankapp;
+
+/**
+ * How long a mutation waits for its journal record to reach disk before it is acknowledged
+ */
+public enum DurabilityMode {
+    /** Every operation writes and fsyncs its own record before returning */
+    SYNC,
+    /** Operations wait for an fsync, but all records appended meanwhile share that fsync */
+    GROUP,
+    /** Operations return once their record is buffered; a background thread fsyncs periodically */
+    ASYNC
+}
@@ -0,0 +1,131 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated multi-producer, single-consumer ring buffer of ledger events
+ * Publishers claim a slot, fill the reused LedgerEvent in place and mark it published; they
+ * never allocate or do I/O, and only wait if the consumer has fallen a whole ring behind.
+ * A dedicated consumer thread hands events, in order, to every registered handler.
+ * Detach the ring from its publishers (setEventRing(null)) before closing it; events published
+ * after close() are dropped rather than delivered.
+ */
+public class EventRing implements Closeable {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final LedgerEvent[] slots;
+    private final long[] published;
+    private final int mask;
+    private final LedgerEventHandler[] handlers;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+    private final Thread consumer;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param handlers Handlers that receive every event, in this order
+     */
+    public EventRing(int capacity, LedgerEventHandler... handlers) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new LedgerEvent[size];
+        this.published = new long[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LedgerEvent();
+            published[i] = -1;
+        }
+        this.mask = size - 1;
+        this.handlers = handlers.clone();
+        this.consumer = new Thread(this::consume, "ledger-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    // Claims the next slot, waiting if the consumer is a full ring behind. Returns -1 once the
+    // ring is closed: a slot claimed then may never be consumed, so the event is dropped instead
+    long claim() {
+        if (!running) {
+            return -1;
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= slots.length) {
+            if (stopped) {
+                return -1; // claimed just as the ring closed, after the consumer's last look
+            }
+            LockSupport.parkNanos(1_000);
+        }
+        return sequence;
+    }
+
+    LedgerEvent slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        LONGS.setRelease(published, (int) sequence & mask, sequence);
+    }
+
+    // Publishes one event in a single call
+    void publish(LedgerEvent.Type type, LedgerEvent.Status status, int accountId, int targetAccountId,
+                 long amount, long balance, long targetBalance, String holderName, String accountType) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        slot(sequence).set(type, status, accountId, targetAccountId, amount, balance, targetBalance,
+                holderName, accountType);
+        publish(sequence);
+    }
+
+    private boolean isPublished(long sequence) {
+        return (long) LONGS.getAcquire(published, (int) sequence & mask) == sequence;
+    }
+
+    private void consume() {
+        try {
+            consumeUntilClosed();
+        } finally {
+            stopped = true;
+        }
+    }
+
+    private void consumeUntilClosed() {
+        long next = 0;
+        while (running || next < claimed.get()) {
+            if (!isPublished(next)) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            LedgerEvent event = slot(next);
+            boolean endOfBatch = !isPublished(next + 1);
+            for (LedgerEventHandler handler : handlers) {
+                try {
+                    handler.onEvent(event, next, endOfBatch);
+                } catch (RuntimeException e) {
+                    System.err.println("Ledger event handler failed: " + e);
+                }
+            }
+            consumed = ++next;
+        }
+    }
+
+    /**
+     * Delivers every event published so far, then stops the consumer thread. Later events are
+     * dropped, so detach the ring first with setEventRing(null).
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
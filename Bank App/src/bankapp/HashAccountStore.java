@@ -0,0 +1,84 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Default store: one BankAccount object per account in a concurrent hash map keyed by account number
+ * A second, id-indexed directory of the same objects gives ordered walks for paged listings.
+ */
+class HashAccountStore implements AccountStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final VarHandle ACCOUNTS = MethodHandles.arrayElementVarHandle(BankAccount[].class);
+
+    private final Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+    private volatile BankAccount[][] byId = new BankAccount[0][]; // chunks created on first use
+
+    @Override
+    public BankAccount create(int id, String accountNumber, String holderName, String accountType) {
+        BankAccount account = new BankAccount(id, accountNumber, holderName, accountType);
+        if (accounts.putIfAbsent(accountNumber, account) != null) {
+            throw new IllegalStateException("Account already exists: " + accountNumber);
+        }
+        if (id >= 0) {
+            ACCOUNTS.setRelease(chunk(id >>> CHUNK_BITS), id & CHUNK_MASK, account);
+        }
+        return account;
+    }
+
+    @Override
+    public BankAccount find(String accountNumber) {
+        return accountNumber == null ? null : accounts.get(accountNumber);
+    }
+
+    @Override
+    public int size() {
+        return accounts.size();
+    }
+
+    @Override
+    public void forEach(Consumer<BankAccount> action) {
+        accounts.values().forEach(action);
+    }
+
+    @Override
+    public void forEachFrom(int fromId, Predicate<BankAccount> action) {
+        BankAccount[][] chunks = byId;
+        for (int chunk = Math.max(0, fromId) >>> CHUNK_BITS; chunk < chunks.length; chunk++) {
+            BankAccount[] accounts = chunks[chunk];
+            if (accounts == null) {
+                continue;
+            }
+            int start = chunk == fromId >>> CHUNK_BITS ? fromId & CHUNK_MASK : 0;
+            for (int i = start; i <= CHUNK_MASK; i++) {
+                BankAccount account = (BankAccount) ACCOUNTS.getAcquire(accounts, i);
+                if (account != null && !action.test(account)) {
+                    return;
+                }
+            }
+            chunks = byId; // pick up chunks added during the walk
+        }
+    }
+
+    private BankAccount[] chunk(int chunk) {
+        BankAccount[][] chunks = byId;
+        if (chunk < chunks.length && chunks[chunk] != null) {
+            return chunks[chunk];
+        }
+        synchronized (this) {
+            // Copy even when not growing, so the volatile write publishes the new chunk
+            chunks = Arrays.copyOf(byId, Math.max(chunk + 1, byId.length));
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new BankAccount[1 << CHUNK_BITS];
+            }
+            byId = chunks;
+            return chunks[chunk];
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package bankapp;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, in-memory record of recent idempotency keys and the results they produced
+ * A client that times out and retries sends the same key again; the retry gets the first call's
+ * result back instead of moving money a second time. The first call with a key claims it and runs
+ * the operation; a retry that arrives while it is still running waits for it, and a later retry
+ * is answered from the cache by one hash lookup. Rejections are results too: a transfer first
+ * refused for insufficient funds is refused again on retry, whatever the balance is by then.
+ * Reusing a key for a different request throws KeyReusedException.
+ *
+ * Keys are spread over segments, each behind its own lock, held only to look up, add or complete
+ * a key and never while an operation runs, so unrelated requests do not wait for each other.
+ * A segment is a ring of fixed-size entries in arrival order plus an open-addressing index. Keys
+ * are kept as 128-bit seeded hashes, not strings, so the table is a few primitive arrays
+ * allocated up front: the cache never grows past its budget and churning millions of keys
+ * through it creates no garbage. Each key is remembered for the time to live given to the
+ * constructor or until its segment needs the room, whichever comes first; the oldest key goes
+ * first, except that a key whose first call is still running is never dropped.
+ *
+ * Three quarters of the byte budget go to the key table. The rest holds the results of keyed
+ * batches, which are kept as objects; when it runs out, the oldest keys are dropped early.
+ * Keys live in memory only: a restarted bank has forgotten them, so retries must not outlive
+ * the process.
+ */
+public final class IdempotencyCache {
+    public static final int MAX_KEY_LENGTH = 128;
+
+    // Bytes per key in the table: five longs per entry, its result reference and two index cells
+    static final int ENTRY_BYTES = 52;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_KEYS = 64;
+
+    // Entry fields, per slot: [key hash high][key hash low][request fingerprint][created nanos][result bytes]
+    private static final int KEY_HIGH = 0;
+    private static final int KEY_LOW = 1;
+    private static final int FINGERPRINT = 2;
+    private static final int CREATED = 3;
+    private static final int RESULT_BYTES = 4;
+    private static final int FIELDS = 5;
+
+    private static final Object FREE = new Object(); // result of a slot whose key was dropped out of turn
+
+    /**
+     * Thrown when a key comes back with a request other than the one it was first used for
+     */
+    public static final class KeyReusedException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        KeyReusedException(String key) {
+            super("Idempotency key " + key + " was already used for a different request");
+        }
+    }
+
+    // A ring of entries, oldest at head, and an index from key hash to slot + 1 (0 for empty).
+    // The result of a slot is null while its first call runs. All fields are guarded by the segment.
+    private static final class Segment {
+        final long[] entries;
+        final Object[] results;
+        final int[] index;
+        final long resultBudget;
+        int head;
+        int count;
+        long resultBytes;
+        int waiting; // threads waiting for a first call to complete
+
+        Segment(int capacity, long resultBudget) {
+            this.entries = new long[capacity * FIELDS];
+            this.results = new Object[capacity];
+            this.index = new int[capacity * 2];
+            this.resultBudget = resultBudget;
+        }
+
+        int capacity() {
+            return results.length;
+        }
+
+        int find(long high, long low) {
+            int mask = index.length - 1;
+            for (int i = (int) low & mask; index[i] != 0; i = (i + 1) & mask) {
+                int slot = index[i] - 1;
+                if (entries[slot * FIELDS + KEY_LOW] == low && entries[slot * FIELDS + KEY_HIGH] == high) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void insert(int slot) {
+            int mask = index.length - 1;
+            int i = (int) entries[slot * FIELDS + KEY_LOW] & mask;
+            while (index[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            index[i] = slot + 1;
+        }
+
+        // Unlinks a slot from the index, shifting later cells of its probe run back into the gap
+        void unlink(int slot) {
+            int mask = index.length - 1;
+            int gap = (int) entries[slot * FIELDS + KEY_LOW] & mask;
+            while (index[gap] != slot + 1) {
+                gap = (gap + 1) & mask;
+            }
+            index[gap] = 0;
+            for (int i = (gap + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+                int home = (int) entries[(index[i] - 1) * FIELDS + KEY_LOW] & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    index[gap] = index[i];
+                    index[i] = 0;
+                    gap = i;
+                }
+            }
+            resultBytes -= entries[slot * FIELDS + RESULT_BYTES];
+            results[slot] = FREE;
+        }
+    }
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final long seed;
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes Heap the cache may use; the key table, ENTRY_BYTES per key, is allocated at once
+     * @param timeToLive How long a key is remembered after its first use, at most
+     * @param unit Unit of timeToLive
+     */
+    public IdempotencyCache(long maxBytes, long timeToLive, TimeUnit unit) {
+        long keys = maxBytes / 4 * 3 / ENTRY_BYTES;
+        if (keys < MIN_SEGMENT_KEYS || timeToLive <= 0) {
+            throw new IllegalArgumentException("The cache needs room for at least " + MIN_SEGMENT_KEYS
+                    + " keys and a positive time to live");
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && keys / (count * 2) >= MIN_SEGMENT_KEYS) {
+            count *= 2;
+        }
+        int capacity = (int) Math.min(1 << 30, Long.highestOneBit(keys / count));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity, maxBytes / 4 / count);
+        }
+        this.ttlNanos = unit.toNanos(timeToLive);
+        this.seed = new SplittableRandom().nextLong(); // so nobody can work out colliding keys in advance
+    }
+
+    /**
+     * Runs an operation once per key
+     * @param key The client's idempotency key, 1 to MAX_KEY_LENGTH characters
+     * @param fingerprint Hash of the request, to tell a retry from a different request under the same key
+     * @param resultBytes Estimated heap held by the result, beyond its reference; 0 for shared values
+     * @param operation The operation; it must not return null
+     * @return The operation's result, run now or remembered from the first call with the key
+     * @throws KeyReusedException if the key was first used with another fingerprint
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, long fingerprint, long resultBytes, Supplier<T> operation) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency keys must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        // The key is kept as two 64-bit seeded hashes, computed in one pass as independent chains
+        long high = seed ^ key.length();
+        long low = ~seed ^ key.length();
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            high = mix(high, c);
+            low = mix(low, c);
+        }
+        high = mix(high, seed);
+        low = mix(low, ~seed);
+        Segment segment = segments[(int) (high >>> 58) & (segments.length - 1)];
+        int slot;
+        boolean interrupted = false;
+        try {
+            synchronized (segment) {
+                while (true) {
+                    long now = System.nanoTime();
+                    slot = segment.find(high, low);
+                    if (slot >= 0) {
+                        Object result = segment.results[slot];
+                        long[] entries = segment.entries;
+                        if (result != null && now - entries[slot * FIELDS + CREATED] > ttlNanos) {
+                            segment.unlink(slot); // expired: the key is free again
+                        } else if (entries[slot * FIELDS + FINGERPRINT] != fingerprint) {
+                            throw new KeyReusedException(key);
+                        } else if (result != null) {
+                            replays.increment();
+                            return (T) result;
+                        } else {
+                            interrupted |= await(segment); // the first call is still running
+                            continue;
+                        }
+                    }
+                    slot = claim(segment, high, low, fingerprint, resultBytes, now);
+                    break;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt(); // waiting did not give up on it, so pass it on
+            }
+        }
+
+        T result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (segment) {
+                segment.unlink(slot); // the key is free again, for a retry or a thread waiting on it
+                wake(segment);
+            }
+            throw e;
+        }
+        synchronized (segment) {
+            segment.results[slot] = result;
+            wake(segment);
+        }
+        return result;
+    }
+
+    // Takes the slot at the tail of the ring for a new key, making room first; caller holds the segment
+    private int claim(Segment segment, long high, long low, long fingerprint, long resultBytes, long now) {
+        long[] entries = segment.entries;
+        int mask = segment.capacity() - 1;
+        int rotations = 0;
+        while (segment.count > 0) {
+            int oldest = segment.head;
+            Object result = segment.results[oldest];
+            boolean full = segment.count == segment.capacity();
+            if (result != FREE) {
+                boolean expired = result != null && now - entries[oldest * FIELDS + CREATED] > ttlNanos;
+                boolean overBudget = segment.resultBytes + resultBytes > segment.resultBudget;
+                if (!full && !expired && !overBudget) {
+                    break;
+                }
+                if (result == null) {
+                    if (!full) {
+                        break; // running keys are never dropped; results may overrun until it completes
+                    }
+                    if (++rotations == segment.capacity()) {
+                        throw new IllegalStateException("Every idempotency key of a segment is still running");
+                    }
+                    segment.head = (oldest + 1) & mask; // in a full ring, the oldest slot is also the tail
+                    continue;
+                }
+                segment.unlink(oldest);
+                evictions.increment();
+            }
+            segment.head = (oldest + 1) & mask;
+            segment.count--;
+        }
+        int slot = (segment.head + segment.count) & mask;
+        entries[slot * FIELDS + KEY_HIGH] = high;
+        entries[slot * FIELDS + KEY_LOW] = low;
+        entries[slot * FIELDS + FINGERPRINT] = fingerprint;
+        entries[slot * FIELDS + CREATED] = now;
+        entries[slot * FIELDS + RESULT_BYTES] = resultBytes;
+        segment.results[slot] = null;
+        segment.resultBytes += resultBytes;
+        segment.count++;
+        segment.insert(slot);
+        return slot;
+    }
+
+    // Waits once on the segment; returns whether the wait was interrupted. Caller holds the segment.
+    private static boolean await(Segment segment) {
+        segment.waiting++;
+        try {
+            segment.wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        } finally {
+            segment.waiting--;
+        }
+    }
+
+    private static void wake(Segment segment) {
+        if (segment.waiting > 0) {
+            segment.notifyAll();
+        }
+    }
+
+    /**
+     * @return Keys currently remembered, including those whose first call is still running
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int i = 0; i < segment.count; i++) {
+                    if (segment.results[(segment.head + i) & (segment.capacity() - 1)] != FREE) {
+                        size++;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Keys the cache can hold at once
+     */
+    public int getCapacity() {
+        return segments.length * segments[0].capacity();
+    }
+
+    /**
+     * @return Retries answered with a remembered result
+     */
+    public long getReplayCount() {
+        return replays.sum();
+    }
+
+    /**
+     * @return Keys dropped to make room or because they expired
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Request fingerprints: a 64-bit mix of the fields, so that a key reused for a different
+    // request is caught with overwhelming probability
+
+    static long fingerprint(LedgerEvent.Type type, long first, long second, long amount) {
+        return mix(mix(mix(mix(0, type.ordinal()), first), second), amount);
+    }
+
+    static long fingerprint(String first, String second) {
+        return mix(mix(-1, first), second);
+    }
+
+    // Every character counts, not String.hashCode, which equal-length strings such as "Aa" and "BB" share;
+    // the length goes first so that ("ab", "c") and ("a", "bc") differ
+    private static long mix(long hash, String value) {
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = mix(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,341 @@
+package bankapp;
+
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Input validation utility class for the Bank Application
+ * Provides enhanced validation for user inputs
+ * Checks are hand-written character scans that allocate nothing: every outcome is one of
+ * the shared, immutable ValidationResult constants below, so bulk validation stays cheap.
+ */
+public class InputValidator {
+
+    static final ValidationResult VALID_NAME = new ValidationResult(true, "Valid name");
+    static final ValidationResult EMPTY_NAME = new ValidationResult(false, "Account holder name cannot be empty!");
+    static final ValidationResult SHORT_NAME = new ValidationResult(false, "Account holder name must be at least 2 characters long!");
+    static final ValidationResult LONG_NAME = new ValidationResult(false, "Account holder name cannot exceed 50 characters!");
+    static final ValidationResult BAD_NAME_CHARACTERS = new ValidationResult(false,
+            "Account holder name can only contain letters, spaces, hyphens, and apostrophes!");
+
+    static final ValidationResult VALID_ACCOUNT_TYPE = new ValidationResult(true, "Valid account type");
+    static final ValidationResult EMPTY_ACCOUNT_TYPE = new ValidationResult(false, "Account type cannot be empty!");
+    static final ValidationResult UNKNOWN_ACCOUNT_TYPE = new ValidationResult(false,
+            "Account type must be 'Savings', 'Checking', or 'Current'!");
+
+    static final ValidationResult VALID_AMOUNT = new ValidationResult(true, "Valid amount");
+    static final ValidationResult NEGATIVE_AMOUNT = new ValidationResult(false, "Amount cannot be negative!");
+    static final ValidationResult ZERO_AMOUNT = new ValidationResult(false, "Amount must be greater than zero!");
+    static final ValidationResult EXCESSIVE_AMOUNT = new ValidationResult(false, "Amount cannot exceed $1,000,000 per transaction!");
+    static final ValidationResult MALFORMED_AMOUNT = new ValidationResult(false, "Invalid amount format!");
+    static final ValidationResult IMPRECISE_AMOUNT = new ValidationResult(false, "Amount can have maximum 2 decimal places!");
+
+    static final ValidationResult VALID_ACCOUNT_NUMBER = new ValidationResult(true, "Valid account number");
+    static final ValidationResult EMPTY_ACCOUNT_NUMBER = new ValidationResult(false, "Account number cannot be empty!");
+    static final ValidationResult BAD_ACCOUNT_NUMBER = new ValidationResult(false,
+            "Account number must be " + AccountNumberFormat.DEFAULT.describe() + "!");
+
+    static final ValidationResult VALID_TRANSFER = new ValidationResult(true, "Valid transfer accounts");
+    static final ValidationResult SAME_TRANSFER_ACCOUNTS = new ValidationResult(false, "Source and target accounts cannot be the same!");
+    private static final ValidationResult SOURCE_EMPTY = prefixed("Source account: ", EMPTY_ACCOUNT_NUMBER);
+    private static final ValidationResult SOURCE_BAD = prefixed("Source account: ", BAD_ACCOUNT_NUMBER);
+    private static final ValidationResult TARGET_EMPTY = prefixed("Target account: ", EMPTY_ACCOUNT_NUMBER);
+    private static final ValidationResult TARGET_BAD = prefixed("Target account: ", BAD_ACCOUNT_NUMBER);
+
+    /**
+     * Validates account holder name
+     * @param name The name to validate
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAccountHolderName(String name) {
+        if (name == null) {
+            return EMPTY_NAME;
+        }
+
+        int length = name.length();
+        int start = trimStart(name);
+        int trimmed = trimEnd(name, start) - start;
+        if (trimmed == 0) {
+            return EMPTY_NAME;
+        }
+
+        if (trimmed < 2) {
+            return SHORT_NAME;
+        }
+
+        if (trimmed > 50) {
+            return LONG_NAME;
+        }
+
+        // Check for invalid characters (only letters, spaces, hyphens, apostrophes)
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '\'' || isRegexSpace(c))) {
+                return BAD_NAME_CHARACTERS;
+            }
+        }
+
+        return VALID_NAME;
+    }
+
+    /**
+     * Validates account type
+     * @param accountType The account type to validate
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAccountType(String accountType) {
+        if (accountType == null) {
+            return EMPTY_ACCOUNT_TYPE;
+        }
+
+        int start = trimStart(accountType);
+        int length = trimEnd(accountType, start) - start;
+        if (length == 0) {
+            return EMPTY_ACCOUNT_TYPE;
+        }
+
+        if (!matchesIgnoreCase(accountType, start, length, "savings")
+                && !matchesIgnoreCase(accountType, start, length, "checking")
+                && !matchesIgnoreCase(accountType, start, length, "current")) {
+            return UNKNOWN_ACCOUNT_TYPE;
+        }
+
+        return VALID_ACCOUNT_TYPE;
+    }
+
+    /**
+     * Largest amount allowed in a single transaction, in cents ($1,000,000)
+     */
+    public static final long MAX_TRANSACTION_CENTS = Money.ofDollars(1000000);
+
+    /**
+     * Validates monetary amount
+     * @param amount The amount to validate, in cents
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAmount(long amount) {
+        if (amount < 0) {
+            return NEGATIVE_AMOUNT;
+        }
+
+        if (amount == 0) {
+            return ZERO_AMOUNT;
+        }
+
+        if (amount > MAX_TRANSACTION_CENTS) {
+            return EXCESSIVE_AMOUNT;
+        }
+
+        return VALID_AMOUNT;
+    }
+
+    /**
+     * Parses and validates a monetary amount typed by the user
+     * Precision is checked while parsing, so amounts with more than 2 decimal places are rejected here
+     * @param amountText The amount text, e.g. "12.50"
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAmount(String amountText) {
+        if (amountText == null) {
+            return MALFORMED_AMOUNT;
+        }
+        long cents = Money.tryParseCents(amountText, 0, amountText.length());
+        if (cents == Money.INVALID_FORMAT) {
+            return MALFORMED_AMOUNT;
+        }
+        if (cents == Money.TOO_PRECISE) {
+            return IMPRECISE_AMOUNT;
+        }
+        if (cents == Money.TOO_LARGE) {
+            return EXCESSIVE_AMOUNT;
+        }
+        return validateAmount(cents);
+    }
+
+    /**
+     * Validates account number format against the default format, ACC followed by 4 to 9 digits
+     * @param accountNumber The account number to validate
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAccountNumber(String accountNumber) {
+        return validateAccountNumber(accountNumber, AccountNumberFormat.DEFAULT);
+    }
+
+    /**
+     * Validates account number format
+     * @param accountNumber The account number to validate
+     * @param format The format account numbers are generated in
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateAccountNumber(String accountNumber, AccountNumberFormat format) {
+        if (accountNumber == null) {
+            return EMPTY_ACCOUNT_NUMBER;
+        }
+        int start = trimStart(accountNumber);
+        if (trimEnd(accountNumber, start) == start) {
+            return EMPTY_ACCOUNT_NUMBER;
+        }
+
+        // Check if it is the prefix followed by an id of the allowed width
+        if (format.parse(accountNumber) < 0) {
+            return format == AccountNumberFormat.DEFAULT ? BAD_ACCOUNT_NUMBER
+                    : new ValidationResult(false, "Account number must be " + format.describe() + "!");
+        }
+
+        return VALID_ACCOUNT_NUMBER;
+    }
+
+    /**
+     * Validates transfer to ensure source and target are different
+     * @param sourceAccount Source account number
+     * @param targetAccount Target account number
+     * @return ValidationResult with success status and message
+     */
+    public static ValidationResult validateTransfer(String sourceAccount, String targetAccount) {
+        ValidationResult sourceValidation = validateAccountNumber(sourceAccount);
+        if (!sourceValidation.isValid()) {
+            return sourceValidation == EMPTY_ACCOUNT_NUMBER ? SOURCE_EMPTY : SOURCE_BAD;
+        }
+
+        ValidationResult targetValidation = validateAccountNumber(targetAccount);
+        if (!targetValidation.isValid()) {
+            return targetValidation == EMPTY_ACCOUNT_NUMBER ? TARGET_EMPTY : TARGET_BAD;
+        }
+
+        if (sourceAccount.equals(targetAccount)) {
+            return SAME_TRANSFER_ACCOUNTS;
+        }
+
+        return VALID_TRANSFER;
+    }
+
+    /**
+     * Validates a whole array of account holder names
+     * @param names The names to validate
+     * @param results Receives the result for each name, at the same index
+     * @return The number of invalid names
+     */
+    public static int validateAccountHolderNames(String[] names, ValidationResult[] results) {
+        int invalid = 0;
+        for (int i = 0; i < names.length; i++) {
+            ValidationResult result = validateAccountHolderName(names[i]);
+            results[i] = result;
+            if (!result.isValid()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Validates a whole array of account numbers
+     * @param accountNumbers The account numbers to validate
+     * @param results Receives the result for each account number, at the same index
+     * @return The number of invalid account numbers
+     */
+    public static int validateAccountNumbers(String[] accountNumbers, ValidationResult[] results) {
+        int invalid = 0;
+        for (int i = 0; i < accountNumbers.length; i++) {
+            ValidationResult result = validateAccountNumber(accountNumbers[i]);
+            results[i] = result;
+            if (!result.isValid()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Validates a whole array of amounts
+     * @param amounts The amounts to validate, in cents
+     * @param results Receives the result for each amount, at the same index
+     * @return The number of invalid amounts
+     */
+    public static int validateAmounts(long[] amounts, ValidationResult[] results) {
+        int invalid = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            ValidationResult result = validateAmount(amounts[i]);
+            results[i] = result;
+            if (!result.isValid()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Validates new-account rows given as parallel arrays of holder names and account types
+     * @param names The holder names
+     * @param accountTypes The account types, same length as names
+     * @param results Receives the first failing check for each row, or a valid result
+     * @return The number of invalid rows
+     */
+    public static int validateNewAccounts(String[] names, String[] accountTypes, ValidationResult[] results) {
+        int invalid = 0;
+        for (int i = 0; i < names.length; i++) {
+            ValidationResult result = validateAccountHolderName(names[i]);
+            if (result.isValid()) {
+                result = validateAccountType(accountTypes[i]);
+            }
+            results[i] = result;
+            if (!result.isValid()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Validates a stream of records, reporting each rejected one without stopping
+     * @param records The records to validate
+     * @param check The validation to apply to each record
+     * @param rejected Receives every record that fails, with its result; may be null
+     * @return The number of valid records
+     */
+    public static <T> long validateAll(Iterator<T> records, Function<? super T, ValidationResult> check,
+                                       BiConsumer<? super T, ValidationResult> rejected) {
+        long valid = 0;
+        while (records.hasNext()) {
+            T record = records.next();
+            ValidationResult result = check.apply(record);
+            if (result.isValid()) {
+                valid++;
+            } else if (rejected != null) {
+                rejected.accept(record, result);
+            }
+        }
+        return valid;
+    }
+
+    // Index of the first character String.trim() would keep
+    private static int trimStart(String s) {
+        int start = 0;
+        while (start < s.length() && s.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    // Index just past the last character String.trim() would keep
+    private static int trimEnd(String s, int start) {
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // Same set as the regex class \s: space, tab, newline, vertical tab, form feed, carriage return
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean matchesIgnoreCase(String s, int start, int length, String lowerCaseWord) {
+        return length == lowerCaseWord.length() && s.regionMatches(true, start, lowerCaseWord, 0, length);
+    }
+
+    private static ValidationResult prefixed(String prefix, ValidationResult result) {
+        return new ValidationResult(result.isValid(), prefix + result.getMessage());
+    }
+}
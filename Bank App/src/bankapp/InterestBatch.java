@@ -0,0 +1,662 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End-of-day run that accrues a day's interest and charges a maintenance fee on every account,
+ * at rates set per account type
+ *
+ * Consistent cut-off: the run starts by opening a CutOff, a BalanceView, on the bank. From then
+ * on, every deposit, withdrawal and transfer on an account the run has not reached yet first
+ * records the account's balance before the change, under the account lock. The run reads that kept
+ * balance, or the current one if the account has not changed, so every account is charged on
+ * its balance at the same instant while online traffic carries on. Postings are applied to
+ * the current balance. A fee is waived when the account could not pay it at the cut-off or now.
+ * Accounts opened after the cut-off, which can still get ids below its limit from leased id
+ * blocks, had no balance at the cut-off and are left alone.
+ *
+ * The book is split into partitions of consecutive account ids, which a fixed pool of workers
+ * claims one at a time. Each posting is journaled as an ACCRUAL record without waiting, and a
+ * worker syncs the journal once per partition, then appends the partition to a progress file in
+ * the bank directory. Running the same business date again resumes: finished partitions are
+ * skipped, and accounts an unfinished partition already posted to are recognized from their
+ * ACCRUAL records, so no account is posted twice. A resumed run takes a new cut-off for the
+ * accounts it has left, and keeps the account range and partitioning of the first attempt.
+ * Snapshots are refused while a run is in progress, and keep the accounts an unfinished run
+ * posted to, since a snapshot drops the ACCRUAL records along with the journal before it.
+ *
+ * Usage: java bankapp.InterestBatch 2026-10-18 Savings=2.5 Checking=0.1/0.25 Current=0/1.00,
+ * giving each type its annual interest rate in percent and optionally a fee in dollars per run,
+ * with -Dbank.dataDir and -Dbank.durability as for Main and -Dbank.interestThreads for the pool.
+ */
+public class InterestBatch {
+    public static final int DEFAULT_PARTITION_SIZE = 1 << 16;
+    static final String PROGRESS_PREFIX = "interest-";
+    private static final long BASIS_POINT_DAYS = 10_000L * 365;
+
+    /** Parts of a run that are timed separately */
+    public enum Phase {
+        /** Registering the cut-off and reading the progress of an earlier attempt */
+        CUT_OFF,
+        /** Reading cut-off balances and posting, summed over the workers */
+        POST,
+        /** Waiting for each partition's postings to reach the disk, summed over the workers */
+        SYNC,
+        /** Recording finished partitions in the progress file, summed over the workers */
+        CHECKPOINT,
+        /** Ending the cut-off and marking the run complete */
+        RELEASE
+    }
+
+    private static final class Rate {
+        final String accountType;
+        final int annualBasisPoints;
+        final long feeCents;
+
+        Rate(String accountType, int annualBasisPoints, long feeCents) {
+            this.accountType = accountType;
+            this.annualBasisPoints = annualBasisPoints;
+            this.feeCents = feeCents;
+        }
+    }
+
+    private final Bank bank;
+    private final List<Rate> rates = new ArrayList<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int partitionSize = DEFAULT_PARTITION_SIZE;
+
+    /**
+     * @param bank The bank to run over
+     */
+    public InterestBatch(Bank bank) {
+        this.bank = bank;
+    }
+
+    /**
+     * Sets the interest rate and fee for an account type, compared case-insensitively.
+     * Accounts of a type without a rate are left alone.
+     * @param accountType Savings, Checking or Current
+     * @param annualBasisPoints Yearly interest in hundredths of a percent; a day earns 1/365 of it, rounded down to the cent
+     * @param feeCents Maintenance fee charged by each run
+     */
+    public void setRate(String accountType, int annualBasisPoints, long feeCents) {
+        ValidationResult result = InputValidator.validateAccountType(accountType);
+        if (!result.isValid()) {
+            throw new IllegalArgumentException(result.getMessage());
+        }
+        if (annualBasisPoints < 0 || feeCents < 0) {
+            throw new IllegalArgumentException("Interest rate and fee cannot be negative");
+        }
+        String type = accountType.trim();
+        rates.removeIf(rate -> rate.accountType.equalsIgnoreCase(type));
+        rates.add(new Rate(type, annualBasisPoints, feeCents));
+    }
+
+    /**
+     * @param threads Number of workers; defaults to the number of processors
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param partitionSize Account ids per partition, a multiple of 64; a resumed run keeps the size it started with
+     */
+    public void setPartitionSize(int partitionSize) {
+        if (partitionSize <= 0 || partitionSize % 64 != 0) {
+            throw new IllegalArgumentException("Partition size must be a positive multiple of 64");
+        }
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Runs, or resumes, the interest and fee postings for a business date
+     * @param businessDate The day being closed; a durable bank posts each date at most once per account
+     * @return Counts and the per-phase timing of this attempt
+     * @throws IOException if the progress file cannot be read or written
+     * @throws InterruptedException if interrupted while the workers run; the run can be resumed
+     */
+    public Result run(LocalDate businessDate) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        Result result = new Result(businessDate);
+        int run = (int) businessDate.toEpochDay();
+        Path directory = bank.directory();
+        Progress progress = directory == null ? null
+                : Progress.open(directory.resolve(progressFileName(businessDate)),
+                        businessDate, bank.accountIdLimit(), partitionSize);
+        if (progress != null && progress.complete) {
+            progress.close();
+            result.alreadyComplete = true;
+            result.elapsedNanos = System.nanoTime() - started;
+            return result;
+        }
+
+        int limitId = progress != null ? progress.limitId : bank.accountIdLimit();
+        int size = progress != null ? progress.partitionSize : partitionSize;
+        int partitions = (int) ((limitId + (long) size - 1) / size);
+        CutOff cut = new CutOff(run, limitId);
+        boolean finished = false;
+        try {
+            BitSet earlier = bank.beginCutOff(cut);
+            try {
+                cut.markPosted(earlier);
+                for (int partition = 0; partition < partitions; partition++) {
+                    if (progress != null && progress.isDone(partition)) {
+                        cut.markPosted(partition * size, (int) Math.min(limitId, (partition + 1L) * size));
+                        result.partitionsResumed++;
+                    }
+                }
+                result.partitions = partitions;
+                long posting = System.nanoTime();
+                result.phaseNanos[Phase.CUT_OFF.ordinal()] = posting - started;
+
+                AtomicInteger nextPartition = new AtomicInteger();
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+                List<Worker> workers = new ArrayList<>();
+                List<Thread> running = new ArrayList<>();
+                for (int i = 0; i < Math.min(threads, Math.max(1, partitions)); i++) {
+                    Worker worker = new Worker(cut, progress, size, partitions, nextPartition, failure);
+                    Thread thread = new Thread(worker, "interest-" + i);
+                    thread.setDaemon(true);
+                    workers.add(worker);
+                    running.add(thread);
+                    thread.start();
+                }
+                InterruptedException interrupted = null;
+                for (Thread thread : running) {
+                    while (thread.isAlive()) {
+                        try {
+                            thread.join();
+                        } catch (InterruptedException e) {
+                            interrupted = e;
+                            failure.compareAndSet(null, e); // workers stop after their current partition
+                        }
+                    }
+                }
+                for (Worker worker : workers) {
+                    result.add(worker);
+                }
+                long releasing = System.nanoTime();
+                Throwable failed = failure.get();
+                if (interrupted != null) {
+                    throw interrupted;
+                } else if (failed instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) failed).getCause();
+                } else if (failed instanceof RuntimeException) {
+                    throw (RuntimeException) failed;
+                } else if (failed instanceof Error) {
+                    throw (Error) failed;
+                }
+                if (progress != null) {
+                    progress.markComplete();
+                }
+                finished = true;
+                bank.endCutOff(cut, true);
+                result.phaseNanos[Phase.RELEASE.ordinal()] = System.nanoTime() - releasing;
+            } finally {
+                if (!finished) {
+                    bank.endCutOff(cut, false);
+                }
+            }
+        } finally {
+            if (progress != null) {
+                progress.close();
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - started;
+        return result;
+    }
+
+    // Name of a run's progress file in the bank directory
+    static String progressFileName(LocalDate businessDate) {
+        return PROGRESS_PREFIX + businessDate + ".progress";
+    }
+
+    // Whether the run for the epoch day was completed, going by its progress file in the bank directory
+    static boolean isComplete(Path directory, int run) throws IOException {
+        Path file = directory.resolve(progressFileName(LocalDate.ofEpochDay(run)));
+        return Files.exists(file)
+                && new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).endsWith("\ncomplete\n");
+    }
+
+    /**
+     * One day's interest on a balance, rounded down to the cent
+     * @param balance Balance in cents; zero and negative balances earn nothing
+     * @param annualBasisPoints Yearly rate in hundredths of a percent
+     * @return Interest in cents
+     */
+    static long dailyInterest(long balance, int annualBasisPoints) {
+        if (balance <= 0 || annualBasisPoints == 0) {
+            return 0;
+        }
+        if (balance <= Long.MAX_VALUE / annualBasisPoints) {
+            return balance * annualBasisPoints / BASIS_POINT_DAYS;
+        }
+        return BigInteger.valueOf(balance).multiply(BigInteger.valueOf(annualBasisPoints))
+                .divide(BigInteger.valueOf(BASIS_POINT_DAYS)).longValueExact();
+    }
+
+    private Rate rateFor(String accountType) {
+        for (Rate rate : rates) {
+            if (rate.accountType.equalsIgnoreCase(accountType)) {
+                return rate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The balance view of an interest run: the balances of the accounts the run has not reached
+     * yet, as they were at its cut-off. Workers post partitions in any order, so the accounts
+     * posted to are passed one by one.
+     */
+    static final class CutOff extends BalanceView {
+        private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+        private final int run;
+        private final long[] posted; // one bit per account id below limitId
+
+        CutOff(int run, int limitId) {
+            super(limitId);
+            this.run = run;
+            this.posted = new long[(limitId + 63) >>> 6];
+        }
+
+        int getRun() {
+            return run;
+        }
+
+        @Override
+        boolean isPassed(int id) {
+            return ((long) WORDS.getOpaque(posted, id >>> 6) & (1L << id)) != 0;
+        }
+
+        void markPosted(int id) {
+            WORDS.getAndBitwiseOr(posted, id >>> 6, 1L << id);
+        }
+
+        void markPosted(int fromId, int toId) {
+            for (int id = fromId; id < toId; id++) {
+                markPosted(id);
+            }
+        }
+
+        void markPosted(BitSet ids) {
+            if (ids != null) {
+                for (int id = ids.nextSetBit(0); id >= 0 && id < limitId; id = ids.nextSetBit(id + 1)) {
+                    markPosted(id);
+                }
+            }
+        }
+
+        BitSet posted() {
+            return BitSet.valueOf(posted);
+        }
+    }
+
+    // Claims partitions until none are left, posting to each account under its lock
+    private final class Worker implements Runnable {
+        private final CutOff cut;
+        private final Progress progress;
+        private final int size;
+        private final int partitions;
+        private final AtomicInteger nextPartition;
+        private final AtomicReference<Throwable> failure;
+        private String lastType;
+        private Rate lastRate;
+        private long ticket;
+
+        long posted;
+        long alreadyPosted;
+        long unrated;
+        long openedLater;
+        long interestCents;
+        long feeCents;
+        long feesWaived;
+        long partitionsRun;
+        final long[] phaseNanos = new long[Phase.values().length];
+
+        Worker(CutOff cut, Progress progress, int size, int partitions, AtomicInteger nextPartition,
+                AtomicReference<Throwable> failure) {
+            this.cut = cut;
+            this.progress = progress;
+            this.size = size;
+            this.partitions = partitions;
+            this.nextPartition = nextPartition;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int partition;
+                while (failure.get() == null && (partition = nextPartition.getAndIncrement()) < partitions) {
+                    if (progress != null && progress.isDone(partition)) {
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    int fromId = partition * size;
+                    int toId = (int) Math.min(cut.limitId, (long) fromId + size);
+                    ticket = 0;
+                    bank.forEachAccountFrom(fromId, account -> {
+                        if (account.getId() >= toId) {
+                            return false;
+                        }
+                        post(account);
+                        return true;
+                    });
+                    long synced = System.nanoTime();
+                    bank.syncJournal(ticket);
+                    long checkpoint = System.nanoTime();
+                    if (progress != null) {
+                        progress.markDone(partition);
+                    }
+                    long end = System.nanoTime();
+                    phaseNanos[Phase.POST.ordinal()] += synced - start;
+                    phaseNanos[Phase.SYNC.ordinal()] += checkpoint - synced;
+                    phaseNanos[Phase.CHECKPOINT.ordinal()] += end - checkpoint;
+                    partitionsRun++;
+                }
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private void post(BankAccount account) {
+            int id = account.getId();
+            String type = account.getAccountType();
+            if (type != lastType) {
+                lastType = type;
+                lastRate = rateFor(type);
+            }
+            Rate rate = lastRate;
+            synchronized (account.lock()) {
+                if (cut.isPassed(id)) {
+                    alreadyPosted++;
+                    return;
+                }
+                if (cut.isAbsent(id)) {
+                    openedLater++; // no balance at the cut-off; a later run posts to it
+                    cut.markPosted(id);
+                    return;
+                }
+                long current = account.loadBalance();
+                long balance = cut.balanceAt(id, current);
+                if (rate == null) {
+                    unrated++;
+                } else {
+                    long interest = dailyInterest(balance, rate.annualBasisPoints);
+                    long fee = rate.feeCents;
+                    if (fee > 0 && Math.min(balance, current) + interest < fee) {
+                        fee = 0;
+                        feesWaived++;
+                    }
+                    if (interest != 0 || fee != 0) {
+                        long newBalance = Math.addExact(current, interest) - fee;
+                        ticket = bank.recordAccrual(account, cut.run, interest, fee, newBalance);
+                        account.storeBalance(newBalance);
+                        interestCents += interest;
+                        feeCents += fee;
+                    }
+                    posted++;
+                }
+                cut.markPosted(id);
+            }
+        }
+    }
+
+    /**
+     * Which partitions of a run have been posted and synced, kept as a small text file:
+     * a header line with the account range and partition size, then "done N" per partition
+     * and "complete" at the end. Every line is forced to disk before the next step, and a
+     * torn last line is dropped when the file is read back.
+     */
+    private static final class Progress implements Closeable {
+        private final FileChannel channel;
+        final int limitId;
+        final int partitionSize;
+        private final BitSet done = new BitSet();
+        boolean complete;
+
+        private Progress(FileChannel channel, int limitId, int partitionSize) {
+            this.channel = channel;
+            this.limitId = limitId;
+            this.partitionSize = partitionSize;
+        }
+
+        static Progress open(Path file, LocalDate businessDate, int limitId, int partitionSize) throws IOException {
+            if (!Files.exists(file)) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                Progress progress = new Progress(channel, limitId, partitionSize);
+                progress.append("run " + businessDate + " limit " + limitId + " partition " + partitionSize);
+                return progress;
+            }
+            String text = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+            int end = text.lastIndexOf('\n') + 1;
+            String[] lines = text.substring(0, end).split("\n");
+            String[] header = lines[0].split(" ");
+            if (header.length != 6 || !header[0].equals("run") || !header[1].equals(businessDate.toString())) {
+                throw new IOException("Not the progress file of the " + businessDate + " run: " + file);
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.truncate(end);
+            channel.position(end);
+            Progress progress = new Progress(channel, Integer.parseInt(header[3]), Integer.parseInt(header[5]));
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].equals("complete")) {
+                    progress.complete = true;
+                } else if (lines[i].startsWith("done ")) {
+                    progress.done.set(Integer.parseInt(lines[i].substring(5)));
+                } else {
+                    channel.close();
+                    throw new IOException("Unreadable line " + (i + 1) + " in " + file);
+                }
+            }
+            return progress;
+        }
+
+        synchronized boolean isDone(int partition) {
+            return done.get(partition);
+        }
+
+        void markDone(int partition) {
+            try {
+                synchronized (this) {
+                    append("done " + partition);
+                    done.set(partition);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void markComplete() throws IOException {
+            append("complete");
+            complete = true;
+        }
+
+        private void append(String line) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * What one attempt at a run did
+     */
+    public static final class Result {
+        private final LocalDate businessDate;
+        boolean alreadyComplete;
+        long partitions;
+        long partitionsResumed;
+        long partitionsRun;
+        long posted;
+        long alreadyPosted;
+        long unrated;
+        long openedLater;
+        long interestCents;
+        long feeCents;
+        long feesWaived;
+        long elapsedNanos;
+        final long[] phaseNanos = new long[Phase.values().length];
+
+        Result(LocalDate businessDate) {
+            this.businessDate = businessDate;
+        }
+
+        private void add(Worker worker) {
+            partitionsRun += worker.partitionsRun;
+            posted += worker.posted;
+            alreadyPosted += worker.alreadyPosted;
+            unrated += worker.unrated;
+            openedLater += worker.openedLater;
+            interestCents += worker.interestCents;
+            feeCents += worker.feeCents;
+            feesWaived += worker.feesWaived;
+            for (int i = 0; i < phaseNanos.length; i++) {
+                phaseNanos[i] += worker.phaseNanos[i];
+            }
+        }
+
+        public LocalDate getBusinessDate() {
+            return businessDate;
+        }
+
+        /** @return Whether an earlier attempt had already finished the run, so nothing was done */
+        public boolean isAlreadyComplete() {
+            return alreadyComplete;
+        }
+
+        /** @return Accounts with a rate that this attempt reached, including those it posted nothing to */
+        public long getAccountsPosted() {
+            return posted;
+        }
+
+        /** @return Accounts skipped because an earlier attempt had posted to them */
+        public long getAccountsAlreadyPosted() {
+            return alreadyPosted;
+        }
+
+        /** @return Accounts skipped because their type has no rate */
+        public long getAccountsUnrated() {
+            return unrated;
+        }
+
+        /** @return Accounts skipped because they were opened after the cut-off */
+        public long getAccountsOpenedLater() {
+            return openedLater;
+        }
+
+        public long getInterestCents() {
+            return interestCents;
+        }
+
+        public long getFeeCents() {
+            return feeCents;
+        }
+
+        /** @return Fees not charged because the account could not pay them */
+        public long getFeesWaived() {
+            return feesWaived;
+        }
+
+        public long getPartitions() {
+            return partitions;
+        }
+
+        /** @return Partitions an earlier attempt had finished */
+        public long getPartitionsResumed() {
+            return partitionsResumed;
+        }
+
+        public long getPartitionsRun() {
+            return partitionsRun;
+        }
+
+        public long getPhaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.println("=== Interest Run " + businessDate + " ===");
+            if (alreadyComplete) {
+                out.println("Already complete; nothing posted");
+                return;
+            }
+            long accounts = posted + alreadyPosted + unrated + openedLater;
+            out.printf("Accounts: %d in %.2f s (%.0f accounts/s)%n", accounts, seconds, accounts / Math.max(seconds, 1e-9));
+            out.printf("Posted: %d, already posted: %d, no rate: %d, opened after the cut-off: %d%n",
+                    posted, alreadyPosted, unrated, openedLater);
+            out.println("Interest: $" + Money.format(interestCents) + ", fees: $" + Money.format(feeCents)
+                    + " (" + feesWaived + " waived)");
+            out.printf("Partitions: %d run, %d resumed, of %d%n", partitionsRun, partitionsResumed, partitions);
+            for (Phase phase : Phase.values()) {
+                out.printf("  %-10s %10.1f ms%n", phase, getPhaseNanos(phase) / 1e6);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java bankapp.InterestBatch <yyyy-mm-dd> <type>=<annual %>[/<fee $>]...");
+            return;
+        }
+        String dataDir = System.getProperty("bank.dataDir", "bank-data");
+        DurabilityMode durability = DurabilityMode.valueOf(System.getProperty("bank.durability", "ASYNC"));
+        Bank bank = Bank.open(Paths.get(dataDir), durability);
+        InterestBatch batch = new InterestBatch(bank);
+        batch.setThreads(Integer.getInteger("bank.interestThreads", Runtime.getRuntime().availableProcessors()));
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {
+                System.out.println("Expected <type>=<annual %>[/<fee $>], got " + args[i]);
+                bank.close();
+                return;
+            }
+            String rate = args[i].substring(equals + 1);
+            int slash = rate.indexOf('/');
+            // Percent with two decimals and dollars with two decimals are both hundredths
+            long basisPoints = Money.parseCents(slash < 0 ? rate : rate.substring(0, slash));
+            long fee = slash < 0 ? 0 : Money.parseCents(rate.substring(slash + 1));
+            batch.setRate(args[i].substring(0, equals), Math.toIntExact(basisPoints), fee);
+        }
+        Result result = batch.run(LocalDate.parse(args[0]));
+        bank.close();
+        result.print(System.out);
+    }
+}
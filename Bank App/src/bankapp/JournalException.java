@@ -0,0 +1,13 @@
+package bankapp;
+
+/**
+ * Thrown when the transaction journal cannot be written
+ * A mutation that fails with this exception must be treated as not durable
+ */
+public class JournalException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public JournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
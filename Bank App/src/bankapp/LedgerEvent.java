@@ -0,0 +1,101 @@
+package bankapp;
+
+/**
+ * Structured result of one ledger operation
+ * Instances are preallocated slots in an EventRing and are overwritten as the ring wraps,
+ * so handlers must copy any field they want to keep after onEvent returns.
+ */
+public final class LedgerEvent {
+
+    /** What kind of operation produced the event */
+    public enum Type {
+        ACCOUNT_CREATED,
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        INTEREST,
+        FEE
+    }
+
+    /** Outcome of the operation */
+    public enum Status {
+        APPLIED,
+        INSUFFICIENT_FUNDS,
+        INVALID_AMOUNT,
+        SAME_ACCOUNT,
+        UNKNOWN_ACCOUNT,
+        BALANCE_OVERFLOW // the credit would take a balance past Long.MAX_VALUE cents
+    }
+
+    Type type;
+    Status status;
+    int accountId;
+    int targetAccountId;
+    long amount;
+    long balance;
+    long targetBalance;
+    long timestampMillis;
+    String holderName;
+    String accountType;
+
+    void set(Type type, Status status, int accountId, int targetAccountId, long amount,
+             long balance, long targetBalance, String holderName, String accountType) {
+        this.type = type;
+        this.status = status;
+        this.accountId = accountId;
+        this.targetAccountId = targetAccountId;
+        this.amount = amount;
+        this.balance = balance;
+        this.targetBalance = targetBalance;
+        this.holderName = holderName;
+        this.accountType = accountType;
+        this.timestampMillis = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Numeric id of the account (the source account of a transfer) */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    /** Numeric id of the target account of a transfer, 0 otherwise */
+    public int getTargetAccountId() {
+        return targetAccountId;
+    }
+
+    /** Amount in cents */
+    public long getAmount() {
+        return amount;
+    }
+
+    /** Balance of the account after the operation, in cents */
+    public long getBalance() {
+        return balance;
+    }
+
+    /** Balance of the target account after a transfer, in cents */
+    public long getTargetBalance() {
+        return targetBalance;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /** Holder name of a newly created account, null for other events */
+    public String getHolderName() {
+        return holderName;
+    }
+
+    /** Type of a newly created account, null for other events */
+    public String getAccountType() {
+        return accountType;
+    }
+}
@@ -0,0 +1,16 @@
+package bankapp;
+
+/**
+ * Consumer of ledger events published through an EventRing
+ * Handlers run on the ring's consumer thread, one event at a time, in publication order.
+ */
+public interface LedgerEventHandler {
+
+    /**
+     * Handles one event
+     * @param event The event; only valid until this method returns
+     * @param sequence The event's sequence number in the ring
+     * @param endOfBatch True if no further event is available right now, a good moment to flush
+     */
+    void onEvent(LedgerEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,229 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Operation counters and latency histograms for a Bank, attached with Bank.setMetrics
+ * Every createAccount, findAccount, deposit, withdraw and transfer is counted by outcome.
+ * Latency is measured for a sample of operations: every Nth operation of each thread reads the
+ * clock before and after, so the cost of System.nanoTime, which dwarfs a deposit on some
+ * machines, is paid by one operation in N; an unbiased sample gives the same percentiles.
+ * Latencies go into log-linear buckets, 16 per power of two, so any value is reported within
+ * 6.25% of what was measured, from 1 ns up to about 18 minutes, in fixed memory.
+ * Each thread records into its own counters with plain ordered stores, so recording never
+ * contends; a snapshot sums them without stopping writers, so counters in one snapshot may be
+ * a few operations apart. Timed operations are also emitted as LedgerOperationEvent for JFR.
+ */
+public class LedgerMetrics {
+    public static final int DEFAULT_TIMING_SAMPLE = 64;
+
+    /** The instrumented operations */
+    public enum Operation {
+        CREATE_ACCOUNT,
+        FIND_ACCOUNT,
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        BATCH
+    }
+
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final LedgerEvent.Status[] STATUSES = LedgerEvent.Status.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Per operation: a count per status, then errors, timed count, timed sum, max, then the buckets
+    static final int SUB_BUCKET_BITS = 4;
+    static final int MAX_MAGNITUDE = 40; // values from 2^40 ns up share the last bucket
+    static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+    static final int ERRORS = STATUSES.length;
+    static final int TIMED = ERRORS + 1;
+    static final int TIMED_SUM = ERRORS + 2;
+    static final int MAX = ERRORS + 3;
+    static final int FIRST_BUCKET = ERRORS + 4;
+    static final int STRIDE = FIRST_BUCKET + BUCKETS;
+
+    private static final int THREAD_SLOTS = 256;
+
+    private final int timingSample;
+    private volatile Recorder[] recorders = new Recorder[0]; // guarded by this for writes
+    private final ThreadLocal<Recorder> ownRecorder = ThreadLocal.withInitial(this::recorderForCurrentThread);
+    private final Recorder[] byThreadId = new Recorder[THREAD_SLOTS]; // cache in front of ownRecorder
+
+    public LedgerMetrics() {
+        this(DEFAULT_TIMING_SAMPLE);
+    }
+
+    /**
+     * @param timingSample Time one operation in this many per thread; 1 times every operation
+     */
+    public LedgerMetrics(int timingSample) {
+        if (timingSample < 1) {
+            throw new IllegalArgumentException("Timing sample must be at least 1");
+        }
+        this.timingSample = timingSample;
+    }
+
+    /**
+     * The calling thread's recorder; keep it for the length of one operation
+     */
+    Recorder recorder() {
+        // A ThreadLocal lookup costs more than the counting; thread ids rarely collide in a small table.
+        // An entry is only used by its owner, and a recorder only changes owner once its owner has died.
+        Thread current = Thread.currentThread();
+        Recorder recorder = byThreadId[(int) current.getId() & (THREAD_SLOTS - 1)];
+        if (recorder != null && recorder.owner == current) {
+            return recorder;
+        }
+        return cacheRecorder(current);
+    }
+
+    private Recorder cacheRecorder(Thread current) {
+        Recorder recorder = ownRecorder.get();
+        int slot = (int) current.getId() & (THREAD_SLOTS - 1);
+        Recorder cached = byThreadId[slot];
+        if (cached == null || !cached.owner.isAlive()) {
+            synchronized (this) {
+                byThreadId[slot] = recorder;
+            }
+        }
+        return recorder;
+    }
+
+    // A dead thread's last writes happen-before isAlive() returns false, so its counters can be taken over
+    private synchronized Recorder recorderForCurrentThread() {
+        Thread current = Thread.currentThread();
+        for (Recorder recorder : recorders) {
+            if (!recorder.owner.isAlive()) {
+                recorder.owner = current;
+                return recorder;
+            }
+        }
+        Recorder recorder = new Recorder(current);
+        Recorder[] grown = Arrays.copyOf(recorders, recorders.length + 1);
+        grown[recorders.length] = recorder;
+        recorders = grown;
+        return recorder;
+    }
+
+    /**
+     * Sums every thread's counters; writers carry on meanwhile
+     * @return The metrics so far
+     */
+    public MetricsSnapshot snapshot() {
+        long[] sums = new long[OPERATIONS.length * STRIDE];
+        for (Recorder recorder : recorders) {
+            long[] cells = recorder.cells;
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                int base = op * STRIDE;
+                for (int i = 0; i < STRIDE; i++) {
+                    long value = (long) LONGS.getOpaque(cells, base + i);
+                    if (i == MAX) {
+                        sums[base + i] = Math.max(sums[base + i], value);
+                    } else {
+                        sums[base + i] += value;
+                    }
+                }
+            }
+        }
+        return new MetricsSnapshot(sums);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < (1L << (SUB_BUCKET_BITS + 1))) {
+            return (int) Math.max(0, nanos);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((magnitude - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    // Highest value that lands in a bucket
+    static long bucketLimit(int bucket) {
+        if (bucket < (2 << SUB_BUCKET_BITS)) {
+            return bucket;
+        }
+        int magnitude = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return ((1L << SUB_BUCKET_BITS) + sub) * width + width - 1;
+    }
+
+    /**
+     * One thread's counters; only the owner writes them
+     */
+    final class Recorder {
+        final long[] cells = new long[OPERATIONS.length * STRIDE];
+        Thread owner;
+        private int untilTimed = 1;
+
+        Recorder(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Call as an operation begins
+         * @return A start time to pass to end, or NOT_TIMED if this operation is not in the sample
+         */
+        long start() {
+            if (--untilTimed > 0) {
+                return NOT_TIMED;
+            }
+            untilTimed = timingSample;
+            return System.nanoTime();
+        }
+
+        /**
+         * Call as an operation completes
+         * @param operation The operation
+         * @param status How it ended
+         * @param started The value start returned
+         */
+        void end(Operation operation, LedgerEvent.Status status, long started) {
+            int base = operation.ordinal() * STRIDE;
+            increment(base + status.ordinal());
+            if (started != NOT_TIMED) {
+                timed(operation, status, base, System.nanoTime() - started);
+            }
+        }
+
+        /**
+         * Call if an operation failed with an exception
+         * @param operation The operation
+         * @param started The value start returned
+         */
+        void failed(Operation operation, long started) {
+            int base = operation.ordinal() * STRIDE;
+            increment(base + ERRORS);
+            if (started != NOT_TIMED) {
+                timed(operation, null, base, System.nanoTime() - started);
+            }
+        }
+
+        private void timed(Operation operation, LedgerEvent.Status status, int base, long nanos) {
+            increment(base + TIMED);
+            LONGS.setOpaque(cells, base + TIMED_SUM, cells[base + TIMED_SUM] + nanos);
+            if (nanos > cells[base + MAX]) {
+                LONGS.setOpaque(cells, base + MAX, nanos);
+            }
+            increment(base + FIRST_BUCKET + bucket(nanos));
+            LedgerOperationEvent event = new LedgerOperationEvent();
+            if (event.isEnabled()) {
+                event.operation = operation.name();
+                event.status = status != null ? status.name() : "ERROR";
+                event.latency = nanos;
+                event.commit();
+            }
+        }
+
+        private void increment(int index) {
+            LONGS.setOpaque(cells, index, cells[index] + 1);
+        }
+    }
+}
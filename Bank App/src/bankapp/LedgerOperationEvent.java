@@ -0,0 +1,31 @@
+package bankapp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one operation timed by LedgerMetrics
+ * Only the sampled operations are emitted, so a recording shows the same latency distribution
+ * as the metrics without paying for an event per operation. Disabled unless a recording
+ * enables bankapp.LedgerOperation, e.g. -XX:StartFlightRecording or jcmd JFR.start.
+ */
+@Name("bankapp.LedgerOperation")
+@Label("Ledger Operation")
+@Category("Bank")
+@Description("A sampled bank operation and how long it took")
+class LedgerOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Status")
+    @Description("APPLIED, a rejection reason, or ERROR if the operation threw")
+    String status;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,71 @@
+package bankapp;
+
+import javax.swing.AbstractListModel;
+import java.util.Arrays;
+
+/**
+ * Bounded list model for an output log: keeps the last N lines and drops the oldest
+ * Shown in a JList, which only renders the visible lines, so memory and repaint cost stay flat
+ * however long the application runs. Must be used on the Event Dispatch Thread.
+ */
+class LogRingModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] lines;
+    private int first;
+    private int size;
+
+    /**
+     * @param capacity How many lines to keep
+     */
+    LogRingModel(int capacity) {
+        lines = new String[capacity];
+    }
+
+    /**
+     * Adds lines at the end, dropping the oldest ones once the ring is full
+     * @param added The lines to add
+     */
+    void add(String... added) {
+        int oldSize = size;
+        int dropped = 0;
+        for (String line : added) {
+            if (size < lines.length) {
+                lines[(first + size++) % lines.length] = line;
+            } else {
+                lines[first] = line;
+                first = (first + 1) % lines.length;
+                dropped++;
+            }
+        }
+        // Report the change as old lines leaving the front, then new lines joining the end
+        int removedOld = Math.min(dropped, oldSize);
+        if (removedOld > 0) {
+            fireIntervalRemoved(this, 0, removedOld - 1);
+        }
+        int shown = size - (oldSize - removedOld);
+        if (shown > 0) {
+            fireIntervalAdded(this, size - shown, size - 1);
+        }
+    }
+
+    void clear() {
+        int removed = size;
+        first = 0;
+        size = 0;
+        Arrays.fill(lines, null);
+        if (removed > 0) {
+            fireIntervalRemoved(this, 0, removed - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return lines[(first + index) % lines.length];
+    }
+}
@@ -0,0 +1,457 @@
+package bankapp;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settlement file processor: streams a file of deposit, withdraw and transfer instructions
+ * through the Bank and prints a summary of the run
+ *
+ * One instruction per line: D,ACC1001,100.00 or W,ACC1001,25.50 or T,ACC1001,ACC1002,10.00.
+ * Blank lines and lines starting with # are skipped. Amounts are in dollars.
+ *
+ * The file is memory-mapped and parsed in place: account numbers and amounts are decoded
+ * straight from the mapped bytes into primitive batches, without building strings. Parsing and
+ * applying run on two threads connected by a small queue of recycled batches, so the next batch
+ * is parsed while the previous one is applied. Instructions are applied in file order, in
+ * TransactionBatch chunks: each chunk takes its account locks once and writes one journal
+ * record, and nothing is printed per record. If the applier fails, e.g. because the journal
+ * cannot be written, the parser stops at its next hand-off and the run fails with that error.
+ *
+ * Usage: java bankapp.Main settlement.txt, with -Dbank.dataDir as for BankApplication.
+ * The journal runs in ASYNC mode unless -Dbank.durability says otherwise; the run is
+ * durable once the summary is printed.
+ */
+public class Main {
+    private static final int BATCH_SIZE = 8192;
+    private static final int BATCHES_IN_FLIGHT = 4;
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final long HANDOFF_POLL_MILLIS = 100;
+
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte TRANSFER = 3;
+    private static final byte END = 0;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1) {
+            System.out.println("Usage: java bankapp.Main <settlement file>");
+            return;
+        }
+        String dataDir = System.getProperty("bank.dataDir", "bank-data");
+        DurabilityMode durability = DurabilityMode.valueOf(System.getProperty("bank.durability", "ASYNC"));
+        Bank bank = Bank.open(Paths.get(dataDir), durability);
+        Summary summary = settle(bank, Paths.get(args[0]));
+        bank.close();
+        summary.print(System.out);
+    }
+
+    /**
+     * Applies every instruction in the file to the bank, in file order
+     * @param bank The bank to apply to
+     * @param file The settlement file
+     * @return Counts, timing and checksums of the run
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if interrupted while waiting for the applier
+     * @throws JournalException if the journal fails while applying; the bank keeps what was applied before
+     */
+    static Summary settle(Bank bank, Path file) throws IOException, InterruptedException {
+        Summary summary = new Summary();
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT);
+        BlockingQueue<Batch> full = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT);
+        for (int i = 0; i < BATCHES_IN_FLIGHT; i++) {
+            free.add(new Batch());
+        }
+        Applier applier = new Applier(bank, free, full, summary);
+        Thread applierThread = new Thread(applier, "settlement-applier");
+        long start = System.nanoTime();
+        applierThread.start();
+        try {
+            new Parser(bank.getAccountNumberFormat(), applier, summary).parse(file);
+        } finally {
+            if (applier.failure == null) {
+                Batch last = applier.takeFree();
+                last.size = 0;
+                last.ops[0] = END;
+                applier.submit(last);
+            }
+            applierThread.join();
+        }
+        applier.checkAlive(); // it may have failed on the last batch
+        summary.elapsedNanos = System.nanoTime() - start;
+        bank.forEachAccount(account -> {
+            long balance = account.getBalanceCents();
+            summary.totalBalance += balance;
+            summary.stateChecksum += mix(account.getId(), balance);
+        });
+        return summary;
+    }
+
+    // Order-independent per-account hash, summed over the book
+    private static long mix(int id, long balance) {
+        long h = balance * 0x9E3779B97F4A7C15L + id;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Results of one settlement run
+     */
+    static final class Summary {
+        long lines;
+        long malformed;
+        long deposits;
+        long withdrawals;
+        long transfers;
+        long insufficientFunds;
+        long unknownAccount;
+        long invalidAmount;
+        long sameAccount;
+        long balanceOverflow;
+        long elapsedNanos;
+        long totalBalance;
+        long stateChecksum;
+
+        long applied() {
+            return deposits + withdrawals + transfers;
+        }
+
+        long rejected() {
+            return malformed + insufficientFunds + unknownAccount + invalidAmount + sameAccount + balanceOverflow;
+        }
+
+        void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.println("=== Settlement Summary ===");
+            out.printf("Records: %d in %.2f s (%.0f records/s)%n", applied() + rejected(), seconds,
+                    (applied() + rejected()) / Math.max(seconds, 1e-9));
+            out.printf("Applied: %d (deposits %d, withdrawals %d, transfers %d)%n",
+                    applied(), deposits, withdrawals, transfers);
+            out.printf("Rejected: %d (malformed %d, insufficient funds %d, unknown account %d, invalid amount %d,"
+                            + " same account %d, balance overflow %d)%n",
+                    rejected(), malformed, insufficientFunds, unknownAccount, invalidAmount, sameAccount, balanceOverflow);
+            out.println("Total balance: $" + Money.format(totalBalance));
+            out.printf("State checksum: %016x%n", stateChecksum);
+        }
+    }
+
+    // Parsed instructions, as parallel primitive arrays
+    private static final class Batch {
+        final byte[] ops = new byte[BATCH_SIZE];
+        final int[] sources = new int[BATCH_SIZE];
+        final int[] targets = new int[BATCH_SIZE];
+        final long[] amounts = new long[BATCH_SIZE];
+        int size;
+    }
+
+    /**
+     * Decodes the mapped file into batches. An id of -1 marks an account number that is not
+     * in the bank's format, and an amount of -1 marks one that could not be parsed; both are
+     * counted as rejections by the applier so they stay in file order.
+     */
+    private static final class Parser implements CharSequence {
+        private final AccountNumberFormat format;
+        private final Applier applier;
+        private final Summary summary;
+        private MappedByteBuffer window;
+        private Batch batch;
+
+        Parser(AccountNumberFormat format, Applier applier, Summary summary) {
+            this.format = format;
+            this.applier = applier;
+            this.summary = summary;
+        }
+
+        void parse(Path file) throws IOException, InterruptedException {
+            batch = applier.takeFree();
+            batch.size = 0;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    long length = Math.min(WINDOW_BYTES, size - position);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int limit = (int) length;
+                    int lineStart = 0;
+                    for (int i = 0; i < limit; i++) {
+                        if (window.get(i) == '\n') {
+                            line(lineStart, i);
+                            lineStart = i + 1;
+                        }
+                    }
+                    if (position + length == size) {
+                        if (lineStart < limit) {
+                            line(lineStart, limit);
+                        }
+                        lineStart = limit;
+                    } else if (lineStart == 0) {
+                        throw new IOException("Line longer than " + WINDOW_BYTES + " bytes in " + file);
+                    }
+                    position += lineStart;
+                }
+            }
+            if (batch.size > 0) {
+                applier.submit(batch);
+            } else {
+                applier.recycle(batch);
+            }
+            batch = null;
+        }
+
+        private void line(int start, int end) throws InterruptedException {
+            if (end > start && window.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start || window.get(start) == '#') {
+                return;
+            }
+            summary.lines++;
+            byte op;
+            switch (window.get(start) | 0x20) {
+                case 'd':
+                    op = DEPOSIT;
+                    break;
+                case 'w':
+                    op = WITHDRAW;
+                    break;
+                case 't':
+                    op = TRANSFER;
+                    break;
+                default:
+                    summary.malformed++;
+                    return;
+            }
+            int firstComma = indexOf(',', start + 1, end);
+            if (firstComma != start + 1) {
+                summary.malformed++;
+                return;
+            }
+            int secondComma = indexOf(',', firstComma + 1, end);
+            int thirdComma = op == TRANSFER ? indexOf(',', secondComma + 1, end) : secondComma;
+            if (secondComma < 0 || thirdComma < 0) {
+                summary.malformed++;
+                return;
+            }
+            int i = batch.size;
+            batch.ops[i] = op;
+            batch.sources[i] = format.parse(this, firstComma + 1, secondComma);
+            batch.targets[i] = op == TRANSFER ? format.parse(this, secondComma + 1, thirdComma) : 0;
+            long amount = Money.tryParseCents(this, thirdComma + 1, end);
+            batch.amounts[i] = amount == Money.INVALID_FORMAT || amount == Money.TOO_PRECISE
+                    || amount == Money.TOO_LARGE ? -1 : amount;
+            if (++batch.size == BATCH_SIZE) {
+                applier.submit(batch);
+                batch = applier.takeFree();
+                batch.size = 0;
+            }
+        }
+
+        private int indexOf(char c, int from, int end) {
+            for (int i = from; i < end; i++) {
+                if (window.get(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // The current window as ASCII characters, so the Money and account number parsers read it in place
+
+        @Override
+        public int length() {
+            return window.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (window.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            window.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+
+    /**
+     * Applies batches in order on its own thread, through Bank.applyBatch in chunks of up to
+     * TransactionBatch.MAX_SIZE records. Accounts are resolved through a cache indexed by id,
+     * so the account number string is built once per account rather than once per record.
+     * Whatever stops it other than the END batch is kept in failure, and the hand-off methods,
+     * which wait in short polls, throw it to the parser instead of waiting forever.
+     */
+    private static final class Applier implements Runnable {
+        private static final int CHUNK_BITS = 16;
+        private static final BankAccount MISSING = new BankAccount(0, "", "", "");
+
+        private final Bank bank;
+        private final AccountNumberFormat format;
+        private final BlockingQueue<Batch> free;
+        private final BlockingQueue<Batch> full;
+        private final Summary summary;
+        private BankAccount[][] cache = new BankAccount[16][];
+        private final TransactionBatch pending;
+        private final byte[] pendingOps = new byte[TransactionBatch.MAX_SIZE];
+        volatile Throwable failure;
+
+        Applier(Bank bank, BlockingQueue<Batch> free, BlockingQueue<Batch> full, Summary summary) {
+            this.bank = bank;
+            this.format = bank.getAccountNumberFormat();
+            this.free = free;
+            this.full = full;
+            this.summary = summary;
+            this.pending = new TransactionBatch(bank);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Batch batch = full.take();
+                    if (batch.size == 0 && batch.ops[0] == END) {
+                        return;
+                    }
+                    for (int i = 0; i < batch.size; i++) {
+                        add(batch.ops[i], batch.sources[i], batch.targets[i], batch.amounts[i]);
+                        if (pending.isFull()) {
+                            settle();
+                        }
+                    }
+                    settle();
+                    free.put(batch);
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        // An empty batch for the parser to fill
+        Batch takeFree() throws InterruptedException {
+            while (true) {
+                Batch batch = free.poll(HANDOFF_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    return batch;
+                }
+                checkAlive();
+            }
+        }
+
+        // A filled batch, applied after every batch submitted before it
+        void submit(Batch batch) throws InterruptedException {
+            while (!full.offer(batch, HANDOFF_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkAlive();
+            }
+        }
+
+        void recycle(Batch batch) {
+            free.add(batch); // never full: the parser only returns a batch it took
+        }
+
+        // Throws what stopped the applier, if anything did
+        void checkAlive() {
+            Throwable cause = failure;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause != null) {
+                throw new IllegalStateException("Settlement applier was interrupted", cause);
+            }
+        }
+
+        private void add(byte op, int sourceId, int targetId, long amount) {
+            pendingOps[pending.size()] = op;
+            BankAccount source = account(sourceId);
+            switch (op) {
+                case DEPOSIT:
+                    pending.deposit(source, amount);
+                    break;
+                case WITHDRAW:
+                    pending.withdraw(source, amount);
+                    break;
+                default:
+                    pending.transfer(source, account(targetId), amount);
+            }
+        }
+
+        // Applies the pending records as one non-atomic batch, so each keeps its own outcome, in file order
+        private void settle() {
+            if (pending.size() == 0) {
+                return;
+            }
+            TransactionBatch.Result result = bank.applyBatch(pending, false);
+            for (int i = 0; i < result.size(); i++) {
+                switch (result.getStatus(i)) {
+                    case APPLIED:
+                        if (pendingOps[i] == DEPOSIT) {
+                            summary.deposits++;
+                        } else if (pendingOps[i] == WITHDRAW) {
+                            summary.withdrawals++;
+                        } else {
+                            summary.transfers++;
+                        }
+                        break;
+                    case INSUFFICIENT_FUNDS:
+                        summary.insufficientFunds++;
+                        break;
+                    case INVALID_AMOUNT:
+                        summary.invalidAmount++;
+                        break;
+                    case SAME_ACCOUNT:
+                        summary.sameAccount++;
+                        break;
+                    case BALANCE_OVERFLOW:
+                        summary.balanceOverflow++;
+                        break;
+                    default:
+                        summary.unknownAccount++;
+                }
+            }
+            pending.clear();
+        }
+
+        private BankAccount account(int id) {
+            if (id < 0) {
+                return null;
+            }
+            int chunk = id >>> CHUNK_BITS;
+            if (chunk >= cache.length) {
+                cache = Arrays.copyOf(cache, Math.max(chunk + 1, cache.length * 2));
+            }
+            BankAccount[] accounts = cache[chunk];
+            if (accounts == null) {
+                accounts = cache[chunk] = new BankAccount[1 << CHUNK_BITS];
+            }
+            int slot = id & ((1 << CHUNK_BITS) - 1);
+            BankAccount account = accounts[slot];
+            if (account == null) {
+                account = bank.findAccount(format.format(id));
+                accounts[slot] = account = account != null ? account : MISSING;
+            }
+            return account == MISSING ? null : account;
+        }
+    }
+}
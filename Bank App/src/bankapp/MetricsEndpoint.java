@@ -0,0 +1,77 @@
+package bankapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves a LedgerMetrics snapshot as text on GET /metrics, for scrapers and curl
+ * Listens on the loopback interface only. Requests are answered on the HTTP server's own
+ * thread; a snapshot only reads counters, so a scrape never slows the bank down.
+ */
+public class MetricsEndpoint implements Closeable {
+    private final HttpServer server;
+
+    /**
+     * Binds and starts the endpoint
+     * @param metrics The metrics to serve
+     * @param port Port on 127.0.0.1; 0 picks a free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(LedgerMetrics metrics, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        server.createContext("/metrics", exchange -> serve(exchange, metrics));
+        server.start();
+    }
+
+    /**
+     * Starts measuring the bank and serving its metrics if -Dbank.metricsPort is set
+     * @param bank The bank to measure
+     * @return The endpoint, or null if the property is not set
+     * @throws IOException if the port cannot be bound
+     */
+    static MetricsEndpoint startIfConfigured(Bank bank) throws IOException {
+        Integer port = Integer.getInteger("bank.metricsPort");
+        if (port == null) {
+            return null;
+        }
+        LedgerMetrics metrics = new LedgerMetrics(Integer.getInteger("bank.metricsTimingSample", LedgerMetrics.DEFAULT_TIMING_SAMPLE));
+        MetricsEndpoint endpoint = new MetricsEndpoint(metrics, port);
+        bank.setMetrics(metrics);
+        System.out.println("Metrics at http://127.0.0.1:" + endpoint.getPort() + "/metrics");
+        return endpoint;
+    }
+
+    private static void serve(HttpExchange exchange, LedgerMetrics metrics) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder(8192);
+            metrics.snapshot().writeText(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,154 @@
+package bankapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Operation counts and latencies of a bank at one point, from LedgerMetrics.snapshot
+ * Counts cover every operation; latencies cover the timed sample, and a percentile is the
+ * upper edge of the histogram bucket it falls in, at most 6.25% above the measured value.
+ */
+public final class MetricsSnapshot {
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] EXPORTED_QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final long[] cells;
+
+    MetricsSnapshot(long[] cells) {
+        this.cells = cells;
+    }
+
+    private static int base(LedgerMetrics.Operation operation) {
+        return operation.ordinal() * LedgerMetrics.STRIDE;
+    }
+
+    /**
+     * @param operation The operation
+     * @return How many times it completed or threw
+     */
+    public long getCount(LedgerMetrics.Operation operation) {
+        long count = getErrors(operation);
+        for (LedgerEvent.Status status : LedgerEvent.Status.values()) {
+            count += getCount(operation, status);
+        }
+        return count;
+    }
+
+    /**
+     * @param operation The operation
+     * @param status An outcome: APPLIED, or why it was rejected
+     * @return How many times the operation ended that way
+     */
+    public long getCount(LedgerMetrics.Operation operation, LedgerEvent.Status status) {
+        return cells[base(operation) + status.ordinal()];
+    }
+
+    /**
+     * @param operation The operation
+     * @return How many times it threw instead of returning
+     */
+    public long getErrors(LedgerMetrics.Operation operation) {
+        return cells[base(operation) + LedgerMetrics.ERRORS];
+    }
+
+    /**
+     * @param operation The operation
+     * @return How many of its calls were timed
+     */
+    public long getTimedCount(LedgerMetrics.Operation operation) {
+        return cells[base(operation) + LedgerMetrics.TIMED];
+    }
+
+    /**
+     * @param operation The operation
+     * @return Mean latency of the timed calls in nanoseconds, or 0 if none was timed
+     */
+    public double getMeanLatencyNanos(LedgerMetrics.Operation operation) {
+        long timed = getTimedCount(operation);
+        return timed == 0 ? 0 : (double) cells[base(operation) + LedgerMetrics.TIMED_SUM] / timed;
+    }
+
+    /**
+     * @param operation The operation
+     * @return Highest latency timed, in nanoseconds
+     */
+    public long getMaxLatencyNanos(LedgerMetrics.Operation operation) {
+        return cells[base(operation) + LedgerMetrics.MAX];
+    }
+
+    /**
+     * @param operation The operation
+     * @param percentile Between 0 and 100, e.g. 99.9
+     * @return Latency in nanoseconds that this share of the timed calls did not exceed, or 0 if none was timed
+     */
+    public long getLatencyNanos(LedgerMetrics.Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long timed = getTimedCount(operation);
+        if (timed == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(timed * percentile / 100));
+        int first = base(operation) + LedgerMetrics.FIRST_BUCKET;
+        long seen = 0;
+        for (int bucket = 0; bucket < LedgerMetrics.BUCKETS; bucket++) {
+            seen += cells[first + bucket];
+            if (seen >= rank) {
+                return Math.min(LedgerMetrics.bucketLimit(bucket), getMaxLatencyNanos(operation));
+            }
+        }
+        // Counters are read while writers run, so the buckets may trail the timed count slightly
+        return getMaxLatencyNanos(operation);
+    }
+
+    /**
+     * Writes every figure in the Prometheus text exposition format
+     * @param out Where to write
+     */
+    public void writeText(Appendable out) {
+        try {
+            out.append("# TYPE bank_operations_total counter\n");
+            for (LedgerMetrics.Operation operation : LedgerMetrics.Operation.values()) {
+                for (LedgerEvent.Status status : LedgerEvent.Status.values()) {
+                    long count = getCount(operation, status);
+                    if (count > 0 || status == LedgerEvent.Status.APPLIED) {
+                        out.append("bank_operations_total{operation=\"").append(label(operation))
+                                .append("\",status=\"").append(status.name().toLowerCase(Locale.ROOT))
+                                .append("\"} ").append(Long.toString(count)).append('\n');
+                    }
+                }
+            }
+            out.append("# TYPE bank_operation_errors_total counter\n");
+            for (LedgerMetrics.Operation operation : LedgerMetrics.Operation.values()) {
+                out.append("bank_operation_errors_total{operation=\"").append(label(operation))
+                        .append("\"} ").append(Long.toString(getErrors(operation))).append('\n');
+            }
+            out.append("# TYPE bank_operation_latency_nanoseconds summary\n");
+            for (LedgerMetrics.Operation operation : LedgerMetrics.Operation.values()) {
+                String name = label(operation);
+                for (int i = 0; i < EXPORTED_PERCENTILES.length; i++) {
+                    out.append("bank_operation_latency_nanoseconds{operation=\"").append(name)
+                            .append("\",quantile=\"").append(EXPORTED_QUANTILES[i]).append("\"} ")
+                            .append(Long.toString(getLatencyNanos(operation, EXPORTED_PERCENTILES[i]))).append('\n');
+                }
+                out.append("bank_operation_latency_nanoseconds_sum{operation=\"").append(name).append("\"} ")
+                        .append(Long.toString(cells[base(operation) + LedgerMetrics.TIMED_SUM])).append('\n');
+                out.append("bank_operation_latency_nanoseconds_count{operation=\"").append(name).append("\"} ")
+                        .append(Long.toString(getTimedCount(operation))).append('\n');
+            }
+            out.append("# TYPE bank_operation_latency_max_nanoseconds gauge\n");
+            for (LedgerMetrics.Operation operation : LedgerMetrics.Operation.values()) {
+                out.append("bank_operation_latency_max_nanoseconds{operation=\"").append(label(operation))
+                        .append("\"} ").append(Long.toString(getMaxLatencyNanos(operation))).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String label(LedgerMetrics.Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,161 @@
+package bankapp;
+
+/**
+ * Fixed-point money helpers for the Bank Application
+ * All balances and amounts are held as a primitive long number of cents,
+ * which keeps arithmetic exact and lets a balance be read or updated atomically
+ */
+public final class Money {
+
+    /** Number of cents in one dollar */
+    public static final long CENTS_PER_DOLLAR = 100;
+
+    private Money() {
+    }
+
+    /** Returned by tryParseCents for text that is not a plain decimal amount */
+    public static final long INVALID_FORMAT = Long.MIN_VALUE;
+
+    /** Returned by tryParseCents for an amount with more than 2 decimal places */
+    public static final long TOO_PRECISE = Long.MIN_VALUE + 1;
+
+    /** Returned by tryParseCents for an amount that does not fit in a long number of cents */
+    public static final long TOO_LARGE = Long.MIN_VALUE + 2;
+
+    /**
+     * Parses a decimal amount such as "12", "12.5" or "$1,000.25" straight into cents,
+     * without going through a floating-point value
+     * Commas are only accepted as thousands separators, between groups of exactly three digits,
+     * so a decimal comma such as "12,34" is rejected rather than read as 1234 dollars
+     * @param text The text to parse
+     * @return The amount in cents
+     * @throws NumberFormatException if the text is not a plain decimal amount or has more than 2 decimal places
+     */
+    public static long parseCents(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount cannot be empty!");
+        }
+        long cents = tryParseCents(text, 0, text.length());
+        if (cents == INVALID_FORMAT) {
+            throw new NumberFormatException("Invalid amount format!");
+        }
+        if (cents == TOO_PRECISE) {
+            throw new NumberFormatException("Amount can have maximum 2 decimal places!");
+        }
+        if (cents == TOO_LARGE) {
+            throw new NumberFormatException("Amount is too large!");
+        }
+        return cents;
+    }
+
+    /**
+     * Parses a decimal amount like parseCents, but reports errors as sentinel values instead of
+     * throwing, so rejecting bad input allocates nothing
+     * @param text The text holding the amount
+     * @param start Index of the first character of the amount
+     * @param end Index just past the last character of the amount
+     * @return The amount in cents, or INVALID_FORMAT, TOO_PRECISE or TOO_LARGE
+     */
+    public static long tryParseCents(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+        if (start < end && text.charAt(start) == '$') {
+            start++;
+        }
+
+        long dollars = 0;
+        long cents = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        int groupDigits = -1; // digits since the last thousands separator, -1 before the first
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (fractionDigits < 0) {
+                    if (dollars > (Long.MAX_VALUE / CENTS_PER_DOLLAR - 9) / 10) {
+                        return TOO_LARGE;
+                    }
+                    dollars = dollars * 10 + (c - '0');
+                    if (groupDigits >= 0) {
+                        groupDigits++;
+                    }
+                } else {
+                    if (++fractionDigits > 2) {
+                        return TOO_PRECISE;
+                    }
+                    cents = cents * 10 + (c - '0');
+                }
+                digits++;
+            } else if (c == '.' && fractionDigits < 0) {
+                if (groupDigits >= 0 && groupDigits != 3) {
+                    return INVALID_FORMAT;
+                }
+                fractionDigits = 0;
+            } else if (c == ',' && fractionDigits < 0
+                    && (groupDigits < 0 ? digits > 0 && digits <= 3 : groupDigits == 3)) {
+                groupDigits = 0; // thousands separator, ignored
+            } else {
+                return INVALID_FORMAT;
+            }
+        }
+
+        if (digits == 0 || (fractionDigits < 0 && groupDigits >= 0 && groupDigits != 3)) {
+            return INVALID_FORMAT;
+        }
+        if (fractionDigits == 1) {
+            cents *= 10;
+        }
+
+        long total = dollars * CENTS_PER_DOLLAR + cents;
+        return negative ? -total : total;
+    }
+
+    /**
+     * Converts whole dollars to cents
+     * @param dollars The number of dollars
+     * @return The amount in cents
+     */
+    public static long ofDollars(long dollars) {
+        return Math.multiplyExact(dollars, CENTS_PER_DOLLAR);
+    }
+
+    /**
+     * Formats cents as a plain decimal amount with two decimal places, e.g. 123456 becomes "1234.56"
+     * @param cents The amount in cents
+     * @return The formatted amount, without a currency sign
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Appends cents as a plain decimal amount with two decimal places
+     * @param sb The builder to append to
+     * @param cents The amount in cents
+     * @return The same builder
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(cents);
+        long fraction = abs % CENTS_PER_DOLLAR;
+        sb.append(abs / CENTS_PER_DOLLAR).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
@@ -0,0 +1,482 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bank engine that splits the accounts into partitions, each owned by a single worker thread
+ * An account lives in partition (id % shards). Callers enqueue commands into the owning
+ * partition's ring and get a future back; the worker applies its commands one at a time on
+ * plain fields, with no locks and no atomic updates on account state.
+ *
+ * A transfer within one partition is applied in one step. A transfer between partitions runs
+ * in two: the source worker checks funds, debits the source and records the amount as in
+ * flight, then sends a credit to the target worker. The target either credits the account and
+ * settles the transfer, or, if the account does not exist or its balance would overflow, sends
+ * the amount back and the source worker refunds it. Money is therefore always either in exactly one balance or in flight from
+ * exactly one partition, and close() waits until nothing is in flight.
+ *
+ * State is in memory only; use Bank for a journaled ledger. Futures complete on worker threads,
+ * so dependent actions attached to them must be short.
+ */
+class ShardedBank implements Closeable {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private static final byte CREATE = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte WITHDRAW = 3;
+    private static final byte TRANSFER = 4;
+    private static final byte BALANCE = 5;
+
+    private final Shard[] shards;
+    private final AccountIdAllocator ids;
+    private final AccountNumberFormat format;
+    private final int baseId; // partitions index their accounts from here, not from zero
+    private volatile boolean closing;
+    private volatile boolean stopped;
+    private volatile EventRing events; // null when nobody listens
+
+    public ShardedBank() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedBank(int shardCount) {
+        this(shardCount, new AccountIdAllocator(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param shardCount Number of partitions, and of worker threads
+     * @param ids Source of new account ids
+     * @param queueCapacity Commands each partition can queue before callers wait, rounded up to a power of two
+     */
+    public ShardedBank(int shardCount, AccountIdAllocator ids, int queueCapacity) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.ids = ids;
+        this.format = ids.getFormat();
+        this.baseId = ids.getFirstId();
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+        for (Shard shard : shards) {
+            shard.worker.start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Publish a structured event for every operation through the given ring; null stops publishing,
+    // and must come before the ring is closed, which drops later events
+    public void setEventRing(EventRing events) {
+        this.events = events;
+    }
+
+    // Create new account; the future completes with its account number once the owning partition has it
+    public CompletableFuture<String> createAccount(String holderName, String accountType) {
+        int id = ids.next();
+        CompletableFuture<String> done = new CompletableFuture<>();
+        shardOf(id).submit(CREATE, id, 0, 0, holderName, accountType, done);
+        return done;
+    }
+
+    // Deposit money
+    public CompletableFuture<LedgerEvent.Status> deposit(String accountNumber, long amount) {
+        return submit(DEPOSIT, accountNumber, null, amount);
+    }
+
+    // Withdraw money
+    public CompletableFuture<LedgerEvent.Status> withdraw(String accountNumber, long amount) {
+        return submit(WITHDRAW, accountNumber, null, amount);
+    }
+
+    // Transfer money; completes once the target has been credited or the transfer was rejected
+    public CompletableFuture<LedgerEvent.Status> transfer(String sourceAccount, String targetAccount, long amount) {
+        return submit(TRANSFER, sourceAccount, targetAccount, amount);
+    }
+
+    // Balance in cents, or null if there is no such account
+    public CompletableFuture<Long> getBalanceCents(String accountNumber) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        int id = format.parse(accountNumber);
+        if (id < 0) {
+            done.complete(null);
+        } else {
+            shardOf(id).submit(BALANCE, id, 0, 0, null, null, done);
+        }
+        return done;
+    }
+
+    private CompletableFuture<LedgerEvent.Status> submit(byte op, String accountNumber, String targetNumber, long amount) {
+        CompletableFuture<LedgerEvent.Status> done = new CompletableFuture<>();
+        int id = format.parse(accountNumber);
+        int targetId = op == TRANSFER ? format.parse(targetNumber) : 0;
+        if (id < 0 || targetId < 0) {
+            done.complete(LedgerEvent.Status.UNKNOWN_ACCOUNT);
+        } else if (amount <= 0) {
+            done.complete(LedgerEvent.Status.INVALID_AMOUNT);
+        } else if (op == TRANSFER && id == targetId) {
+            done.complete(LedgerEvent.Status.SAME_ACCOUNT);
+        } else {
+            shardOf(id).submit(op, id, targetId, amount, null, null, done);
+        }
+        return done;
+    }
+
+    private Shard shardOf(int id) {
+        return shards[id % shards.length];
+    }
+
+    /**
+     * Applies every command submitted so far, waits for cross-partition transfers to settle,
+     * then stops the workers. Commands must not be submitted concurrently with or after close.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        while (!quiescent()) {
+            LockSupport.parkNanos(100_000);
+        }
+        stopped = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.worker);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // True once every ring is drained and no partition has money in flight. A pending credit
+    // or refund always leaves its source partition's in-flight amount above zero.
+    private boolean quiescent() {
+        for (Shard shard : shards) {
+            if (shard.consumed != shard.claimed.get() || shard.inFlight != 0 || !shard.inbox.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<?> future, Object value) {
+        ((CompletableFuture<Object>) future).complete(value);
+    }
+
+    // Owned and written only by its partition's worker
+    private static final class Account {
+        final String holderName;
+        final String accountType;
+        long balance;
+
+        Account(String holderName, String accountType) {
+            this.holderName = holderName;
+            this.accountType = accountType;
+        }
+    }
+
+    // Message between partitions for the second step of a cross-partition transfer
+    private static final class Transfer {
+        static final byte CREDIT = 1;
+        static final byte SETTLED = 2;
+        static final byte REFUND = 3;
+
+        byte kind = CREDIT;
+        LedgerEvent.Status refusal; // why a REFUND was sent back
+        final Shard source;
+        final int sourceId;
+        final int targetId;
+        final long amount;
+        final long sourceBalance;
+        final CompletableFuture<?> done;
+
+        Transfer(Shard source, int sourceId, int targetId, long amount, long sourceBalance, CompletableFuture<?> done) {
+            this.source = source;
+            this.sourceId = sourceId;
+            this.targetId = targetId;
+            this.amount = amount;
+            this.sourceBalance = sourceBalance;
+            this.done = done;
+        }
+    }
+
+    /**
+     * One partition: a multi-producer, single-consumer command ring laid out as parallel arrays,
+     * an unbounded inbox for messages from other partitions, and the accounts it owns. Partitions
+     * talk to each other only through the inbox, so a worker never blocks on a full ring.
+     */
+    private final class Shard implements Runnable {
+        final Thread worker;
+
+        final int mask;
+        final byte[] ops;
+        final int[] accountIds;
+        final int[] targetIds;
+        final long[] amounts;
+        final String[] holderNames;
+        final String[] accountTypes;
+        final CompletableFuture<?>[] futures;
+        final long[] published;
+        final AtomicLong claimed = new AtomicLong();
+        volatile long consumed;
+        volatile boolean sleeping;
+
+        final Queue<Transfer> inbox = new ConcurrentLinkedQueue<>();
+        volatile long inFlight; // debited here, not yet settled by the target partition
+
+        // Accounts in this partition, indexed by (id - baseId) / shards.length
+        Account[] accounts = new Account[64];
+
+        Shard(int index, int queueCapacity) {
+            int size = Integer.highestOneBit(Math.max(2, queueCapacity) - 1) << 1;
+            this.mask = size - 1;
+            this.ops = new byte[size];
+            this.accountIds = new int[size];
+            this.targetIds = new int[size];
+            this.amounts = new long[size];
+            this.holderNames = new String[size];
+            this.accountTypes = new String[size];
+            this.futures = new CompletableFuture<?>[size];
+            this.published = new long[size];
+            Arrays.fill(published, -1);
+            this.worker = new Thread(this, "bank-shard-" + index);
+            worker.setDaemon(true);
+        }
+
+        void submit(byte op, int accountId, int targetId, long amount, String holderName, String accountType,
+                    CompletableFuture<?> done) {
+            if (closing) {
+                throw new IllegalStateException("Bank is closed");
+            }
+            long sequence = claimed.getAndIncrement();
+            while (sequence - consumed > mask) {
+                wake();
+                LockSupport.parkNanos(1_000);
+            }
+            int slot = (int) sequence & mask;
+            ops[slot] = op;
+            accountIds[slot] = accountId;
+            targetIds[slot] = targetId;
+            amounts[slot] = amount;
+            holderNames[slot] = holderName;
+            accountTypes[slot] = accountType;
+            futures[slot] = done;
+            // Volatile rather than release so the sleeping check below cannot move above it
+            LONGS.setVolatile(published, slot, sequence);
+            wake();
+        }
+
+        void send(Transfer message) {
+            inbox.add(message);
+            wake();
+        }
+
+        private void wake() {
+            if (sleeping) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        private boolean isPublished(long sequence) {
+            return (long) LONGS.getAcquire(published, (int) sequence & mask) == sequence;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            while (true) {
+                boolean worked = false;
+                Transfer message;
+                while ((message = inbox.poll()) != null) {
+                    handle(message);
+                    worked = true;
+                }
+                for (int i = 0; i < MAX_BATCH && isPublished(next); i++) {
+                    apply((int) next & mask);
+                    consumed = ++next;
+                    worked = true;
+                }
+                if (worked) {
+                    continue;
+                }
+                if (stopped) {
+                    return;
+                }
+                sleeping = true;
+                if (inbox.isEmpty() && !isPublished(next) && !stopped) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+
+        private Account find(int id) {
+            int slot = slotOf(id);
+            return slot >= 0 && slot < accounts.length ? accounts[slot] : null;
+        }
+
+        private int slotOf(int id) {
+            return id < baseId ? -1 : (id - baseId) / shards.length;
+        }
+
+        private void apply(int slot) {
+            byte op = ops[slot];
+            int id = accountIds[slot];
+            int targetId = targetIds[slot];
+            long amount = amounts[slot];
+            CompletableFuture<?> done = futures[slot];
+            String holderName = holderNames[slot];
+            String accountType = accountTypes[slot];
+            futures[slot] = null;
+            holderNames[slot] = null;
+            accountTypes[slot] = null;
+
+            Account account = find(id);
+            switch (op) {
+                case CREATE:
+                    int accountSlot = slotOf(id);
+                    if (accountSlot >= accounts.length) {
+                        accounts = Arrays.copyOf(accounts, Math.max(accountSlot + 1, accounts.length * 2));
+                    }
+                    accounts[accountSlot] = new Account(holderName, accountType);
+                    publish(LedgerEvent.Type.ACCOUNT_CREATED, LedgerEvent.Status.APPLIED, id, 0, 0, 0, 0, holderName, accountType);
+                    complete(done, format.format(id));
+                    break;
+                case BALANCE:
+                    complete(done, account == null ? null : account.balance);
+                    break;
+                case DEPOSIT:
+                    if (account == null) {
+                        complete(done, LedgerEvent.Status.UNKNOWN_ACCOUNT);
+                        break;
+                    }
+                    if (overflows(account, amount)) {
+                        publish(LedgerEvent.Type.DEPOSIT, LedgerEvent.Status.BALANCE_OVERFLOW, id, 0, amount, account.balance, 0, null, null);
+                        complete(done, LedgerEvent.Status.BALANCE_OVERFLOW);
+                        break;
+                    }
+                    account.balance += amount;
+                    publish(LedgerEvent.Type.DEPOSIT, LedgerEvent.Status.APPLIED, id, 0, amount, account.balance, 0, null, null);
+                    complete(done, LedgerEvent.Status.APPLIED);
+                    break;
+                case WITHDRAW:
+                    if (account == null) {
+                        complete(done, LedgerEvent.Status.UNKNOWN_ACCOUNT);
+                    } else if (amount > account.balance) {
+                        publish(LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Status.INSUFFICIENT_FUNDS, id, 0, amount, account.balance, 0, null, null);
+                        complete(done, LedgerEvent.Status.INSUFFICIENT_FUNDS);
+                    } else {
+                        account.balance -= amount;
+                        publish(LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Status.APPLIED, id, 0, amount, account.balance, 0, null, null);
+                        complete(done, LedgerEvent.Status.APPLIED);
+                    }
+                    break;
+                case TRANSFER:
+                    transfer(account, id, targetId, amount, done);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown command " + op);
+            }
+        }
+
+        private void transfer(Account source, int sourceId, int targetId, long amount, CompletableFuture<?> done) {
+            if (source == null) {
+                complete(done, LedgerEvent.Status.UNKNOWN_ACCOUNT);
+                return;
+            }
+            if (amount > source.balance) {
+                publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.INSUFFICIENT_FUNDS, sourceId, targetId, amount, source.balance, 0, null, null);
+                complete(done, LedgerEvent.Status.INSUFFICIENT_FUNDS);
+                return;
+            }
+            Shard owner = shardOf(targetId);
+            if (owner == this) {
+                Account target = find(targetId);
+                if (target == null) {
+                    complete(done, LedgerEvent.Status.UNKNOWN_ACCOUNT);
+                    return;
+                }
+                if (overflows(target, amount)) {
+                    publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.BALANCE_OVERFLOW, sourceId, targetId, amount, source.balance, target.balance, null, null);
+                    complete(done, LedgerEvent.Status.BALANCE_OVERFLOW);
+                    return;
+                }
+                source.balance -= amount;
+                target.balance += amount;
+                publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.APPLIED, sourceId, targetId, amount, source.balance, target.balance, null, null);
+                complete(done, LedgerEvent.Status.APPLIED);
+                return;
+            }
+            // Step one: debit here and hand the amount to the target partition
+            source.balance -= amount;
+            inFlight += amount;
+            owner.send(new Transfer(this, sourceId, targetId, amount, source.balance, done));
+        }
+
+        private void handle(Transfer message) {
+            switch (message.kind) {
+                case Transfer.CREDIT:
+                    // Step two, on the target partition
+                    Account target = find(message.targetId);
+                    if (target == null) {
+                        message.kind = Transfer.REFUND;
+                        message.refusal = LedgerEvent.Status.UNKNOWN_ACCOUNT;
+                    } else if (overflows(target, message.amount)) {
+                        // The source is already debited, so send the money back rather than credit it
+                        message.kind = Transfer.REFUND;
+                        message.refusal = LedgerEvent.Status.BALANCE_OVERFLOW;
+                        publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.BALANCE_OVERFLOW, message.sourceId, message.targetId,
+                                message.amount, message.sourceBalance + message.amount, target.balance, null, null);
+                    } else {
+                        target.balance += message.amount;
+                        message.kind = Transfer.SETTLED;
+                        publish(LedgerEvent.Type.TRANSFER, LedgerEvent.Status.APPLIED, message.sourceId, message.targetId,
+                                message.amount, message.sourceBalance, target.balance, null, null);
+                        complete(message.done, LedgerEvent.Status.APPLIED);
+                    }
+                    message.source.send(message);
+                    break;
+                case Transfer.SETTLED:
+                    inFlight -= message.amount;
+                    break;
+                case Transfer.REFUND:
+                    find(message.sourceId).balance += message.amount;
+                    inFlight -= message.amount;
+                    complete(message.done, message.refusal);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown transfer message " + message.kind);
+            }
+        }
+
+        // Whether crediting the account would take its balance past Long.MAX_VALUE
+        private boolean overflows(Account account, long amount) {
+            return account.balance > Long.MAX_VALUE - amount;
+        }
+
+        private void publish(LedgerEvent.Type type, LedgerEvent.Status status, int accountId, int targetAccountId,
+                             long amount, long balance, long targetBalance, String holderName, String accountType) {
+            EventRing ring = events;
+            if (ring != null) {
+                ring.publish(type, status, accountId, targetAccountId, amount, balance, targetBalance, holderName, accountType);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package bankapp;
+
+import java.util.function.Consumer;
+
+/**
+ * Renders ledger events as human-readable lines, e.g. for the console or a GUI log
+ * Formatting happens here on the event consumer thread, never on the ledger's hot path.
+ */
+public class TextEventRenderer implements LedgerEventHandler {
+    private final Consumer<String> output;
+    private final AccountNumberFormat numberFormat;
+    private final StringBuilder line = new StringBuilder(128);
+
+    /**
+     * @param output Receives one line per event, e.g. System.out::println
+     */
+    public TextEventRenderer(Consumer<String> output) {
+        this(output, AccountNumberFormat.DEFAULT);
+    }
+
+    /**
+     * @param output Receives one line per event
+     * @param numberFormat The format the bank generates account numbers in
+     */
+    public TextEventRenderer(Consumer<String> output, AccountNumberFormat numberFormat) {
+        this.output = output;
+        this.numberFormat = numberFormat;
+    }
+
+    @Override
+    public void onEvent(LedgerEvent event, long sequence, boolean endOfBatch) {
+        line.setLength(0);
+        format(line, event, numberFormat);
+        output.accept(line.toString());
+    }
+
+    /**
+     * Appends a one-line description of an event
+     * @param sb The builder to append to
+     * @param event The event to describe
+     * @return The same builder
+     */
+    public static StringBuilder format(StringBuilder sb, LedgerEvent event) {
+        return format(sb, event, AccountNumberFormat.DEFAULT);
+    }
+
+    /**
+     * Appends a one-line description of an event
+     * @param sb The builder to append to
+     * @param event The event to describe
+     * @param numberFormat The format the bank generates account numbers in
+     * @return The same builder
+     */
+    public static StringBuilder format(StringBuilder sb, LedgerEvent event, AccountNumberFormat numberFormat) {
+        String account = numberFormat.format(event.getAccountId());
+        switch (event.getType()) {
+            case ACCOUNT_CREATED:
+                return sb.append("Account created: ").append(account)
+                        .append(" (").append(event.getHolderName()).append(", ").append(event.getAccountType()).append(')');
+            case DEPOSIT:
+                sb.append("Deposit to ").append(account);
+                break;
+            case WITHDRAWAL:
+                sb.append("Withdrawal from ").append(account);
+                break;
+            case INTEREST:
+                sb.append("Interest to ").append(account);
+                break;
+            case FEE:
+                sb.append("Fee from ").append(account);
+                break;
+            case TRANSFER:
+                sb.append("Transfer ").append(account).append(" -> ").append(numberFormat.format(event.getTargetAccountId()));
+                break;
+            default:
+                sb.append(event.getType()).append(' ').append(account);
+        }
+        Money.appendTo(sb.append(": $"), event.getAmount());
+        if (event.getStatus() != LedgerEvent.Status.APPLIED) {
+            return sb.append(" rejected (").append(event.getStatus()).append(')');
+        }
+        Money.appendTo(sb.append(", balance $"), event.getBalance());
+        if (event.getType() == LedgerEvent.Type.TRANSFER) {
+            Money.appendTo(sb.append(" / $"), event.getTargetBalance());
+        }
+        return sb;
+    }
+}
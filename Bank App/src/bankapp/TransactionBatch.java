@@ -0,0 +1,519 @@
+package bankapp;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A list of deposits, withdrawals and transfers that Bank.applyBatch applies in one pass
+ *
+ * Items are checked as they are added: a non-positive amount, an unknown account (including one
+ * that was not found through this bank) or a transfer to the same account is rejected before any
+ * lock is taken. Applying locks every account the batch touches once, in the same global order
+ * single transfers use, then runs the items in order against running balances. Several items
+ * on the same account are netted: each changed account gets one balance store, and the whole
+ * batch becomes one journal record holding the final balances, waited for once. Events and
+ * history still show every item.
+ *
+ * An atomic batch is applied only if every item can be; otherwise nothing changes. An item that
+ * would overflow a balance makes an atomic batch throw ArithmeticException, as a single deposit
+ * or transfer does. A non-atomic batch gives each item its own outcome, exactly as if the items
+ * had been applied one by one with nothing in between; there an overflowing item is rejected
+ * with BALANCE_OVERFLOW. A batch holds at most MAX_SIZE items, is bound to one bank, and is not
+ * thread-safe; clear() empties it for reuse.
+ */
+public final class TransactionBatch {
+    public static final int MAX_SIZE = 4096;
+
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte TRANSFER = 3;
+    private static final LedgerEvent.Type[] TYPES = {null, LedgerEvent.Type.DEPOSIT, LedgerEvent.Type.WITHDRAWAL, LedgerEvent.Type.TRANSFER};
+    private static final int RADIX_BITS = 11; // widest digit, for the largest batches
+    private static final int RADIX_MIN = 8; // below this Arrays.sort is as quick
+    private static final Comparator<BankAccount> LOCK_ORDER =
+            (a, b) -> a.locksBefore(b) ? -1 : b.locksBefore(a) ? 1 : 0;
+
+    /**
+     * Outcome of one applyBatch call
+     */
+    public static final class Result {
+        private final boolean applied;
+        private final LedgerEvent.Status[] statuses;
+        private final int rejected;
+
+        Result(boolean applied, LedgerEvent.Status[] statuses, int rejected) {
+            this.applied = applied;
+            this.statuses = statuses;
+            this.rejected = rejected;
+        }
+
+        /**
+         * @return Whether the batch took effect; a non-atomic batch always does, even if some items were rejected
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+
+        public int size() {
+            return statuses.length;
+        }
+
+        /**
+         * @param item Position of the item in the batch
+         * @return APPLIED, or why the item was rejected. In an atomic batch that was not applied,
+         *         APPLIED marks the items that did not cause the rejection; none of them took effect.
+         */
+        public LedgerEvent.Status getStatus(int item) {
+            return statuses[item];
+        }
+
+        public int getAppliedCount() {
+            return applied ? statuses.length - rejected : 0;
+        }
+
+        public int getRejectedCount() {
+            return rejected;
+        }
+
+        // APPLIED if nothing was rejected, otherwise the reason of the first rejected item
+        LedgerEvent.Status getFirstRejection() {
+            if (rejected > 0) {
+                for (LedgerEvent.Status status : statuses) {
+                    if (status != LedgerEvent.Status.APPLIED) {
+                        return status;
+                    }
+                }
+            }
+            return LedgerEvent.Status.APPLIED;
+        }
+    }
+
+    private final Bank bank;
+
+    // The items, as parallel arrays; a null account is an unknown account number
+    private byte[] ops = new byte[16];
+    private BankAccount[] sources = new BankAccount[16];
+    private BankAccount[] targets = new BankAccount[16];
+    private long[] amounts = new long[16];
+    private LedgerEvent.Status[] statuses = new LedgerEvent.Status[16];
+    private int size;
+
+    // Scratch reused by every apply: per item the slots of its accounts and their balances after it,
+    // per slot the distinct accounts in the order first seen with their balances, the slots in lock
+    // order, the first slot of each distinct lock, and an id -> slot table. Slots are ints rather
+    // than reordered references, since every reference stored into an array pays a GC write barrier.
+    private int[] sourceSlots = new int[16];
+    private int[] targetSlots = new int[16];
+    private long[] sourceBalances = new long[16];
+    private long[] targetBalances = new long[16];
+    private BankAccount[] accounts = new BankAccount[32];
+    private long[] before = new long[32];
+    private long[] balances = new long[32];
+    private int[] changedSlots = new int[32];
+    private int[] changedIds = new int[32];
+    private long[] rankKeys = new long[32];
+    private long[] sortScratch = new long[32];
+    private final int[] digitCounts = new int[1 << RADIX_BITS];
+    private int[] lockOrder = new int[32];
+    private int accountCount;
+    private int[] lockSlots = new int[32];
+    private int lockCount;
+    private int[] slotKeys = new int[64]; // account id + 1, 0 for a free entry
+    private int[] slotValues = new int[64];
+    private int slotMask;
+    private long ticket;
+    private boolean atomic;
+    private boolean committed;
+
+    /**
+     * @param bank The bank the batch will be applied to
+     */
+    public TransactionBatch(Bank bank) {
+        this.bank = bank;
+    }
+
+    Bank bank() {
+        return bank;
+    }
+
+    /**
+     * Adds a deposit
+     * @param accountNumber The account to credit
+     * @param amount Cents to deposit
+     * @return This batch
+     */
+    public TransactionBatch deposit(String accountNumber, long amount) {
+        return deposit(bank.locate(accountNumber), amount);
+    }
+
+    public TransactionBatch deposit(BankAccount account, long amount) {
+        return add(DEPOSIT, account, null, amount);
+    }
+
+    /**
+     * Adds a withdrawal
+     * @param accountNumber The account to debit
+     * @param amount Cents to withdraw
+     * @return This batch
+     */
+    public TransactionBatch withdraw(String accountNumber, long amount) {
+        return withdraw(bank.locate(accountNumber), amount);
+    }
+
+    public TransactionBatch withdraw(BankAccount account, long amount) {
+        return add(WITHDRAW, account, null, amount);
+    }
+
+    /**
+     * Adds a transfer
+     * @param sourceAccountNumber The account to debit
+     * @param targetAccountNumber The account to credit
+     * @param amount Cents to move
+     * @return This batch
+     */
+    public TransactionBatch transfer(String sourceAccountNumber, String targetAccountNumber, long amount) {
+        return transfer(bank.locate(sourceAccountNumber), bank.locate(targetAccountNumber), amount);
+    }
+
+    public TransactionBatch transfer(BankAccount source, BankAccount target, long amount) {
+        return add(TRANSFER, source, target, amount);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == MAX_SIZE;
+    }
+
+    // Forget the items, keeping the arrays for the next batch
+    public void clear() {
+        Arrays.fill(sources, 0, size, null);
+        Arrays.fill(targets, 0, size, null);
+        size = 0;
+    }
+
+    private TransactionBatch add(byte op, BankAccount source, BankAccount target, long amount) {
+        if (size == MAX_SIZE) {
+            throw new IllegalStateException("A batch holds at most " + MAX_SIZE + " items");
+        }
+        if (size == ops.length) {
+            grow(Math.min(MAX_SIZE, size * 2));
+        }
+        LedgerEvent.Status status = null;
+        if (amount <= 0) {
+            status = LedgerEvent.Status.INVALID_AMOUNT;
+        } else if (!belongsHere(source) || (op == TRANSFER && !belongsHere(target))) {
+            status = LedgerEvent.Status.UNKNOWN_ACCOUNT;
+        } else if (op == TRANSFER && source.getAccountNumber().equals(target.getAccountNumber())) {
+            status = LedgerEvent.Status.SAME_ACCOUNT;
+        }
+        ops[size] = op;
+        sources[size] = source;
+        targets[size] = target;
+        amounts[size] = amount;
+        statuses[size] = status;
+        size++;
+        return this;
+    }
+
+    // Accounts are told apart by id, so only accounts this bank handed out can take part
+    private boolean belongsHere(BankAccount account) {
+        return account != null && account.bank == bank;
+    }
+
+    private void grow(int capacity) {
+        ops = Arrays.copyOf(ops, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        sourceSlots = new int[capacity];
+        targetSlots = new int[capacity];
+        sourceBalances = new long[capacity];
+        targetBalances = new long[capacity];
+    }
+
+    // Hash of the items, for telling a retried batch from a different one under the same key
+    long fingerprint(boolean atomic) {
+        long hash = IdempotencyCache.mix(atomic ? 1 : 0, size);
+        for (int i = 0; i < size; i++) {
+            hash = IdempotencyCache.mix(hash, ops[i]);
+            hash = IdempotencyCache.mix(hash, sources[i] != null ? sources[i].getId() : -1);
+            hash = IdempotencyCache.mix(hash, targets[i] != null ? targets[i].getId() : -1);
+            hash = IdempotencyCache.mix(hash, amounts[i]);
+        }
+        return hash;
+    }
+
+    // Estimated heap of this batch's Result, kept by IdempotencyCache for replays
+    long resultBytes() {
+        return 40 + 4L * size;
+    }
+
+    // Called by Bank.applyBatch
+    Result apply(boolean atomic) {
+        LedgerEvent.Status[] outcome = Arrays.copyOf(statuses, size);
+        int rejected = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcome[i] != null) {
+                rejected++;
+            }
+        }
+        this.atomic = atomic;
+        committed = false;
+        ticket = 0;
+        if (!atomic || rejected == 0) {
+            collectAccounts(outcome);
+            try {
+                lockFrom(0, outcome);
+            } finally {
+                Arrays.fill(accounts, 0, accountCount, null);
+            }
+        }
+        bank.awaitDurable(ticket);
+
+        rejected = 0;
+        for (int i = 0; i < size; i++) {
+            LedgerEvent.Status status = outcome[i];
+            if (status == null) {
+                outcome[i] = LedgerEvent.Status.APPLIED;
+            } else if (status != LedgerEvent.Status.APPLIED) {
+                rejected++;
+                if (sources[i] != null) {
+                    bank.recordRejected(TYPES[ops[i]], status, sources[i], targets[i], amounts[i]);
+                }
+            }
+        }
+        return new Result(committed || !atomic, outcome, rejected);
+    }
+
+    // Finds the distinct accounts of the items still to run, gives every item the slots of its
+    // accounts and puts the slots into lock order
+    private void collectAccounts(LedgerEvent.Status[] outcome) {
+        int table = Integer.highestOneBit(Math.max(16, size * 4)) * 2;
+        if (slotKeys.length < table) {
+            slotKeys = new int[table];
+            slotValues = new int[table];
+        } else {
+            Arrays.fill(slotKeys, 0, table, 0);
+        }
+        slotMask = table - 1;
+        if (accounts.length < size * 2) {
+            int capacity = size * 2;
+            accounts = new BankAccount[capacity];
+            before = new long[capacity];
+            balances = new long[capacity];
+            changedSlots = new int[capacity];
+            changedIds = new int[capacity];
+            rankKeys = new long[capacity];
+            sortScratch = new long[capacity];
+            lockOrder = new int[capacity];
+            lockSlots = new int[capacity];
+        }
+        accountCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcome[i] == null) {
+                sourceSlots[i] = slot(sources[i]);
+                targetSlots[i] = targets[i] != null ? slot(targets[i]) : -1;
+            }
+        }
+        sortIntoLockOrder();
+        lockCount = 0;
+        Object last = null;
+        for (int k = 0; k < accountCount; k++) {
+            Object lock = accounts[lockOrder[k]].lock();
+            if (lock != last) { // striped stores share locks
+                lockSlots[lockCount++] = lockOrder[k];
+                last = lock;
+            }
+        }
+    }
+
+    // Sorts the slots on lock rank alone, which is the lock order unless two accounts share a
+    // rank but not a lock; only then is the full comparison needed
+    private void sortIntoLockOrder() {
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (int s = 0; s < accountCount; s++) {
+            int rank = accounts[s].lockRank();
+            lowest = Math.min(lowest, rank);
+            highest = Math.max(highest, rank);
+            rankKeys[s] = rank;
+        }
+        for (int s = 0; s < accountCount; s++) {
+            rankKeys[s] = (rankKeys[s] - lowest) << 32 | s; // ranks as offsets, so the keys never go negative
+        }
+        if (accountCount < RADIX_MIN) {
+            Arrays.sort(rankKeys, 0, accountCount);
+        } else {
+            radixSort(64 - Long.numberOfLeadingZeros((long) highest - lowest));
+        }
+        boolean tied = false;
+        for (int k = 0; k < accountCount; k++) {
+            lockOrder[k] = (int) rankKeys[k];
+            tied |= k > 0 && rankKeys[k] >>> 32 == rankKeys[k - 1] >>> 32
+                    && accounts[lockOrder[k]].lock() != accounts[lockOrder[k - 1]].lock();
+        }
+        if (tied) {
+            Integer[] order = new Integer[accountCount];
+            for (int k = 0; k < accountCount; k++) {
+                order[k] = lockOrder[k];
+            }
+            Arrays.sort(order, (x, y) -> LOCK_ORDER.compare(accounts[x], accounts[y]));
+            for (int k = 0; k < accountCount; k++) {
+                lockOrder[k] = order[k];
+            }
+        }
+    }
+
+    // Least significant digit first over the rank bits only, with digits about as wide as the
+    // account count, so no pass spends longer on its counts than on its keys. A comparison sort
+    // mispredicts a branch on almost every step and dominated batches of any size.
+    private void radixSort(int rankBits) {
+        long[] keys = rankKeys;
+        long[] scratch = sortScratch;
+        int[] counts = digitCounts;
+        int digitBits = Math.max(4, Math.min(RADIX_BITS, 32 - Integer.numberOfLeadingZeros(accountCount)));
+        int digits = 1 << digitBits;
+        int mask = digits - 1;
+        for (int shift = 32; shift < 32 + rankBits; shift += digitBits) {
+            Arrays.fill(counts, 0, digits, 0);
+            for (int s = 0; s < accountCount; s++) {
+                counts[(int) (keys[s] >>> shift) & mask]++;
+            }
+            for (int d = 0, start = 0; d < digits; d++) {
+                int n = counts[d];
+                counts[d] = start;
+                start += n;
+            }
+            for (int s = 0; s < accountCount; s++) {
+                long key = keys[s];
+                scratch[counts[(int) (key >>> shift) & mask]++] = key;
+            }
+            long[] sorted = scratch;
+            scratch = keys;
+            keys = sorted;
+        }
+        if (keys != rankKeys) {
+            System.arraycopy(keys, 0, rankKeys, 0, accountCount);
+        }
+    }
+
+    // Slot of the account in the id table, giving it the next slot if absent
+    private int slot(BankAccount account) {
+        int key = account.getId() + 1;
+        int mask = slotMask;
+        int index = (key * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+        while (slotKeys[index] != 0) {
+            if (slotKeys[index] == key) {
+                return slotValues[index];
+            }
+            index = (index + 1) & mask;
+        }
+        slotKeys[index] = key;
+        slotValues[index] = accountCount;
+        accounts[accountCount] = account;
+        return accountCount++;
+    }
+
+    // Holds every lock at once. Java monitors only nest, so take them recursively in lock order,
+    // eight to a frame to keep the stack shallow for a batch over thousands of accounts.
+    private void lockFrom(int lock, LedgerEvent.Status[] outcome) {
+        if (lock == lockCount) {
+            run(outcome);
+        } else if (lockCount - lock >= 8) {
+            BankAccount[] held = accounts;
+            int[] first = lockSlots;
+            synchronized (held[first[lock]].lock()) {
+                synchronized (held[first[lock + 1]].lock()) {
+                    synchronized (held[first[lock + 2]].lock()) {
+                        synchronized (held[first[lock + 3]].lock()) {
+                            synchronized (held[first[lock + 4]].lock()) {
+                                synchronized (held[first[lock + 5]].lock()) {
+                                    synchronized (held[first[lock + 6]].lock()) {
+                                        synchronized (held[first[lock + 7]].lock()) {
+                                            lockFrom(lock + 8, outcome);
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } else {
+            synchronized (accounts[lockSlots[lock]].lock()) {
+                lockFrom(lock + 1, outcome);
+            }
+        }
+    }
+
+    // Runs the items against running balances, then stores and journals the net result; caller holds every lock
+    private void run(LedgerEvent.Status[] outcome) {
+        for (int s = 0; s < accountCount; s++) {
+            before[s] = balances[s] = accounts[s].loadBalance();
+        }
+        boolean insufficient = false;
+        for (int i = 0; i < size; i++) {
+            if (outcome[i] != null) {
+                continue;
+            }
+            long amount = amounts[i];
+            int source = sourceSlots[i];
+            targetBalances[i] = 0;
+            int credited = ops[i] == DEPOSIT ? source : ops[i] == TRANSFER ? targetSlots[i] : -1;
+            if (ops[i] != DEPOSIT && amount > balances[source]) {
+                outcome[i] = LedgerEvent.Status.INSUFFICIENT_FUNDS;
+                insufficient = true;
+                continue;
+            }
+            if (credited >= 0 && balances[credited] > Long.MAX_VALUE - amount) {
+                if (atomic) {
+                    throw new ArithmeticException("long overflow");
+                }
+                outcome[i] = LedgerEvent.Status.BALANCE_OVERFLOW;
+                continue;
+            }
+            if (ops[i] == DEPOSIT) {
+                balances[source] += amount;
+            } else {
+                balances[source] -= amount;
+                if (ops[i] == TRANSFER) {
+                    balances[credited] += amount;
+                    targetBalances[i] = balances[credited];
+                }
+            }
+            sourceBalances[i] = balances[source];
+        }
+        if (atomic && insufficient) {
+            return;
+        }
+
+        // Net result: keep only the accounts whose balance moved, their balances packed to the front
+        int changed = 0;
+        for (int s = 0; s < accountCount; s++) {
+            if (balances[s] != before[s]) {
+                changedSlots[changed] = s;
+                changedIds[changed] = accounts[s].getId();
+                before[changed] = before[s];
+                balances[changed] = balances[s];
+                changed++;
+            }
+        }
+        if (changed > 0) {
+            ticket = bank.recordBatch(accounts, changedSlots, changedIds, before, balances, changed);
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            if (outcome[i] == null) {
+                bank.recordBatchItem(TYPES[ops[i]], sources[i], targets[i], amounts[i], sourceBalances[i], targetBalances[i], now);
+            }
+        }
+        for (int c = 0; c < changed; c++) {
+            accounts[changedSlots[c]].storeBalance(balances[c]);
+        }
+        committed = true;
+    }
+}
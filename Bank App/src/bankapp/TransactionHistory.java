@@ -0,0 +1,311 @@
+package bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Append-only, in-memory history of every balance change, kept per account
+ * Each entry is four longs: [timestamp millis][type ordinal << 32 | counterparty id][signed amount]
+ * [balance after]. Entries live off-heap, in an arena of 4 MB direct buffers shared by all
+ * accounts, so the ever-growing history is never scanned or copied by the garbage collector.
+ * Each account owns a list of contiguous blocks carved from the arena, 4 entries for the first,
+ * then doubling up to 1024, so a quiet account costs a few hundred bytes and entries never move.
+ *
+ * Entries of one account are appended by whoever holds that account's lock, and timestamps are
+ * kept non-decreasing per account. Entry i is found by arithmetic, the last N entries by
+ * counting back from the end, and a time range by binary search on the timestamps, so queries
+ * cost O(log n) plus the entries returned, however long the history is. Readers need no lock:
+ * an entry becomes visible once it is completely written.
+ */
+public class TransactionHistory {
+    private static final int ENTRY_BYTES = 32;
+    private static final int FIRST_BLOCK_ENTRIES = 4;
+    private static final int MAX_BLOCK_ENTRIES = 1024;
+    private static final int GROWING_BLOCKS = 9; // 4, 8, ... 1024 entries
+    private static final int GROWING_ENTRIES = FIRST_BLOCK_ENTRIES * ((1 << GROWING_BLOCKS) - 1);
+    private static final int ARENA_SHIFT = 22;
+    private static final int ARENA_CHUNK_BYTES = 1 << ARENA_SHIFT; // 4 MB
+    private static final long ARENA_MASK = ARENA_CHUNK_BYTES - 1;
+    private static final int CHUNK_BITS = 16;
+    private static final VarHandle LOGS = MethodHandles.arrayElementVarHandle(AccountLog[].class);
+    private static final VarHandle SIZE;
+    private static final LedgerEvent.Type[] TYPES = LedgerEvent.Type.values();
+
+    static {
+        try {
+            SIZE = MethodHandles.lookup().findVarHandle(AccountLog.class, "size", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Receives history entries, oldest first
+     */
+    public interface EntryVisitor {
+        /**
+         * @param timestampMillis When the change was applied
+         * @param type The operation; a TRANSFER is recorded on both accounts
+         * @param amount Cents credited (positive) or debited (negative)
+         * @param balance The account's balance right after the change
+         * @param counterpartyId The other account of a transfer, 0 otherwise
+         */
+        void entry(long timestampMillis, LedgerEvent.Type type, long amount, long balance, int counterpartyId);
+    }
+
+    // Account logs indexed by id, in chunks created on first use
+    private volatile AccountLog[][] chunks = new AccountLog[16][];
+
+    // Entry storage shared by all accounts; blocks are carved from it and never move
+    private volatile ByteBuffer[] arena = new ByteBuffer[0];
+    private long arenaNext; // guarded by this
+
+    /**
+     * Records a change to an account; the caller holds the account's lock
+     * @param accountId The account that changed
+     * @param type The operation
+     * @param amount Cents credited (positive) or debited (negative)
+     * @param balance The balance after the change
+     * @param counterpartyId The other account of a transfer, 0 otherwise
+     */
+    void append(int accountId, LedgerEvent.Type type, long amount, long balance, int counterpartyId) {
+        append(accountId, System.currentTimeMillis(), type, amount, balance, counterpartyId);
+    }
+
+    /**
+     * Records a change with a timestamp already read, so both legs of a transfer share one clock read
+     * @param accountId The account that changed
+     * @param timestampMillis When the change was applied
+     * @param type The operation
+     * @param amount Cents credited (positive) or debited (negative)
+     * @param balance The balance after the change
+     * @param counterpartyId The other account of a transfer, 0 otherwise
+     */
+    void append(int accountId, long timestampMillis, LedgerEvent.Type type, long amount, long balance, int counterpartyId) {
+        AccountLog log = log(accountId, true);
+        log.append(timestampMillis, ((long) type.ordinal() << 32) | (counterpartyId & 0xFFFFFFFFL), amount, balance);
+    }
+
+    /**
+     * @param accountId Account id
+     * @return How many entries the account has
+     */
+    public int size(int accountId) {
+        AccountLog log = log(accountId, false);
+        return log == null ? 0 : log.size();
+    }
+
+    /**
+     * Visits the most recent entries of an account, oldest first
+     * @param accountId Account id
+     * @param count How many entries to visit at most
+     * @param visitor Receives the entries
+     * @return The number of entries visited
+     */
+    public int forEachLast(int accountId, int count, EntryVisitor visitor) {
+        AccountLog log = log(accountId, false);
+        if (log == null) {
+            return 0;
+        }
+        int size = log.size();
+        return log.visit(Math.max(0, size - Math.max(0, count)), size, visitor);
+    }
+
+    /**
+     * Visits the entries of an account applied in a time range, oldest first
+     * @param accountId Account id
+     * @param fromMillis Start of the range, inclusive
+     * @param toMillis End of the range, exclusive
+     * @param visitor Receives the entries
+     * @return The number of entries visited
+     */
+    public int forEachBetween(int accountId, long fromMillis, long toMillis, EntryVisitor visitor) {
+        AccountLog log = log(accountId, false);
+        if (log == null) {
+            return 0;
+        }
+        int size = log.size();
+        int from = log.firstAtOrAfter(fromMillis, size);
+        int to = log.firstAtOrAfter(toMillis, size);
+        return log.visit(from, Math.max(from, to), visitor);
+    }
+
+    /**
+     * @param accountId Account id
+     * @param timeMillis A point in time
+     * @return The account's balance just before that time, or -1 if the history does not
+     *         cover it because nothing was recorded for the account before or after it
+     */
+    public long balanceAt(int accountId, long timeMillis) {
+        AccountLog log = log(accountId, false);
+        int size = log == null ? 0 : log.size();
+        if (size == 0) {
+            return -1;
+        }
+        int index = log.firstAtOrAfter(timeMillis, size);
+        if (index > 0) {
+            return log.get(index - 1, 3);
+        }
+        return log.get(0, 3) - log.get(0, 2);
+    }
+
+    private AccountLog log(int accountId, boolean create) {
+        if (accountId < 0) {
+            return null;
+        }
+        int chunk = accountId >>> CHUNK_BITS;
+        int slot = accountId & ((1 << CHUNK_BITS) - 1);
+        AccountLog[][] current = chunks;
+        AccountLog[] logs = chunk < current.length ? current[chunk] : null;
+        if (logs == null) {
+            if (!create) {
+                return null;
+            }
+            logs = chunk(chunk);
+        }
+        AccountLog log = (AccountLog) LOGS.getAcquire(logs, slot);
+        if (log == null && create) {
+            log = new AccountLog();
+            LOGS.setRelease(logs, slot, log);
+        }
+        return log;
+    }
+
+    private synchronized AccountLog[] chunk(int chunk) {
+        AccountLog[][] current = chunks;
+        if (chunk >= current.length) {
+            current = Arrays.copyOf(current, Math.max(chunk + 1, current.length * 2));
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new AccountLog[1 << CHUNK_BITS];
+        }
+        chunks = current;
+        return current[chunk];
+    }
+
+    // Reserves room for a block of entries in the arena and returns its position
+    private synchronized long allocate(int bytes) {
+        long position = arenaNext;
+        if ((position & ARENA_MASK) + bytes > ARENA_CHUNK_BYTES) {
+            position = ((position >>> ARENA_SHIFT) + 1) << ARENA_SHIFT;
+        }
+        int chunk = (int) (position >>> ARENA_SHIFT);
+        ByteBuffer[] current = arena;
+        if (chunk >= current.length) {
+            current = Arrays.copyOf(current, chunk + 1);
+            current[chunk] = ByteBuffer.allocateDirect(ARENA_CHUNK_BYTES).order(ByteOrder.nativeOrder());
+            arena = current;
+        }
+        arenaNext = position + bytes;
+        return position;
+    }
+
+    // One account's entries, as a list of arena blocks. A single writer (the lock holder) appends;
+    // size is published last with a release store (cheaper than a volatile write's full fence),
+    // so readers that load it with acquire only look at blocks and arena chunks published before it.
+    private final class AccountLog {
+        private long[] blocks = new long[1]; // arena position of each block
+        private ByteBuffer tail;             // arena chunk holding the block being filled
+        private int tailOffset;
+        private int tailEnd;
+        private long lastTimestamp;
+        private int size;
+
+        void append(long timestamp, long kind, long amount, long balance) {
+            int index = size;
+            if (tailOffset == tailEnd) {
+                int block = block(index);
+                int bytes = blockEntries(block) * ENTRY_BYTES;
+                long position = allocate(bytes);
+                if (block == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, block * 2);
+                }
+                blocks[block] = position;
+                tail = arena[(int) (position >>> ARENA_SHIFT)];
+                tailOffset = (int) (position & ARENA_MASK);
+                tailEnd = tailOffset + bytes;
+            }
+            ByteBuffer entries = tail;
+            int offset = tailOffset;
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            entries.putLong(offset, lastTimestamp);
+            entries.putLong(offset + 8, kind);
+            entries.putLong(offset + 16, amount);
+            entries.putLong(offset + 24, balance);
+            tailOffset = offset + ENTRY_BYTES;
+            SIZE.setRelease(this, index + 1);
+        }
+
+        int size() {
+            return (int) SIZE.getAcquire(this);
+        }
+
+        // Arena position of an entry; only for indexes below a size already read
+        long position(int index) {
+            int block = block(index);
+            return blocks[block] + (long) (index - blockStart(block)) * ENTRY_BYTES;
+        }
+
+        // Field 0 to 3 of an entry
+        long get(int index, int field) {
+            long position = position(index);
+            return arena[(int) (position >>> ARENA_SHIFT)].getLong((int) (position & ARENA_MASK) + field * 8);
+        }
+
+        // Index of the first entry at or after the time, or size if there is none
+        int firstAtOrAfter(long timeMillis, int size) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle, 0) < timeMillis) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        int visit(int from, int to, EntryVisitor visitor) {
+            ByteBuffer[] chunks = arena;
+            int i = from;
+            while (i < to) {
+                // Entries of one block are contiguous in one arena chunk
+                int block = block(i);
+                int end = Math.min(to, blockStart(block) + blockEntries(block));
+                long position = position(i);
+                ByteBuffer entries = chunks[(int) (position >>> ARENA_SHIFT)];
+                int offset = (int) (position & ARENA_MASK);
+                for (; i < end; i++, offset += ENTRY_BYTES) {
+                    long kind = entries.getLong(offset + 8);
+                    visitor.entry(entries.getLong(offset), TYPES[(int) (kind >>> 32)], entries.getLong(offset + 16),
+                            entries.getLong(offset + 24), (int) kind);
+                }
+            }
+            return to - from;
+        }
+    }
+
+    // Blocks double from FIRST_BLOCK_ENTRIES up to MAX_BLOCK_ENTRIES, then stay at that size
+    private static int block(int index) {
+        if (index < GROWING_ENTRIES) {
+            return 31 - Integer.numberOfLeadingZeros(index / FIRST_BLOCK_ENTRIES + 1);
+        }
+        return GROWING_BLOCKS + (index - GROWING_ENTRIES) / MAX_BLOCK_ENTRIES;
+    }
+
+    private static int blockStart(int block) {
+        if (block < GROWING_BLOCKS) {
+            return FIRST_BLOCK_ENTRIES * ((1 << block) - 1);
+        }
+        return GROWING_ENTRIES + (block - GROWING_BLOCKS) * MAX_BLOCK_ENTRIES;
+    }
+
+    private static int blockEntries(int block) {
+        return block < GROWING_BLOCKS ? FIRST_BLOCK_ENTRIES << block : MAX_BLOCK_ENTRIES;
+    }
+}
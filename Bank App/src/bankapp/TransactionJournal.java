@@ -0,0 +1,487 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed journal of every Bank mutation
+ * Each record is framed as [int payload length][int CRC32C of payload][payload] and carries the
+ * resulting balances (not just the amounts), so replaying a record is idempotent.
+ * Records are buffered in memory and written with FileChannel; how and when they are forced
+ * to disk is controlled by the DurabilityMode. Lock order is flushLock, then this; appends
+ * only take this, so they never wait behind an fsync.
+ * A failed write or fsync loses the batch it was carrying, so after one the journal refuses
+ * all further work rather than acknowledge records that follow a gap.
+ */
+class TransactionJournal implements Closeable {
+    static final byte CREATE = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+    static final byte IMPORT = 5;
+    static final byte ACCRUAL = 6;
+    static final byte BATCH = 7;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 17;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long ASYNC_FLUSH_MILLIS = 10;
+
+    /**
+     * Receives the effects of journal records during replay
+     */
+    interface ReplayHandler {
+        void accountCreated(int id, String holderName, String accountType);
+
+        void balanceSet(int id, long balance);
+
+        // An interest run posted to the account; its new balance arrives through balanceSet
+        void accrualPosted(int id, int run);
+    }
+
+    private FileChannel channel; // guarded by flushLock; replaced by rotate()
+    private final DurabilityMode mode;
+    private final CRC32C crc = new CRC32C();
+    private final Thread asyncFlusher;
+
+    // Guarded by this: records appended but not yet written
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long appendedOffset;
+    private volatile boolean closed;
+
+    // Guarded by flushLock: at most one thread writes and forces at a time
+    private final Object flushLock = new Object();
+    private volatile long durableOffset;
+    private volatile JournalException failure; // first write or fsync error; never cleared
+
+    TransactionJournal(Path file, DurabilityMode mode) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.mode = mode;
+        this.appendedOffset = channel.size();
+        this.durableOffset = appendedOffset;
+        channel.position(appendedOffset);
+        if (mode == DurabilityMode.ASYNC) {
+            asyncFlusher = new Thread(this::runAsyncFlusher, "journal-flusher");
+            asyncFlusher.setDaemon(true);
+            asyncFlusher.start();
+        } else {
+            asyncFlusher = null;
+        }
+    }
+
+    DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Forces everything appended so far to the current file and continues in a new one
+     * Records appended after this call returns are guaranteed to be in the new file.
+     * @param file The new journal file
+     * @throws IOException if the new file cannot be opened
+     */
+    void rotate(Path file) throws IOException {
+        FileChannel next = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        next.position(next.size());
+        FileChannel previous;
+        synchronized (flushLock) {
+            try {
+                force(Long.MAX_VALUE);
+            } catch (JournalException e) {
+                next.close();
+                throw e;
+            }
+            previous = channel;
+            channel = next;
+        }
+        previous.close();
+    }
+
+    /**
+     * Replays every intact record of a journal file and, for the file last written to, truncates
+     * a torn or corrupt tail. Any other file was forced whole before the journal moved on, so
+     * damage there means lost records and fails the replay.
+     * @param file The journal file; a missing file replays nothing
+     * @param handler Receives the replayed state changes
+     * @param lastWritten Whether records were still being appended to this file when the journal stopped
+     * @return The number of records replayed
+     * @throws IOException if the file cannot be read, or is damaged and not the last written
+     */
+    static long replay(Path file, ReplayHandler handler, boolean lastWritten) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C check = new CRC32C();
+            long records = 0;
+            int valid = 0;
+            while (map.remaining() >= HEADER_BYTES) {
+                int length = map.getInt();
+                int checksum = map.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || length > map.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = map.slice(map.position(), length);
+                check.reset();
+                check.update(payload.duplicate());
+                if ((int) check.getValue() != checksum) {
+                    break;
+                }
+                apply(payload, handler);
+                map.position(map.position() + length);
+                valid = map.position();
+                records++;
+            }
+            if (valid < size) {
+                if (!lastWritten) {
+                    throw new IOException("Corrupt journal record at offset " + valid + " of " + file
+                            + ", which is followed by later segments");
+                }
+                in.truncate(valid);
+                in.force(true);
+            }
+            return records;
+        }
+    }
+
+    private static void apply(ByteBuffer payload, ReplayHandler handler) {
+        byte type = payload.get();
+        switch (type) {
+            case CREATE:
+                handler.accountCreated(payload.getInt(), readString(payload), readString(payload));
+                break;
+            case IMPORT: {
+                int id = payload.getInt();
+                long balance = payload.getLong();
+                handler.accountCreated(id, readString(payload), readString(payload));
+                handler.balanceSet(id, balance);
+                break;
+            }
+            case DEPOSIT:
+            case WITHDRAW: {
+                int id = payload.getInt();
+                payload.getLong(); // amount
+                handler.balanceSet(id, payload.getLong());
+                break;
+            }
+            case TRANSFER: {
+                int fromId = payload.getInt();
+                int toId = payload.getInt();
+                payload.getLong(); // amount
+                handler.balanceSet(fromId, payload.getLong());
+                handler.balanceSet(toId, payload.getLong());
+                break;
+            }
+            case BATCH: {
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    handler.balanceSet(payload.getInt(), payload.getLong());
+                }
+                break;
+            }
+            case ACCRUAL: {
+                int id = payload.getInt();
+                int run = payload.getInt();
+                payload.getLong(); // interest
+                payload.getLong(); // fee
+                handler.balanceSet(id, payload.getLong());
+                handler.accrualPosted(id, run);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    long logCreate(int id, String holderName, String accountType) {
+        byte[] holder = holderName.getBytes(StandardCharsets.UTF_8);
+        byte[] type = accountType.getBytes(StandardCharsets.UTF_8);
+        if (holder.length > Short.MAX_VALUE || type.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Account holder name or type too long to journal");
+        }
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (flushLock) {
+                return force(appendCreate(id, holder, type));
+            }
+        }
+        return appendCreate(id, holder, type);
+    }
+
+    // Bulk-loaded account with its opening balance. Never forces, whatever the mode:
+    // the loader calls sync() once per batch instead.
+    long logImport(int id, long balance, String holderName, String accountType) {
+        byte[] holder = holderName.getBytes(StandardCharsets.UTF_8);
+        byte[] type = accountType.getBytes(StandardCharsets.UTF_8);
+        if (holder.length > Short.MAX_VALUE || type.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Account holder name or type too long to journal");
+        }
+        return appendImport(id, balance, holder, type);
+    }
+
+    long logDeposit(int id, long amount, long newBalance) {
+        return logSingle(DEPOSIT, id, amount, newBalance);
+    }
+
+    long logWithdraw(int id, long amount, long newBalance) {
+        return logSingle(WITHDRAW, id, amount, newBalance);
+    }
+
+    long logTransfer(int fromId, int toId, long amount, long fromBalance, long toBalance) {
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (flushLock) {
+                return force(appendTransfer(fromId, toId, amount, fromBalance, toBalance));
+            }
+        }
+        return appendTransfer(fromId, toId, amount, fromBalance, toBalance);
+    }
+
+    // Interest and fee posted by an interest run (see InterestBatch). Never forces, whatever the mode:
+    // the run calls sync() once per partition instead.
+    long logAccrual(int id, int run, long interest, long fee, long newBalance) {
+        return appendAccrual(id, run, interest, fee, newBalance);
+    }
+
+    // Final balance of every account a TransactionBatch changed, as one record
+    long logBatch(int[] ids, long[] balances, int count) {
+        if (5 + 12L * count > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Batch touches too many accounts to journal");
+        }
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (flushLock) {
+                return force(appendBatch(ids, balances, count));
+            }
+        }
+        return appendBatch(ids, balances, count);
+    }
+
+    private long logSingle(byte type, int id, long amount, long newBalance) {
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (flushLock) {
+                return force(appendSingle(type, id, amount, newBalance));
+            }
+        }
+        return appendSingle(type, id, amount, newBalance);
+    }
+
+    private synchronized long appendCreate(int id, byte[] holder, byte[] type) {
+        int start = begin(13 + holder.length + type.length);
+        pending.put(CREATE).putInt(id);
+        pending.putShort((short) holder.length).put(holder);
+        pending.putShort((short) type.length).put(type);
+        return end(start);
+    }
+
+    private synchronized long appendImport(int id, long balance, byte[] holder, byte[] type) {
+        int start = begin(21 + holder.length + type.length);
+        pending.put(IMPORT).putInt(id).putLong(balance);
+        pending.putShort((short) holder.length).put(holder);
+        pending.putShort((short) type.length).put(type);
+        return end(start);
+    }
+
+    private synchronized long appendSingle(byte type, int id, long amount, long newBalance) {
+        int start = begin(21);
+        pending.put(type).putInt(id).putLong(amount).putLong(newBalance);
+        return end(start);
+    }
+
+    private synchronized long appendTransfer(int fromId, int toId, long amount, long fromBalance, long toBalance) {
+        int start = begin(33);
+        pending.put(TRANSFER).putInt(fromId).putInt(toId).putLong(amount).putLong(fromBalance).putLong(toBalance);
+        return end(start);
+    }
+
+    private synchronized long appendBatch(int[] ids, long[] balances, int count) {
+        int start = begin(5 + 12 * count);
+        pending.put(BATCH).putInt(count);
+        for (int i = 0; i < count; i++) {
+            pending.putInt(ids[i]).putLong(balances[i]);
+        }
+        return end(start);
+    }
+
+    private synchronized long appendAccrual(int id, int run, long interest, long fee, long newBalance) {
+        int start = begin(33);
+        pending.put(ACCRUAL).putInt(id).putInt(run).putLong(interest).putLong(fee).putLong(newBalance);
+        return end(start);
+    }
+
+    // Reserves room for one record and returns where it starts; caller holds this.
+    // The buffer grows rather than flushing here, so no I/O ever happens under this lock.
+    private int begin(int payloadBytes) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkHealthy();
+        if (pending.remaining() < HEADER_BYTES + payloadBytes) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + HEADER_BYTES + payloadBytes);
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.position(start + HEADER_BYTES);
+        return start;
+    }
+
+    // Frames the record written since begin() and returns its end offset in the journal; caller holds this
+    private long end(int start) {
+        int payloadStart = start + HEADER_BYTES;
+        int end = pending.position();
+        crc.reset();
+        crc.update(pending.duplicate().position(payloadStart).limit(end));
+        pending.putInt(start, end - payloadStart);
+        pending.putInt(start + 4, (int) crc.getValue());
+        appendedOffset += end - start;
+        return appendedOffset;
+    }
+
+    /**
+     * Blocks until everything up to the given journal offset is on disk, as the mode requires
+     * @param offset An offset returned by one of the log methods
+     */
+    void awaitDurable(long offset) {
+        checkHealthy();
+        if (mode != DurabilityMode.GROUP || durableOffset >= offset) {
+            return;
+        }
+        // Leader/follower group commit: whoever gets the flush lock forces every record
+        // appended so far, so the threads queued behind it usually find their work done
+        synchronized (flushLock) {
+            force(offset);
+        }
+    }
+
+    /**
+     * Blocks until everything up to the given journal offset is on disk, in every mode
+     * @param offset An offset returned by one of the log methods
+     */
+    void sync(long offset) {
+        checkHealthy();
+        if (durableOffset >= offset) {
+            return;
+        }
+        synchronized (flushLock) {
+            force(offset);
+        }
+    }
+
+    // Writes and forces everything appended so far unless offset is already durable; caller holds flushLock.
+    // durableOffset only moves once a whole batch is written and forced, never past a lost one.
+    private long force(long offset) {
+        checkHealthy();
+        if (durableOffset < offset) {
+            ByteBuffer batch;
+            long batchEnd;
+            synchronized (this) {
+                batchEnd = appendedOffset;
+                if (batchEnd == durableOffset) {
+                    return offset;
+                }
+                batch = swap();
+            }
+            try {
+                write(batch);
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    throw new JournalException("Failed to sync journal", e);
+                }
+            } catch (JournalException e) {
+                failure = e;
+                throw e;
+            }
+            durableOffset = batchEnd;
+        }
+        return offset;
+    }
+
+    // Exchanges pending and spare buffers and returns the filled one ready for writing; caller holds this
+    private ByteBuffer swap() {
+        ByteBuffer batch = pending;
+        batch.flip();
+        pending = spare;
+        pending.clear();
+        spare = batch;
+        return batch;
+    }
+
+    private void checkHealthy() {
+        JournalException cause = failure;
+        if (cause != null) {
+            throw new JournalException("Journal stopped after an earlier I/O error", cause);
+        }
+    }
+
+    // Caller holds flushLock
+    private void write(ByteBuffer batch) {
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } catch (IOException e) {
+            throw new JournalException("Failed to write journal", e);
+        }
+    }
+
+    private void runAsyncFlusher() {
+        while (!closed) {
+            try {
+                Thread.sleep(ASYNC_FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (flushLock) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    force(Long.MAX_VALUE);
+                } catch (JournalException e) {
+                    return; // recorded in failure; every later caller sees it
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+            }
+            if (failure == null) {
+                force(Long.MAX_VALUE);
+            }
+            synchronized (this) {
+                closed = true;
+            }
+        }
+        if (asyncFlusher != null) {
+            asyncFlusher.interrupt();
+        }
+        channel.close();
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,23 @@
+package bankapp;
+
+/**
+ * Result class for validation operations
+ * Instances are immutable and may be shared between callers and threads
+ */
+class ValidationResult {
+    private final boolean valid;
+    private final String message;
+
+    public ValidationResult(boolean valid, String message) {
+        this.valid = valid;
+        this.message = message;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
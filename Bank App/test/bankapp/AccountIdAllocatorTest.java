@@ -0,0 +1,98 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountIdAllocatorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentThreadsNeverGetTheSameId() throws Exception {
+        AccountIdAllocator ids = new AccountIdAllocator(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, 64, null);
+        int[][] handedOut = new int[THREADS][IDS_PER_THREAD];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int[] mine = handedOut[t];
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        mine[i] = ids.next();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        BitSet seen = new BitSet();
+        for (int[] mine : handedOut) {
+            for (int id : mine) {
+                assertTrue(id >= Bank.FIRST_ACCOUNT_ID && id <= ids.getHighWaterMark(), "id " + id);
+                assertFalse(seen.get(id), "id " + id + " handed out twice");
+                seen.set(id);
+            }
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, seen.cardinality());
+    }
+
+    @Test
+    void allocatorsSharingALeaseFileNeverOverlapAcrossRestarts() {
+        Path leases = directory.resolve("ids.lease");
+        AccountIdAllocator first = new AccountIdAllocator(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, 16, leases);
+        AccountIdAllocator second = new AccountIdAllocator(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, 16, leases);
+        BitSet seen = new BitSet();
+        for (int i = 0; i < 1_000; i++) {
+            AccountIdAllocator ids = i % 3 == 0 ? second : first;
+            int id = ids.next();
+            assertFalse(seen.get(id), "id " + id + " handed out twice");
+            seen.set(id);
+        }
+
+        // A restarted process continues above every block leased before, used or not
+        AccountIdAllocator restarted = new AccountIdAllocator(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, 16, leases);
+        long highest = Math.max(first.getHighWaterMark(), second.getHighWaterMark());
+        assertTrue(restarted.next() > highest);
+    }
+
+    @Test
+    void observedIdsAreNeverHandedOutAgain() {
+        AccountIdAllocator ids = new AccountIdAllocator(AccountNumberFormat.DEFAULT, Bank.FIRST_ACCOUNT_ID, 64, null);
+        assertEquals(Bank.FIRST_ACCOUNT_ID, ids.next()); // this thread now holds a block up to 1064
+        ids.observe(5_000);
+        assertEquals(5_001, ids.next()); // the rest of the old block is dropped
+        ids.observe(10); // below the floor: changes nothing
+        assertEquals(5_002, ids.next());
+    }
+
+    @Test
+    void exhaustingTheFormatsIdSpaceFails() {
+        AccountNumberFormat small = new AccountNumberFormat("S", 1, 2);
+        AccountIdAllocator ids = new AccountIdAllocator(small, 90, 4, null);
+        for (int expected = 90; expected <= 99; expected++) {
+            assertEquals(expected, ids.next());
+        }
+        assertThrows(IllegalStateException.class, ids::next);
+    }
+}
@@ -0,0 +1,125 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvExportLoadsBackAndBadRowsAreRejectedAlone() throws IOException {
+        Bank source = seeded();
+        Path file = directory.resolve("accounts.csv");
+        assertEquals(3, AccountExporter.writeCsv(source, file));
+        Files.writeString(file, String.join("\n",
+                "ACC2001,Grace Hopper,Savings,12.345",         // row 5: too precise
+                "ACC2002,Grace Hopper,Savings,-1.00",          // row 6
+                "ACC2003,Grace,Hopper,Savings,1.00",           // row 7: five fields
+                "ACC2004,Gr4ce,Savings,1.00",                  // row 8
+                "ACC1001,Grace Hopper,Savings,1.00",           // row 9: taken by the export
+                ",\"Grace Hopper\",Checking,\"7.50\"") + "\n", // row 10: gets a new number
+                StandardOpenOption.APPEND);
+
+        Bank target = new Bank();
+        List<String> rejected = new ArrayList<>();
+        AccountImporter.Result result = new AccountImporter(target, (row, message) -> rejected.add(row + " " + message))
+                .importCsv(file);
+
+        assertEquals(4, result.getImported());
+        assertEquals(5, result.getRejected());
+        assertEquals(List.of("5 Invalid balance", "6 Balance cannot be negative",
+                "7 Expected 4 fields: account_number,holder,type,balance",
+                "8 " + InputValidator.BAD_NAME_CHARACTERS.getMessage(),
+                "9 Account number already exists: ACC1001"), rejected);
+        assertSameAccounts(source, target);
+        assertEquals(4, target.getAccountCount());
+        List<String> added = new ArrayList<>();
+        target.scanConsistent((account, balance) -> {
+            if (source.findAccount(account.getAccountNumber()) == null) {
+                added.add(account.getAccountHolderName() + " " + account.getAccountType() + " " + balance);
+            }
+        });
+        assertEquals(List.of("Grace Hopper Checking 750"), added);
+    }
+
+    @Test
+    void binaryExportLoadsBackAndTakenNumbersAreRejected() throws IOException {
+        Bank source = seeded();
+        Path file = directory.resolve("accounts.bin");
+        assertEquals(3, AccountExporter.writeBinary(source, file));
+
+        Bank target = new Bank();
+        AccountImporter.Result result = new AccountImporter(target, null).importBinary(file);
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertSameAccounts(source, target);
+
+        List<Long> rejected = new ArrayList<>();
+        result = new AccountImporter(target, (row, message) -> rejected.add(row)).importBinary(file);
+        assertEquals(0, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of(1L, 2L, 3L), rejected);
+        assertEquals(3, target.getAccountCount());
+    }
+
+    @Test
+    void binaryExportCutShortAnywhereIsReportedAsTruncated() throws IOException {
+        Path file = directory.resolve("accounts.bin");
+        AccountExporter.writeBinary(seeded(), file);
+        byte[] whole = Files.readAllBytes(file);
+        Path cut = directory.resolve("cut.bin");
+        for (int length = 8; length < whole.length; length++) {
+            Files.write(cut, Arrays.copyOf(whole, length));
+            IOException e = assertThrows(IOException.class, () -> new AccountImporter(new Bank(), null).importBinary(cut));
+            assertTrue(e.getMessage().startsWith("Account export is truncated"), length + ": " + e.getMessage());
+        }
+        Files.write(cut, Arrays.copyOf(whole, 7));
+        IOException e = assertThrows(IOException.class, () -> new AccountImporter(new Bank(), null).importBinary(cut));
+        assertTrue(e.getMessage().startsWith("Not an account export"), e.getMessage());
+    }
+
+    @Test
+    void binaryExportWhoseCountDisagreesIsRefused() throws IOException {
+        Path file = directory.resolve("accounts.bin");
+        AccountExporter.writeBinary(seeded(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - Long.BYTES, 4);
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> new AccountImporter(new Bank(), null).importBinary(file));
+        assertTrue(e.getMessage().startsWith("Account export holds 3 records but says 4"), e.getMessage());
+    }
+
+    private static Bank seeded() {
+        Bank bank = new Bank();
+        assertTrue(bank.findAccount(bank.createAccount("Ada Lovelace", "Savings")).deposit(123_456));
+        bank.createAccount("Jean-Luc O'Brien", "Checking");
+        assertTrue(bank.findAccount(bank.createAccount("Charles Babbage", "Current")).deposit(1));
+        return bank;
+    }
+
+    private static void assertSameAccounts(Bank expected, Bank actual) {
+        expected.scanConsistent((account, balance) -> {
+            BankAccount loaded = actual.findAccount(account.getAccountNumber());
+            assertNotNull(loaded, account.getAccountNumber());
+            assertEquals(account.getAccountHolderName(), loaded.getAccountHolderName());
+            assertEquals(account.getAccountType(), loaded.getAccountType());
+            assertEquals(balance, loaded.getBalanceCents(), account.getAccountNumber());
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountIndexTest {
+    @Test
+    void prefixQueriesReturnEveryMatchingNameInNameThenIdOrder() {
+        AccountIndex index = new AccountIndex();
+        index.add(7, "Anna", "Savings");
+        index.add(3, "ann", "Savings");
+        index.add(5, "Anne Marie", "Checking");
+        index.add(4, "Anm", "Savings");
+        index.add(9, "Ano", "Savings");
+        index.add(2, "ANN", "Checking");
+        index.add(8, "Bob", "Savings");
+        index.add(3, "ann", "Savings"); // added twice, listed once
+
+        assertEquals(List.of(2, 3, 7, 5), ids(index.holderPrefixIds("Ann")));
+        assertEquals(List.of(2, 3, 7, 5), ids(index.holderPrefixIds("  aNN ")));
+        assertEquals(List.of(7), ids(index.holderPrefixIds("anna")));
+        assertEquals(List.of(4, 2, 3, 7, 5, 9), ids(index.holderPrefixIds("an")));
+        assertEquals(List.of(), ids(index.holderPrefixIds("annex")));
+        assertEquals(List.of(), ids(index.holderPrefixIds("c")));
+        assertEquals(List.of(4, 2, 3, 7, 5, 9, 8), ids(index.holderPrefixIds("")));
+        assertEquals(List.of(2, 3), ids(index.holderIds("Ann")));
+    }
+
+    @Test
+    void typeQueriesReturnIdsInOrderAcrossBitmapChunks() {
+        AccountIndex index = new AccountIndex();
+        int[] savings = {1001, 65_535, 65_536, 200_000, 999_999_999};
+        for (int id : savings) {
+            index.add(id, "Holder", "Savings");
+        }
+        index.add(1002, "Holder", "Checking");
+
+        assertEquals(List.of(1001, 65_535, 65_536, 200_000, 999_999_999), ids(index.typeIds(" SAVINGS")));
+        assertEquals(5, index.countByType("savings"));
+        assertEquals(List.of(1002), ids(index.typeIds("Checking")));
+        assertEquals(List.of(), ids(index.typeIds("Business")));
+        assertEquals(0, index.countByType("Business"));
+    }
+
+    @Test
+    void bankIndexesAccountsOpenedBeforeAndAfterTheIndexIsSet() {
+        Bank bank = new Bank();
+        assertThrows(IllegalStateException.class, () -> bank.findAccountsByHolderPrefix("A"));
+        String before = bank.createAccount("Ada Lovelace", "Savings");
+        bank.setAccountIndex(new AccountIndex());
+        String after = bank.createAccount("ada byron", "Checking");
+        bank.createAccount("Alan Turing", "Savings");
+
+        List<String> found = new ArrayList<>();
+        bank.findAccountsByHolderPrefix("ADA").forEach(account -> found.add(account.getAccountNumber()));
+        assertEquals(List.of(after, before), found); // "ada byron" sorts before "ada lovelace"
+        assertEquals(2, bank.countAccountsByType("savings"));
+    }
+
+    private static List<Integer> ids(PrimitiveIterator.OfInt ids) {
+        List<Integer> list = new ArrayList<>();
+        ids.forEachRemaining((int id) -> list.add(id));
+        return list;
+    }
+}
@@ -0,0 +1,102 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountPageTest {
+    private static final int ACCOUNTS = 23;
+    private static final int PAGE_SIZE = 5;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"hash", "columnar"})
+    void pagesCoverEveryAccountOnceInIdOrder(String store) {
+        Bank bank = new Bank(store.equals("hash") ? new HashAccountStore() : new ColumnarAccountStore());
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            created.add(bank.createAccount("Holder", "Savings"));
+        }
+
+        List<String> listed = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountPage page = bank.listAccounts(cursor, PAGE_SIZE);
+            sizes.add(page.getAccounts().size());
+            for (BankAccount account : page.getAccounts()) {
+                listed.add(account.getAccountNumber());
+            }
+            assertEquals(page.getNextCursor() != null, page.hasMore());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(created, listed);
+        assertEquals(List.of(5, 5, 5, 5, 3), sizes);
+    }
+
+    @Test
+    void aBookThatFillsItsLastPageExactlyEndsWithoutAnEmptyPage() {
+        Bank bank = new Bank();
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            bank.createAccount("Holder", "Savings");
+        }
+        AccountPage first = bank.listAccounts(null, PAGE_SIZE);
+        assertTrue(first.hasMore());
+        AccountPage last = bank.listAccounts(first.getNextCursor(), PAGE_SIZE);
+        assertEquals(PAGE_SIZE, last.getAccounts().size());
+        assertNull(last.getNextCursor());
+        assertFalse(last.hasMore());
+
+        AccountPage empty = new Bank().listAccounts(null, PAGE_SIZE);
+        assertTrue(empty.getAccounts().isEmpty());
+        assertNull(empty.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> bank.listAccounts(null, 0));
+    }
+
+    @Test
+    void cursorsRoundTripTheNextId() {
+        for (int id : new int[]{0, 1, 1001, Integer.MAX_VALUE}) {
+            String cursor = AccountPage.encodeCursor(id);
+            assertEquals(id, AccountPage.decodeCursor(cursor));
+            assertFalse(cursor.contains("=") || cursor.contains("+") || cursor.contains("/"), cursor);
+        }
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() {
+        String good = AccountPage.encodeCursor(1001);
+        byte[] wrongVersion = Base64.getUrlDecoder().decode(good);
+        wrongVersion[0]++;
+        for (String cursor : new String[]{
+                Base64.getUrlEncoder().withoutPadding().encodeToString(wrongVersion),
+                cursor(1, -1),
+                cursor(1, Integer.MIN_VALUE),
+                good.substring(0, good.length() - 1) + "*",
+                good + "AA",
+                good.substring(1),
+                "",
+                "not a cursor"}) {
+            assertThrows(IllegalArgumentException.class, () -> AccountPage.decodeCursor(cursor), cursor);
+        }
+
+        Bank bank = new Bank();
+        bank.createAccount("Holder", "Savings");
+        assertThrows(IllegalArgumentException.class, () -> bank.listAccounts(cursor(1, -1), PAGE_SIZE));
+    }
+
+    private static String cursor(int version, int nextId) {
+        byte[] bytes = ByteBuffer.allocate(5).put((byte) version).putInt(nextId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
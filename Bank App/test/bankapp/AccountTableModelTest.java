@@ -0,0 +1,27 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountTableModelTest {
+    private static final AccountNumberFormat CUSTOM = new AccountNumberFormat("CUS", 6, 9);
+    private static final int FIRST_ID = 100_000;
+
+    @Test
+    void listsTheAccountsOfABankWithACustomNumberFormatOnce() {
+        Bank bank = new Bank(new HashAccountStore(), new AccountIdAllocator(CUSTOM, FIRST_ID, 64, null));
+        String first = bank.createAccount("Ada Lovelace", "Savings");
+        String second = bank.createAccount("Alan Turing", "Checking");
+        AccountTableModel model = new AccountTableModel(bank);
+
+        model.addExistingAccounts();
+        model.addExistingAccounts();
+        model.refresh();
+
+        assertEquals(2, model.getRowCount());
+        assertEquals(first, model.getValueAt(0, 0));
+        assertEquals(second, model.getValueAt(1, 0));
+        assertEquals("Checking", model.getValueAt(1, 2));
+    }
+}
@@ -0,0 +1,76 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceAggregatesTest {
+    private static final long RUN_NANOS = 500_000_000L;
+    private static final long AMOUNT = 100;
+
+    @Test
+    void moneyHandedBetweenThreadsNeverAppearsOrVanishesInASnapshot() throws Exception {
+        BalanceAggregates aggregates = new BalanceAggregates();
+        aggregates.accountOpened("Savings", 0);
+        aggregates.accountOpened("Checking", 0);
+
+        // One thread deposits, then the other withdraws what it deposited: at every instant the
+        // total is either 0 or AMOUNT
+        AtomicInteger turn = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread depositor = new Thread(() -> {
+            while (!stop.get()) {
+                if (turn.get() == 0) {
+                    aggregates.balanceChanged("Savings", AMOUNT);
+                    turn.set(1);
+                }
+            }
+        });
+        Thread withdrawer = new Thread(() -> {
+            while (!stop.get()) {
+                if (turn.get() == 1) {
+                    aggregates.balanceChanged("Checking", -AMOUNT);
+                    turn.set(0);
+                }
+            }
+        });
+        depositor.start();
+        withdrawer.start();
+
+        long snapshots = 0;
+        long deadline = System.nanoTime() + RUN_NANOS;
+        while (System.nanoTime() < deadline) {
+            AggregateSnapshot snapshot = aggregates.snapshot();
+            long total = snapshot.getTotalBalanceCents();
+            assertTrue(total == 0 || total == AMOUNT, "total " + total);
+            assertEquals(total, snapshot.getBalanceCents("Savings") + snapshot.getBalanceCents("Checking"));
+            assertEquals(2, snapshot.getAccountCount());
+            snapshots++;
+        }
+        stop.set(true);
+        depositor.join();
+        withdrawer.join();
+        assertTrue(snapshots > 0);
+    }
+
+    @Test
+    void typesAreCountedCaseInsensitivelyAndAddUpToTheTotal() {
+        BalanceAggregates aggregates = new BalanceAggregates();
+        aggregates.accountOpened("Savings", 1_000);
+        aggregates.accountOpened(" savings", 500);
+        aggregates.accountOpened("Checking", 200);
+        aggregates.moved("Savings", "Checking", 300);
+        aggregates.balanceChanged("CHECKING", -50);
+
+        AggregateSnapshot snapshot = aggregates.snapshot();
+        assertEquals(3, snapshot.getAccountCount());
+        assertEquals(1_650, snapshot.getTotalBalanceCents());
+        assertEquals(2, snapshot.getAccountCount("savings"));
+        assertEquals(1_200, snapshot.getBalanceCents("Savings"));
+        assertEquals(450, snapshot.getBalanceCents("Checking"));
+    }
+}
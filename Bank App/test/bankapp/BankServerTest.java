@@ -0,0 +1,57 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BankServerTest {
+    private static final int REQUESTS = 800;
+
+    @Test
+    void halfClosedClientGetsEveryResponseBeforeTheConnectionCloses() throws IOException {
+        Bank bank = new Bank();
+        try (BankServer server = new BankServer(bank, new InetSocketAddress("127.0.0.1", 0), 1, 2);
+             Socket socket = new Socket()) {
+            server.start();
+            socket.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+            socket.setSoTimeout(10_000);
+
+            // Pipeline every request, then shut down our side before reading a single answer
+            ByteBuffer requests = ByteBuffer.allocate(REQUESTS * 64);
+            for (int i = 0; i < REQUESTS; i++) {
+                int start = requests.position();
+                requests.putInt(0).put(BankProtocol.CREATE).putInt(i);
+                BankProtocol.putString(requests, holder(i));
+                BankProtocol.putString(requests, "Savings");
+                requests.putInt(start, requests.position() - start - Integer.BYTES);
+            }
+            socket.getOutputStream().write(requests.array(), 0, requests.position());
+            socket.shutdownOutput();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < REQUESTS; i++) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                ByteBuffer response = ByteBuffer.wrap(frame);
+                assertEquals(i, response.getInt());
+                assertEquals(LedgerEvent.Status.APPLIED, BankProtocol.status(response.get()));
+                assertEquals(holder(i), bank.findAccount(BankProtocol.getString(response)).getAccountHolderName());
+            }
+            assertThrows(EOFException.class, in::readInt); // then the server closes its side too
+        }
+        assertEquals(REQUESTS, bank.getAccountCount());
+    }
+
+    // Holder names may only hold letters, so spell i out in them
+    private static String holder(int i) {
+        return "Holder " + (char) ('A' + i / 26 % 26) + (char) ('a' + i % 26);
+    }
+}
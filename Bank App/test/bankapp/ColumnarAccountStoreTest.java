@@ -0,0 +1,82 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarAccountStoreTest {
+    private static final AccountNumberFormat CUSTOM = new AccountNumberFormat("CUS", 6, 9);
+    private static final int FIRST_ID = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void viewsCarryTheSlotIdInACustomFormat() {
+        Bank bank = new Bank(new ColumnarAccountStore(CUSTOM, FIRST_ID), new AccountIdAllocator(CUSTOM, FIRST_ID, 64, null));
+        String number = bank.createAccount("Ada Lovelace", "Savings");
+        BankAccount account = bank.findAccount(number);
+
+        assertTrue(number.startsWith("CUS"));
+        assertEquals(CUSTOM.parse(number), account.getId());
+        bank.forEachAccount(visited -> assertEquals(CUSTOM.parse(visited.getAccountNumber()), visited.getId()));
+    }
+
+    @Test
+    void customFormatBankReopensFromJournalAndSnapshot() throws IOException {
+        Bank bank = openBank();
+        String first = bank.createAccount("Ada Lovelace", "Savings");
+        String second = bank.createAccount("Alan Turing", "Checking");
+        assertTrue(bank.findAccount(first).deposit(10_000));
+        assertTrue(bank.findAccount(first).transfer(bank.findAccount(second), 2_500));
+        bank.close();
+
+        bank = openBank();
+        assertEquals(7_500, bank.findAccount(first).getBalanceCents());
+        assertEquals(2_500, bank.findAccount(second).getBalanceCents());
+        bank.snapshot();
+        assertTrue(bank.findAccount(second).withdraw(500));
+        String third = bank.createAccount("Grace Hopper", "Savings");
+        bank.close();
+
+        bank = openBank();
+        assertEquals(7_500, bank.findAccount(first).getBalanceCents());
+        assertEquals(2_000, bank.findAccount(second).getBalanceCents());
+        BankAccount reopened = bank.findAccount(third);
+        assertNotNull(reopened);
+        assertEquals(CUSTOM.parse(third), reopened.getId());
+        bank.close();
+    }
+
+    @Test
+    void aSingleHighIdOnlyAllocatesTheChunkItIsIn() {
+        ColumnarAccountStore store = new ColumnarAccountStore();
+        store.create(Bank.FIRST_ACCOUNT_ID, "ACC1001", "Ada Lovelace", "Savings");
+        store.restore(999_999_999, "ACC999999999", "Alan Turing", "Checking", 5_000);
+
+        assertEquals(2, store.size());
+        assertEquals(5_000, store.find("ACC999999999").getBalanceCents());
+        assertNull(store.find("ACC999999998"));
+        assertNull(store.find("ACC500000000"));
+        List<String> visited = new ArrayList<>();
+        store.forEach(account -> visited.add(account.getAccountNumber()));
+        assertEquals(List.of("ACC1001", "ACC999999999"), visited);
+        visited.clear();
+        store.forEachFrom(2_000, account -> visited.add(account.getAccountNumber()));
+        assertEquals(List.of("ACC999999999"), visited);
+    }
+
+    private Bank openBank() throws IOException {
+        return Bank.open(directory, DurabilityMode.SYNC, new ColumnarAccountStore(CUSTOM, FIRST_ID),
+                new AccountIdAllocator(CUSTOM, FIRST_ID, 64, null));
+    }
+}
@@ -0,0 +1,95 @@
+package bankapp;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentReadTest {
+    private static final int ACCOUNTS = 5_000;
+    private static final long OPENING_BALANCE = 10_000;
+    private static final int TRANSFER_THREADS = 3;
+    private static final long RUN_NANOS = 1_000_000_000L;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"hash", "columnar"})
+    void everyScanSeesTheConservedTotalWhileTransfersRun(String store) throws Exception {
+        Bank bank = new Bank(store.equals("hash") ? new HashAccountStore() : new ColumnarAccountStore());
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            BankAccount account = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            assertTrue(account.deposit(OPENING_BALANCE));
+            accounts.add(account);
+        }
+        long conserved = ACCOUNTS * OPENING_BALANCE;
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < TRANSFER_THREADS; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        BankAccount from = accounts.get(random.nextInt(ACCOUNTS));
+                        BankAccount to = accounts.get(random.nextInt(ACCOUNTS));
+                        if (from != to) {
+                            from.transfer(to, 1 + random.nextInt(500));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        // Accounts opened mid-scan start empty, so they never change the total
+        threads.add(new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    bank.createAccount("Newcomer", "Checking");
+                    Thread.yield();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }));
+        threads.forEach(Thread::start);
+
+        int scans = 0;
+        long deadline = System.nanoTime() + RUN_NANOS;
+        while (System.nanoTime() < deadline) {
+            long[] visited = {0, 0, -1}; // accounts, sum of balances, last id
+            long total = bank.scanConsistent((account, balance) -> {
+                assertTrue(account.getId() > visited[2], "ids out of order");
+                visited[0]++;
+                visited[1] += balance;
+                visited[2] = account.getId();
+                if (visited[0] % 256 == 0) {
+                    Thread.yield(); // let the writers get ahead of and behind the scan
+                }
+            });
+            assertEquals(conserved, total);
+            assertEquals(conserved, visited[1]);
+            assertTrue(visited[0] >= ACCOUNTS);
+            scans++;
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(scans > 0);
+
+        long[] after = {0};
+        assertEquals(conserved, bank.scanConsistent((account, balance) -> after[0] += account.getBalanceCents()));
+        assertEquals(conserved, after[0]);
+    }
+}
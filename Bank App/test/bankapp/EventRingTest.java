@@ -0,0 +1,51 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EventRingTest {
+    private static final int CAPACITY = 4;
+
+    @Test
+    void closeDeliversEverythingPublishedBeforeIt() {
+        List<Long> amounts = new ArrayList<>();
+        EventRing ring = new EventRing(CAPACITY, (event, sequence, endOfBatch) -> amounts.add(event.amount));
+        for (long amount = 1; amount <= 10 * CAPACITY; amount++) {
+            deposit(ring, amount);
+        }
+        ring.close();
+
+        assertEquals(10 * CAPACITY, amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            assertEquals(i + 1L, amounts.get(i));
+        }
+    }
+
+    @Test
+    void publishingToAClosedRingDropsTheEventsInsteadOfWaiting() throws InterruptedException {
+        List<Long> amounts = new ArrayList<>();
+        EventRing ring = new EventRing(CAPACITY, (event, sequence, endOfBatch) -> amounts.add(event.amount));
+        deposit(ring, 1);
+        ring.close();
+
+        // Well past a full ring: each of these would wait for a consumer that is gone
+        Thread late = new Thread(() -> {
+            for (long amount = 2; amount <= 10 * CAPACITY; amount++) {
+                deposit(ring, amount);
+            }
+        });
+        late.start();
+        late.join(10_000);
+        assertFalse(late.isAlive(), "publisher blocked on a closed ring");
+        assertEquals(List.of(1L), amounts);
+    }
+
+    private static void deposit(EventRing ring, long amount) {
+        ring.publish(LedgerEvent.Type.DEPOSIT, LedgerEvent.Status.APPLIED, 1001, 0, amount, amount, 0, null, null);
+    }
+}
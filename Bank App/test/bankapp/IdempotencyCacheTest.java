@@ -0,0 +1,48 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void fingerprintsTellApartStringsWithEqualHashCodes() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals("AaAa".hashCode(), "BBBB".hashCode());
+
+        assertNotEquals(IdempotencyCache.fingerprint("Aa", "Savings"), IdempotencyCache.fingerprint("BB", "Savings"));
+        assertNotEquals(IdempotencyCache.fingerprint("Holder", "AaAa"), IdempotencyCache.fingerprint("Holder", "BBBB"));
+        assertNotEquals(IdempotencyCache.fingerprint("ab", "c"), IdempotencyCache.fingerprint("a", "bc"));
+        assertEquals(IdempotencyCache.fingerprint("Holder", "Savings"), IdempotencyCache.fingerprint("Holder", "Savings"));
+    }
+
+    @Test
+    void createRetriedWithACollidingHolderNameIsAReusedKey() {
+        Bank bank = new Bank();
+        bank.setIdempotencyCache(new IdempotencyCache(1 << 20, 1, TimeUnit.MINUTES));
+        assertEquals("AaAa Smith".hashCode(), "BBBB Smith".hashCode());
+
+        String number = bank.createAccount("AaAa Smith", "Savings", "open-1");
+        assertEquals(number, bank.createAccount("AaAa Smith", "Savings", "open-1"));
+        assertThrows(IdempotencyCache.KeyReusedException.class, () -> bank.createAccount("BBBB Smith", "Savings", "open-1"));
+        assertEquals(1, bank.getAccountCount());
+    }
+
+    @Test
+    void retriedDepositIsAppliedOnce() {
+        Bank bank = new Bank();
+        bank.setIdempotencyCache(new IdempotencyCache(1 << 20, 1, TimeUnit.MINUTES));
+        BankAccount account = bank.findAccount(bank.createAccount("Ada Lovelace", "Savings"));
+
+        assertTrue(account.deposit(1_000, "deposit-1"));
+        assertTrue(account.deposit(1_000, "deposit-1"));
+        assertThrows(IdempotencyCache.KeyReusedException.class, () -> account.deposit(2_000, "deposit-1"));
+        assertEquals(1_000, account.getBalanceCents());
+    }
+}
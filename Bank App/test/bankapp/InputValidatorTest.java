@@ -0,0 +1,168 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputValidatorTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"Ada Lovelace", "Jean-Luc", "O'Brien", "Al", "  Ada  ", "Ada\tLovelace", "Ada\nLovelace", "Ada\u000BByron"})
+    void acceptsNamesOfLettersSpacesHyphensAndApostrophes(String name) {
+        assertSame(InputValidator.VALID_NAME, InputValidator.validateAccountHolderName(name));
+    }
+
+    @Test
+    void rejectsEachKindOfBadName() {
+        assertSame(InputValidator.EMPTY_NAME, InputValidator.validateAccountHolderName(null));
+        assertSame(InputValidator.EMPTY_NAME, InputValidator.validateAccountHolderName(""));
+        assertSame(InputValidator.EMPTY_NAME, InputValidator.validateAccountHolderName(" \t\r\n"));
+        assertSame(InputValidator.SHORT_NAME, InputValidator.validateAccountHolderName("  A  "));
+        assertSame(InputValidator.VALID_NAME, InputValidator.validateAccountHolderName("A".repeat(50)));
+        assertSame(InputValidator.LONG_NAME, InputValidator.validateAccountHolderName("A".repeat(51)));
+        assertSame(InputValidator.VALID_NAME, InputValidator.validateAccountHolderName("  " + "A".repeat(50) + "  "));
+        for (String name : new String[]{"Ada2", "Ada.Byron", "Ada_Byron", "Zo\u00EB", "Ada\u0000", "Ada\u00A0Byron", "Ada,"}) {
+            assertSame(InputValidator.BAD_NAME_CHARACTERS, InputValidator.validateAccountHolderName(name), name);
+        }
+    }
+
+    @Test
+    void namesAreJudgedExactlyAsTheFormerRegexChecksDid() {
+        // Characters around every boundary of the old checks: trim() cuts at <= ' ', \s is [ \t\n\x0B\f\r]
+        char[] alphabet = {'a', 'Z', ' ', '\t', '\n', '\u000B', '\f', '\r', '\u0000', '\u001F', '-', '\'', '.', '0', '@', '[', '`', '{'};
+        SplittableRandom random = new SplittableRandom(7);
+        for (int n = 0; n < 50_000; n++) {
+            char[] name = new char[random.nextInt(56)];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(name);
+            assertEquals(regexNameMessage(text), InputValidator.validateAccountHolderName(text).getMessage(), text);
+        }
+    }
+
+    @Test
+    void acceptsTheThreeAccountTypesInAnyCase() {
+        for (String type : new String[]{"Savings", "CHECKING", "current", " Savings ", "\tcUrReNt\n"}) {
+            assertSame(InputValidator.VALID_ACCOUNT_TYPE, InputValidator.validateAccountType(type), type);
+        }
+        assertSame(InputValidator.EMPTY_ACCOUNT_TYPE, InputValidator.validateAccountType(null));
+        assertSame(InputValidator.EMPTY_ACCOUNT_TYPE, InputValidator.validateAccountType("   "));
+        for (String type : new String[]{"Saving", "Savingss", "Business", "Sav ings", "savings!"}) {
+            assertSame(InputValidator.UNKNOWN_ACCOUNT_TYPE, InputValidator.validateAccountType(type), type);
+        }
+    }
+
+    @Test
+    void checksAmountsInCentsAndAsText() {
+        assertSame(InputValidator.VALID_AMOUNT, InputValidator.validateAmount(1));
+        assertSame(InputValidator.VALID_AMOUNT, InputValidator.validateAmount(InputValidator.MAX_TRANSACTION_CENTS));
+        assertSame(InputValidator.EXCESSIVE_AMOUNT, InputValidator.validateAmount(InputValidator.MAX_TRANSACTION_CENTS + 1));
+        assertSame(InputValidator.ZERO_AMOUNT, InputValidator.validateAmount(0));
+        assertSame(InputValidator.NEGATIVE_AMOUNT, InputValidator.validateAmount(-1));
+
+        assertSame(InputValidator.VALID_AMOUNT, InputValidator.validateAmount(" $1,000,000.00 "));
+        assertSame(InputValidator.EXCESSIVE_AMOUNT, InputValidator.validateAmount("1000000.01"));
+        assertSame(InputValidator.EXCESSIVE_AMOUNT, InputValidator.validateAmount("99999999999999999999"));
+        assertSame(InputValidator.IMPRECISE_AMOUNT, InputValidator.validateAmount("12.505"));
+        assertSame(InputValidator.NEGATIVE_AMOUNT, InputValidator.validateAmount("-5"));
+        assertSame(InputValidator.ZERO_AMOUNT, InputValidator.validateAmount("0.00"));
+        for (String text : new String[]{null, "", "  ", "abc", "12,34", "1.2.3", "$"}) {
+            assertSame(InputValidator.MALFORMED_AMOUNT, InputValidator.validateAmount(text), text);
+        }
+    }
+
+    @Test
+    void checksAccountNumbersAndTransfers() {
+        for (String number : new String[]{"ACC1001", "ACC123456789"}) {
+            assertSame(InputValidator.VALID_ACCOUNT_NUMBER, InputValidator.validateAccountNumber(number), number);
+        }
+        assertSame(InputValidator.EMPTY_ACCOUNT_NUMBER, InputValidator.validateAccountNumber(null));
+        assertSame(InputValidator.EMPTY_ACCOUNT_NUMBER, InputValidator.validateAccountNumber(" \t "));
+        for (String number : new String[]{"ACC123", "ACC1234567890", "acc1001", "ACC0123", "ACC10a1", "AC1001", " ACC1001"}) {
+            assertSame(InputValidator.BAD_ACCOUNT_NUMBER, InputValidator.validateAccountNumber(number), number);
+        }
+        AccountNumberFormat custom = new AccountNumberFormat("S", 1, 2);
+        assertTrue(InputValidator.validateAccountNumber("S42", custom).isValid());
+        assertEquals("Account number must be " + custom.describe() + "!",
+                InputValidator.validateAccountNumber("S420", custom).getMessage());
+
+        assertSame(InputValidator.VALID_TRANSFER, InputValidator.validateTransfer("ACC1001", "ACC1002"));
+        assertSame(InputValidator.SAME_TRANSFER_ACCOUNTS, InputValidator.validateTransfer("ACC1001", "ACC1001"));
+        assertEquals("Source account: " + InputValidator.EMPTY_ACCOUNT_NUMBER.getMessage(),
+                InputValidator.validateTransfer("", "ACC1002").getMessage());
+        assertEquals("Source account: " + InputValidator.BAD_ACCOUNT_NUMBER.getMessage(),
+                InputValidator.validateTransfer("ACC1", "ACC1002").getMessage());
+        assertEquals("Target account: " + InputValidator.EMPTY_ACCOUNT_NUMBER.getMessage(),
+                InputValidator.validateTransfer("ACC1001", null).getMessage());
+        assertEquals("Target account: " + InputValidator.BAD_ACCOUNT_NUMBER.getMessage(),
+                InputValidator.validateTransfer("ACC1001", "X").getMessage());
+        assertFalse(InputValidator.validateTransfer("ACC1", "ACC1").isValid());
+    }
+
+    @Test
+    void batchChecksGiveEachEntryTheSingleResult() {
+        String[] names = {"Ada", "", "A", "Ada2", null};
+        ValidationResult[] results = new ValidationResult[names.length];
+        assertEquals(4, InputValidator.validateAccountHolderNames(names, results));
+        for (int i = 0; i < names.length; i++) {
+            assertSame(InputValidator.validateAccountHolderName(names[i]), results[i]);
+        }
+
+        String[] numbers = {"ACC1001", "ACC1", "", "ACC99999"};
+        results = new ValidationResult[numbers.length];
+        assertEquals(2, InputValidator.validateAccountNumbers(numbers, results));
+        for (int i = 0; i < numbers.length; i++) {
+            assertSame(InputValidator.validateAccountNumber(numbers[i]), results[i]);
+        }
+
+        long[] amounts = {1, 0, -1, InputValidator.MAX_TRANSACTION_CENTS + 1, 500};
+        results = new ValidationResult[amounts.length];
+        assertEquals(3, InputValidator.validateAmounts(amounts, results));
+        for (int i = 0; i < amounts.length; i++) {
+            assertSame(InputValidator.validateAmount(amounts[i]), results[i]);
+        }
+
+        // The first failing check of a row wins: a bad name hides a bad type
+        String[] holders = {"Ada", "A", "Ada", "Ada2"};
+        String[] types = {"Savings", "Savings", "Business", "Business"};
+        results = new ValidationResult[holders.length];
+        assertEquals(3, InputValidator.validateNewAccounts(holders, types, results));
+        assertSame(InputValidator.VALID_ACCOUNT_TYPE, results[0]);
+        assertSame(InputValidator.SHORT_NAME, results[1]);
+        assertSame(InputValidator.UNKNOWN_ACCOUNT_TYPE, results[2]);
+        assertSame(InputValidator.BAD_NAME_CHARACTERS, results[3]);
+
+        List<String> rejected = new ArrayList<>();
+        long valid = InputValidator.validateAll(List.of("Ada", "x", "Grace", "B0b").iterator(),
+                InputValidator::validateAccountHolderName, (name, result) -> rejected.add(name));
+        assertEquals(2, valid);
+        assertEquals(List.of("x", "B0b"), rejected);
+        assertEquals(1, InputValidator.validateAll(List.of("Ada", "x").iterator(), InputValidator::validateAccountHolderName, null));
+    }
+
+    // The name check as it was written before the scanners, for comparison
+    private static String regexNameMessage(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return InputValidator.EMPTY_NAME.getMessage();
+        }
+        if (name.trim().length() < 2) {
+            return InputValidator.SHORT_NAME.getMessage();
+        }
+        if (name.trim().length() > 50) {
+            return InputValidator.LONG_NAME.getMessage();
+        }
+        if (!name.matches("^[a-zA-Z\\s\\-']+$")) {
+            return InputValidator.BAD_NAME_CHARACTERS.getMessage();
+        }
+        return InputValidator.VALID_NAME.getMessage();
+    }
+}
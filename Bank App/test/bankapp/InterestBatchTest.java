@@ -0,0 +1,154 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterestBatchTest {
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2026, 10, 16);
+    private static final int ACCOUNTS = 200;
+    private static final long OPENING_BALANCE = 1_000_000;
+    private static final int ANNUAL_BASIS_POINTS = 3650; // 1,000 cents a day on the opening balance
+    private static final long DAILY_INTEREST = 1_000;
+    private static final int FAIL_AFTER = 100; // partway through the third partition of 64 ids
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumedRunPostsOnceAfterASnapshot() throws Exception {
+        FailingStore store = new FailingStore();
+        Bank bank = Bank.open(directory, DurabilityMode.ASYNC, store);
+        List<String> numbers = openAccounts(bank);
+
+        failPartway(bank, store);
+        bank.snapshot();
+
+        InterestBatch.Result result = batch(bank).run(BUSINESS_DATE);
+        assertTrue(result.partitionsResumed > 0 && result.partitionsResumed < result.partitions);
+        assertPostedOnce(bank, numbers);
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.ASYNC);
+        assertPostedOnce(reopened, numbers);
+        reopened.close();
+    }
+
+    @Test
+    void runResumedAfterReopeningFromASnapshotPostsOnce() throws Exception {
+        FailingStore store = new FailingStore();
+        Bank bank = Bank.open(directory, DurabilityMode.ASYNC, store);
+        List<String> numbers = openAccounts(bank);
+
+        failPartway(bank, store);
+        bank.snapshot();
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.ASYNC);
+        batch(reopened).run(BUSINESS_DATE);
+        assertPostedOnce(reopened, numbers);
+        reopened.snapshot(); // the run is complete, nothing is carried over
+        reopened.close();
+
+        Bank again = Bank.open(directory, DurabilityMode.ASYNC);
+        assertTrue(batch(again).run(BUSINESS_DATE).alreadyComplete);
+        assertPostedOnce(again, numbers);
+        again.close();
+    }
+
+    @Test
+    void accountsOpenedAfterTheCutOffAreLeftAlone() throws Exception {
+        FailingStore store = new FailingStore();
+        Bank bank = new Bank(store);
+        // One teller thread opens every account, so the late ones come from the block it leased before the cut-off
+        ExecutorService teller = Executors.newSingleThreadExecutor();
+        try {
+            List<String> numbers = teller.submit(() -> openAccounts(bank)).get();
+            String[] late = new String[2];
+            store.onFirstVisit = () -> {
+                try {
+                    late[0] = teller.submit(() -> bank.createAccount("Late", "Savings")).get();
+                    late[1] = "ACC1250"; // free, below the end of the block the teller leased
+                    assertTrue(teller.submit(() -> bank.importAccount(late[1], "Imported", "Savings", OPENING_BALANCE)).get() >= 0);
+                    assertTrue(bank.findAccount(late[0]).deposit(OPENING_BALANCE));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+
+            InterestBatch.Result result = batch(bank).run(BUSINESS_DATE);
+            for (String number : late) {
+                assertTrue(AccountNumberFormat.DEFAULT.parse(number) < bank.accountIdLimit() - 1, number);
+                assertEquals(OPENING_BALANCE, bank.findAccount(number).getBalanceCents(), number);
+            }
+            assertEquals(2, result.getAccountsOpenedLater());
+            assertEquals(ACCOUNTS, result.getAccountsPosted());
+            assertPostedOnce(bank, numbers);
+        } finally {
+            teller.shutdown();
+        }
+    }
+
+    private static List<String> openAccounts(Bank bank) {
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String number = bank.createAccount("Holder", "Savings");
+            assertTrue(bank.findAccount(number).deposit(OPENING_BALANCE));
+            numbers.add(number);
+        }
+        return numbers;
+    }
+
+    // Run until the store fails partway through a partition, leaving postings the progress file does not cover
+    private static void failPartway(Bank bank, FailingStore store) {
+        store.visitsLeft = FAIL_AFTER;
+        assertThrows(IllegalStateException.class, () -> batch(bank).run(BUSINESS_DATE));
+        store.visitsLeft = -1;
+    }
+
+    private static InterestBatch batch(Bank bank) {
+        InterestBatch batch = new InterestBatch(bank);
+        batch.setRate("Savings", ANNUAL_BASIS_POINTS, 0);
+        batch.setThreads(1);
+        batch.setPartitionSize(64);
+        return batch;
+    }
+
+    private static void assertPostedOnce(Bank bank, List<String> numbers) {
+        for (String number : numbers) {
+            assertEquals(OPENING_BALANCE + DAILY_INTEREST, bank.findAccount(number).getBalanceCents(), number);
+        }
+    }
+
+    // Fails a walk from an id once a number of accounts have been visited, or runs a step on the first visit
+    private static final class FailingStore extends HashAccountStore {
+        volatile int visitsLeft = -1; // negative to never fail
+        volatile Runnable onFirstVisit;
+
+        @Override
+        public void forEachFrom(int fromId, Predicate<BankAccount> action) {
+            super.forEachFrom(fromId, account -> {
+                Runnable step = onFirstVisit;
+                if (step != null) {
+                    onFirstVisit = null;
+                    step.run();
+                }
+                if (visitsLeft >= 0 && visitsLeft-- == 0) {
+                    throw new IllegalStateException("Store failed");
+                }
+                return action.test(account);
+            });
+        }
+    }
+}
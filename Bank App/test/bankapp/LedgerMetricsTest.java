@@ -0,0 +1,132 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerMetricsTest {
+    private static final LedgerMetrics.Operation DEPOSIT = LedgerMetrics.Operation.DEPOSIT;
+    private static final LedgerMetrics.Operation WITHDRAW = LedgerMetrics.Operation.WITHDRAW;
+
+    @Test
+    void smallValuesHaveABucketEachAndLargerOnesSixteenPerPowerOfTwo() {
+        assertEquals(0, LedgerMetrics.bucket(-5));
+        assertEquals(0, LedgerMetrics.bucket(0));
+        assertEquals(31, LedgerMetrics.bucket(31));
+        assertEquals(31, LedgerMetrics.bucketLimit(31));
+        assertEquals(32, LedgerMetrics.bucket(32)); // the first bucket two values wide
+        assertEquals(32, LedgerMetrics.bucket(33));
+        assertEquals(33, LedgerMetrics.bucketLimit(32));
+        assertEquals(33, LedgerMetrics.bucket(34));
+        assertEquals(47, LedgerMetrics.bucket(63));
+        assertEquals(63, LedgerMetrics.bucketLimit(47));
+        for (int magnitude = 5; magnitude <= LedgerMetrics.MAX_MAGNITUDE; magnitude++) {
+            long power = 1L << magnitude;
+            assertEquals(LedgerMetrics.bucket(power - 1) + 1, LedgerMetrics.bucket(power), "2^" + magnitude);
+            assertEquals(power - 1, LedgerMetrics.bucketLimit(LedgerMetrics.bucket(power - 1)), "2^" + magnitude);
+        }
+    }
+
+    @Test
+    void valuesPastTheLastMagnitudeShareTheLastBucket() {
+        int last = LedgerMetrics.BUCKETS - 1;
+        long top = 1L << (LedgerMetrics.MAX_MAGNITUDE + 1);
+        assertEquals(last, LedgerMetrics.bucket(top - 1));
+        assertEquals(top - 1, LedgerMetrics.bucketLimit(last));
+        assertEquals(last, LedgerMetrics.bucket(top));
+        assertEquals(last, LedgerMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void everyValueIsReportedAtOrAtMostSixteenthAboveItself() {
+        long top = 1L << (LedgerMetrics.MAX_MAGNITUDE + 1);
+        for (long value = 0; value < 100_000; value++) {
+            checkLimit(value);
+        }
+        for (long value = 100_000; value > 0 && value < top; value += value / 7 + 1) {
+            checkLimit(value - 1);
+            checkLimit(value);
+            checkLimit(value + 1);
+        }
+    }
+
+    @Test
+    void percentilesAreTheUpperEdgeOfTheirBucketCappedAtTheMaximum() {
+        long[] cells = new long[LedgerMetrics.Operation.values().length * LedgerMetrics.STRIDE];
+        int base = DEPOSIT.ordinal() * LedgerMetrics.STRIDE;
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            cells[base + LedgerMetrics.FIRST_BUCKET + LedgerMetrics.bucket(nanos)]++;
+            cells[base + LedgerMetrics.TIMED_SUM] += nanos;
+        }
+        cells[base + LedgerMetrics.TIMED] = 100;
+        cells[base + LedgerMetrics.MAX] = 100;
+        MetricsSnapshot snapshot = new MetricsSnapshot(cells);
+
+        assertEquals(1, snapshot.getLatencyNanos(DEPOSIT, 0));
+        assertEquals(1, snapshot.getLatencyNanos(DEPOSIT, 1));
+        assertEquals(31, snapshot.getLatencyNanos(DEPOSIT, 31));
+        assertEquals(51, snapshot.getLatencyNanos(DEPOSIT, 50)); // 50 shares a bucket with 51
+        assertEquals(91, snapshot.getLatencyNanos(DEPOSIT, 90)); // 88 to 91
+        assertEquals(99, snapshot.getLatencyNanos(DEPOSIT, 99)); // 96 to 99
+        assertEquals(100, snapshot.getLatencyNanos(DEPOSIT, 99.9)); // 100 to 103, capped at the maximum
+        assertEquals(100, snapshot.getLatencyNanos(DEPOSIT, 100));
+        assertEquals(50.5, snapshot.getMeanLatencyNanos(DEPOSIT));
+        assertEquals(0, snapshot.getLatencyNanos(WITHDRAW, 50)); // nothing timed
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getLatencyNanos(DEPOSIT, 100.1));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getLatencyNanos(DEPOSIT, -1));
+
+        StringBuilder text = new StringBuilder();
+        snapshot.writeText(text);
+        assertTrue(text.indexOf("bank_operation_latency_nanoseconds{operation=\"deposit\",quantile=\"0.5\"} 51\n") >= 0, text.toString());
+        assertTrue(text.indexOf("bank_operation_latency_nanoseconds{operation=\"deposit\",quantile=\"0.999\"} 100\n") >= 0);
+        assertTrue(text.indexOf("bank_operation_latency_nanoseconds_sum{operation=\"deposit\"} 5050\n") >= 0);
+        assertTrue(text.indexOf("bank_operation_latency_nanoseconds_count{operation=\"deposit\"} 100\n") >= 0);
+        assertTrue(text.indexOf("bank_operation_latency_max_nanoseconds{operation=\"deposit\"} 100\n") >= 0);
+    }
+
+    @Test
+    void depositsAndWithdrawalsAreCountedByOutcome() {
+        Bank bank = new Bank();
+        LedgerMetrics metrics = new LedgerMetrics(1); // time every operation
+        bank.setMetrics(metrics);
+        BankAccount account = bank.findAccount(bank.createAccount("Ada Lovelace", "Savings"));
+        assertTrue(account.deposit(100));
+        assertTrue(account.deposit(200));
+        assertFalse(account.deposit(-1));
+        assertFalse(account.withdraw(500));
+        assertTrue(account.withdraw(50));
+        assertFalse(account.withdraw(0));
+        assertThrows(ArithmeticException.class, () -> account.deposit(Long.MAX_VALUE));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCount(DEPOSIT, LedgerEvent.Status.APPLIED));
+        assertEquals(1, snapshot.getCount(DEPOSIT, LedgerEvent.Status.INVALID_AMOUNT));
+        assertEquals(1, snapshot.getErrors(DEPOSIT));
+        assertEquals(4, snapshot.getCount(DEPOSIT));
+        assertEquals(4, snapshot.getTimedCount(DEPOSIT));
+        assertEquals(1, snapshot.getCount(WITHDRAW, LedgerEvent.Status.APPLIED));
+        assertEquals(1, snapshot.getCount(WITHDRAW, LedgerEvent.Status.INSUFFICIENT_FUNDS));
+        assertEquals(1, snapshot.getCount(WITHDRAW, LedgerEvent.Status.INVALID_AMOUNT));
+        assertEquals(3, snapshot.getCount(WITHDRAW));
+        assertEquals(1, snapshot.getCount(LedgerMetrics.Operation.CREATE_ACCOUNT));
+        assertTrue(snapshot.getLatencyNanos(WITHDRAW, 50) <= snapshot.getMaxLatencyNanos(WITHDRAW));
+
+        StringBuilder text = new StringBuilder();
+        snapshot.writeText(text);
+        assertTrue(text.indexOf("bank_operations_total{operation=\"deposit\",status=\"applied\"} 2\n") >= 0, text.toString());
+        assertTrue(text.indexOf("bank_operations_total{operation=\"deposit\",status=\"invalid_amount\"} 1\n") >= 0);
+        assertTrue(text.indexOf("bank_operations_total{operation=\"withdraw\",status=\"insufficient_funds\"} 1\n") >= 0);
+        assertTrue(text.indexOf("bank_operations_total{operation=\"transfer\",status=\"applied\"} 0\n") >= 0);
+        assertTrue(text.indexOf("operation=\"transfer\",status=\"insufficient_funds\"") < 0); // zero counts are left out
+        assertTrue(text.indexOf("bank_operation_errors_total{operation=\"deposit\"} 1\n") >= 0);
+    }
+
+    private static void checkLimit(long value) {
+        long limit = LedgerMetrics.bucketLimit(LedgerMetrics.bucket(value));
+        assertTrue(limit >= value, value + " reported as " + limit);
+        assertTrue(limit - value <= value / 16, value + " reported as " + limit);
+    }
+}
@@ -0,0 +1,89 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MainTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void settlesEveryLineInFileOrder() throws Exception {
+        Bank bank = new Bank();
+        String first = bank.createAccount("Ada Lovelace", "Savings");
+        String second = bank.createAccount("Alan Turing", "Checking");
+        Path file = write("# opening\n"
+                + "D," + first + ",100.00\n"
+                + "W," + first + ",150.00\n"
+                + "T," + first + "," + second + ",40.50\r\n"
+                + "\n"
+                + "D,ACC999999,1.00\n"
+                + "D," + first + ",12,34\n"
+                + "X," + first + ",1.00\n"
+                + "W," + second + ",0.50");
+
+        Main.Summary summary = Main.settle(bank, file);
+        assertEquals(7, summary.lines);
+        assertEquals(1, summary.deposits);
+        assertEquals(1, summary.withdrawals);
+        assertEquals(1, summary.transfers);
+        assertEquals(1, summary.insufficientFunds);
+        assertEquals(1, summary.unknownAccount);
+        assertEquals(1, summary.invalidAmount);
+        assertEquals(1, summary.malformed);
+        assertEquals(5_950, bank.findAccount(first).getBalanceCents());
+        assertEquals(4_000, bank.findAccount(second).getBalanceCents());
+        assertEquals(9_950, summary.totalBalance);
+    }
+
+    @Test
+    void recordThatWouldOverflowABalanceIsRejectedAlone() throws Exception {
+        Bank bank = new Bank();
+        String full = bank.createAccount("Ada Lovelace", "Savings");
+        String other = bank.createAccount("Alan Turing", "Checking");
+        assertTrue(bank.findAccount(full).deposit(Long.MAX_VALUE - 100));
+        Path file = write("D," + other + ",5.00\n"
+                + "D," + full + ",1.01\n"
+                + "T," + other + "," + full + ",1.00\n"
+                + "W," + other + ",2.00");
+
+        Main.Summary summary = Main.settle(bank, file);
+        assertEquals(1, summary.deposits);
+        assertEquals(1, summary.transfers);
+        assertEquals(1, summary.withdrawals);
+        assertEquals(1, summary.balanceOverflow);
+        assertEquals(1, summary.rejected());
+        assertEquals(Long.MAX_VALUE, bank.findAccount(full).getBalanceCents());
+        assertEquals(200, bank.findAccount(other).getBalanceCents());
+    }
+
+    @Test
+    void failureWhileApplyingFailsTheRunInsteadOfHanging() throws IOException {
+        Bank bank = new Bank() {
+            @Override
+            public TransactionBatch.Result applyBatch(TransactionBatch batch, boolean atomic) {
+                throw new JournalException("Failed to write journal", new IOException("No space left on device"));
+            }
+        };
+        String account = bank.createAccount("Ada Lovelace", "Savings");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            lines.append("D,").append(account).append(",1.00\n");
+        }
+        Path file = write(lines.toString());
+
+        assertThrows(JournalException.class, () -> Main.settle(bank, file));
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("settlement.txt"), content);
+    }
+}
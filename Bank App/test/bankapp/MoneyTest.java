@@ -0,0 +1,51 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void parsesPlainAndGroupedAmountsIntoCents() {
+        assertEquals(1200, Money.parseCents("12"));
+        assertEquals(1250, Money.parseCents("12.5"));
+        assertEquals(1205, Money.parseCents(" 12.05 "));
+        assertEquals(50, Money.parseCents(".5"));
+        assertEquals(100_025, Money.parseCents("$1,000.25"));
+        assertEquals(123_456_789_00L, Money.parseCents("123,456,789"));
+        assertEquals(-1_000_000, Money.parseCents("-$10,000"));
+        assertEquals(99_999_900, Money.parseCents("999,999"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"12,34", "1,5", "1,5.00", "1,0000", "1000,000", "1,000,00", ",100", "1,", "1.00,0", "", "$", "1.2.3", "12a"})
+    void rejectsMalformedAmounts(String text) {
+        assertEquals(Money.INVALID_FORMAT, Money.tryParseCents(text, 0, text.length()));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents(text));
+    }
+
+    @Test
+    void reportsTooPreciseAndTooLargeAmounts() {
+        assertEquals(Money.TOO_PRECISE, Money.tryParseCents("1.005", 0, 5));
+        String huge = "99999999999999999999";
+        assertEquals(Money.TOO_LARGE, Money.tryParseCents(huge, 0, huge.length()));
+    }
+
+    @Test
+    void parsesOnlyTheGivenRange() {
+        String line = "ACC1001,12,345.67,x";
+        assertEquals(1_234_567, Money.tryParseCents(line, 8, 17));
+    }
+
+    @Test
+    void formatsCentsWithTwoDecimalPlaces() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("1234.56", Money.format(123_456));
+        assertEquals("-10.50", Money.format(-1_050));
+        assertEquals(Money.format(987_654_321), Money.format(Money.parseCents(Money.format(987_654_321))));
+    }
+}
@@ -0,0 +1,173 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedBankTest {
+    private static final int SHARDS = 2;
+
+    @Test
+    void crossShardTransferDebitsTheSourceAndCreditsTheTarget() {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            String source = bank.createAccount("Source", "Savings").join();
+            String target = bank.createAccount("Target", "Savings").join();
+            assertNotEquals(shard(source), shard(target));
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(source, 1_000).join());
+
+            assertEquals(LedgerEvent.Status.APPLIED, bank.transfer(source, target, 300).join());
+            assertEquals(700, bank.getBalanceCents(source).join());
+            assertEquals(300, bank.getBalanceCents(target).join());
+
+            assertEquals(LedgerEvent.Status.INSUFFICIENT_FUNDS, bank.transfer(target, source, 301).join());
+            assertEquals(LedgerEvent.Status.APPLIED, bank.transfer(target, source, 300).join());
+            assertEquals(1_000, bank.getBalanceCents(source).join());
+            assertEquals(0, bank.getBalanceCents(target).join());
+        }
+    }
+
+    @Test
+    void creditToAMissingAccountOnAnotherShardIsRefunded() {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            String source = bank.createAccount("Source", "Savings").join();
+            int sourceId = AccountNumberFormat.DEFAULT.parse(source);
+            String missing = AccountNumberFormat.DEFAULT.format(sourceId + 10_001); // never created, other shard
+            assertNotEquals(shard(source), shard(missing));
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(source, 1_000).join());
+
+            assertEquals(LedgerEvent.Status.UNKNOWN_ACCOUNT, bank.transfer(source, missing, 400).join());
+            assertEquals(1_000, bank.getBalanceCents(source).join());
+            assertNull(bank.getBalanceCents(missing).join());
+        }
+    }
+
+    @Test
+    void depositThatWouldOverflowABalanceIsRefused() {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            String account = bank.createAccount("Holder", "Savings").join();
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(account, Long.MAX_VALUE - 10).join());
+
+            assertEquals(LedgerEvent.Status.BALANCE_OVERFLOW, bank.deposit(account, 11).join());
+            assertEquals(Long.MAX_VALUE - 10, bank.getBalanceCents(account).join());
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(account, 10).join());
+            assertEquals(Long.MAX_VALUE, bank.getBalanceCents(account).join());
+        }
+    }
+
+    @Test
+    void sameShardTransferThatWouldOverflowTheTargetChangesNothing() {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            String target = bank.createAccount("Target", "Savings").join();
+            bank.createAccount("Between", "Savings").join();
+            String source = bank.createAccount("Source", "Savings").join();
+            assertEquals(shard(source), shard(target));
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(target, Long.MAX_VALUE - 10).join());
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(source, 100).join());
+
+            assertEquals(LedgerEvent.Status.BALANCE_OVERFLOW, bank.transfer(source, target, 11).join());
+            assertEquals(100, bank.getBalanceCents(source).join());
+            assertEquals(Long.MAX_VALUE - 10, bank.getBalanceCents(target).join());
+        }
+    }
+
+    @Test
+    void crossShardCreditThatWouldOverflowTheTargetIsRefunded() {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            String source = bank.createAccount("Source", "Savings").join();
+            String target = bank.createAccount("Target", "Savings").join();
+            assertNotEquals(shard(source), shard(target));
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(target, Long.MAX_VALUE - 10).join());
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(source, 100).join());
+
+            assertEquals(LedgerEvent.Status.BALANCE_OVERFLOW, bank.transfer(source, target, 11).join());
+            assertEquals(100, bank.getBalanceCents(source).join());
+            assertEquals(Long.MAX_VALUE - 10, bank.getBalanceCents(target).join());
+            assertEquals(LedgerEvent.Status.APPLIED, bank.transfer(source, target, 10).join());
+            assertEquals(90, bank.getBalanceCents(source).join());
+            assertEquals(Long.MAX_VALUE, bank.getBalanceCents(target).join());
+        }
+    }
+
+    @Test
+    void concurrentCrossShardTransfersKeepTheTotal() throws Exception {
+        try (ShardedBank bank = new ShardedBank(SHARDS)) {
+            List<String> accounts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                accounts.add(bank.createAccount("Holder", "Savings").join());
+                bank.deposit(accounts.get(i), 10_000).join();
+            }
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                threads.add(new Thread(() -> {
+                    List<CompletableFuture<LedgerEvent.Status>> pending = new ArrayList<>();
+                    for (int i = 0; i < 5_000; i++) {
+                        pending.add(bank.transfer(accounts.get((i + offset) % 8), accounts.get((i + offset + 1) % 8), 7));
+                    }
+                    pending.forEach(CompletableFuture::join);
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long total = 0;
+            for (String account : accounts) {
+                total += bank.getBalanceCents(account).join();
+            }
+            assertEquals(80_000, total);
+        }
+    }
+
+    @Test
+    void closeSettlesEveryTransferInFlight() {
+        ShardedBank bank = new ShardedBank(SHARDS);
+        String first = bank.createAccount("First", "Savings").join();
+        String second = bank.createAccount("Second", "Savings").join();
+        String missing = AccountNumberFormat.DEFAULT.format(AccountNumberFormat.DEFAULT.parse(first) + 10_001);
+        bank.deposit(first, 1_000_000).join();
+
+        List<CompletableFuture<LedgerEvent.Status>> pending = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            pending.add(bank.transfer(first, i % 4 == 0 ? missing : second, 1));
+        }
+        bank.close();
+
+        int applied = 0;
+        for (CompletableFuture<LedgerEvent.Status> transfer : pending) {
+            assertTrue(transfer.isDone());
+            if (transfer.join() == LedgerEvent.Status.APPLIED) {
+                applied++;
+            } else {
+                assertEquals(LedgerEvent.Status.UNKNOWN_ACCOUNT, transfer.join());
+            }
+        }
+        assertEquals(7_500, applied);
+        assertThrows(IllegalStateException.class, () -> bank.deposit(first, 1));
+    }
+
+    @Test
+    void accountsFromAHighIdBlockDoNotSizeTheShardToTheirIds() {
+        AccountNumberFormat format = new AccountNumberFormat("HI", 9, 9);
+        AccountIdAllocator ids = new AccountIdAllocator(format, 900_000_000, 64, null);
+        try (ShardedBank bank = new ShardedBank(SHARDS, ids, 1 << 10)) {
+            String account = bank.createAccount("Holder", "Savings").join();
+            assertEquals(900_000_000, format.parse(account));
+            assertEquals(LedgerEvent.Status.APPLIED, bank.deposit(account, 500).join());
+            assertEquals(500, bank.getBalanceCents(account).join());
+            assertNull(bank.getBalanceCents(format.format(900_000_002)).join());
+        }
+    }
+
+    private static int shard(String accountNumber) {
+        return AccountNumberFormat.DEFAULT.parse(accountNumber) % SHARDS;
+    }
+}
@@ -0,0 +1,311 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+    private static final int WRITERS = 3;
+    private static final int SEED_ACCOUNTS = 200;
+    private static final long RUN_NANOS = 1_000_000_000L;
+    private static final long WAIT_MILLIS = 500;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"hash", "columnar"})
+    void reopensToTheStateItHadUnderConcurrentWritesAndSnapshots(String store) throws Exception {
+        Bank bank = open(store);
+        List<BankAccount> seeded = new ArrayList<>();
+        for (int i = 0; i < SEED_ACCOUNTS; i++) {
+            BankAccount account = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            assertTrue(account.deposit(1_000_000));
+            seeded.add(account);
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                List<BankAccount> opened = new ArrayList<>();
+                try {
+                    while (!stop.get()) {
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                opened.add(bank.findAccount(bank.createAccount("Newcomer", "Checking")));
+                                break;
+                            case 1:
+                                if (!opened.isEmpty()) {
+                                    opened.get(random.nextInt(opened.size())).deposit(100);
+                                }
+                                break;
+                            case 2:
+                                seeded.get(random.nextInt(SEED_ACCOUNTS)).deposit(100);
+                                break;
+                            default:
+                                seeded.get(random.nextInt(SEED_ACCOUNTS))
+                                        .transfer(seeded.get(random.nextInt(SEED_ACCOUNTS)), 50);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    bank.snapshot();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }));
+        threads.forEach(Thread::start);
+        Thread.sleep(RUN_NANOS / 1_000_000);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        Map<String, Long> expected = balances(bank);
+        bank.close();
+
+        Bank reopened = open(store);
+        assertEquals(expected, balances(reopened));
+        reopened.snapshot();
+        reopened.close();
+
+        Bank again = open(store);
+        assertEquals(expected, balances(again));
+        assertNotNull(again.findAccount(seeded.get(0).getAccountNumber()));
+        again.close();
+    }
+
+    @Test
+    void snapshotKeepsADepositJournaledBeforeTheRotationButStoredAfterIt() throws Exception {
+        PausingStore store = new PausingStore();
+        Bank bank = Bank.open(directory, DurabilityMode.ASYNC, store);
+        BankAccount account = bank.findAccount(bank.createAccount("Holder", "Savings"));
+        assertTrue(account.deposit(1_000));
+
+        Pause pause = new Pause();
+        ((PausingAccount) account).onStore = pause;
+        Thread depositor = start(() -> account.deposit(100));
+        pause.awaitReached(); // the deposit is journaled and holds the account lock
+        Thread snapshot = start(bank::snapshot);
+        snapshot.join(WAIT_MILLIS);
+        pause.release();
+        depositor.join();
+        snapshot.join();
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.ASYNC);
+        assertEquals(1_100, reopened.findAccount(account.getAccountNumber()).getBalanceCents());
+        reopened.close();
+    }
+
+    @Test
+    void snapshotKeepsAnAccountJournaledBeforeTheRotationButCreatedAfterIt() throws Exception {
+        PausingStore store = new PausingStore();
+        Bank bank = Bank.open(directory, DurabilityMode.ASYNC, store);
+
+        Pause pause = new Pause();
+        store.onCreate = pause;
+        String[] number = new String[1];
+        Thread creator = start(() -> number[0] = bank.createAccount("Holder", "Savings"));
+        pause.awaitReached(); // the CREATE is journaled, the account is not in the store yet
+        Thread snapshot = start(bank::snapshot);
+        snapshot.join(WAIT_MILLIS);
+        pause.release();
+        creator.join();
+        snapshot.join();
+        assertTrue(bank.findAccount(number[0]).deposit(700));
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.ASYNC);
+        assertEquals(700, reopened.findAccount(number[0]).getBalanceCents());
+        reopened.close();
+    }
+
+    @Test
+    void corruptRecordInASegmentFollowedByAnotherFailsTheOpen() throws Exception {
+        writeTwoSegments();
+        Path first = segment(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(first, bytes);
+
+        assertThrows(IOException.class, () -> Bank.open(directory, DurabilityMode.ASYNC));
+        assertEquals(bytes.length, Files.size(first)); // nothing truncated
+    }
+
+    @Test
+    void tornTailOfTheLastWrittenSegmentIsTruncatedEvenBeforeAnEmptyOne() throws Exception {
+        String account = writeTwoSegments();
+        Path second = segment(1);
+        Files.write(second, Arrays.copyOf(Files.readAllBytes(second), (int) Files.size(second) - 5));
+        Files.createFile(segment(2)); // a crash in rotate() leaves this behind
+
+        Bank reopened = Bank.open(directory, DurabilityMode.ASYNC);
+        assertEquals(1_000, reopened.findAccount(account).getBalanceCents()); // the torn deposit is gone
+        reopened.close();
+    }
+
+    // Opens the bank twice, so journal-0.log and journal-1.log each hold records
+    private String writeTwoSegments() throws IOException {
+        Bank bank = Bank.open(directory, DurabilityMode.SYNC);
+        String account = bank.createAccount("Holder", "Savings");
+        assertTrue(bank.findAccount(account).deposit(1_000));
+        bank.close();
+        bank = Bank.open(directory, DurabilityMode.SYNC);
+        assertTrue(bank.findAccount(account).deposit(500));
+        bank.close();
+        return account;
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(String.format("journal-%010d.log", number));
+    }
+
+    private Bank open(String store) throws IOException {
+        return Bank.open(directory, DurabilityMode.ASYNC, store.equals("hash") ? new HashAccountStore() : new ColumnarAccountStore());
+    }
+
+    private static Map<String, Long> balances(Bank bank) {
+        Map<String, Long> balances = new HashMap<>();
+        bank.forEachAccount(account -> balances.put(account.getAccountNumber(), account.getBalanceCents()));
+        return balances;
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private static Thread start(Step step) {
+        Thread thread = new Thread(() -> {
+            try {
+                step.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    // Holds one thread at a point of interest until the test lets it go
+    private static final class Pause {
+        final CountDownLatch reached = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        void hold() {
+            reached.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void awaitReached() throws InterruptedException {
+            assertTrue(reached.await(10, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    // An account that can stop just before a new balance is stored, with its lock held
+    private static final class PausingAccount extends BankAccount {
+        volatile Pause onStore;
+
+        PausingAccount(int id, String accountNumber, String holderName, String accountType) {
+            super(id, accountNumber, holderName, accountType);
+        }
+
+        @Override
+        void storeBalance(long value) {
+            Pause pause = onStore;
+            if (pause != null) {
+                onStore = null;
+                pause.hold();
+            }
+            super.storeBalance(value);
+        }
+    }
+
+    // A minimal store that can stop a creation just before the account becomes visible
+    private static final class PausingStore implements AccountStore {
+        final Map<String, BankAccount> byNumber = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Integer, BankAccount> byId = new ConcurrentSkipListMap<>();
+        volatile Pause onCreate;
+
+        @Override
+        public BankAccount create(int id, String accountNumber, String holderName, String accountType) {
+            Pause pause = onCreate;
+            if (pause != null) {
+                onCreate = null;
+                pause.hold();
+            }
+            BankAccount account = new PausingAccount(id, accountNumber, holderName, accountType);
+            byNumber.put(accountNumber, account);
+            byId.put(id, account);
+            return account;
+        }
+
+        @Override
+        public BankAccount find(String accountNumber) {
+            return byNumber.get(accountNumber);
+        }
+
+        @Override
+        public int size() {
+            return byNumber.size();
+        }
+
+        @Override
+        public void forEach(Consumer<BankAccount> action) {
+            byId.values().forEach(action);
+        }
+
+        @Override
+        public void forEachFrom(int fromId, Predicate<BankAccount> action) {
+            for (BankAccount account : byId.tailMap(fromId).values()) {
+                if (!action.test(account)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionBatchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nettingRepeatedAccountsGivesTheBalancesOfOneByOne() throws Exception {
+        Bank bank = Bank.open(directory, DurabilityMode.SYNC);
+        String a = open(bank, 1_000);
+        String b = open(bank, 0);
+        String c = open(bank, 0);
+
+        TransactionBatch batch = new TransactionBatch(bank)
+                .deposit(a, 500)
+                .transfer(a, b, 300)
+                .transfer(b, a, 100) // only possible after the transfer before it
+                .withdraw(a, 200)
+                .deposit(b, 50)
+                .deposit(c, 100)
+                .withdraw(c, 100); // nets to no change
+        TransactionBatch.Result result = bank.applyBatch(batch, true);
+
+        assertTrue(result.isApplied());
+        assertEquals(7, result.getAppliedCount());
+        assertEquals(0, result.getRejectedCount());
+        assertEquals(1_100, balance(bank, a));
+        assertEquals(250, balance(bank, b));
+        assertEquals(0, balance(bank, c));
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.SYNC);
+        assertEquals(1_100, balance(reopened, a));
+        assertEquals(250, balance(reopened, b));
+        assertEquals(0, balance(reopened, c));
+        reopened.close();
+    }
+
+    @Test
+    void atomicBatchWithAFailingItemChangesNothing() {
+        Bank bank = new Bank();
+        String a = open(bank, 1_000);
+        String b = open(bank, 0);
+
+        TransactionBatch batch = new TransactionBatch(bank)
+                .transfer(a, b, 600)
+                .withdraw(a, 600)
+                .deposit(b, 10);
+        TransactionBatch.Result result = bank.applyBatch(batch, true);
+
+        assertFalse(result.isApplied());
+        assertEquals(0, result.getAppliedCount());
+        assertEquals(1, result.getRejectedCount());
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(0));
+        assertEquals(LedgerEvent.Status.INSUFFICIENT_FUNDS, result.getStatus(1));
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(2));
+        assertEquals(1_000, balance(bank, a));
+        assertEquals(0, balance(bank, b));
+
+        batch.clear();
+        result = bank.applyBatch(batch.deposit(a, 10).deposit(b, 0), true);
+        assertFalse(result.isApplied());
+        assertEquals(LedgerEvent.Status.INVALID_AMOUNT, result.getStatus(1));
+        assertEquals(1_000, balance(bank, a));
+    }
+
+    @Test
+    void nonAtomicBatchGivesEachItemItsOwnOutcome() {
+        Bank bank = new Bank();
+        String a = open(bank, 1_000);
+        String b = open(bank, 0);
+        Bank other = new Bank();
+        BankAccount elsewhere = other.findAccount(other.createAccount("Other", "Savings"));
+
+        TransactionBatch batch = new TransactionBatch(bank)
+                .withdraw(a, 5_000)
+                .transfer(a, a, 100)
+                .deposit("ACC9999", 100)
+                .deposit(a, 0)
+                .transfer(a, "ACC9999", 100)
+                .deposit(elsewhere, 100)
+                .transfer(a, b, 400)
+                .withdraw(b, 500);
+        TransactionBatch.Result result = bank.applyBatch(batch, false);
+
+        assertTrue(result.isApplied());
+        assertEquals(8, result.size());
+        assertEquals(LedgerEvent.Status.INSUFFICIENT_FUNDS, result.getStatus(0));
+        assertEquals(LedgerEvent.Status.SAME_ACCOUNT, result.getStatus(1));
+        assertEquals(LedgerEvent.Status.UNKNOWN_ACCOUNT, result.getStatus(2));
+        assertEquals(LedgerEvent.Status.INVALID_AMOUNT, result.getStatus(3));
+        assertEquals(LedgerEvent.Status.UNKNOWN_ACCOUNT, result.getStatus(4));
+        assertEquals(LedgerEvent.Status.UNKNOWN_ACCOUNT, result.getStatus(5));
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(6));
+        assertEquals(LedgerEvent.Status.INSUFFICIENT_FUNDS, result.getStatus(7));
+        assertEquals(1, result.getAppliedCount());
+        assertEquals(7, result.getRejectedCount());
+        assertEquals(600, balance(bank, a));
+        assertEquals(400, balance(bank, b));
+        assertEquals(0, elsewhere.getBalanceCents());
+    }
+
+    @Test
+    void fullBatchOverManyAccountsIsAppliedAndRefusesMore() {
+        Bank bank = new Bank();
+        int accounts = 300; // enough distinct locks for the radix sort and the eight-deep nesting
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = open(bank, 1_000);
+        }
+
+        TransactionBatch batch = new TransactionBatch(bank);
+        for (int i = 0; i < TransactionBatch.MAX_SIZE; i++) {
+            if (i % 2 == 0) {
+                batch.deposit(numbers[i % accounts], 10);
+            } else {
+                batch.transfer(numbers[i % accounts], numbers[(i + 1) % accounts], 5);
+            }
+        }
+        assertTrue(batch.isFull());
+        assertThrows(IllegalStateException.class, () -> batch.deposit(numbers[0], 1));
+        assertEquals(TransactionBatch.MAX_SIZE, batch.size());
+
+        long[] expected = new long[accounts];
+        Arrays.fill(expected, 1_000);
+        for (int i = 0; i < TransactionBatch.MAX_SIZE; i++) {
+            if (i % 2 == 0) {
+                expected[i % accounts] += 10;
+            } else {
+                expected[i % accounts] -= 5;
+                expected[(i + 1) % accounts] += 5;
+            }
+        }
+        TransactionBatch.Result result = bank.applyBatch(batch, true);
+        assertTrue(result.isApplied());
+        assertEquals(TransactionBatch.MAX_SIZE, result.getAppliedCount());
+        for (int i = 0; i < accounts; i++) {
+            assertEquals(expected[i], balance(bank, numbers[i]), numbers[i]);
+        }
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        assertTrue(bank.applyBatch(batch.deposit(numbers[0], 1), false).isApplied());
+        assertEquals(expected[0] + 1, balance(bank, numbers[0]));
+    }
+
+    @Test
+    void creditsThatWouldOverflowABalanceChangeNothing() throws Exception {
+        Bank bank = Bank.open(directory, DurabilityMode.SYNC);
+        String full = open(bank, Long.MAX_VALUE - 10);
+        String other = open(bank, 100);
+
+        assertThrows(ArithmeticException.class, () -> bank.findAccount(full).deposit(11));
+        assertThrows(ArithmeticException.class, () -> bank.findAccount(other).transfer(bank.findAccount(full), 50));
+        TransactionBatch batch = new TransactionBatch(bank)
+                .deposit(other, 5)
+                .transfer(other, full, 6)
+                .deposit(full, 5) // 11 in all, one too many
+                .withdraw(other, 1);
+        assertThrows(ArithmeticException.class, () -> bank.applyBatch(batch, true));
+        assertEquals(Long.MAX_VALUE - 10, balance(bank, full));
+        assertEquals(100, balance(bank, other));
+
+        // Non-atomic, only the item that would overflow is rejected, just as one by one
+        TransactionBatch.Result result = bank.applyBatch(batch, false);
+        assertTrue(result.isApplied());
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(0));
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(1));
+        assertEquals(LedgerEvent.Status.BALANCE_OVERFLOW, result.getStatus(2));
+        assertEquals(LedgerEvent.Status.APPLIED, result.getStatus(3));
+        assertEquals(1, result.getRejectedCount());
+        assertEquals(Long.MAX_VALUE - 4, balance(bank, full));
+        assertEquals(98, balance(bank, other));
+
+        assertTrue(bank.findAccount(full).deposit(4)); // up to the limit is fine
+        bank.close();
+
+        Bank reopened = Bank.open(directory, DurabilityMode.SYNC);
+        assertEquals(Long.MAX_VALUE, balance(reopened, full));
+        assertEquals(98, balance(reopened, other));
+        reopened.close();
+    }
+
+    private static String open(Bank bank, long balance) {
+        String number = bank.createAccount("Holder", "Savings");
+        if (balance > 0) {
+            assertTrue(bank.findAccount(number).deposit(balance));
+        }
+        return number;
+    }
+
+    private static long balance(Bank bank, String accountNumber) {
+        return bank.findAccount(accountNumber).getBalanceCents();
+    }
+}
@@ -0,0 +1,102 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionHistoryTest {
+    private static final int ACCOUNT = 1001;
+    private static final int ENTRIES = 5_000; // past the growing blocks into several full ones
+    private static final long START = 1_000_000;
+
+    @Test
+    void rangeQueriesReturnExactlyTheEntriesInTheRangeAcrossBlocks() {
+        TransactionHistory history = filledHistory();
+        assertEquals(ENTRIES, history.size(ACCOUNT));
+
+        // Timestamps come in pairs, START + 10 * (i / 2), so both ends of a range split nothing
+        for (int[] range : new int[][]{{0, 1}, {3, 4}, {0, 2_500}, {2, 6}, {59, 61}, {1_018, 1_026}, {2_000, 2_500}}) {
+            long from = START + 10L * range[0];
+            long to = START + 10L * range[1];
+            List<long[]> seen = collectBetween(history, from, to);
+            assertEquals(2 * (range[1] - range[0]), seen.size());
+            for (int i = 0; i < seen.size(); i++) {
+                long index = 2L * range[0] + i;
+                assertEquals(START + 10 * (index / 2), seen.get(i)[0]);
+                assertEquals(index + 1, seen.get(i)[1]); // the amount of entry i is i + 1
+            }
+        }
+        // Bounds between timestamps, outside the history and empty or reversed ranges
+        assertEquals(2, collectBetween(history, START + 5, START + 15).size());
+        assertEquals(0, collectBetween(history, 0, START).size());
+        assertEquals(0, collectBetween(history, START + 10L * ENTRIES, Long.MAX_VALUE).size());
+        assertEquals(0, collectBetween(history, START + 100, START + 100).size());
+        assertEquals(0, collectBetween(history, START + 200, START + 100).size());
+        assertEquals(ENTRIES, collectBetween(history, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void lastEntriesComeOldestFirst() {
+        TransactionHistory history = filledHistory();
+        List<Long> amounts = new ArrayList<>();
+        assertEquals(3, history.forEachLast(ACCOUNT, 3, (time, type, amount, balance, counterparty) -> amounts.add(amount)));
+        assertEquals(List.of((long) ENTRIES - 2, (long) ENTRIES - 1, (long) ENTRIES), amounts);
+        assertEquals(ENTRIES, history.forEachLast(ACCOUNT, Integer.MAX_VALUE, (time, type, amount, balance, counterparty) -> { }));
+        assertEquals(0, history.forEachLast(ACCOUNT, 0, (time, type, amount, balance, counterparty) -> { }));
+        assertEquals(0, history.forEachLast(ACCOUNT + 1, 10, (time, type, amount, balance, counterparty) -> { }));
+    }
+
+    @Test
+    void balanceAtIsTheBalanceJustBeforeTheTime() {
+        TransactionHistory history = filledHistory();
+        assertEquals(0, history.balanceAt(ACCOUNT, START)); // before the first entry
+        assertEquals(1 + 2, history.balanceAt(ACCOUNT, START + 10));
+        assertEquals(1 + 2 + 3 + 4, history.balanceAt(ACCOUNT, START + 15));
+        long all = (long) ENTRIES * (ENTRIES + 1) / 2;
+        assertEquals(all, history.balanceAt(ACCOUNT, Long.MAX_VALUE));
+        assertEquals(-1, history.balanceAt(ACCOUNT + 1, START));
+    }
+
+    @Test
+    void bankRecordsBothLegsOfATransfer() {
+        Bank bank = new Bank();
+        TransactionHistory history = new TransactionHistory();
+        bank.setTransactionHistory(history);
+        BankAccount from = bank.findAccount(bank.createAccount("Ada Lovelace", "Savings"));
+        BankAccount to = bank.findAccount(bank.createAccount("Alan Turing", "Checking"));
+        assertTrue(from.deposit(1_000));
+        assertTrue(from.transfer(to, 400));
+
+        List<String> fromEntries = new ArrayList<>();
+        history.forEachBetween(from.getId(), Long.MIN_VALUE, Long.MAX_VALUE,
+                (time, type, amount, balance, counterparty) -> fromEntries.add(type + " " + amount + " " + balance + " " + counterparty));
+        assertEquals(List.of("DEPOSIT 1000 1000 0", "TRANSFER -400 600 " + to.getId()), fromEntries);
+        List<String> toEntries = new ArrayList<>();
+        history.forEachLast(to.getId(), 10,
+                (time, type, amount, balance, counterparty) -> toEntries.add(type + " " + amount + " " + balance + " " + counterparty));
+        assertEquals(List.of("TRANSFER 400 400 " + from.getId()), toEntries);
+    }
+
+    // Entry i has amount i + 1 and timestamp START + 10 * (i / 2)
+    private static TransactionHistory filledHistory() {
+        TransactionHistory history = new TransactionHistory();
+        long balance = 0;
+        for (int i = 0; i < ENTRIES; i++) {
+            balance += i + 1;
+            history.append(ACCOUNT, START + 10L * (i / 2), LedgerEvent.Type.DEPOSIT, i + 1, balance, 0);
+        }
+        return history;
+    }
+
+    private static List<long[]> collectBetween(TransactionHistory history, long from, long to) {
+        List<long[]> seen = new ArrayList<>();
+        int visited = history.forEachBetween(ACCOUNT, from, to,
+                (time, type, amount, balance, counterparty) -> seen.add(new long[]{time, amount}));
+        assertEquals(seen.size(), visited);
+        return seen;
+    }
+}
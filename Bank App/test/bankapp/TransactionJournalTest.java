@@ -0,0 +1,122 @@
+package bankapp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TransactionJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheResultingBalanceOfEveryRecordType() throws IOException {
+        Path file = directory.resolve("journal-0.log");
+        try (TransactionJournal journal = new TransactionJournal(file, DurabilityMode.SYNC)) {
+            journal.logCreate(1001, "Ada", "Savings");
+            journal.logCreate(1002, "Grace", "Checking");
+            journal.logDeposit(1001, 500, 500);
+            journal.logWithdraw(1001, 100, 400);
+            journal.logTransfer(1001, 1002, 150, 250, 150);
+            journal.logImport(1003, 9_000, "Linus", "Savings");
+            journal.logBatch(new int[]{1001, 1003}, new long[]{300, 8_950}, 2);
+            journal.logAccrual(1002, 7, 5, 1, 154);
+        }
+
+        Recorder replayed = new Recorder();
+        assertEquals(8, TransactionJournal.replay(file, replayed, true));
+        assertEquals(Map.of(1001, "Ada/Savings", 1002, "Grace/Checking", 1003, "Linus/Savings"), replayed.accounts);
+        assertEquals(Map.of(1001, 300L, 1002, 154L, 1003, 8_950L), replayed.balances);
+        assertEquals(Map.of(1002, 7), replayed.runs);
+    }
+
+    @Test
+    void tornTailIsTruncatedAndAppendingResumesAfterTheLastIntactRecord() throws IOException {
+        Path file = directory.resolve("journal-0.log");
+        long intact;
+        try (TransactionJournal journal = new TransactionJournal(file, DurabilityMode.SYNC)) {
+            journal.logCreate(1001, "Ada", "Savings");
+            intact = journal.logDeposit(1001, 500, 500);
+            journal.logDeposit(1001, 200, 700);
+        }
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            out.truncate(Files.size(file) - 5); // the last record is half written
+        }
+
+        Recorder replayed = new Recorder();
+        assertEquals(2, TransactionJournal.replay(file, replayed, true));
+        assertEquals(500L, replayed.balances.get(1001));
+        assertEquals(intact, Files.size(file));
+
+        try (TransactionJournal journal = new TransactionJournal(file, DurabilityMode.SYNC)) {
+            journal.logDeposit(1001, 50, 550);
+        }
+        replayed = new Recorder();
+        assertEquals(3, TransactionJournal.replay(file, replayed, true));
+        assertEquals(550L, replayed.balances.get(1001));
+    }
+
+    @Test
+    void corruptLastRecordIsTruncated() throws IOException {
+        Path file = directory.resolve("journal-0.log");
+        long intact;
+        try (TransactionJournal journal = new TransactionJournal(file, DurabilityMode.SYNC)) {
+            intact = journal.logCreate(1001, "Ada", "Savings");
+            journal.logDeposit(1001, 500, 500);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        Recorder replayed = new Recorder();
+        assertEquals(1, TransactionJournal.replay(file, replayed, true));
+        assertEquals(0, replayed.balances.size());
+        assertEquals(intact, Files.size(file));
+    }
+
+    @Test
+    void failedWriteStopsTheJournal() throws IOException {
+        Path full = Path.of("/dev/full"); // every write fails with ENOSPC
+        assumeTrue(Files.isWritable(full));
+        TransactionJournal journal = new TransactionJournal(full, DurabilityMode.GROUP);
+        long ticket = journal.logDeposit(1001, 500, 500);
+
+        assertThrows(JournalException.class, () -> journal.awaitDurable(ticket));
+        assertThrows(JournalException.class, () -> journal.logDeposit(1001, 100, 600));
+        assertThrows(JournalException.class, () -> journal.logCreate(1002, "Grace", "Checking"));
+        assertThrows(JournalException.class, () -> journal.awaitDurable(ticket));
+        assertThrows(JournalException.class, () -> journal.sync(0));
+        journal.close();
+    }
+
+    private static final class Recorder implements TransactionJournal.ReplayHandler {
+        final Map<Integer, String> accounts = new HashMap<>();
+        final Map<Integer, Long> balances = new HashMap<>();
+        final Map<Integer, Integer> runs = new HashMap<>();
+
+        @Override
+        public void accountCreated(int id, String holderName, String accountType) {
+            accounts.put(id, holderName + "/" + accountType);
+        }
+
+        @Override
+        public void balanceSet(int id, long balance) {
+            balances.put(id, balance);
+        }
+
+        @Override
+        public void accrualPosted(int id, int run) {
+            runs.put(id, run);
+        }
+    }
+}
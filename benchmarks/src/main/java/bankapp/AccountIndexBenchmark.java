@@ -0,0 +1,121 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holder-name and account-type queries through AccountIndex against a full scan of the book
+ * Holder names are drawn from 200 first names and 20,000 last names, and types are 60% Savings,
+ * 30% Checking and 10% Current. The index queries and the scans return the same accounts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AccountIndexBenchmark {
+    private static final int PAGE = 20;
+
+    @Param({"1000000", "4000000"})
+    public int accounts;
+
+    Bank bank;
+    String[] names;
+    int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] first = words(random, 200);
+        String[] last = words(random, 20_000);
+        bank = new Bank(new ColumnarAccountStore());
+        bank.setAccountIndex(new AccountIndex());
+        names = new String[1024];
+        for (int i = 0; i < accounts; i++) {
+            String name = first[random.nextInt(first.length)] + " " + last[random.nextInt(last.length)];
+            int type = random.nextInt(10);
+            bank.createAccount(name, type < 6 ? "Savings" : type < 9 ? "Checking" : "Current");
+            if (i < names.length) {
+                names[i] = name;
+            }
+        }
+    }
+
+    private static String[] words(SplittableRandom random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            char[] letters = new char[5 + random.nextInt(5)];
+            for (int j = 0; j < letters.length; j++) {
+                letters[j] = (char) ((j == 0 ? 'A' : 'a') + random.nextInt(26));
+            }
+            words[i] = new String(letters);
+        }
+        return words;
+    }
+
+    private String nextName() {
+        return names[next++ & (names.length - 1)];
+    }
+
+    @Benchmark
+    public int holderIndexed() {
+        int found = 0;
+        for (BankAccount account : bank.findAccountsByHolder(nextName())) {
+            found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int holderScan() {
+        String name = nextName();
+        int[] found = new int[1];
+        bank.forEachAccount(account -> {
+            if (account.getAccountHolderName().equalsIgnoreCase(name)) {
+                found[0]++;
+            }
+        });
+        return found[0];
+    }
+
+    // First page of holders whose name starts with the first three letters of a name
+    @Benchmark
+    public int holderPrefixPageIndexed() {
+        int found = 0;
+        for (BankAccount account : bank.findAccountsByHolderPrefix(nextName().substring(0, 3))) {
+            if (++found == PAGE) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public long typeCountIndexed() {
+        return bank.countAccountsByType("current");
+    }
+
+    @Benchmark
+    public long typeCountScan() {
+        long[] found = new long[1];
+        bank.forEachAccount(account -> {
+            if (account.getAccountType().equalsIgnoreCase("current")) {
+                found[0]++;
+            }
+        });
+        return found[0];
+    }
+}
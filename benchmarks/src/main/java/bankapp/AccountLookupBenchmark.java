@@ -0,0 +1,64 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bank.findAccount latency for books of 1K to 10M accounts, for both account stores
+ * Lookups cycle through a fixed pool of random existing account numbers so the benchmark
+ * does not measure building the key strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class AccountLookupBenchmark {
+    private static final int KEY_POOL = 1 << 16;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int accounts;
+
+    @Param({"hash", "columnar"})
+    public String store;
+
+    Bank bank;
+    String[] keys;
+    int next;
+
+    @Setup
+    public void setUp() {
+        bank = new Bank("columnar".equals(store) ? new ColumnarAccountStore() : new HashAccountStore());
+        for (int i = 0; i < accounts; i++) {
+            bank.createAccount("Holder", "Savings");
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new String[KEY_POOL];
+        for (int i = 0; i < KEY_POOL; i++) {
+            keys[i] = Bank.ACCOUNT_PREFIX + (Bank.FIRST_ACCOUNT_ID + random.nextInt(accounts));
+        }
+    }
+
+    @Benchmark
+    public BankAccount findAccount() {
+        return bank.findAccount(keys[next++ & (KEY_POOL - 1)]);
+    }
+
+    @Benchmark
+    public BankAccount findMissingAccount() {
+        return bank.findAccount("ACC0");
+    }
+}
@@ -0,0 +1,58 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opening accounts from one thread per available core
+ * Compares the block-leased AccountIdAllocator with the single shared counter it replaced,
+ * and measures Bank.createAccount end to end. The bank is rebuilt every iteration so the
+ * book does not grow without bound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class AccountOpeningBenchmark {
+    Bank bank;
+    AccountIdAllocator allocator;
+    AtomicInteger sharedCounter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        bank = new Bank(new ColumnarAccountStore());
+        allocator = new AccountIdAllocator();
+        sharedCounter = new AtomicInteger(Bank.FIRST_ACCOUNT_ID - 1);
+    }
+
+    @Benchmark
+    public int blockLeasedId() {
+        return allocator.next();
+    }
+
+    @Benchmark
+    public int sharedCounterId() {
+        return sharedCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public String createAccount() {
+        return bank.createAccount("Holder", "Savings");
+    }
+}
@@ -0,0 +1,65 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Total balance per account type from Bank.getAggregates against summing a full scan of the book
+ * Accounts are 60% Savings, 30% Checking and 10% Current, with random opening balances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AggregatesBenchmark {
+    private static final String[] TYPES = {"Savings", "Checking", "Current"};
+
+    @Param({"1000000"})
+    public int accounts;
+
+    Bank bank;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        bank = new Bank(new ColumnarAccountStore());
+        for (int i = 0; i < accounts; i++) {
+            int type = random.nextInt(10);
+            String number = bank.createAccount("Holder", TYPES[type < 6 ? 0 : type < 9 ? 1 : 2]);
+            bank.findAccount(number).deposit(1 + random.nextInt(1_000_000));
+        }
+    }
+
+    @Benchmark
+    public long balanceByTypeSnapshot() {
+        AggregateSnapshot totals = bank.getAggregates();
+        return totals.getBalanceCents("Savings") + totals.getBalanceCents("Checking") + totals.getBalanceCents("Current");
+    }
+
+    @Benchmark
+    public long balanceByTypeScan() {
+        long[] totals = new long[TYPES.length];
+        bank.forEachAccount(account -> {
+            for (int i = 0; i < TYPES.length; i++) {
+                if (TYPES[i].equalsIgnoreCase(account.getAccountType())) {
+                    totals[i] += account.getBalanceCents();
+                }
+            }
+        });
+        return totals[0] + totals[1] + totals[2];
+    }
+}
@@ -0,0 +1,88 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing every balance with a plain walk and with Bank.scanConsistent, alone and next to a
+ * thread making transfers
+ * In the scanning group one thread runs consistent scans back to back while the other transfers,
+ * so its transfer time includes keeping old balances for the scan; compare it with transfer
+ * alone. On a machine with fewer cores than threads the two share a core and their times add up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ConsistentReadBenchmark {
+    @Param({"hash", "columnar"})
+    public String store;
+
+    @Param({"1000000"})
+    public int accounts;
+
+    Bank bank;
+    BankAccount[] book;
+
+    @Setup
+    public void setUp() {
+        bank = store.equals("hash") ? new Bank() : new Bank(new ColumnarAccountStore());
+        book = new BankAccount[accounts];
+        for (int i = 0; i < accounts; i++) {
+            book[i] = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            book[i].deposit(LedgerBenchmark.OPENING_BALANCE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public long plainSum() {
+        long[] total = {0};
+        bank.forEachAccount(account -> total[0] += account.getBalanceCents());
+        return total[0];
+    }
+
+    @Benchmark
+    public long consistentSum() {
+        return bank.scanConsistent((account, balance) -> { });
+    }
+
+    @Benchmark
+    public boolean transfer(Picker picker) {
+        return book[picker.random.nextInt(accounts)].transfer(book[picker.random.nextInt(accounts)], 1);
+    }
+
+    @Benchmark
+    @Group("scanning")
+    @GroupThreads(1)
+    public long scanner() {
+        return bank.scanConsistent((account, balance) -> { });
+    }
+
+    @Benchmark
+    @Group("scanning")
+    @GroupThreads(1)
+    public boolean writer(Picker picker) {
+        return book[picker.random.nextInt(accounts)].transfer(book[picker.random.nextInt(accounts)], 1);
+    }
+}
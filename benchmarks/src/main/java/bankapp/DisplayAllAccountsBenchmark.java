@@ -0,0 +1,66 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the whole book with Bank.displayAllAccounts, against fetching and formatting
+ * one 20-row page with Bank.listAccounts
+ * System.out is swapped for a discarding stream, so this measures formatting and iteration, not the terminal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisplayAllAccountsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    Bank bank;
+    PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        bank = new Bank();
+        for (int i = 0; i < accounts; i++) {
+            bank.findAccount(bank.createAccount("Holder " + i, "Savings")).deposit(i);
+        }
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void displayAllAccounts() {
+        bank.displayAllAccounts();
+    }
+
+    @Benchmark
+    public void listFirstPage(Blackhole blackhole) {
+        for (String line : bank.listAccounts(null, 20).lines()) {
+            blackhole.consume(line);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits without a key, with a key seen for the first time, and retried with a key already answered
+ * The first-use keys cycle through more keys than the 64 MB cache holds, so every one has been
+ * evicted by the time it comes round again and each call claims a key and evicts an old one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class IdempotencyBenchmark {
+    private static final int FRESH_KEYS = 1 << 20;
+    private static final int RETRIED_KEYS = 1 << 10;
+
+    BankAccount[] book;
+    String[] freshKeys;
+    String[] retriedKeys;
+    Bank bank;
+    int nextFresh;
+
+    @Setup
+    public void setUp() {
+        bank = new Bank();
+        bank.setIdempotencyCache(new IdempotencyCache(64 << 20, 60, TimeUnit.MINUTES));
+        book = new BankAccount[10_000];
+        for (int i = 0; i < book.length; i++) {
+            book[i] = bank.findAccount(bank.createAccount("Holder", "Savings"));
+        }
+        freshKeys = new String[FRESH_KEYS];
+        for (int i = 0; i < FRESH_KEYS; i++) {
+            freshKeys[i] = "deposit-" + i;
+        }
+        retriedKeys = new String[RETRIED_KEYS];
+        for (int i = 0; i < RETRIED_KEYS; i++) {
+            retriedKeys[i] = "retry-" + i;
+            book[i].deposit(1, retriedKeys[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean unkeyed(Picker picker) {
+        return book[picker.random.nextInt(book.length)].deposit(1);
+    }
+
+    @Benchmark
+    public boolean firstUse(Picker picker) {
+        int next = nextFresh++ & (FRESH_KEYS - 1);
+        return book[picker.random.nextInt(book.length)].deposit(1, freshKeys[next]);
+    }
+
+    @Benchmark
+    public boolean retry(Picker picker) {
+        int i = picker.random.nextInt(RETRIED_KEYS);
+        return book[i].deposit(1, retriedKeys[i]);
+    }
+}
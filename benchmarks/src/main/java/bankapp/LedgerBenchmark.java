@@ -0,0 +1,69 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit, withdraw and transfer throughput on one thread
+ * Accounts are picked uniformly at random from a funded in-memory bank.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+    static final long OPENING_BALANCE = Money.ofDollars(10_000_000_000L);
+
+    @Param({"10000"})
+    public int accounts;
+
+    BankAccount[] book;
+
+    @Setup
+    public void setUp() {
+        Bank bank = new Bank();
+        book = new BankAccount[accounts];
+        for (int i = 0; i < accounts; i++) {
+            book[i] = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            book[i].deposit(OPENING_BALANCE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean deposit(Picker picker) {
+        return book[picker.random.nextInt(book.length)].deposit(1);
+    }
+
+    @Benchmark
+    public boolean withdraw(Picker picker) {
+        return book[picker.random.nextInt(book.length)].withdraw(1);
+    }
+
+    @Benchmark
+    public boolean transfer(Picker picker) {
+        BankAccount source = book[picker.random.nextInt(book.length)];
+        BankAccount target = book[picker.random.nextInt(book.length)];
+        return source.transfer(target, 1);
+    }
+}
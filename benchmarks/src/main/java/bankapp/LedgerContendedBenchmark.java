@@ -0,0 +1,10 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The LedgerBenchmark operations run from one thread per available core
+ */
+@Threads(Threads.MAX)
+public class LedgerContendedBenchmark extends LedgerBenchmark {
+}
@@ -0,0 +1,77 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of LedgerMetrics on the hot operations
+ * off runs without metrics, sampled with the default timing sample, and every times each
+ * operation, which is what the clock costs when nothing is sampled away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    @Param({"off", "sampled", "every"})
+    public String metrics;
+
+    BankAccount[] book;
+    String[] numbers;
+    Bank bank;
+
+    @Setup
+    public void setUp() {
+        bank = new Bank();
+        if (metrics.equals("sampled")) {
+            bank.setMetrics(new LedgerMetrics());
+        } else if (metrics.equals("every")) {
+            bank.setMetrics(new LedgerMetrics(1));
+        }
+        book = new BankAccount[10_000];
+        numbers = new String[book.length];
+        for (int i = 0; i < book.length; i++) {
+            numbers[i] = bank.createAccount("Holder", "Savings");
+            book[i] = bank.findAccount(numbers[i]);
+            book[i].deposit(LedgerBenchmark.OPENING_BALANCE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean deposit(Picker picker) {
+        return book[picker.random.nextInt(book.length)].deposit(1);
+    }
+
+    @Benchmark
+    public boolean transfer(Picker picker) {
+        BankAccount source = book[picker.random.nextInt(book.length)];
+        BankAccount target = book[picker.random.nextInt(book.length)];
+        return source.transfer(target, 1);
+    }
+
+    @Benchmark
+    public BankAccount findAccount(Picker picker) {
+        return bank.findAccount(numbers[picker.random.nextInt(numbers.length)]);
+    }
+}
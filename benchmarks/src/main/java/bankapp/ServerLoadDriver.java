@@ -0,0 +1,158 @@
+package bankapp;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop load driver for BankServer over localhost
+ * Each connection keeps a fixed number of requests in flight (the pipeline depth) and sends a
+ * new one as soon as one completes. The mix is 50% transfers, 25% deposits and 25% balance
+ * reads over a funded book. Latency is measured from send to response.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar bankapp.ServerLoadDriver
+ *        [connections] [pipeline depth] [seconds] [host:port]
+ * Without host:port an in-process server with an in-memory bank is started.
+ */
+public class ServerLoadDriver {
+    private static final int ACCOUNTS = 10_000;
+    private static final int MAX_SAMPLES = 1 << 23; // latency samples kept, over all connections
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        BankServer server = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 3) {
+            String[] address = args[3].split(":");
+            host = address[0];
+            port = Integer.parseInt(address[1]);
+        } else {
+            int cores = Runtime.getRuntime().availableProcessors();
+            server = new BankServer(new Bank(), new InetSocketAddress("localhost", 0), Math.max(1, cores / 2), 64);
+            server.start();
+            port = server.getPort();
+        }
+
+        String[] accounts = new String[ACCOUNTS];
+        try (BankClient setup = new BankClient(host, port)) {
+            CompletableFuture<?>[] funded = new CompletableFuture<?>[ACCOUNTS];
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accounts[i] = setup.createAccount("Load Driver", "Savings");
+                funded[i] = setup.depositAsync(accounts[i], Money.ofDollars(1_000_000));
+            }
+            CompletableFuture.allOf(funded).join();
+        }
+
+        Connection[] drivers = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            drivers[i] = new Connection(new BankClient(host, port), accounts, i, Math.max(1024, MAX_SAMPLES / connections));
+        }
+        // Warm up for a fifth of the run, then measure
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5));
+        for (Connection driver : drivers) {
+            for (int i = 0; i < depth; i++) {
+                driver.next();
+            }
+        }
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(warmupNanos));
+        for (Connection driver : drivers) {
+            driver.recording = true;
+        }
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        long elapsed = System.nanoTime() - start;
+        for (Connection driver : drivers) {
+            driver.recording = false;
+            driver.stopping.set(true);
+        }
+        Thread.sleep(200);
+
+        long completed = 0;
+        int samples = 0;
+        for (Connection driver : drivers) {
+            completed += driver.completed;
+            samples += (int) Math.min(driver.completed, driver.latencies.length);
+        }
+        long[] latencies = new long[samples];
+        int offset = 0;
+        for (Connection driver : drivers) {
+            int count = (int) Math.min(driver.completed, driver.latencies.length);
+            System.arraycopy(driver.latencies, 0, latencies, offset, count);
+            offset += count;
+            driver.client.close();
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%d connections x %d in flight, %d s%n", connections, depth, seconds);
+        System.out.printf("Throughput: %.0f requests/s%n", completed * 1e9 / elapsed);
+        System.out.printf("Latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e3);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, (long) (quantile * sorted.length))] / 1e3;
+    }
+
+    // One client connection; responses arrive on its reader thread, which sends the next request
+    private static final class Connection {
+        final BankClient client;
+        final String[] accounts;
+        final SplittableRandom random;
+        final long[] latencies;
+        final AtomicBoolean stopping = new AtomicBoolean();
+        volatile boolean recording;
+        long completed; // written by the reader thread only
+
+        Connection(BankClient client, String[] accounts, int seed, int samples) {
+            this.client = client;
+            this.latencies = new long[samples];
+            this.accounts = accounts;
+            this.random = new SplittableRandom(seed);
+        }
+
+        void next() {
+            if (stopping.get()) {
+                return;
+            }
+            long sent = System.nanoTime();
+            CompletableFuture<?> response;
+            synchronized (random) {
+                int choice = random.nextInt(4);
+                String account = accounts[random.nextInt(accounts.length)];
+                if (choice < 2) {
+                    response = client.transferAsync(account, accounts[random.nextInt(accounts.length)], 1);
+                } else if (choice == 2) {
+                    response = client.depositAsync(account, 1);
+                } else {
+                    response = client.getBalanceAsync(account);
+                }
+            }
+            response.whenComplete((result, error) -> {
+                if (recording) {
+                    long latency = System.nanoTime() - sent;
+                    if (completed < latencies.length) {
+                        latencies[(int) completed] = latency;
+                    }
+                    completed++;
+                }
+                if (error == null) {
+                    next();
+                }
+            });
+        }
+    }
+}
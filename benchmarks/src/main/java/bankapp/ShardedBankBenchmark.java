@@ -0,0 +1,125 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput of the shard-per-core engine against the lock-based Bank, from one
+ * thread per available core
+ * shards = 0 runs the lock-based Bank; otherwise ShardedBank with that many partitions. Each
+ * invocation submits a batch of transfers and waits for all of them, so the sharded engine is
+ * measured with its queues kept busy. With skewed access 90% of picks hit the hottest 1% of accounts.
+ * Run with -t to vary the number of client threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ShardedBankBenchmark {
+    static final int BATCH = 256;
+
+    @Param({"10000"})
+    public int accounts;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"uniform", "skewed"})
+    public String access;
+
+    Bank bank;
+    BankAccount[] book;
+    ShardedBank sharded;
+    String[] numbers;
+
+    @Setup
+    public void setUp() {
+        numbers = new String[accounts];
+        if (shards == 0) {
+            bank = new Bank();
+            book = new BankAccount[accounts];
+            for (int i = 0; i < accounts; i++) {
+                numbers[i] = bank.createAccount("Holder", "Savings");
+                book[i] = bank.findAccount(numbers[i]);
+                book[i].deposit(LedgerBenchmark.OPENING_BALANCE);
+            }
+        } else {
+            sharded = new ShardedBank(shards);
+            for (int i = 0; i < accounts; i++) {
+                numbers[i] = sharded.createAccount("Holder", "Savings").join();
+                sharded.deposit(numbers[i], LedgerBenchmark.OPENING_BALANCE).join();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (sharded != null) {
+            sharded.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        final SplittableRandom random = new SplittableRandom();
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<LedgerEvent.Status>[] pending = new CompletableFuture[BATCH];
+        int hotAccounts;
+        boolean skewed;
+
+        @Setup
+        public void setUp(ShardedBankBenchmark benchmark) {
+            hotAccounts = Math.max(1, benchmark.accounts / 100);
+            skewed = "skewed".equals(benchmark.access);
+        }
+
+        int pick(int accounts) {
+            if (skewed && random.nextInt(10) != 0) {
+                return random.nextInt(hotAccounts);
+            }
+            return random.nextInt(accounts);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int transfer(Client client) {
+        int applied = 0;
+        if (sharded == null) {
+            for (int i = 0; i < BATCH; i++) {
+                if (book[client.pick(accounts)].transfer(book[client.pick(accounts)], 1)) {
+                    applied++;
+                }
+            }
+            return applied;
+        }
+        for (int i = 0; i < BATCH; i++) {
+            client.pending[i] = sharded.transfer(numbers[client.pick(accounts)], numbers[client.pick(accounts)], 1);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            if (client.pending[i].join() == LedgerEvent.Status.APPLIED) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,97 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The same random transfers applied one by one and through Bank.applyBatch
+ * Each invocation moves size transfers, so divide by size for the cost of one. none keeps the
+ * bank in memory; GROUP journals it to a temporary directory, where every single transfer waits
+ * for its own flush and a batch waits once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBatchBenchmark {
+    @Param({"1", "16", "256", "4096"})
+    public int size;
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"none", "GROUP"})
+    public String durability;
+
+    Path directory;
+    Bank bank;
+    BankAccount[] book;
+    TransactionBatch batch;
+    final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        if (durability.equals("none")) {
+            bank = new Bank();
+        } else {
+            directory = Files.createTempDirectory("batch-bench");
+            bank = Bank.open(directory, DurabilityMode.valueOf(durability));
+        }
+        book = new BankAccount[accounts];
+        for (int i = 0; i < accounts; i++) {
+            book[i] = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            book[i].deposit(LedgerBenchmark.OPENING_BALANCE);
+        }
+        batch = new TransactionBatch(bank);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        bank.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public int singles() {
+        int applied = 0;
+        for (int i = 0; i < size; i++) {
+            if (book[random.nextInt(accounts)].transfer(book[random.nextInt(accounts)], 1)) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    @Benchmark
+    public int batched() {
+        batch.clear();
+        for (int i = 0; i < size; i++) {
+            batch.transfer(book[random.nextInt(accounts)], book[random.nextInt(accounts)], 1);
+        }
+        return bank.applyBatch(batch, false).getAppliedCount();
+    }
+}
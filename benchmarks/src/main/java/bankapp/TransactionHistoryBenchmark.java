@@ -0,0 +1,87 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping a transaction history on the transfer path, and of querying it
+ * transfer runs the LedgerBenchmark transfer with and without a TransactionHistory attached;
+ * every applied transfer appends one entry to each account. The query benchmarks read an
+ * account that holds a million entries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(1)
+@State(Scope.Benchmark)
+public class TransactionHistoryBenchmark {
+    private static final int BUSY_ENTRIES = 1_000_000;
+
+    @Param({"false", "true"})
+    public boolean history;
+
+    BankAccount[] book;
+    TransactionHistory busy;
+    long busyStart;
+    long busyEnd;
+
+    // A fresh bank per iteration, so the history does not grow without bound across the run
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Bank bank = new Bank();
+        if (history) {
+            bank.setTransactionHistory(new TransactionHistory());
+        }
+        book = new BankAccount[10_000];
+        for (int i = 0; i < book.length; i++) {
+            book[i] = bank.findAccount(bank.createAccount("Holder", "Savings"));
+            book[i].deposit(LedgerBenchmark.OPENING_BALANCE);
+        }
+
+        busy = new TransactionHistory();
+        busyStart = System.currentTimeMillis();
+        for (int i = 0; i < BUSY_ENTRIES; i++) {
+            busy.append(1001, LedgerEvent.Type.DEPOSIT, 1, i + 1, 0);
+        }
+        busyEnd = System.currentTimeMillis() + 1;
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean transfer(Picker picker) {
+        BankAccount source = book[picker.random.nextInt(book.length)];
+        BankAccount target = book[picker.random.nextInt(book.length)];
+        return source.transfer(target, 1);
+    }
+
+    @Benchmark
+    public int lastTen(Blackhole blackhole) {
+        return busy.forEachLast(1001, 10, (timestamp, type, amount, balance, counterparty) -> blackhole.consume(balance));
+    }
+
+    @Benchmark
+    public long balanceAt(Picker picker) {
+        return busy.balanceAt(1001, busyStart + picker.random.nextLong(busyEnd - busyStart + 1));
+    }
+}
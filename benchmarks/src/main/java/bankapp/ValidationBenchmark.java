@@ -0,0 +1,165 @@
+package bankapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the InputValidator checks on valid and invalid input
+ * The legacy* benchmarks replay the original regex- and allocation-based checks as a baseline,
+ * and the batch* benchmarks validate 10,000 rows per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+    public String validName = "Mary-Jane O'Neil";
+    public String invalidName = "R2-D2";
+    public String validAccountNumber = "ACC1234";
+    public String invalidAccountNumber = "ACC12X4";
+    public String accountType = "Checking";
+    public String amountText = "1250.75";
+    public long amountCents = 125075;
+
+    String[] batchNames;
+    String[] batchTypes;
+    ValidationResult[] batchResults;
+
+    @Setup
+    public void setUp() {
+        batchNames = new String[10_000];
+        batchTypes = new String[batchNames.length];
+        batchResults = new ValidationResult[batchNames.length];
+        for (int i = 0; i < batchNames.length; i++) {
+            batchNames[i] = i % 100 == 0 ? "Holder #" + i : "Holder " + (char) ('A' + i % 26) + "-Smith";
+            batchTypes[i] = i % 3 == 0 ? "Savings" : "checking";
+        }
+    }
+
+    @Benchmark
+    public ValidationResult holderNameValid() {
+        return InputValidator.validateAccountHolderName(validName);
+    }
+
+    @Benchmark
+    public ValidationResult holderNameInvalid() {
+        return InputValidator.validateAccountHolderName(invalidName);
+    }
+
+    @Benchmark
+    public ValidationResult accountNumberValid() {
+        return InputValidator.validateAccountNumber(validAccountNumber);
+    }
+
+    @Benchmark
+    public ValidationResult accountNumberInvalid() {
+        return InputValidator.validateAccountNumber(invalidAccountNumber);
+    }
+
+    @Benchmark
+    public ValidationResult accountType() {
+        return InputValidator.validateAccountType(accountType);
+    }
+
+    @Benchmark
+    public ValidationResult amountCents() {
+        return InputValidator.validateAmount(amountCents);
+    }
+
+    @Benchmark
+    public ValidationResult amountText() {
+        return InputValidator.validateAmount(amountText);
+    }
+
+    @Benchmark
+    public ValidationResult transfer() {
+        return InputValidator.validateTransfer(validAccountNumber, "ACC4321");
+    }
+
+    @Benchmark
+    public int batchNames() {
+        return InputValidator.validateAccountHolderNames(batchNames, batchResults);
+    }
+
+    @Benchmark
+    public int batchNewAccounts() {
+        return InputValidator.validateNewAccounts(batchNames, batchTypes, batchResults);
+    }
+
+    @Benchmark
+    public int legacyBatchNames() {
+        int invalid = 0;
+        for (int i = 0; i < batchNames.length; i++) {
+            batchResults[i] = legacyValidateAccountHolderName(batchNames[i]);
+            if (!batchResults[i].isValid()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    @Benchmark
+    public ValidationResult legacyHolderNameValid() {
+        return legacyValidateAccountHolderName(validName);
+    }
+
+    @Benchmark
+    public ValidationResult legacyAccountNumberValid() {
+        return legacyValidateAccountNumber(validAccountNumber);
+    }
+
+    @Benchmark
+    public ValidationResult legacyAccountType() {
+        return legacyValidateAccountType(accountType);
+    }
+
+    // The checks as originally written, kept here only as a baseline
+    static ValidationResult legacyValidateAccountHolderName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return new ValidationResult(false, "Account holder name cannot be empty!");
+        }
+        if (name.trim().length() < 2) {
+            return new ValidationResult(false, "Account holder name must be at least 2 characters long!");
+        }
+        if (name.trim().length() > 50) {
+            return new ValidationResult(false, "Account holder name cannot exceed 50 characters!");
+        }
+        if (!name.matches("^[a-zA-Z\\s\\-']+$")) {
+            return new ValidationResult(false, "Account holder name can only contain letters, spaces, hyphens, and apostrophes!");
+        }
+        return new ValidationResult(true, "Valid name");
+    }
+
+    static ValidationResult legacyValidateAccountNumber(String accountNumber) {
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            return new ValidationResult(false, "Account number cannot be empty!");
+        }
+        if (!accountNumber.matches("^ACC\\d{4}$")) {
+            return new ValidationResult(false, "Account number must be in format ACC#### (e.g., ACC1001)!");
+        }
+        return new ValidationResult(true, "Valid account number");
+    }
+
+    static ValidationResult legacyValidateAccountType(String accountType) {
+        if (accountType == null || accountType.trim().isEmpty()) {
+            return new ValidationResult(false, "Account type cannot be empty!");
+        }
+        String type = accountType.trim().toLowerCase();
+        if (!type.equals("savings") && !type.equals("checking") && !type.equals("current")) {
+            return new ValidationResult(false, "Account type must be 'Savings', 'Checking', or 'Current'!");
+        }
+        return new ValidationResult(true, "Valid account type");
+    }
+}
@@ -0,0 +1,682 @@
+package bankapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Synthetic workload for sizing a Bank: opens a book of accounts, then drives a mix of
+ * deposits, withdrawals, transfers and balance reads against it from a number of threads
+ * Accounts are picked uniformly or with Zipfian skew (a few hot accounts take most of the
+ * traffic, as in real books), hot accounts spread over the book rather than numbered together.
+ * Closed loop: each thread sends its next operation as soon as the last one completes, which
+ * finds the saturation throughput. Open loop: operations arrive on a schedule at a fixed total
+ * rate whether or not the bank keeps up, as real clients do. Either way two latencies are
+ * reported. Service time runs from sending an operation to its completion. Response time also
+ * counts the wait a client would have seen: in open loop it runs from the operation's scheduled
+ * start, and in closed loop it adds back the operations a stalled thread never got to send, as if
+ * they had been due at the thread's mean interval between sends (coordinated omission correction).
+ * Latencies are kept in LedgerMetrics' log-linear buckets, so percentiles are reported within
+ * 6.25%; means are exact.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar bankapp.WorkloadDriver [--option=value ...]
+ *   --accounts=10000            accounts opened before the run
+ *   --balance=100000            opening balance of each account, in cents
+ *   --max-amount=10000          operations move 1 to this many cents
+ *   --mix=deposit:25,withdraw:15,transfer:40,balance:20   relative weights
+ *   --skew=uniform | zipf:0.99  account popularity; the Zipf exponent must be in (0, 1)
+ *   --mode=closed | open:50000  closed loop, or open loop at this many operations per second in total
+ *   --arrival=poisson | fixed   open loop inter-arrival times
+ *   --threads=8                 threads sending operations
+ *   --warmup=2 --seconds=10     warm-up and measured durations
+ *   --server=host:port          drive a BankServer (one connection per thread) instead of an in-process Bank
+ *   --data-dir=dir --durability=GROUP   in process: a durable bank in this directory instead of an in-memory one
+ *   --store=hash | columnar     in process: the account store
+ *   --seed=42
+ */
+public class WorkloadDriver {
+    private static final int DEPOSIT = 0;
+    private static final int WITHDRAW = 1;
+    private static final int TRANSFER = 2;
+    private static final int BALANCE = 3;
+    private static final String[] OPERATIONS = {"deposit", "withdraw", "transfer", "balance"};
+    private static final int SETUP_WINDOW = 1024; // requests in flight while opening accounts on a server
+    private static final long PARK_SLACK_NANOS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int accountCount = Integer.parseInt(options.getOrDefault("accounts", "10000"));
+        long balance = Long.parseLong(options.getOrDefault("balance", "100000"));
+        long maxAmount = Long.parseLong(options.getOrDefault("max-amount", "10000"));
+        int[] weights = parseMix(options.getOrDefault("mix", "deposit:25,withdraw:15,transfer:40,balance:20"));
+        String skew = options.getOrDefault("skew", "uniform");
+        String mode = options.getOrDefault("mode", "closed");
+        boolean poisson = !"fixed".equals(options.getOrDefault("arrival", "poisson"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        if (accountCount < 2 || threads < 1 || seconds < 1 || maxAmount < 1) {
+            throw new IllegalArgumentException("Need at least 2 accounts, 1 thread, 1 second and a positive max amount");
+        }
+
+        double rate = 0;
+        if (mode.startsWith("open:")) {
+            rate = Double.parseDouble(mode.substring("open:".length()));
+        } else if (!"closed".equals(mode)) {
+            throw new IllegalArgumentException("Mode must be closed or open:<operations per second>");
+        }
+        AccountPicker picker = AccountPicker.of(skew, accountCount);
+
+        Target target = options.containsKey("server")
+                ? new ServerTarget(options.get("server"), threads)
+                : new InProcessTarget(options);
+        System.out.printf("Opening %d accounts (%s)...%n", accountCount, target);
+        String[] accounts = target.openAccounts(accountCount, balance);
+        // Shuffle so the hot ranks of a skewed picker land on accounts spread over the book
+        SplittableRandom shuffle = new SplittableRandom(seed);
+        for (int i = accounts.length - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            String swap = accounts[i];
+            accounts[i] = accounts[j];
+            accounts[j] = swap;
+        }
+
+        long now = System.nanoTime();
+        long measureStart = now + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+        double threadRate = rate / threads;
+        Worker[] workers = new Worker[threads];
+        SplittableRandom seeds = new SplittableRandom(seed + 1);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(target.session(i), accounts, picker, weights, maxAmount, seeds.split(),
+                    threadRate, poisson, now, measureStart, measureEnd);
+        }
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(workers[i], "workload-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            running.add(thread);
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        target.close();
+
+        Stats total = new Stats();
+        long maxLag = 0;
+        for (Worker worker : workers) {
+            total.add(worker.stats);
+            maxLag = Math.max(maxLag, worker.lagNanos);
+        }
+        System.out.printf("%s loop, %d threads, %s accounts, %s, %d s measured after %d s warm-up%n",
+                rate > 0 ? String.format(Locale.ROOT, "Open (%.0f ops/s, %s arrivals)", rate, poisson ? "Poisson" : "fixed") : "Closed",
+                threads, accountCount, skew, seconds, warmupSeconds);
+        total.print(seconds, threads, rate > 0);
+        if (rate > 0) {
+            System.out.printf("Sends fell behind schedule by up to %.1f ms%n", maxLag / 1e6);
+            if (total.completed() < 0.99 * rate * seconds) {
+                System.out.println("The bank did not keep up with the offered rate");
+            }
+        }
+    }
+
+    // Holder names may only hold letters, so number the holders in base 26
+    static String holderName(int index) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return "Holder " + name.reverse();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --option=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] entry = part.split(":");
+            int operation = List.of(OPERATIONS).indexOf(entry[0].trim());
+            if (entry.length != 2 || operation < 0) {
+                throw new IllegalArgumentException("Mix entries are deposit|withdraw|transfer|balance:<weight>, got " + part);
+            }
+            weights[operation] = Integer.parseInt(entry[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1]; // cumulative
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("The mix needs a positive weight");
+        }
+        return weights;
+    }
+
+    /**
+     * Picks account ranks, 0 being the most popular
+     */
+    abstract static class AccountPicker {
+        abstract int next(SplittableRandom random);
+
+        static AccountPicker of(String skew, int accounts) {
+            if ("uniform".equals(skew)) {
+                return new AccountPicker() {
+                    @Override
+                    int next(SplittableRandom random) {
+                        return random.nextInt(accounts);
+                    }
+                };
+            }
+            if (skew.startsWith("zipf:")) {
+                return new Zipf(accounts, Double.parseDouble(skew.substring("zipf:".length())));
+            }
+            throw new IllegalArgumentException("Skew must be uniform or zipf:<exponent>");
+        }
+    }
+
+    /**
+     * Zipfian ranks by the method of Gray et al., "Quickly Generating Billion-Record Synthetic
+     * Databases": one pass over the ranks up front, then constant time per pick
+     */
+    static final class Zipf extends AccountPicker {
+        private final int items;
+        private final double theta;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        Zipf(int items, double theta) {
+            if (!(theta > 0 && theta < 1)) {
+                throw new IllegalArgumentException("The Zipf exponent must be between 0 and 1");
+            }
+            this.items = items;
+            this.theta = theta;
+            double zeta = 0;
+            for (int i = 1; i <= items; i++) {
+                zeta += 1 / Math.pow(i, theta);
+            }
+            this.zetaN = zeta;
+            this.alpha = 1 / (1 - theta);
+            double zeta2 = 1 + Math.pow(0.5, theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetaN);
+        }
+
+        @Override
+        int next(SplittableRandom random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < 1 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return (int) Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+        }
+    }
+
+    /**
+     * Where operations go: opens the book, then hands each thread a session
+     */
+    interface Target extends Closeable {
+        String[] openAccounts(int count, long balance) throws IOException;
+
+        Session session(int thread);
+    }
+
+    /**
+     * One thread's view of the target; every call waits for its outcome
+     */
+    interface Session {
+        LedgerEvent.Status deposit(String account, long amount);
+
+        LedgerEvent.Status withdraw(String account, long amount);
+
+        LedgerEvent.Status transfer(String source, String target, long amount);
+
+        LedgerEvent.Status balance(String account);
+    }
+
+    static final class InProcessTarget implements Target, Session {
+        private final Bank bank;
+        private final String description;
+
+        InProcessTarget(Map<String, String> options) throws IOException {
+            AccountStore store = "columnar".equals(options.getOrDefault("store", "hash"))
+                    ? new ColumnarAccountStore() : new HashAccountStore();
+            String dataDir = options.get("data-dir");
+            if (dataDir != null) {
+                DurabilityMode durability = DurabilityMode.valueOf(options.getOrDefault("durability", "GROUP"));
+                bank = Bank.open(Paths.get(dataDir), durability, store);
+                description = "in process, " + durability + " durability in " + dataDir;
+            } else {
+                bank = new Bank(store);
+                description = "in process, in memory";
+            }
+        }
+
+        @Override
+        public String[] openAccounts(int count, long balance) {
+            String[] accounts = new String[count];
+            for (int i = 0; i < count; i++) {
+                accounts[i] = bank.createAccount(holderName(i), i % 10 < 6 ? "Savings" : "Checking");
+                bank.findAccount(accounts[i]).deposit(balance);
+            }
+            return accounts;
+        }
+
+        @Override
+        public Session session(int thread) {
+            return this;
+        }
+
+        // Every operation looks its account up by number, as a request from outside would
+        @Override
+        public LedgerEvent.Status deposit(String account, long amount) {
+            return bank.findAccount(account).deposit(amount) ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.INVALID_AMOUNT;
+        }
+
+        @Override
+        public LedgerEvent.Status withdraw(String account, long amount) {
+            return bank.findAccount(account).withdraw(amount) ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.INSUFFICIENT_FUNDS;
+        }
+
+        @Override
+        public LedgerEvent.Status transfer(String source, String target, long amount) {
+            if (bank.findAccount(source).transfer(bank.findAccount(target), amount)) {
+                return LedgerEvent.Status.APPLIED;
+            }
+            return source.equals(target) ? LedgerEvent.Status.SAME_ACCOUNT : LedgerEvent.Status.INSUFFICIENT_FUNDS;
+        }
+
+        @Override
+        public LedgerEvent.Status balance(String account) {
+            BankAccount found = bank.findAccount(account);
+            if (found == null) {
+                return LedgerEvent.Status.UNKNOWN_ACCOUNT;
+            }
+            found.getBalanceCents();
+            return LedgerEvent.Status.APPLIED;
+        }
+
+        @Override
+        public void close() throws IOException {
+            bank.close();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    static final class ServerTarget implements Target {
+        private final String address;
+        private final BankClient[] clients;
+
+        ServerTarget(String address, int connections) throws IOException {
+            String[] hostPort = address.split(":");
+            this.address = address;
+            this.clients = new BankClient[connections];
+            for (int i = 0; i < connections; i++) {
+                clients[i] = new BankClient(hostPort[0], Integer.parseInt(hostPort[1]));
+            }
+        }
+
+        @Override
+        public String[] openAccounts(int count, long balance) {
+            String[] accounts = new String[count];
+            BankClient setup = clients[0];
+            for (int start = 0; start < count; start += SETUP_WINDOW) {
+                int end = Math.min(count, start + SETUP_WINDOW);
+                List<CompletableFuture<String>> created = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    created.add(setup.createAccountAsync(holderName(i), i % 10 < 6 ? "Savings" : "Checking"));
+                }
+                List<CompletableFuture<LedgerEvent.Status>> funded = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    accounts[i] = created.get(i - start).join();
+                    funded.add(setup.depositAsync(accounts[i], balance));
+                }
+                funded.forEach(CompletableFuture::join);
+            }
+            return accounts;
+        }
+
+        @Override
+        public Session session(int thread) {
+            BankClient client = clients[thread];
+            return new Session() {
+                @Override
+                public LedgerEvent.Status deposit(String account, long amount) {
+                    return client.deposit(account, amount);
+                }
+
+                @Override
+                public LedgerEvent.Status withdraw(String account, long amount) {
+                    return client.withdraw(account, amount);
+                }
+
+                @Override
+                public LedgerEvent.Status transfer(String source, String target, long amount) {
+                    return client.transfer(source, target, amount);
+                }
+
+                @Override
+                public LedgerEvent.Status balance(String account) {
+                    return client.getBalance(account) != null ? LedgerEvent.Status.APPLIED : LedgerEvent.Status.UNKNOWN_ACCOUNT;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (BankClient client : clients) {
+                client.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "server at " + address + ", " + clients.length + " connections";
+        }
+    }
+
+    // One sending thread: picks operations, paces them in open loop, records what happened
+    static final class Worker implements Runnable {
+        private final Session session;
+        private final String[] accounts;
+        private final AccountPicker picker;
+        private final int[] weights;
+        private final long maxAmount;
+        private final SplittableRandom random;
+        private final double meanIntervalNanos; // 0 in closed loop
+        private final boolean poisson;
+        private final long startNanos;
+        private final long measureStart;
+        private final long measureEnd;
+        final Stats stats = new Stats();
+        long lagNanos; // how far the sends fell behind the open loop schedule, at most
+
+        Worker(Session session, String[] accounts, AccountPicker picker, int[] weights, long maxAmount,
+               SplittableRandom random, double threadRate, boolean poisson, long startNanos, long measureStart, long measureEnd) {
+            this.session = session;
+            this.accounts = accounts;
+            this.picker = picker;
+            this.weights = weights;
+            this.maxAmount = maxAmount;
+            this.random = random;
+            this.meanIntervalNanos = threadRate > 0 ? 1e9 / threadRate : 0;
+            this.poisson = poisson;
+            this.startNanos = startNanos;
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+        }
+
+        @Override
+        public void run() {
+            boolean open = meanIntervalNanos > 0;
+            double scheduled = startNanos + nextInterval();
+            while (true) {
+                long intended;
+                long now = System.nanoTime();
+                if (open) {
+                    intended = (long) scheduled;
+                    if (intended >= measureEnd) {
+                        return;
+                    }
+                    // Parking overshoots by tens of microseconds, so sleep most of the way and yield the rest
+                    while (now < intended) {
+                        if (intended - now > PARK_SLACK_NANOS) {
+                            LockSupport.parkNanos(intended - now - PARK_SLACK_NANOS);
+                        } else {
+                            Thread.yield();
+                        }
+                        now = System.nanoTime();
+                    }
+                    if (intended >= measureStart) {
+                        lagNanos = Math.max(lagNanos, now - intended);
+                    }
+                    scheduled += nextInterval();
+                } else {
+                    if (now >= measureEnd) {
+                        return;
+                    }
+                    intended = now;
+                }
+
+                int operation = pickOperation();
+                LedgerEvent.Status status = execute(operation);
+                long done = System.nanoTime();
+                if (intended >= measureStart) {
+                    stats.record(operation, status, done - now, done - intended);
+                }
+            }
+        }
+
+        private double nextInterval() {
+            if (meanIntervalNanos == 0) {
+                return 0;
+            }
+            return poisson ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+        }
+
+        private int pickOperation() {
+            int roll = random.nextInt(weights[weights.length - 1]);
+            int operation = 0;
+            while (roll >= weights[operation]) {
+                operation++;
+            }
+            return operation;
+        }
+
+        private LedgerEvent.Status execute(int operation) {
+            String account = accounts[picker.next(random)];
+            long amount = 1 + random.nextLong(maxAmount);
+            switch (operation) {
+                case DEPOSIT:
+                    return session.deposit(account, amount);
+                case WITHDRAW:
+                    return session.withdraw(account, amount);
+                case TRANSFER:
+                    return session.transfer(account, accounts[picker.next(random)], amount);
+                default:
+                    return session.balance(account);
+            }
+        }
+    }
+
+    // Counts and latency histograms per operation; one per thread, merged at the end
+    static final class Stats {
+        final long[] completed = new long[OPERATIONS.length];
+        final long[] rejected = new long[OPERATIONS.length];
+        final Histogram[] service = new Histogram[OPERATIONS.length];
+        final Histogram[] response = new Histogram[OPERATIONS.length];
+
+        Stats() {
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                service[i] = new Histogram();
+                response[i] = new Histogram();
+            }
+        }
+
+        void record(int operation, LedgerEvent.Status status, long serviceNanos, long responseNanos) {
+            completed[operation]++;
+            if (status != LedgerEvent.Status.APPLIED) {
+                rejected[operation]++;
+            }
+            service[operation].record(serviceNanos);
+            response[operation].record(responseNanos);
+        }
+
+        long completed() {
+            long sum = 0;
+            for (long count : completed) {
+                sum += count;
+            }
+            return sum;
+        }
+
+        void add(Stats other) {
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                completed[i] += other.completed[i];
+                rejected[i] += other.rejected[i];
+                service[i].add(other.service[i]);
+                response[i].add(other.response[i]);
+            }
+        }
+
+        void print(int seconds, int threads, boolean open) {
+            Histogram allService = new Histogram();
+            Histogram allResponse = new Histogram();
+            long allCompleted = 0;
+            long allRejected = 0;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                allService.add(service[i]);
+                allResponse.add(response[i]);
+                allCompleted += completed[i];
+                allRejected += rejected[i];
+            }
+            System.out.printf("Throughput: %.0f ops/s, %.2f%% rejected%n",
+                    allCompleted / (double) seconds, allCompleted == 0 ? 0 : 100.0 * allRejected / allCompleted);
+
+            // Closed loop: back-fill the sends a slow operation held up, one per mean interval between a thread's sends
+            long expectedInterval = allCompleted == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(seconds) * (double) threads / allCompleted);
+            Histogram[] corrected = new Histogram[OPERATIONS.length];
+            Histogram allCorrected = new Histogram();
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                corrected[i] = open ? response[i] : response[i].correctedFor(expectedInterval);
+                allCorrected.add(corrected[i]);
+            }
+
+            System.out.println(open ? "Response time, from the scheduled start (us):" : "Response time, corrected for coordinated omission (us):");
+            printHeader();
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                printRow(OPERATIONS[i], completed[i], rejected[i], corrected[i]);
+            }
+            printRow("all", allCompleted, allRejected, allCorrected);
+            System.out.println("Service time, from send to completion (us):");
+            printHeader();
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                printRow(OPERATIONS[i], completed[i], rejected[i], service[i]);
+            }
+            printRow("all", allCompleted, allRejected, allService);
+        }
+
+        private static void printHeader() {
+            System.out.printf("  %-9s %10s %9s %9s %9s %9s %9s %9s %9s%n", "", "count", "rejected", "mean", "p50", "p90", "p99",
+                    "p99.9", "max");
+        }
+
+        private static void printRow(String name, long count, long rejected, Histogram latencies) {
+            System.out.printf(Locale.ROOT, "  %-9s %10d %8.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, count,
+                    count == 0 ? 0 : 100.0 * rejected / count, latencies.mean() / 1e3,
+                    latencies.percentile(50) / 1e3, latencies.percentile(90) / 1e3, latencies.percentile(99) / 1e3,
+                    latencies.percentile(99.9) / 1e3, latencies.max / 1e3);
+        }
+    }
+
+    // Latencies in nanoseconds, in the buckets LedgerMetrics uses
+    static final class Histogram {
+        final long[] counts = new long[LedgerMetrics.BUCKETS];
+        long total;
+        long sum;
+        long max;
+
+        void record(long nanos) {
+            record(nanos, 1);
+        }
+
+        void record(long nanos, long count) {
+            counts[LedgerMetrics.bucket(nanos)] += count;
+            total += count;
+            sum += nanos * count;
+            max = Math.max(max, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        double mean() {
+            return total == 0 ? 0 : (double) sum / total;
+        }
+
+        long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(LedgerMetrics.bucketLimit(bucket), max);
+                }
+            }
+            return max;
+        }
+
+        // Each value longer than the interval also stands for the sends it held up, due one interval apart:
+        // v - interval, v - 2 * interval, ... down to the interval. They are added a bucket at a time.
+        Histogram correctedFor(long interval) {
+            Histogram corrected = new Histogram();
+            corrected.add(this);
+            if (interval <= 0) {
+                return corrected;
+            }
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                long count = counts[bucket];
+                long value = Math.min(LedgerMetrics.bucketLimit(bucket), max);
+                if (count == 0 || value < 2 * interval) {
+                    continue;
+                }
+                long lastMissed = value / interval - 1; // missed sends k = 1..lastMissed, at value - k * interval
+                for (int target = LedgerMetrics.bucket(interval); target <= bucket; target++) {
+                    long low = target == 0 ? 0 : LedgerMetrics.bucketLimit(target - 1) + 1;
+                    long high = LedgerMetrics.bucketLimit(target);
+                    long first = Math.max(1, ceilDiv(value - high, interval));
+                    long last = Math.min(lastMissed, Math.floorDiv(value - low, interval));
+                    if (first <= last) {
+                        long missed = last - first + 1;
+                        corrected.counts[target] += missed * count;
+                        corrected.total += missed * count;
+                        // Sum of value - k * interval over k = first..last
+                        corrected.sum += count * (missed * value - interval * (first + last) * missed / 2);
+                    }
+                }
+            }
+            return corrected;
+        }
+
+        private static long ceilDiv(long x, long y) {
+            return -Math.floorDiv(-x, y);
+        }
+    }
+}